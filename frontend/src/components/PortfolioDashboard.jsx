@@ -32,6 +32,8 @@ export default function PortfolioDashboard() {
   const [error, setError] = useState(null)
 
   useEffect(() => {
+    let events = null
+    let unmounted = false
     fetch('/api/dashboard')
       .then(res => {
         if (res.status === 401) {
@@ -41,8 +43,18 @@ export default function PortfolioDashboard() {
         if (!res.ok) throw new Error(`HTTP ${res.status}`)
         return res.json()
       })
-      .then(json => { if (json) setData(json) })
+      .then(json => {
+        if (!json || unmounted) return
+        setData(json)
+        // The server pushes the dashboard whenever it changes; EventSource reconnects on its own
+        events = new EventSource('/api/dashboard/stream')
+        events.addEventListener('dashboard', e => setData(JSON.parse(e.data)))
+      })
       .catch(err => setError(err.message))
+    return () => {
+      unmounted = true
+      events?.close()
+    }
   }, [])
 
   if (error) {
@@ -1,11 +1,14 @@
 package com.avants.autonomoustrader.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 @Configuration
 @EnableAsync
@@ -15,4 +18,18 @@ public class AsyncConfig {
     public Executor virtualThreadExecutor() {
         return Executors.newVirtualThreadPerTaskExecutor();
     }
+
+    /**
+     * Work-stealing pool for CPU-bound universe scans, kept apart from the common pool and the
+     * virtual threads serving requests. trading.scan.parallelism=0 uses every core.
+     */
+    @Bean(name = "scanPool", destroyMethod = "shutdown")
+    public ForkJoinPool scanPool(@Value("${trading.scan.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("scan-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
 }
@@ -0,0 +1,32 @@
+package com.avants.autonomoustrader.config;
+
+import com.avants.autonomoustrader.util.WindowKernels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class KernelConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(KernelConfig.class);
+
+    @Value("${trading.kernels.vector:true}")
+    private boolean vector;
+
+    /**
+     * Vector API kernels by default; trading.kernels.vector=false forces the scalar ones, which are
+     * also used when the JVM was started without --add-modules jdk.incubator.vector.
+     */
+    @Bean
+    public WindowKernels windowKernels() {
+        WindowKernels kernels = WindowKernels.select(vector);
+        if (vector && !"vector".equals(kernels.name())) {
+            log.warn("jdk.incubator.vector is not available — using scalar window kernels");
+        } else {
+            log.info("Using {} window kernels", kernels.name());
+        }
+        return kernels;
+    }
+}
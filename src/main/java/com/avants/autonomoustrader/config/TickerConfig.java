@@ -0,0 +1,43 @@
+package com.avants.autonomoustrader.config;
+
+import com.avants.autonomoustrader.service.KiteTickerFeed;
+import com.avants.autonomoustrader.service.ReplayTickFeed;
+import com.avants.autonomoustrader.service.TickFeed;
+import com.zerodhatech.kiteconnect.KiteConnect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+@Configuration
+public class TickerConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(TickerConfig.class);
+
+    @Value("${kite.api-key}")
+    private String apiKey;
+
+    @Value("${trading.ticker.feed:kite}")
+    private String feed;
+
+    @Value("${trading.ticker.replay-path:ticks.csv}")
+    private String replayPath;
+
+    @Value("${trading.ticker.replay-speed:1.0}")
+    private double replaySpeed;
+
+    /**
+     * The live Kite WebSocket by default; trading.ticker.feed=replay swaps in a recorded tick file.
+     */
+    @Bean
+    public TickFeed tickFeed(KiteConnect kiteConnect) {
+        if ("replay".equalsIgnoreCase(feed)) {
+            log.info("Using replay tick feed from {}", replayPath);
+            return new ReplayTickFeed(Paths.get(replayPath), replaySpeed);
+        }
+        return new KiteTickerFeed(kiteConnect, apiKey);
+    }
+}
@@ -0,0 +1,29 @@
+package com.avants.autonomoustrader.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.Executor;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private final Executor virtualThreadExecutor;
+
+    public WebConfig(@Qualifier("virtualThreadExecutor") Executor virtualThreadExecutor) {
+        this.virtualThreadExecutor = virtualThreadExecutor;
+    }
+
+    /**
+     * Streamed responses (the dashboard, streamed scans) block their writer for as long as the client
+     * stays connected, so they run on virtual threads. Without this, MVC falls back to a platform
+     * thread per stream: Boot only configures its executor when no other Executor bean exists.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor));
+    }
+}
@@ -1,22 +1,35 @@
 package com.avants.autonomoustrader.controller;
 
 import com.avants.autonomoustrader.dto.CandidateDto;
+import com.avants.autonomoustrader.service.CandidateStream;
+import com.avants.autonomoustrader.service.CandidateStreamService;
+import com.avants.autonomoustrader.service.ScanSnapshotService;
 import com.avants.autonomoustrader.service.TechnicalScannerService;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
 import java.util.List;
 
 /**
  * REST API controller for investment advisor functionality.
  * Provides technical analysis recommendations to the React UI.
+ * Results come from precomputed scan snapshots; X-Scan-As-Of and X-Scan-Stale report how current
+ * the served snapshot is. The streaming variant scans live instead and writes each candidate as
+ * NDJSON the moment it is found, then the ranked result.
  */
 @RestController
 @RequestMapping("/api/v1/advice")
@@ -24,36 +37,50 @@ public class AdvisorController {
 
     private static final Logger log = LoggerFactory.getLogger(AdvisorController.class);
 
-    private final TechnicalScannerService technicalScannerService;
+    public static final String AS_OF_HEADER = "X-Scan-As-Of";
+    public static final String STALE_HEADER = "X-Scan-Stale";
 
-    public AdvisorController(TechnicalScannerService technicalScannerService) {
-        this.technicalScannerService = technicalScannerService;
+    private final ScanSnapshotService scanSnapshotService;
+    private final CandidateStreamService candidateStreamService;
+    private final ObjectMapper objectMapper;
+
+    public AdvisorController(ScanSnapshotService scanSnapshotService,
+                             CandidateStreamService candidateStreamService,
+                             ObjectMapper objectMapper) {
+        this.scanSnapshotService = scanSnapshotService;
+        this.candidateStreamService = candidateStreamService;
+        this.objectMapper = objectMapper;
     }
 
     /**
-     * Scans Nifty 50 stocks and returns top candidates based on EMA 200 analysis.
+     * Returns top candidates of the strategy's universe based on EMA 200 analysis.
      * Used by the React UI Investment Advisor tab.
      *
-     * @param topK Optional parameter to limit number of results (default from strategy.json)
+     * @param topK    Optional parameter to limit number of results (default from strategy.json), at
+     *                most {@value TechnicalScannerService#MAX_CANDIDATES}; larger values are rejected with 400
+     * @param refresh Rescan now instead of serving the latest snapshot
      * @return List of candidate stocks sorted by distance from EMA 200
      */
     @GetMapping("/top-candidates")
     public ResponseEntity<List<CandidateDto>> getTopCandidates(
-            @RequestParam(required = false) Integer topK) {
+            @RequestParam(required = false) Integer topK,
+            @RequestParam(defaultValue = "false") boolean refresh) {
 
-        log.info("Received request for top candidates (topK={})", topK);
+        log.debug("Received request for top candidates (topK={}, refresh={})", topK, refresh);
+        if (topK != null && (topK < 1 || topK > TechnicalScannerService.MAX_CANDIDATES)) {
+            log.warn("Rejected top candidates request: topK={} is outside 1..{}", topK, TechnicalScannerService.MAX_CANDIDATES);
+            return ResponseEntity.badRequest().build();
+        }
 
         try {
-            List<CandidateDto> candidates;
+            ScanSnapshotService.Snapshot snapshot = scanSnapshotService.candidates(topK, refresh);
+            boolean stale = scanSnapshotService.isStale(snapshot, System.currentTimeMillis());
 
-            if (topK != null) {
-                candidates = technicalScannerService.scanForCandidates(topK);
-            } else {
-                candidates = technicalScannerService.scanWithStrategyParameters();
-            }
-
-            log.info("Returning {} candidates to UI", candidates.size());
-            return ResponseEntity.ok(candidates);
+            log.debug("Returning {} candidates to UI (stale={})", snapshot.candidates().size(), stale);
+            return ResponseEntity.ok()
+                    .header(AS_OF_HEADER, Instant.ofEpochMilli(snapshot.asOfMillis()).atZone(KiteTime.IST).toOffsetDateTime().toString())
+                    .header(STALE_HEADER, Boolean.toString(stale))
+                    .body(snapshot.candidates());
 
         } catch (IOException e) {
             log.error("Failed to scan for candidates: {}", e.getMessage(), e);
@@ -63,4 +90,65 @@ public class AdvisorController {
             return ResponseEntity.status(503).build(); // Service Unavailable
         }
     }
+
+    /**
+     * Streams a live scan as NDJSON: one "candidate" line per qualifying symbol as soon as it is
+     * evaluated, in the order found, then one "summary" line with the ranked top candidates (or an
+     * "error" line). Lines are flushed one by one; a client reading slowly holds the scan back
+     * rather than letting results pile up, and disconnecting cancels it.
+     *
+     * @param topK Optional parameter to limit the ranked summary (default from strategy.json), at most
+     *             {@value TechnicalScannerService#MAX_CANDIDATES}; larger values are rejected with 400
+     */
+    @GetMapping(value = "/top-candidates/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamTopCandidates(@RequestParam(required = false) Integer topK) {
+        log.debug("Received request for streamed top candidates (topK={})", topK);
+        if (topK != null && (topK < 1 || topK > TechnicalScannerService.MAX_CANDIDATES)) {
+            log.warn("Rejected streamed top candidates request: topK={} is outside 1..{}", topK, TechnicalScannerService.MAX_CANDIDATES);
+            return ResponseEntity.badRequest().build();
+        }
+        CandidateStream stream = candidateStreamService.open(topK);
+
+        StreamingResponseBody body = out -> {
+            try {
+                int found = 0;
+                for (CandidateDto candidate = stream.next(); candidate != null; candidate = stream.next()) {
+                    writeLine(out, new StreamEvent("candidate", candidate, null, null));
+                    found++;
+                }
+                try {
+                    List<CandidateDto> ranked = stream.result();
+                    writeLine(out, new StreamEvent("summary", null, ranked, null));
+                    log.debug("Streamed {} candidates, {} ranked", found, ranked.size());
+                } catch (IOException e) {
+                    writeLine(out, new StreamEvent("error", null, null, e.getMessage()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stream.close(); // a client that went away cancels the scan
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void writeLine(OutputStream out, StreamEvent event) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(event));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * One NDJSON line of a streamed scan. type is candidate, summary or error.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record StreamEvent(
+            String type,
+            CandidateDto candidate,
+            List<CandidateDto> ranked,
+            String error
+    ) {
+    }
 }
@@ -0,0 +1,69 @@
+package com.avants.autonomoustrader.controller;
+
+import com.avants.autonomoustrader.dto.BacktestDto;
+import com.avants.autonomoustrader.service.BacktestService;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * REST API for backtesting strategy.json over stored candle history.
+ */
+@RestController
+@RequestMapping("/api/v1/backtest")
+public class BacktestController {
+
+    private static final Logger log = LoggerFactory.getLogger(BacktestController.class);
+
+    private final BacktestService backtestService;
+
+    public BacktestController(BacktestService backtestService) {
+        this.backtestService = backtestService;
+    }
+
+    /**
+     * Replays the strategy's entry and exit conditions, stop loss, target and position limits over the
+     * universe's stored candles, returning P&amp;L, drawdown and every trade.
+     *
+     * @param interval Candle interval (default "day")
+     * @param from     First day of the test (default one year before to)
+     * @param to       Last day of the test (default today)
+     * @param capital  Starting capital (default trading.backtest.capital)
+     * @param sync     Sync history with Kite before testing (default false: stored candles only)
+     */
+    @GetMapping
+    public ResponseEntity<BacktestDto.Report> backtest(
+            @RequestParam(defaultValue = "day") String interval,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Double capital,
+            @RequestParam(defaultValue = "false") boolean sync) {
+
+        LocalDate end = to != null ? to : LocalDate.now(KiteTime.IST);
+        LocalDate start = from != null ? from : end.minusYears(1);
+        log.info("Backtest requested: {} bars from {} to {} (sync={})", interval, start, end, sync);
+
+        try {
+            return ResponseEntity.ok(backtestService.run(interval, start, end, capital, sync));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected backtest: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("Backtest failed: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        } catch (KiteException e) {
+            log.error("Kite API error during backtest: {}", e.getMessage(), e);
+            return ResponseEntity.status(503).build(); // Service Unavailable
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.avants.autonomoustrader.controller;
+
+import com.avants.autonomoustrader.dto.CandidateDto;
+import com.avants.autonomoustrader.dto.CorrelationDto;
+import com.avants.autonomoustrader.service.CorrelationService;
+import com.avants.autonomoustrader.service.ScanSnapshotService;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * REST API for rolling correlations of daily returns across the strategy universe, so new entries
+ * can be weighed against what is already held.
+ */
+@RestController
+@RequestMapping("/api/v1/correlation")
+public class CorrelationController {
+
+    private static final Logger log = LoggerFactory.getLogger(CorrelationController.class);
+
+    private final CorrelationService correlationService;
+    private final ScanSnapshotService scanSnapshotService;
+
+    public CorrelationController(CorrelationService correlationService, ScanSnapshotService scanSnapshotService) {
+        this.correlationService = correlationService;
+        this.scanSnapshotService = scanSnapshotService;
+    }
+
+    /**
+     * Correlation of each candidate with each current holding, and the holding each candidate moves
+     * with most. Until the first refresh has built the engine, every candidate is untracked.
+     *
+     * @param symbols  Candidates to check (default: the latest scan's candidates)
+     * @param holdings Held symbols to check against (default: the synced holdings and open positions)
+     */
+    @GetMapping("/candidates")
+    public ResponseEntity<CorrelationDto.Report> getCandidateCorrelations(
+            @RequestParam(required = false) List<String> symbols,
+            @RequestParam(required = false) List<String> holdings) {
+        try {
+            List<String> candidates = symbols != null ? symbols
+                    : scanSnapshotService.candidates(null, false).candidates().stream().map(CandidateDto::symbol).toList();
+            return ResponseEntity.ok(correlationService.exposure(candidates, holdings));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected correlation request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("Failed to load candidates for correlation: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        } catch (KiteException e) {
+            log.error("Kite API error while scanning for correlation candidates: {}", e.getMessage(), e);
+            return ResponseEntity.status(503).build(); // Service Unavailable
+        }
+    }
+
+    /**
+     * Pairwise correlation matrix of the given symbols, e.g. ?symbols=TCS,INFY,HDFCBANK.
+     */
+    @GetMapping("/matrix")
+    public ResponseEntity<CorrelationDto.Matrix> getMatrix(@RequestParam List<String> symbols) {
+        try {
+            return ResponseEntity.ok(correlationService.matrix(symbols));
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected correlation request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+}
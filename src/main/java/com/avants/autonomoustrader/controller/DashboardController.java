@@ -2,119 +2,94 @@ package com.avants.autonomoustrader.controller;
 
 import com.avants.autonomoustrader.dto.DashboardDto;
 import com.avants.autonomoustrader.dto.KiteDto;
-import com.avants.autonomoustrader.model.LivePortfolio;
-import com.avants.autonomoustrader.model.TradingStrategy;
-import com.avants.autonomoustrader.service.PersistenceManager;
+import com.avants.autonomoustrader.service.DashboardService;
 import com.avants.autonomoustrader.service.KiteSyncService;
 import com.zerodhatech.kiteconnect.KiteConnect;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 
 @RestController
 @RequestMapping("/api")
 public class DashboardController {
 
     private static final Logger log = LoggerFactory.getLogger(DashboardController.class);
+    private static final byte[] RETRY = "retry: 2000\n\n".getBytes(StandardCharsets.US_ASCII);
 
     private final KiteSyncService kiteSyncService;
-    private final PersistenceManager governorService;
     private final KiteConnect kiteConnect;
+    private final DashboardService dashboardService;
 
-    public DashboardController(KiteSyncService kiteSyncService, PersistenceManager governorService, KiteConnect kiteConnect) {
+    public DashboardController(KiteSyncService kiteSyncService, KiteConnect kiteConnect, DashboardService dashboardService) {
         this.kiteSyncService = kiteSyncService;
-        this.governorService = governorService;
         this.kiteConnect = kiteConnect;
+        this.dashboardService = dashboardService;
     }
 
     @GetMapping("/dashboard")
     public ResponseEntity<DashboardDto.DashboardResponse> getDashboard() {
-        String accessToken = kiteConnect.getAccessToken();
-        if (accessToken == null || accessToken.isBlank()
-                || accessToken.equals("placeholder")
-                || accessToken.equals("your_access_token_here")
-                || kiteSyncService.isSessionExpired()) {
+        if (!hasSession()) {
             log.warn("Dashboard request rejected — no active Kite session");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        log.info("Serving dashboard — loading strategy and positions...");
+        log.info("Serving dashboard");
         try {
-            TradingStrategy strategy = governorService.loadStrategy();
-            LivePortfolio positions = governorService.loadPositions();
-
-            KiteDto.LivePortfolio livePortfolio = positions.getLivePortfolio();
-            TradingStrategy.TechnicalStrategy ts = strategy.getTechnicalStrategy();
-            TradingStrategy.RiskParameters riskParameters = strategy.getRiskParameters();
-
-            // Build holdings from live portfolio
-            List<DashboardDto.Holding> holdings;
-            double totalPnl = 0.0;
-            if (livePortfolio != null && livePortfolio.holdings() != null) {
-                double targetPct = riskParameters != null ? riskParameters.targetPct() : 3.0;
-                holdings = livePortfolio.holdings().stream()
-                        .map(h -> {
-                            double cost = h.averagePrice() * h.quantity();
-                            double pnlPct = cost > 0 ? (h.pnl() / cost) * 100.0 : 0.0;
-                            String strategyMatch;
-                            if (pnlPct >= targetPct) {
-                                strategyMatch = "STRONG MATCH";
-                            } else if (pnlPct > 0) {
-                                strategyMatch = "PARTIAL MATCH";
-                            } else {
-                                strategyMatch = "NO MATCH";
-                            }
-                            return new DashboardDto.Holding(h.tradingSymbol(), h.pnl(), pnlPct, strategyMatch);
-                        })
-                        .toList();
-                totalPnl = livePortfolio.holdings().stream().mapToDouble(KiteDto.HoldingDto::pnl).sum();
-            } else {
-                log.warn("No live portfolio in positions.json — sync may not have run yet");
-                holdings = List.of();
-            }
-
-            // Performance: derive daily from total PnL (placeholder pct until historical data is available)
-            double dailyPct = 0.0;
-            double weeklyPct = 0.0;
-            double monthlyPct = 0.0;
-            if (livePortfolio != null && livePortfolio.holdings() != null) {
-                double totalCost = livePortfolio.holdings().stream()
-                        .mapToDouble(h -> h.averagePrice() * h.quantity())
-                        .sum();
-                dailyPct = totalCost > 0 ? (totalPnl / totalCost) * 100.0 : 0.0;
-            }
-            var performance = new DashboardDto.PerformanceStats(dailyPct, weeklyPct, monthlyPct);
-
-            // Strategy from strategy.json
-            List<DashboardDto.Indicator> indicators = ts.indicators().stream()
-                    .map(i -> new DashboardDto.Indicator(i.type(), i.period(), i.source()))
-                    .toList();
-            List<DashboardDto.StrategyRule> entryConditions = ts.entryConditions().stream()
-                    .map(DashboardDto.StrategyRule::new)
-                    .toList();
-            List<DashboardDto.StrategyRule> exitConditions = ts.exitConditions().stream()
-                    .map(DashboardDto.StrategyRule::new)
-                    .toList();
-            var strategyViewer = new DashboardDto.StrategyViewer(
-                    ts.name(),
-                    ts.description(),
-                    indicators,
-                    entryConditions,
-                    exitConditions
-            );
+            return ResponseEntity.ok(dashboardService.current().response());
+        } catch (IOException e) {
+            log.error("Failed to load manifests for dashboard", e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
 
-            return ResponseEntity.ok(new DashboardDto.DashboardResponse(performance, holdings, strategyViewer));
+    /**
+     * Streams the dashboard as Server-Sent Events: a "dashboard" event with the current payload on
+     * connect, then one each time it changes, with a comment line as a heartbeat in between. A client
+     * that falls behind skips straight to the newest payload. When the async request timeout ends the
+     * stream, EventSource reconnects and receives the current payload again.
+     */
+    @GetMapping(value = "/dashboard/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDashboard() {
+        if (!hasSession()) {
+            log.warn("Dashboard stream rejected — no active Kite session");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        DashboardService.Subscription subscription;
+        try {
+            subscription = dashboardService.subscribe();
         } catch (IOException e) {
             log.error("Failed to load manifests for dashboard", e);
             return ResponseEntity.internalServerError().build();
         }
+
+        StreamingResponseBody body = out -> {
+            try {
+                out.write(RETRY);
+                for (byte[] frame = subscription.next(); frame != null; frame = subscription.next()) {
+                    out.write(frame);
+                    out.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                subscription.close(); // also when the write failed because the client went away
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .cacheControl(CacheControl.noStore())
+                .header("X-Accel-Buffering", "no") // keep reverse proxies from buffering events
+                .body(body);
     }
 
     @GetMapping("/portfolio")
@@ -127,4 +102,12 @@ public class DashboardController {
         }
         return ResponseEntity.ok(portfolio);
     }
+
+    private boolean hasSession() {
+        String accessToken = kiteConnect.getAccessToken();
+        return accessToken != null && !accessToken.isBlank()
+                && !accessToken.equals("placeholder")
+                && !accessToken.equals("your_access_token_here")
+                && !kiteSyncService.isSessionExpired();
+    }
 }
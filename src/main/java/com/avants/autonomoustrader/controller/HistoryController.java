@@ -0,0 +1,102 @@
+package com.avants.autonomoustrader.controller;
+
+import com.avants.autonomoustrader.dto.HistoryDto;
+import com.avants.autonomoustrader.service.PortfolioHistoryStore;
+import com.avants.autonomoustrader.util.KiteTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * REST API over the recorded portfolio history: performance, the book's points and daily aggregates,
+ * and each holding's market value over time.
+ */
+@RestController
+@RequestMapping("/api/v1/history")
+public class HistoryController {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryController.class);
+
+    private final PortfolioHistoryStore portfolioHistoryStore;
+
+    public HistoryController(PortfolioHistoryStore portfolioHistoryStore) {
+        this.portfolioHistoryStore = portfolioHistoryStore;
+    }
+
+    /**
+     * Daily, weekly and monthly change in the book's P&amp;L, or 204 before the first recorded sync.
+     */
+    @GetMapping("/performance")
+    public ResponseEntity<HistoryDto.Performance> getPerformance() {
+        HistoryDto.Performance performance = portfolioHistoryStore.performance(System.currentTimeMillis());
+        return performance != null ? ResponseEntity.ok(performance) : ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Every recorded point of the book on IST days [from, to], with the change over the range.
+     *
+     * @param from First day (default 30 days before to)
+     * @param to   Last day (default today)
+     */
+    @GetMapping("/book")
+    public ResponseEntity<HistoryDto.Book> getBook(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now(KiteTime.IST);
+        LocalDate start = from != null ? from : end.minusDays(30);
+        if (start.isAfter(end)) {
+            log.warn("Rejected history request: {} is after {}", start, end);
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(portfolioHistoryStore.book(start, end));
+    }
+
+    /**
+     * The book's open/high/low/close value per IST day in [from, to].
+     *
+     * @param from First day (default one year before to)
+     * @param to   Last day (default today)
+     */
+    @GetMapping("/book/daily")
+    public ResponseEntity<List<HistoryDto.Day>> getDaily(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now(KiteTime.IST);
+        LocalDate start = from != null ? from : end.minusYears(1);
+        if (start.isAfter(end)) {
+            log.warn("Rejected history request: {} is after {}", start, end);
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(portfolioHistoryStore.daily(start, end));
+    }
+
+    /**
+     * One holding's market value on IST days [from, to], e.g. /holdings/INFY?exchange=NSE.
+     *
+     * @param from First day (default 30 days before to)
+     * @param to   Last day (default today)
+     */
+    @GetMapping("/holdings/{symbol}")
+    public ResponseEntity<HistoryDto.Series> getHolding(
+            @PathVariable String symbol,
+            @RequestParam(defaultValue = "NSE") String exchange,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now(KiteTime.IST);
+        LocalDate start = from != null ? from : end.minusDays(30);
+        if (start.isAfter(end)) {
+            log.warn("Rejected history request: {} is after {}", start, end);
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(portfolioHistoryStore.holding(exchange.toUpperCase(), symbol.toUpperCase(), start, end));
+    }
+}
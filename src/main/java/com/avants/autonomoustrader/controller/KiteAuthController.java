@@ -1,5 +1,6 @@
 package com.avants.autonomoustrader.controller;
 
+import com.avants.autonomoustrader.service.KiteRateLimiter;
 import com.avants.autonomoustrader.service.KiteSessionStore;
 import com.avants.autonomoustrader.service.KiteSyncService;
 import com.zerodhatech.kiteconnect.KiteConnect;
@@ -23,6 +24,7 @@ public class KiteAuthController {
     private final KiteConnect kiteConnect;
     private final KiteSessionStore sessionStore;
     private final KiteSyncService kiteSyncService;
+    private final KiteRateLimiter rateLimiter;
 
     @Value("${kite.api-key}")
     private String apiKey;
@@ -32,10 +34,12 @@ public class KiteAuthController {
 
     public KiteAuthController(KiteConnect kiteConnect,
                               KiteSessionStore sessionStore,
-                              KiteSyncService kiteSyncService) {
+                              KiteSyncService kiteSyncService,
+                              KiteRateLimiter rateLimiter) {
         this.kiteConnect = kiteConnect;
         this.sessionStore = sessionStore;
         this.kiteSyncService = kiteSyncService;
+        this.rateLimiter = rateLimiter;
     }
 
     @GetMapping("/api/auth/login")
@@ -48,7 +52,8 @@ public class KiteAuthController {
     @GetMapping("/api/auth/callback")
     public RedirectView handleCallback(@RequestParam("request_token") String requestToken) {
         try {
-            User user = kiteConnect.generateSession(requestToken, apiSecret);
+            User user = rateLimiter.execute(KiteRateLimiter.Endpoint.OTHER, KiteRateLimiter.Priority.HIGH,
+                    () -> kiteConnect.generateSession(requestToken, apiSecret));
             String accessToken = user.accessToken;
             String publicToken = user.publicToken;
 
@@ -1,6 +1,10 @@
 package com.avants.autonomoustrader.controller;
 
 import com.avants.autonomoustrader.dto.CandidateDto;
+import com.avants.autonomoustrader.dto.CorrelationDto;
+import com.avants.autonomoustrader.service.CandidateStream;
+import com.avants.autonomoustrader.service.CandidateStreamService;
+import com.avants.autonomoustrader.service.CorrelationService;
 import com.avants.autonomoustrader.service.TechnicalScannerService;
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
 import org.slf4j.Logger;
@@ -9,10 +13,17 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * REST API controller for OpenClaw LLM agent integration.
@@ -25,9 +36,15 @@ public class OpenClawController {
     private static final Logger log = LoggerFactory.getLogger(OpenClawController.class);
 
     private final TechnicalScannerService technicalScannerService;
+    private final CandidateStreamService candidateStreamService;
+    private final CorrelationService correlationService;
 
-    public OpenClawController(TechnicalScannerService technicalScannerService) {
+    public OpenClawController(TechnicalScannerService technicalScannerService,
+                              CandidateStreamService candidateStreamService,
+                              CorrelationService correlationService) {
         this.technicalScannerService = technicalScannerService;
+        this.candidateStreamService = candidateStreamService;
+        this.correlationService = correlationService;
     }
 
     /**
@@ -37,8 +54,9 @@ public class OpenClawController {
      * Example output:
      * "Top 5 candidates near EMA 200:
      * 1. RELIANCE at ₹2,500.00 (0.23% from EMA 200)
-     * 2. TCS at ₹3,450.00 (0.45% from EMA 200)
+     * 2. TCS at ₹3,450.00 (0.45% from EMA 200, correlation 0.81 with INFY)
      * ..."
+     * When something is held, each candidate names the holding its daily returns move with most.
      *
      * @return Plain text summary
      */
@@ -49,27 +67,8 @@ public class OpenClawController {
         try {
             List<CandidateDto> candidates = technicalScannerService.scanWithStrategyParameters();
 
-            if (candidates.isEmpty()) {
-                return ResponseEntity.ok("No candidates found meeting the EMA 200 criteria at this time.");
-            }
-
-            StringBuilder summary = new StringBuilder();
-            summary.append("Top ").append(candidates.size()).append(" candidates near EMA 200:\n\n");
-
-            for (int i = 0; i < candidates.size(); i++) {
-                CandidateDto candidate = candidates.get(i);
-                summary.append(String.format("%d. %s at ₹%.2f (%.2f%% from EMA 200)\n",
-                        i + 1,
-                        candidate.symbol(),
-                        candidate.currentPrice(),
-                        candidate.distancePct()));
-            }
-
-            summary.append("\nAll candidates are in uptrend (Price > EMA 200).");
-            summary.append("\nCloser to EMA 200 indicates potential bounce opportunity.");
-
             log.info("Returning summary to OpenClaw agent with {} candidates", candidates.size());
-            return ResponseEntity.ok(summary.toString());
+            return ResponseEntity.ok(summarize(candidates));
 
         } catch (IOException e) {
             log.error("Failed to generate summary for OpenClaw: {}", e.getMessage(), e);
@@ -80,6 +79,107 @@ public class OpenClawController {
         }
     }
 
+    /**
+     * Streams the summary as chunked plain text while a live scan runs: one "Found:" line per
+     * qualifying symbol as soon as it is evaluated, then the same ranked summary as /summary.
+     * Each line is flushed on its own; a slow reader holds the scan back, and disconnecting cancels it.
+     *
+     * Example output:
+     * "Found: TCS at ₹3,450.00 (0.45% from EMA 200)
+     * Found: RELIANCE at ₹2,500.00 (0.23% from EMA 200)
+     * ...
+     *
+     * Top 5 candidates near EMA 200:
+     * 1. RELIANCE at ₹2,500.00 (0.23% from EMA 200)
+     * ..."
+     *
+     * @param topK Optional parameter to limit the ranked summary (default from strategy.json), at most
+     *             {@value TechnicalScannerService#MAX_CANDIDATES}; larger values are rejected with 400
+     */
+    @GetMapping(value = "/summary/stream", produces = MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8")
+    public ResponseEntity<StreamingResponseBody> streamSummary(@RequestParam(required = false) Integer topK) {
+        log.info("OpenClaw agent requesting streamed market summary");
+        if (topK != null && (topK < 1 || topK > TechnicalScannerService.MAX_CANDIDATES)) {
+            log.warn("Rejected streamed summary request: topK={} is outside 1..{}", topK, TechnicalScannerService.MAX_CANDIDATES);
+            return ResponseEntity.badRequest().build();
+        }
+        CandidateStream stream = candidateStreamService.open(topK);
+
+        StreamingResponseBody body = out -> {
+            try {
+                for (CandidateDto candidate = stream.next(); candidate != null; candidate = stream.next()) {
+                    writeChunk(out, String.format("Found: %s at ₹%.2f (%.2f%% from EMA 200)\n",
+                            candidate.symbol(), candidate.currentPrice(), candidate.distancePct()));
+                }
+                try {
+                    List<CandidateDto> candidates = stream.result();
+                    writeChunk(out, "\n" + summarize(candidates));
+                    log.info("Streamed summary to OpenClaw agent with {} candidates", candidates.size());
+                } catch (IOException e) {
+                    writeChunk(out, "\nError: Unable to fetch market data. " + e.getMessage());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stream.close(); // an agent that went away cancels the scan
+            }
+        };
+        return ResponseEntity.ok(body);
+    }
+
+    private String summarize(List<CandidateDto> candidates) {
+        if (candidates.isEmpty()) {
+            return "No candidates found meeting the EMA 200 criteria at this time.";
+        }
+        Map<String, CorrelationDto.Candidate> correlations = correlations(candidates);
+
+        StringBuilder summary = new StringBuilder();
+        summary.append("Top ").append(candidates.size()).append(" candidates near EMA 200:\n\n");
+
+        for (int i = 0; i < candidates.size(); i++) {
+            CandidateDto candidate = candidates.get(i);
+            CorrelationDto.Candidate correlation = correlations.get(candidate.symbol());
+            summary.append(String.format("%d. %s at ₹%.2f (%.2f%% from EMA 200%s)\n",
+                    i + 1,
+                    candidate.symbol(),
+                    candidate.currentPrice(),
+                    candidate.distancePct(),
+                    correlation != null && correlation.maxAbsCorrelation() != null
+                            ? String.format(", correlation %.2f with %s", correlation.maxAbsCorrelation(), correlation.mostCorrelatedWith())
+                            : ""));
+        }
+
+        summary.append("\nAll candidates are in uptrend (Price > EMA 200).");
+        summary.append("\nCloser to EMA 200 indicates potential bounce opportunity.");
+        if (!correlations.isEmpty()) {
+            summary.append("\nCorrelation is the strongest with any current holding; lower values diversify the book.");
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Each candidate's correlation with current holdings, or none when nothing in the universe is held
+     * or the correlation engine has not been built yet; the summary is served either way.
+     */
+    private Map<String, CorrelationDto.Candidate> correlations(List<CandidateDto> candidates) {
+        try {
+            CorrelationDto.Report report = correlationService.exposure(candidates.stream().map(CandidateDto::symbol).toList(), null);
+            if (report.holdings().isEmpty()) {
+                return Map.of();
+            }
+            return report.candidates().stream()
+                    .collect(Collectors.toMap(CorrelationDto.Candidate::symbol, Function.identity()));
+        } catch (RuntimeException e) {
+            log.warn("Summary served without correlations: {}", e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private static void writeChunk(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
     /**
      * Returns a JSON summary for programmatic LLM consumption.
      * Alternative to plain text for structured parsing.
@@ -0,0 +1,119 @@
+package com.avants.autonomoustrader.controller;
+
+import com.avants.autonomoustrader.dto.OptimizationDto;
+import com.avants.autonomoustrader.service.ResultStream;
+import com.avants.autonomoustrader.service.StrategyOptimizer;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * REST API for sweeping strategy.json parameters over stored candle history.
+ * Runs are streamed as NDJSON as they complete; any of them can then be written back as a candidate
+ * strategy version for review.
+ */
+@RestController
+@RequestMapping("/api/v1/backtest/optimize")
+public class OptimizationController {
+
+    private static final Logger log = LoggerFactory.getLogger(OptimizationController.class);
+
+    private final StrategyOptimizer strategyOptimizer;
+    private final ObjectMapper objectMapper;
+
+    public OptimizationController(StrategyOptimizer strategyOptimizer, ObjectMapper objectMapper) {
+        this.strategyOptimizer = strategyOptimizer;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Sweeps the grid in the request body, e.g.
+     * {"periods": {"EMA_9": [5, 9, 13]}, "stop_loss_pct": [1, 1.5, 2], "target_pct": [3, 4], "patience": 500}.
+     * Writes one "run" line per backtested combination as it completes, then one "table" line with the
+     * best runs ranked (or an "error" line). Disconnecting stops the sweep.
+     */
+    @PostMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> optimize(@RequestBody OptimizationDto.Request request) {
+        log.info("Parameter sweep requested: periods={}, stop_loss_pct={}, target_pct={}, max_capital_per_trade_pct={}",
+                request.periods(), request.stopLossPct(), request.targetPct(), request.maxCapitalPerTradePct());
+        ResultStream<OptimizationDto.Run, OptimizationDto.Table> stream;
+        try {
+            stream = strategyOptimizer.open(request);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected parameter sweep: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("Failed to start parameter sweep: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+
+        StreamingResponseBody body = out -> {
+            try {
+                for (OptimizationDto.Run run = stream.next(); run != null; run = stream.next()) {
+                    writeLine(out, new SweepEvent("run", run, null, null));
+                }
+                try {
+                    writeLine(out, new SweepEvent("table", null, stream.result(), null));
+                } catch (IOException e) {
+                    writeLine(out, new SweepEvent("error", null, null, e.getMessage()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stream.close(); // a client that went away stops the sweep
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Writes a swept run back as strategy-candidates/strategy-{version}-opt-{hash}.json beside
+     * strategy.json, which stays unchanged until the candidate is reviewed and copied over it.
+     *
+     * @param hash Hash of a run from a recent sweep
+     */
+    @PostMapping("/{hash}/candidate")
+    public ResponseEntity<OptimizationDto.Candidate> saveCandidate(@PathVariable String hash) {
+        try {
+            return ResponseEntity.ok(strategyOptimizer.saveCandidate(hash));
+        } catch (IllegalArgumentException e) {
+            log.warn("No candidate to save: {}", e.getMessage());
+            return ResponseEntity.notFound().build();
+        } catch (IOException e) {
+            log.error("Failed to save candidate strategy: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    private void writeLine(OutputStream out, SweepEvent event) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(event));
+        out.write('\n');
+        out.flush();
+    }
+
+    /**
+     * One NDJSON line of a sweep. type is run, table or error.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record SweepEvent(
+            String type,
+            OptimizationDto.Run run,
+            OptimizationDto.Table table,
+            String error
+    ) {
+    }
+}
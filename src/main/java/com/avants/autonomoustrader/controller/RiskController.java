@@ -0,0 +1,73 @@
+package com.avants.autonomoustrader.controller;
+
+import com.avants.autonomoustrader.dto.KiteDto;
+import com.avants.autonomoustrader.dto.RiskDto;
+import com.avants.autonomoustrader.service.KiteSyncService;
+import com.avants.autonomoustrader.service.PortfolioRiskService;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+
+/**
+ * REST API for Monte Carlo risk of the live portfolio.
+ */
+@RestController
+@RequestMapping("/api/risk")
+public class RiskController {
+
+    private static final Logger log = LoggerFactory.getLogger(RiskController.class);
+
+    private final PortfolioRiskService portfolioRiskService;
+    private final KiteSyncService kiteSyncService;
+
+    public RiskController(PortfolioRiskService portfolioRiskService, KiteSyncService kiteSyncService) {
+        this.portfolioRiskService = portfolioRiskService;
+        this.kiteSyncService = kiteSyncService;
+    }
+
+    /**
+     * 1-day and 10-day VaR and expected shortfall of the synced holdings and positions, with each
+     * holding's contribution. Without parameters, serves the report refreshed on the last sync.
+     *
+     * @param method     "bootstrap" (historical days) or "normal" (correlated normal), default trading.risk.method
+     * @param paths      Simulated paths (default trading.risk.paths)
+     * @param confidence VaR confidence level (default trading.risk.confidence)
+     */
+    @GetMapping
+    public ResponseEntity<RiskDto.Report> getRisk(
+            @RequestParam(required = false) String method,
+            @RequestParam(required = false) Integer paths,
+            @RequestParam(required = false) Double confidence) {
+
+        try {
+            RiskDto.Report report;
+            if (method == null && paths == null && confidence == null) {
+                report = portfolioRiskService.current();
+            } else {
+                KiteDto.LivePortfolio portfolio = kiteSyncService.getLivePortfolio();
+                report = portfolio != null ? portfolioRiskService.assess(portfolio, method, paths, confidence) : null;
+            }
+            if (report == null) {
+                log.warn("Live portfolio not yet available — sync may not have run");
+                return ResponseEntity.noContent().build();
+            }
+            return ResponseEntity.ok(report);
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected risk request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (IOException e) {
+            log.error("Risk simulation failed: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        } catch (KiteException e) {
+            log.error("Kite API error during risk simulation: {}", e.getMessage(), e);
+            return ResponseEntity.status(503).build(); // Service Unavailable
+        }
+    }
+}
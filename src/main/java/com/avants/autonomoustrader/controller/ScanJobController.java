@@ -0,0 +1,120 @@
+package com.avants.autonomoustrader.controller;
+
+import com.avants.autonomoustrader.dto.ScanJobDto;
+import com.avants.autonomoustrader.service.ScanJobService;
+import com.avants.autonomoustrader.service.TechnicalScannerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * REST API for asynchronous scans: submit a job, then poll it or subscribe to its progress as
+ * server-sent events, and cancel it when the result is no longer wanted.
+ */
+@RestController
+@RequestMapping("/api/v1/advice/scan-jobs")
+public class ScanJobController {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanJobController.class);
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
+    private final ScanJobService scanJobService;
+    private final Executor virtualThreadExecutor;
+
+    public ScanJobController(ScanJobService scanJobService,
+                             @Qualifier("virtualThreadExecutor") Executor virtualThreadExecutor) {
+        this.scanJobService = scanJobService;
+        this.virtualThreadExecutor = virtualThreadExecutor;
+    }
+
+    /**
+     * Submits a scan and returns its job at once (202), or the identical job already pending.
+     *
+     * @param topK Optional parameter to limit number of results (default from strategy.json), at most
+     *             {@value TechnicalScannerService#MAX_CANDIDATES}; larger values are rejected with 400
+     */
+    @PostMapping
+    public ResponseEntity<ScanJobDto> submit(@RequestParam(required = false) Integer topK) {
+        if (topK != null && (topK < 1 || topK > TechnicalScannerService.MAX_CANDIDATES)) {
+            log.warn("Rejected scan job: topK={} is outside 1..{}", topK, TechnicalScannerService.MAX_CANDIDATES);
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            ScanJobDto job = scanJobService.submit(topK);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/v1/advice/scan-jobs/" + job.id()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            log.warn("Rejected scan job: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ScanJobDto> get(@PathVariable String id) {
+        ScanJobDto job = scanJobService.find(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Streams "progress" events while the job changes, then one "done" event with its final state.
+     */
+    @GetMapping("/{id}/events")
+    public ResponseEntity<SseEmitter> events(@PathVariable String id) {
+        if (scanJobService.find(id) == null) {
+            return ResponseEntity.notFound().build();
+        }
+        SseEmitter emitter = new SseEmitter(0L); // lives as long as the job
+        virtualThreadExecutor.execute(() -> stream(id, emitter));
+        return ResponseEntity.ok(emitter);
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ScanJobDto> cancel(@PathVariable String id) {
+        ScanJobDto job = scanJobService.cancel(id);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+
+    private void stream(String id, SseEmitter emitter) {
+        ScanJobDto last = null;
+        try {
+            while (true) {
+                ScanJobDto job = scanJobService.find(id);
+                if (job == null) {
+                    emitter.complete(); // evicted
+                    return;
+                }
+                if (ScanJobService.Status.valueOf(job.status()).isFinal()) {
+                    emitter.send(SseEmitter.event().name("done").data(job));
+                    emitter.complete();
+                    return;
+                }
+                if (!job.equals(last)) {
+                    emitter.send(SseEmitter.event().name("progress").data(job));
+                    last = job;
+                }
+                Thread.sleep(PROGRESS_INTERVAL_MS);
+            }
+        } catch (IOException e) {
+            log.debug("Scan job {} subscriber went away: {}", id, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.avants.autonomoustrader.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+public class BacktestDto {
+
+    public record Trade(
+            String symbol,
+            Instant entryTime,
+            double entryPrice,
+            Instant exitTime,
+            double exitPrice,
+            int quantity,
+            double pnl,
+            double returnPct,
+            String exitReason
+    ) {}
+
+    public record Summary(
+            double startingCapital,
+            double endingEquity,
+            double netPnl,
+            double returnPct,
+            double maxDrawdown,
+            double maxDrawdownPct,
+            int trades,
+            int wins,
+            double winRatePct
+    ) {}
+
+    /**
+     * @param missingSymbols Symbols of the universe without stored candles, left out of the test
+     * @param bars           Bars replayed across all symbols
+     */
+    public record Report(
+            String strategyVersion,
+            String universe,
+            String interval,
+            LocalDate from,
+            LocalDate to,
+            int symbols,
+            List<String> missingSymbols,
+            long bars,
+            long elapsedMillis,
+            Summary summary,
+            List<Trade> trades
+    ) {}
+}
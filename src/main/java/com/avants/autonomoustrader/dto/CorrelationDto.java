@@ -0,0 +1,58 @@
+package com.avants.autonomoustrader.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public class CorrelationDto {
+
+    /**
+     * Correlation of a candidate's daily returns with one holding's; null when either did not move
+     * over the window.
+     */
+    public record Pair(
+            String holding,
+            Double correlation
+    ) {}
+
+    /**
+     * @param maxAbsCorrelation  Largest |correlation| with any holding, or null without holdings in the universe
+     * @param mostCorrelatedWith Holding with that correlation
+     * @param holdings           Correlation with each holding in the universe, in holdings order
+     */
+    public record Candidate(
+            String symbol,
+            Double maxAbsCorrelation,
+            String mostCorrelatedWith,
+            List<Pair> holdings
+    ) {}
+
+    /**
+     * @param asOf      Session of the newest daily bar in the window
+     * @param bars      Daily returns in the window, at most window
+     * @param holdings  Held symbols the candidates were compared against
+     * @param untracked Candidates and holdings outside the strategy universe, which have no correlations
+     */
+    public record Report(
+            LocalDate asOf,
+            int window,
+            int bars,
+            int universeSize,
+            List<String> holdings,
+            List<Candidate> candidates,
+            List<String> untracked
+    ) {}
+
+    /**
+     * Pairwise correlations of the requested symbols.
+     *
+     * @param correlations Row i, column j is the correlation of symbols i and j; null when either did not move
+     */
+    public record Matrix(
+            LocalDate asOf,
+            int window,
+            int bars,
+            List<String> symbols,
+            List<List<Double>> correlations,
+            List<String> untracked
+    ) {}
+}
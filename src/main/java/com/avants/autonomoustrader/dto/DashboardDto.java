@@ -1,5 +1,6 @@
 package com.avants.autonomoustrader.dto;
 
+import java.time.Instant;
 import java.util.List;
 
 public class DashboardDto {
@@ -35,9 +36,22 @@ public class DashboardDto {
             List<StrategyRule> exitConditions
     ) {}
 
+    /**
+     * Headline figures of the last Monte Carlo risk report, as positive losses.
+     */
+    public record RiskStats(
+            double confidence,
+            double oneDayVar,
+            double oneDayExpectedShortfall,
+            double tenDayVar,
+            double tenDayExpectedShortfall,
+            Instant asOf
+    ) {}
+
     public record DashboardResponse(
             PerformanceStats performance,
             List<Holding> holdings,
-            StrategyViewer strategy
+            StrategyViewer strategy,
+            RiskStats risk
     ) {}
 }
@@ -0,0 +1,81 @@
+package com.avants.autonomoustrader.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+public class HistoryDto {
+
+    /**
+     * The whole book at one sync.
+     *
+     * @param time  Epoch millis, to the second
+     * @param value Market value of holdings and net positions
+     * @param pnl   Unrealised P&amp;L of holdings plus P&amp;L of positions
+     * @param cost  Invested amount: average price times quantity
+     */
+    public record BookPoint(
+            long time,
+            double value,
+            double pnl,
+            double cost
+    ) {}
+
+    /**
+     * One holding's market value at one sync.
+     */
+    public record Point(
+            long time,
+            double value
+    ) {}
+
+    /**
+     * Change in the book's P&amp;L since the close of an earlier day, as a percentage of what is invested now.
+     *
+     * @param historyStart First stored sync; periods reaching further back are measured from it
+     */
+    public record Performance(
+            double dailyPct,
+            double weeklyPct,
+            double monthlyPct,
+            Instant asOf,
+            Instant historyStart
+    ) {}
+
+    /**
+     * The book's value over one IST day; a day without syncs carries the previous close.
+     */
+    public record Day(
+            LocalDate date,
+            double open,
+            double high,
+            double low,
+            double close,
+            double pnl,
+            double cost
+    ) {}
+
+    /**
+     * The book over a range: its syncs, and the change in P&amp;L from the close before the range to its
+     * last sync.
+     */
+    public record Book(
+            LocalDate from,
+            LocalDate to,
+            double pnlChange,
+            double changePct,
+            double high,
+            double low,
+            List<BookPoint> points
+    ) {}
+
+    /**
+     * @param name "EXCHANGE:SYMBOL"
+     */
+    public record Series(
+            String name,
+            LocalDate from,
+            LocalDate to,
+            List<Point> points
+    ) {}
+}
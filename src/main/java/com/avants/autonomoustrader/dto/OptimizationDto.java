@@ -0,0 +1,85 @@
+package com.avants.autonomoustrader.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public class OptimizationDto {
+
+    /**
+     * A parameter sweep over strategy.json. Every list is a grid axis; a missing or empty axis keeps the
+     * strategy's own value, so the sweep covers the product of the given axes.
+     *
+     * @param periods   Periods to try per declared indicator, keyed by its name in strategy.json
+     *                  ("EMA_9", "MACD_12", ...)
+     * @param objective What ranks the runs: "return" (default), "return_over_drawdown" or "win_rate"
+     * @param minTrades Runs with fewer trades are streamed but not ranked
+     * @param patience  Stop early once this many runs in a row have not improved the best score (0: never)
+     * @param top       Rows in the final ranked table (default 20)
+     */
+    public record Request(
+            @JsonProperty("interval") String interval,
+            @JsonProperty("from") LocalDate from,
+            @JsonProperty("to") LocalDate to,
+            @JsonProperty("capital") Double capital,
+            @JsonProperty("periods") Map<String, List<Integer>> periods,
+            @JsonProperty("stop_loss_pct") List<Double> stopLossPct,
+            @JsonProperty("target_pct") List<Double> targetPct,
+            @JsonProperty("max_capital_per_trade_pct") List<Double> maxCapitalPerTradePct,
+            @JsonProperty("objective") String objective,
+            @JsonProperty("min_trades") Integer minTrades,
+            @JsonProperty("patience") Integer patience,
+            @JsonProperty("top") Integer top
+    ) {}
+
+    /**
+     * One backtested combination.
+     *
+     * @param hash    Key of the combination and its test window; names it for a candidate strategy
+     * @param periods Indicator periods, keyed by their names in strategy.json
+     * @param cached  The result came from an earlier sweep over the same window
+     */
+    public record Run(
+            String hash,
+            Map<String, Integer> periods,
+            double stopLossPct,
+            double targetPct,
+            double maxCapitalPerTradePct,
+            double score,
+            boolean ranked,
+            boolean cached,
+            BacktestDto.Summary summary
+    ) {}
+
+    /**
+     * @param combinations Size of the grid
+     * @param evaluated    Runs completed, including cached ones
+     * @param stoppedEarly Patience ran out before the grid was exhausted
+     * @param ranked       Best runs first
+     */
+    public record Table(
+            String strategyVersion,
+            String universe,
+            String interval,
+            LocalDate from,
+            LocalDate to,
+            String objective,
+            int combinations,
+            int evaluated,
+            int cached,
+            boolean stoppedEarly,
+            long elapsedMillis,
+            List<Run> ranked
+    ) {}
+
+    /**
+     * A strategy.json version written for review; strategy.json itself is left untouched.
+     */
+    public record Candidate(
+            String strategyVersion,
+            String path,
+            Run run
+    ) {}
+}
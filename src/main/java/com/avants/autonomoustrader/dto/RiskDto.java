@@ -0,0 +1,53 @@
+package com.avants.autonomoustrader.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+public class RiskDto {
+
+    /**
+     * One holding's share of a horizon's losses; the shares add up to the portfolio figures.
+     *
+     * @param exposure Market value, negative when short
+     */
+    public record Contribution(
+            String symbol,
+            String exchange,
+            double exposure,
+            double valueAtRisk,
+            double expectedShortfall
+    ) {}
+
+    /**
+     * Losses at one horizon as positive amounts, and as a percentage of gross exposure.
+     */
+    public record Horizon(
+            int days,
+            double valueAtRisk,
+            double valueAtRiskPct,
+            double expectedShortfall,
+            double expectedShortfallPct,
+            List<Contribution> contributions
+    ) {}
+
+    /**
+     * @param method         BOOTSTRAP or NORMAL
+     * @param historyDays    Daily returns the simulation drew on
+     * @param weekReturnPct  Return of the current book over the last 5 stored sessions
+     * @param monthReturnPct Return of the current book over the last 21 stored sessions
+     * @param unpriced       Holdings left out for lack of stored daily history
+     */
+    public record Report(
+            Instant asOf,
+            String method,
+            int paths,
+            double confidence,
+            int historyDays,
+            double grossExposure,
+            double weekReturnPct,
+            double monthReturnPct,
+            List<Horizon> horizons,
+            List<String> unpriced,
+            long elapsedMillis
+    ) {}
+}
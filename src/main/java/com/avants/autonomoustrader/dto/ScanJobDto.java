@@ -0,0 +1,31 @@
+package com.avants.autonomoustrader.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * State of an asynchronous scan job.
+ *
+ * @param id          Job ID returned on submission
+ * @param status      QUEUED, RUNNING, SUCCEEDED, FAILED or CANCELLED
+ * @param topK        Requested topK, or null for the strategy's default
+ * @param total       Symbols in the universe being scanned (0 until the scan starts)
+ * @param fetched     Symbols whose history has been synced
+ * @param evaluated   Symbols evaluated against the strategy
+ * @param finishedAt  When the job reached a final status, or null
+ * @param candidates  Result once SUCCEEDED, otherwise null
+ * @param error       Failure message once FAILED, otherwise null
+ */
+public record ScanJobDto(
+        String id,
+        String status,
+        Integer topK,
+        int total,
+        int fetched,
+        int evaluated,
+        Instant submittedAt,
+        Instant finishedAt,
+        List<CandidateDto> candidates,
+        String error
+) {
+}
@@ -0,0 +1,222 @@
+package com.avants.autonomoustrader.model;
+
+import com.avants.autonomoustrader.util.KiteTime;
+import com.zerodhatech.models.HistoricalData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable OHLCV candles held column-wise in parallel primitive arrays, oldest first.
+ * A series is a view over [offset, offset + size) of its arrays, so {@link #slice} and
+ * {@link #window} share storage with their parent instead of copying it. Timestamps are epoch millis.
+ */
+public final class CandleSeries {
+
+    private static final CandleSeries EMPTY = new CandleSeries(new long[0], new double[0], new double[0],
+            new double[0], new double[0], new long[0]);
+
+    private final long[] timestamps;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final long[] volume;
+    private final int offset;
+    private final int size;
+
+    /**
+     * Wraps the given columns without copying them; callers hand over ownership of the arrays.
+     */
+    public CandleSeries(long[] timestamps, double[] open, double[] high, double[] low, double[] close, long[] volume) {
+        this(timestamps, open, high, low, close, volume, 0, timestamps.length);
+        if (open.length != size || high.length != size || low.length != size || close.length != size || volume.length != size) {
+            throw new IllegalArgumentException("Candle columns differ in length");
+        }
+    }
+
+    private CandleSeries(long[] timestamps, double[] open, double[] high, double[] low, double[] close, long[] volume,
+                         int offset, int size) {
+        this.timestamps = timestamps;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+        this.offset = offset;
+        this.size = size;
+    }
+
+    public static CandleSeries empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Converts Kite candles into columns, parsing each timestamp once.
+     */
+    public static CandleSeries of(List<HistoricalData> bars) {
+        if (bars == null || bars.isEmpty()) {
+            return EMPTY;
+        }
+        int n = bars.size();
+        long[] ts = new long[n];
+        double[] o = new double[n];
+        double[] h = new double[n];
+        double[] l = new double[n];
+        double[] c = new double[n];
+        long[] v = new long[n];
+        for (int i = 0; i < n; i++) {
+            HistoricalData bar = bars.get(i);
+            ts[i] = KiteTime.parseTimestamp(bar.timeStamp);
+            o[i] = bar.open;
+            h[i] = bar.high;
+            l[i] = bar.low;
+            c[i] = bar.close;
+            v[i] = bar.volume;
+        }
+        return new CandleSeries(ts, o, h, l, c, v);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long timestamp(int i) {
+        return timestamps[index(i)];
+    }
+
+    public double open(int i) {
+        return open[index(i)];
+    }
+
+    public double high(int i) {
+        return high[index(i)];
+    }
+
+    public double low(int i) {
+        return low[index(i)];
+    }
+
+    public double close(int i) {
+        return close[index(i)];
+    }
+
+    public long volume(int i) {
+        return volume[index(i)];
+    }
+
+    public long firstTimestamp() {
+        return timestamp(0);
+    }
+
+    public long lastTimestamp() {
+        return timestamp(size - 1);
+    }
+
+    public double lastClose() {
+        return close(size - 1);
+    }
+
+    /**
+     * Zero-copy view of bars [from, to) of this series.
+     */
+    public CandleSeries slice(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Slice [" + from + ", " + to + ") of " + size + " bars");
+        }
+        return new CandleSeries(timestamps, open, high, low, close, volume, offset + from, to - from);
+    }
+
+    /**
+     * Zero-copy view of the bars with timestamps in [fromMillis, toMillis].
+     */
+    public CandleSeries window(long fromMillis, long toMillis) {
+        return slice(lowerBound(fromMillis), lowerBound(toMillis == Long.MAX_VALUE ? toMillis : toMillis + 1));
+    }
+
+    /**
+     * Zero-copy view of the last n bars, or all of them when there are fewer.
+     */
+    public CandleSeries last(int n) {
+        return slice(Math.max(0, size - n), size);
+    }
+
+    /**
+     * Index of the first bar with a timestamp at or after ts, or size() when there is none.
+     */
+    public int lowerBound(long ts) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[offset + mid] < ts) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Copies the close column of this view, e.g. for a batch calculation over a contiguous array.
+     */
+    public double[] closes() {
+        double[] result = new double[size];
+        System.arraycopy(close, offset, result, 0, size);
+        return result;
+    }
+
+    /**
+     * Copies the open column of this view into the start of dst, which must hold size() elements.
+     */
+    public void copyOpen(double[] dst) {
+        System.arraycopy(open, offset, dst, 0, size);
+    }
+
+    public void copyHigh(double[] dst) {
+        System.arraycopy(high, offset, dst, 0, size);
+    }
+
+    public void copyLow(double[] dst) {
+        System.arraycopy(low, offset, dst, 0, size);
+    }
+
+    public void copyClose(double[] dst) {
+        System.arraycopy(close, offset, dst, 0, size);
+    }
+
+    public void copyVolume(long[] dst) {
+        System.arraycopy(volume, offset, dst, 0, size);
+    }
+
+    /**
+     * Materialises Kite candle objects, for callers that still speak {@link HistoricalData}.
+     */
+    public HistoricalData toHistoricalData() {
+        HistoricalData result = new HistoricalData();
+        result.dataArrayList = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            HistoricalData bar = new HistoricalData();
+            bar.timeStamp = KiteTime.formatTimestamp(timestamp(i));
+            bar.open = open(i);
+            bar.high = high(i);
+            bar.low = low(i);
+            bar.close = close(i);
+            bar.volume = volume(i);
+            result.dataArrayList.add(bar);
+        }
+        return result;
+    }
+
+    private int index(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Bar " + i + " of " + size);
+        }
+        return offset + i;
+    }
+}
@@ -13,12 +13,24 @@ public class LivePortfolio {
     @JsonProperty("last_updated")
     private String lastUpdated;
 
+    @JsonProperty("sequence")
+    private Long sequence;
+
+    @JsonProperty("content_hash")
+    private String contentHash;
+
     @JsonProperty("live_portfolio")
     private KiteDto.LivePortfolio livePortfolio;
 
     public String getLastUpdated() { return lastUpdated; }
     public void setLastUpdated(String lastUpdated) { this.lastUpdated = lastUpdated; }
 
+    public Long getSequence() { return sequence; }
+    public void setSequence(Long sequence) { this.sequence = sequence; }
+
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
     public KiteDto.LivePortfolio getLivePortfolio() { return livePortfolio; }
     public void setLivePortfolio(KiteDto.LivePortfolio livePortfolio) { this.livePortfolio = livePortfolio; }
 }
@@ -1,6 +1,9 @@
 package com.avants.autonomoustrader.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -46,7 +49,11 @@ public class TradingStrategy {
             @JsonProperty("name") String name,
             @JsonProperty("exchange") String exchange,
             @JsonProperty("symbols") List<String> symbols
-    ) {}
+    ) {
+        public Universe {
+            symbols = readOnly(symbols);
+        }
+    }
 
     public record Indicator(
             @JsonProperty("type") String type,
@@ -60,7 +67,13 @@ public class TradingStrategy {
             @JsonProperty("indicators") List<Indicator> indicators,
             @JsonProperty("entry_conditions") List<String> entryConditions,
             @JsonProperty("exit_conditions") List<String> exitConditions
-    ) {}
+    ) {
+        public TechnicalStrategy {
+            indicators = readOnly(indicators);
+            entryConditions = readOnly(entryConditions);
+            exitConditions = readOnly(exitConditions);
+        }
+    }
 
     public record RiskParameters(
             @JsonProperty("max_capital_per_trade_pct") double maxCapitalPerTradePct,
@@ -68,4 +81,11 @@ public class TradingStrategy {
             @JsonProperty("stop_loss_pct") double stopLossPct,
             @JsonProperty("target_pct") double targetPct
     ) {}
+
+    /**
+     * Loaded strategies are shared from the cache, so their lists cannot be changed in place.
+     */
+    private static <T> List<T> readOnly(List<T> list) {
+        return list != null ? Collections.unmodifiableList(new ArrayList<>(list)) : null;
+    }
 }
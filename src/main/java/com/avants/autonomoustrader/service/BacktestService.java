@@ -0,0 +1,273 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.BacktestDto;
+import com.avants.autonomoustrader.model.CandleSeries;
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.avants.autonomoustrader.util.BacktestEngine;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.avants.autonomoustrader.util.SignalProgram;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+/**
+ * BacktestService — replays strategy.json over the locally stored candles of its universe.
+ * Each symbol's history is read from the {@link CandleStore} and run through the same compiled
+ * {@link SignalProgram} the scanner uses, in parallel on the scan pool, giving entry and exit
+ * signals for every bar; the {@link BacktestEngine} then trades them as one portfolio under the
+ * strategy's risk parameters. Up to {@value #WARMUP_BARS} bars before the start of the test are
+ * evaluated so long indicators such as EMA 200 are warm on its first day.
+ */
+@Service
+public class BacktestService {
+
+    private static final Logger log = LoggerFactory.getLogger(BacktestService.class);
+    private static final int WARMUP_BARS = 400;
+    private static final int WARMUP_DAYS = 600; // calendar days holding WARMUP_BARS daily bars, synced on request
+
+    private final PersistenceManager persistenceManager;
+    private final UniverseService universeService;
+    private final MarketDataService marketDataService;
+    private final CandleStore candleStore;
+    private final ConditionCompiler conditionCompiler;
+    private final ForkJoinPool scanPool;
+    private final double defaultCapital;
+
+    public BacktestService(PersistenceManager persistenceManager,
+                           UniverseService universeService,
+                           MarketDataService marketDataService,
+                           CandleStore candleStore,
+                           ConditionCompiler conditionCompiler,
+                           @Qualifier("scanPool") ForkJoinPool scanPool,
+                           @Value("${trading.backtest.capital:1000000}") double defaultCapital) {
+        this.persistenceManager = persistenceManager;
+        this.universeService = universeService;
+        this.marketDataService = marketDataService;
+        this.candleStore = candleStore;
+        this.conditionCompiler = conditionCompiler;
+        this.scanPool = scanPool;
+        this.defaultCapital = defaultCapital;
+    }
+
+    /**
+     * Stored candles of a universe over one test window, read once and shared by every run over it.
+     * Each series keeps up to {@value #WARMUP_BARS} bars before fromMillis.
+     *
+     * @param missing Symbols without stored bars in the window, left out
+     */
+    record History(UniverseService.ScanUniverse universe, String interval, LocalDate from, LocalDate to, long fromMillis,
+                   List<String> symbols, List<CandleSeries> series, List<String> missing) {}
+
+    /**
+     * Backtests the current strategy over [from, to].
+     *
+     * @param interval Candle interval (e.g., "day", "15minute")
+     * @param capital  Starting capital, or null for trading.backtest.capital
+     * @param sync     Sync the universe's history with Kite first; otherwise only stored candles are used
+     * @throws IllegalArgumentException when the strategy has no entry conditions or the dates are reversed
+     */
+    public BacktestDto.Report run(String interval, LocalDate from, LocalDate to, Double capital, boolean sync)
+            throws IOException, KiteException {
+        long started = System.nanoTime();
+        TradingStrategy strategy = persistenceManager.loadStrategy();
+        SignalProgram program = conditionCompiler.compile(strategy);
+        if (program == null || program.entryCount() == 0) {
+            throw new IllegalArgumentException("strategy.json defines no entry conditions to backtest");
+        }
+        History history = history(strategy, interval, from, to, sync);
+        List<BacktestEngine.Instrument> instruments = onScanPool(() -> signals(program, history));
+        long loaded = System.nanoTime();
+
+        BacktestEngine.Result result = BacktestEngine.run(instruments, rules(strategy.getRiskParameters(), capital), history.fromMillis());
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Backtest of {} on {} {} bars from {} to {}: {} bars, {} trades, equity {} -> {} in {} ms ({} ms loading signals)",
+                strategy.getStrategyVersion(), history.universe(), interval, from, to, result.bars(), result.trades().size(),
+                String.format("%.2f", result.startingCapital()), String.format("%.2f", result.endingEquity()),
+                elapsedMillis, (loaded - started) / 1_000_000);
+        return report(strategy, history, elapsedMillis, result);
+    }
+
+    /**
+     * Reads the strategy universe's candles for [from, to] on the scan pool, in universe order.
+     *
+     * @throws IllegalArgumentException when the dates are reversed
+     */
+    History history(TradingStrategy strategy, String interval, LocalDate from, LocalDate to, boolean sync)
+            throws IOException, KiteException {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Backtest starts (" + from + ") after it ends (" + to + ")");
+        }
+        UniverseService.ScanUniverse universe = universeService.resolve(strategy);
+        Map<String, String> tokens = sync
+                ? marketDataService.syncHistoryForSymbols(universe.symbols(), universe.exchange(), interval,
+                        (int) ChronoUnit.DAYS.between(from, LocalDate.now(KiteTime.IST)) + WARMUP_DAYS)
+                : marketDataService.mapSymbolsToInstrumentTokens(universe.symbols(), universe.exchange());
+        long fromMillis = from.atStartOfDay(KiteTime.IST).toInstant().toEpochMilli();
+        long toMillis = to.plusDays(1).atStartOfDay(KiteTime.IST).toInstant().toEpochMilli() - 1;
+        List<String> symbols = universe.symbols();
+
+        CandleSeries[] series = onScanPool(() -> IntStream.range(0, symbols.size())
+                .parallel()
+                .mapToObj(i -> read(tokens.get(symbols.get(i)), interval, fromMillis, toMillis))
+                .toArray(CandleSeries[]::new));
+        List<String> tested = new ArrayList<>();
+        List<CandleSeries> loaded = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < series.length; i++) {
+            if (series[i] != null) {
+                tested.add(symbols.get(i));
+                loaded.add(series[i]);
+            } else {
+                missing.add(symbols.get(i));
+            }
+        }
+        return new History(universe, interval, from, to, fromMillis, List.copyOf(tested), List.copyOf(loaded), List.copyOf(missing));
+    }
+
+    /**
+     * Evaluates the program's entry and exit signals on every bar of the history, in parallel on the
+     * pool of the calling thread — run it through {@link #onScanPool} from outside the scan pool.
+     */
+    List<BacktestEngine.Instrument> signals(SignalProgram program, History history) {
+        return signals(program, history, null);
+    }
+
+    /**
+     * Same as {@link #signals(SignalProgram, History)}, reading and adding indicator columns through
+     * one memo per symbol of the history.
+     *
+     * @param memos Memo of each of history.series(), or null
+     */
+    List<BacktestEngine.Instrument> signals(SignalProgram program, History history, List<SignalProgram.Memo> memos) {
+        return IntStream.range(0, history.symbols().size())
+                .parallel()
+                .mapToObj(i -> {
+                    CandleSeries series = history.series().get(i);
+                    boolean[] entries = new boolean[series.size()];
+                    boolean[] exits = new boolean[series.size()];
+                    program.evaluateBars(series, program.newWorkspace(), entries, exits, memos != null ? memos.get(i) : null);
+                    return new BacktestEngine.Instrument(history.symbols().get(i), series, entries, exits);
+                })
+                .toList();
+    }
+
+    /**
+     * Runs a task on the scan pool and waits for it, so its parallel streams use that pool's threads.
+     */
+    <T> T onScanPool(Callable<T> task) throws IOException {
+        return await(submitToScanPool(task));
+    }
+
+    /**
+     * Starts a task on the scan pool without waiting for it, for a caller with work of its own to do
+     * meanwhile; {@link #await} then collects its result.
+     */
+    <T> Future<T> submitToScanPool(Callable<T> task) {
+        return scanPool.submit(task);
+    }
+
+    /**
+     * Waits for a task started by {@link #submitToScanPool}, rethrowing its failure as {@link #onScanPool} does.
+     */
+    <T> T await(Future<T> pending) throws IOException {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backtesting");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Backtest failed", e.getCause());
+        }
+    }
+
+    /**
+     * Engine rules for the risk parameters of strategy.json.
+     *
+     * @param capital Starting capital, or null for trading.backtest.capital
+     */
+    BacktestEngine.Rules rules(TradingStrategy.RiskParameters risk, Double capital) {
+        return new BacktestEngine.Rules(
+                capital != null ? capital : defaultCapital,
+                risk != null ? risk.maxCapitalPerTradePct() : 0.0,
+                risk != null ? risk.maxOpenPositions() : 0,
+                risk != null ? risk.stopLossPct() : 0.0,
+                risk != null ? risk.targetPct() : 0.0);
+    }
+
+    /**
+     * A symbol's stored bars up to toMillis, from {@value #WARMUP_BARS} bars before fromMillis on;
+     * null when it has none in the window.
+     */
+    private CandleSeries read(String instrumentToken, String interval, long fromMillis, long toMillis) {
+        if (instrumentToken == null) {
+            return null;
+        }
+        CandleSeries history = candleStore.readSeries(instrumentToken, interval, Long.MIN_VALUE, toMillis);
+        int start = history.lowerBound(fromMillis);
+        if (start == history.size()) {
+            return null;
+        }
+        return history.slice(Math.max(0, start - WARMUP_BARS), history.size());
+    }
+
+    static BacktestDto.Summary summary(BacktestEngine.Result result) {
+        int wins = 0;
+        for (BacktestEngine.Trade trade : result.trades()) {
+            if (trade.pnl() > 0) {
+                wins++;
+            }
+        }
+        int trades = result.trades().size();
+        double netPnl = result.endingEquity() - result.startingCapital();
+        return new BacktestDto.Summary(
+                result.startingCapital(),
+                result.endingEquity(),
+                netPnl,
+                netPnl / result.startingCapital() * 100.0,
+                result.maxDrawdown(),
+                result.maxDrawdownPct(),
+                trades,
+                wins,
+                trades == 0 ? 0.0 : wins * 100.0 / trades);
+    }
+
+    private static BacktestDto.Report report(TradingStrategy strategy, History history, long elapsedMillis,
+                                             BacktestEngine.Result result) {
+        List<BacktestDto.Trade> trades = new ArrayList<>(result.trades().size());
+        for (BacktestEngine.Trade trade : result.trades()) {
+            trades.add(new BacktestDto.Trade(trade.symbol(), Instant.ofEpochMilli(trade.entryTime()), trade.entryPrice(),
+                    Instant.ofEpochMilli(trade.exitTime()), trade.exitPrice(), trade.quantity(), trade.pnl(), trade.returnPct(),
+                    trade.reason().name()));
+        }
+        return new BacktestDto.Report(strategy.getStrategyVersion(), history.universe().toString(), history.interval(),
+                history.from(), history.to(), history.symbols().size(), history.missing(), result.bars(), elapsedMillis,
+                summary(result), trades);
+    }
+}
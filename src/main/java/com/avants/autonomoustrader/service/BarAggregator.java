@@ -0,0 +1,345 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.util.KiteTime;
+import com.avants.autonomoustrader.util.LongIntHashMap;
+import com.avants.autonomoustrader.util.TickRingBuffer;
+import com.avants.autonomoustrader.util.TradingSessions;
+import com.zerodhatech.models.HistoricalData;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * BarAggregator — builds live intraday candles from the tick stream.
+ * Ticks are folded into 1-minute bars, and finished 1-minute bars roll up into 3/5/15/60-minute bars.
+ * Every bar is aligned to the 09:15 IST session open and cut at 15:30, matching Kite's own candles.
+ * Finished bars are appended to the {@link CandleStore} and its sync markers advanced, so intraday
+ * scans for the current day are served from disk without a getHistoricalData call.
+ * <p>
+ * All aggregation state lives on one consumer thread that polls the tick ring, so it is held in
+ * plain primitive arrays indexed by instrument slot. Bars are finished when the market clock — the
+ * later of the newest tick and the wall clock less a small grace for late ticks — passes their end.
+ * Bars that started before the feed (re)connected, or before an instrument's first tick, are partial
+ * and are never persisted; bars are only written when the store is already synced up to their start,
+ * so they never hide a hole.
+ */
+@Service
+public class BarAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(BarAggregator.class);
+
+    static final String[] INTERVALS = {"minute", "3minute", "5minute", "15minute", "60minute"};
+    private static final long[] STEP_MS = {60_000L, 180_000L, 300_000L, 900_000L, 3_600_000L};
+    private static final int MINUTE = 0;
+    private static final long LATE_TICK_GRACE_MS = 5_000L;
+    private static final int POLL_BATCH = 4096;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long NO_BAR = Long.MIN_VALUE;
+
+    private final TickStreamService tickStream;
+    private final CandleStore candleStore;
+    private final boolean enabled;
+    private final LongSupplier wallClock;
+    private final AtomicLong barsWritten = new AtomicLong();
+
+    // Consumer-thread state
+    private final LongIntHashMap slots = new LongIntHashMap(256);
+    private long[] tokens = new long[0];
+    private String[] tokenKeys = new String[0];
+    /** Cumulative day volume at the end of the last finished 1-minute bar, per slot. */
+    private long[] volumeBase = new long[0];
+    private long[] lastVolumeToday = new long[0];
+    private long[] lastTickDay = new long[0];
+    private long[] firstTickAt = new long[0];
+    private final long[][] barStart = new long[INTERVALS.length][];
+    private final double[][] open = new double[INTERVALS.length][];
+    private final double[][] high = new double[INTERVALS.length][];
+    private final double[][] low = new double[INTERVALS.length][];
+    private final double[][] close = new double[INTERVALS.length][];
+    private final long[][] volume = new long[INTERVALS.length][];
+    private int size;
+    /** When the feed last (re)connected; nothing before it is complete. */
+    private long listeningSince = Long.MAX_VALUE;
+    private long marketClock = Long.MIN_VALUE;
+    private long nextSweepAt = Long.MIN_VALUE;
+    private long nextSequence;
+
+    private volatile boolean running;
+    private Thread consumer;
+
+    @Autowired
+    public BarAggregator(TickStreamService tickStream,
+                         CandleStore candleStore,
+                         @Value("${trading.ticker.enabled:false}") boolean enabled) {
+        this(tickStream, candleStore, enabled, System::currentTimeMillis);
+    }
+
+    BarAggregator(TickStreamService tickStream, CandleStore candleStore, boolean enabled, LongSupplier wallClock) {
+        this.tickStream = tickStream;
+        this.candleStore = candleStore;
+        this.enabled = enabled;
+        this.wallClock = wallClock;
+        for (int k = 0; k < INTERVALS.length; k++) {
+            barStart[k] = new long[0];
+            open[k] = new double[0];
+            high[k] = new double[0];
+            low[k] = new double[0];
+            close[k] = new double[0];
+            volume[k] = new long[0];
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        nextSequence = tickStream.ticks().cursor() + 1;
+        // Ticks already in the ring are skipped, so bars in progress now are partial
+        listeningSince = wallClock.getAsLong();
+        consumer = Thread.ofVirtual().name("bar-aggregator").start(this::consumeLoop);
+        log.info("Bar aggregator started for intervals {}", Arrays.toString(INTERVALS));
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (consumer != null) {
+            consumer.interrupt();
+        }
+    }
+
+    /**
+     * Number of finished bars written to the candle store since startup.
+     */
+    public long barsWritten() {
+        return barsWritten.get();
+    }
+
+    private void consumeLoop() {
+        TickRingBuffer ring = tickStream.ticks();
+        while (running) {
+            long before = nextSequence;
+            nextSequence = ring.poll(nextSequence, POLL_BATCH, (seq, token, price, qty, volumeToday, ts) -> onTick(token, price, qty, volumeToday, ts));
+            advanceClock(wallClock.getAsLong() - LATE_TICK_GRACE_MS);
+            if (nextSequence == before) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * Folds one tick into the forming 1-minute bar of its instrument. Runs on the consumer thread only.
+     */
+    void onTick(long token, double price, long quantity, long volumeToday, long timestamp) {
+        if (token == TickStreamService.FEED_CONNECTED) {
+            // Ticks may have been missed while disconnected, so bars in progress are partial
+            listeningSince = timestamp;
+            log.info("Tick feed connected — persisting bars that start from {}", KiteTime.formatTimestamp(timestamp));
+            return;
+        }
+        advanceClock(timestamp);
+        int slot = slotOf(token);
+        if (firstTickAt[slot] == NO_BAR) {
+            firstTickAt[slot] = timestamp;
+        }
+        if (!TradingSessions.isSessionOpen(timestamp)) {
+            return;
+        }
+
+        long day = TradingSessions.tradingDate(timestamp).toEpochDay();
+        if (lastTickDay[slot] != day) {
+            lastTickDay[slot] = day;
+            volumeBase[slot] = Math.max(0, volumeToday - quantity);
+            lastVolumeToday[slot] = volumeBase[slot];
+        }
+        long start = alignedStart(timestamp, STEP_MS[MINUTE]);
+        if (barStart[MINUTE][slot] != NO_BAR && start > barStart[MINUTE][slot]) {
+            finishMinute(slot);
+        }
+        if (barStart[MINUTE][slot] == NO_BAR) {
+            barStart[MINUTE][slot] = start;
+            open[MINUTE][slot] = price;
+            high[MINUTE][slot] = price;
+            low[MINUTE][slot] = price;
+        } else if (start < barStart[MINUTE][slot]) {
+            return; // late tick for a bar already finished
+        }
+        high[MINUTE][slot] = Math.max(high[MINUTE][slot], price);
+        low[MINUTE][slot] = Math.min(low[MINUTE][slot], price);
+        close[MINUTE][slot] = price;
+        lastVolumeToday[slot] = Math.max(lastVolumeToday[slot], volumeToday);
+        volume[MINUTE][slot] = Math.max(0, lastVolumeToday[slot] - volumeBase[slot]);
+    }
+
+    /**
+     * Moves the market clock forward and, once per minute boundary, finishes every bar that has ended.
+     */
+    void advanceClock(long nowMillis) {
+        if (nowMillis <= marketClock) {
+            return;
+        }
+        marketClock = nowMillis;
+        if (nowMillis < nextSweepAt) {
+            return;
+        }
+        nextSweepAt = (nowMillis / 60_000L + 1) * 60_000L;
+        for (int slot = 0; slot < size; slot++) {
+            if (barStart[MINUTE][slot] != NO_BAR && barEnd(barStart[MINUTE][slot], STEP_MS[MINUTE]) <= nowMillis) {
+                finishMinute(slot);
+            }
+            for (int k = 1; k < INTERVALS.length; k++) {
+                if (barStart[k][slot] != NO_BAR && barEnd(barStart[k][slot], STEP_MS[k]) <= nowMillis) {
+                    finish(k, slot);
+                }
+            }
+        }
+    }
+
+    private void finishMinute(int slot) {
+        long start = barStart[MINUTE][slot];
+        volumeBase[slot] = lastVolumeToday[slot];
+        for (int k = 1; k < INTERVALS.length; k++) {
+            rollUp(k, slot, start);
+        }
+        finish(MINUTE, slot);
+    }
+
+    /**
+     * Adds the 1-minute bar starting at minuteStart (still in the MINUTE columns) to the bar of interval k.
+     */
+    private void rollUp(int k, int slot, long minuteStart) {
+        long start = alignedStart(minuteStart, STEP_MS[k]);
+        if (barStart[k][slot] != NO_BAR && start > barStart[k][slot]) {
+            finish(k, slot);
+        }
+        if (barStart[k][slot] == NO_BAR) {
+            barStart[k][slot] = start;
+            open[k][slot] = open[MINUTE][slot];
+            high[k][slot] = high[MINUTE][slot];
+            low[k][slot] = low[MINUTE][slot];
+            volume[k][slot] = 0;
+        }
+        high[k][slot] = Math.max(high[k][slot], high[MINUTE][slot]);
+        low[k][slot] = Math.min(low[k][slot], low[MINUTE][slot]);
+        close[k][slot] = close[MINUTE][slot];
+        volume[k][slot] += volume[MINUTE][slot];
+    }
+
+    private void finish(int k, int slot) {
+        long start = barStart[k][slot];
+        barStart[k][slot] = NO_BAR;
+        if (start < listeningSince(slot)) {
+            return; // started before we were listening, so it is missing ticks
+        }
+        persist(k, slot, start, barEnd(start, STEP_MS[k]));
+    }
+
+    private void persist(int k, int slot, long start, long end) {
+        String token = tokenKeys[slot];
+        String interval = INTERVALS[k];
+        try {
+            CandleStore.Coverage coverage = candleStore.coverage(token, interval);
+            if (!isContiguous(coverage, start, listeningSince(slot))) {
+                log.debug("Not persisting {} bar for {} at {}: store not synced up to it", interval, token, start);
+                return;
+            }
+            HistoricalData bar = new HistoricalData();
+            bar.timeStamp = KiteTime.formatTimestamp(start);
+            bar.open = open[k][slot];
+            bar.high = high[k][slot];
+            bar.low = low[k][slot];
+            bar.close = close[k][slot];
+            bar.volume = volume[k][slot];
+            candleStore.append(token, interval, List.of(bar));
+            candleStore.markSynced(token, interval, coverage.coveredFrom(), Math.max(end, coverage.syncedTo()),
+                    Math.max(end, coverage.verifiedTo()));
+            barsWritten.incrementAndGet();
+        } catch (RuntimeException e) {
+            log.error("Failed to persist {} bar for token {}", interval, token, e);
+        }
+    }
+
+    /**
+     * True when nothing can be missing between the stored history and this bar: the store is synced up
+     * to the bar, or up to when the stream started flowing (an instrument without ticks since then had no
+     * trades, so no bars). A sync up to the previous close also counts when the stream started by the open.
+     */
+    private static boolean isContiguous(CandleStore.Coverage coverage, long barStart, long listeningSince) {
+        if (coverage.isEmpty()) {
+            return false;
+        }
+        long needFrom = Math.min(barStart, listeningSince);
+        if (coverage.syncedTo() >= needFrom) {
+            return true;
+        }
+        long sessionOpen = TradingSessions.sessionOpen(TradingSessions.tradingDate(needFrom));
+        return needFrom <= sessionOpen && coverage.syncedTo() >= TradingSessions.lastCloseAtOrBefore(needFrom);
+    }
+
+    /**
+     * Kite sends a snapshot tick as soon as an instrument is subscribed, so its first tick stands in
+     * for the time we started listening to it.
+     */
+    private long listeningSince(int slot) {
+        return Math.max(listeningSince, firstTickAt[slot]);
+    }
+
+    private static long alignedStart(long timestamp, long stepMillis) {
+        long sessionOpen = TradingSessions.sessionOpen(TradingSessions.tradingDate(timestamp));
+        return sessionOpen + ((timestamp - sessionOpen) / stepMillis) * stepMillis;
+    }
+
+    private static long barEnd(long start, long stepMillis) {
+        return Math.min(start + stepMillis, TradingSessions.sessionClose(TradingSessions.tradingDate(start)));
+    }
+
+    private int slotOf(long token) {
+        int slot = slots.get(token, -1);
+        if (slot >= 0) {
+            return slot;
+        }
+        if (size == tokens.length) {
+            grow(Math.max(64, size * 2));
+        }
+        slot = size++;
+        slots.put(token, slot);
+        tokens[slot] = token;
+        tokenKeys[slot] = Long.toString(token);
+        lastTickDay[slot] = Long.MIN_VALUE;
+        firstTickAt[slot] = NO_BAR;
+        for (int k = 0; k < INTERVALS.length; k++) {
+            barStart[k][slot] = NO_BAR;
+        }
+        return slot;
+    }
+
+    private void grow(int capacity) {
+        tokens = Arrays.copyOf(tokens, capacity);
+        tokenKeys = Arrays.copyOf(tokenKeys, capacity);
+        volumeBase = Arrays.copyOf(volumeBase, capacity);
+        lastVolumeToday = Arrays.copyOf(lastVolumeToday, capacity);
+        lastTickDay = Arrays.copyOf(lastTickDay, capacity);
+        firstTickAt = Arrays.copyOf(firstTickAt, capacity);
+        for (int k = 0; k < INTERVALS.length; k++) {
+            barStart[k] = Arrays.copyOf(barStart[k], capacity);
+            open[k] = Arrays.copyOf(open[k], capacity);
+            high[k] = Arrays.copyOf(high[k], capacity);
+            low[k] = Arrays.copyOf(low[k], capacity);
+            close[k] = Arrays.copyOf(close[k], capacity);
+            volume[k] = Arrays.copyOf(volume[k], capacity);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.CandidateDto;
+
+import java.util.List;
+
+/**
+ * Candidates of one streamed scan, ending with the ranked result of the whole scan.
+ * See {@link ResultStream} for how a slow or departed reader holds back or cancels the scan.
+ */
+public class CandidateStream extends ResultStream<CandidateDto, List<CandidateDto>> {
+
+    public CandidateStream(int capacity) {
+        super(capacity);
+    }
+
+    @Override
+    public void complete(List<CandidateDto> ranked) {
+        super.complete(List.copyOf(ranked));
+    }
+
+    @Override
+    public void fail(String message) {
+        super.fail(message != null ? message : "Scan failed");
+    }
+}
@@ -0,0 +1,60 @@
+package com.avants.autonomoustrader.service;
+
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+
+/**
+ * CandidateStreamService — starts streamed scans for the streaming endpoints.
+ * Each stream runs its own scan on a virtual thread and buffers at most trading.stream.buffer
+ * candidates ahead of its reader; see {@link CandidateStream}.
+ */
+@Service
+public class CandidateStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(CandidateStreamService.class);
+
+    private final TechnicalScannerService technicalScannerService;
+    private final Executor virtualThreadExecutor;
+    private final int bufferSize;
+
+    public CandidateStreamService(TechnicalScannerService technicalScannerService,
+                                  @Qualifier("virtualThreadExecutor") Executor virtualThreadExecutor,
+                                  @Value("${trading.stream.buffer:32}") int bufferSize) {
+        this.technicalScannerService = technicalScannerService;
+        this.virtualThreadExecutor = virtualThreadExecutor;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Starts a streamed scan. The caller reads the stream to its end and closes it.
+     *
+     * @param topK Maximum number of candidates in the final ranking, or null for the strategy's default
+     */
+    public CandidateStream open(Integer topK) {
+        CandidateStream stream = new CandidateStream(bufferSize);
+        virtualThreadExecutor.execute(() -> {
+            try {
+                stream.complete(technicalScannerService.streamCandidates(topK, stream.progress(), stream::publish));
+            } catch (CancellationException e) {
+                log.info("Streamed scan cancelled after {} of {} symbols", stream.progress().evaluated(),
+                        stream.progress().total());
+                stream.fail("Scan cancelled");
+            } catch (IOException | RuntimeException e) {
+                log.error("Streamed scan failed: {}", e.getMessage(), e);
+                stream.fail(e.getMessage());
+            } catch (KiteException e) {
+                log.error("Kite API error during streamed scan: {}", e.getMessage(), e);
+                stream.fail("Kite error " + e.code + ": " + e.message);
+            }
+        });
+        return stream;
+    }
+}
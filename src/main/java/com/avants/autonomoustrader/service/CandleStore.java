@@ -0,0 +1,522 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.model.CandleSeries;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.zerodhatech.models.HistoricalData;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CandleStore — local on-disk candle history.
+ * Keeps one append-only, memory-mapped file per (instrument token, interval) with timestamps,
+ * OHLC and volume laid out column by column, so warm scans never have to go back to Kite.
+ * <p>
+ * File layout: a 64-byte header followed by six columns of {@code capacity} 8-byte slots
+ * (timestamp, open, high, low, close, volume). Columns are grown in place by doubling.
+ * The store is a cache: a file that fails validation is reset and refetched.
+ */
+@Service
+public class CandleStore {
+
+    private static final Logger log = LoggerFactory.getLogger(CandleStore.class);
+
+    private static final int MAGIC = 0x434E444C; // "CNDL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int COLUMNS = 6;
+    private static final int INITIAL_CAPACITY = 512;
+
+    // Header offsets
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_COUNT = 12;
+    private static final int H_COVERED_FROM = 16;
+    private static final int H_SYNCED_TO = 24;
+    private static final int H_VERIFIED_TO = 32;
+
+    // Column indexes
+    private static final int C_TIMESTAMP = 0;
+    private static final int C_OPEN = 1;
+    private static final int C_HIGH = 2;
+    private static final int C_LOW = 3;
+    private static final int C_CLOSE = 4;
+    private static final int C_VOLUME = 5;
+
+    private final Path baseDir;
+    private final ConcurrentHashMap<String, CandleFile> files = new ConcurrentHashMap<>();
+
+    public CandleStore(@Value("${trading.candles.path:data/candles}") String baseDir) {
+        this.baseDir = Paths.get(baseDir);
+    }
+
+    /**
+     * Describes what a candle file currently holds.
+     *
+     * @param barCount    Number of stored bars
+     * @param firstBarTs  Timestamp of the oldest bar (epoch millis), or 0 when empty
+     * @param lastBarTs   Timestamp of the newest bar (epoch millis), or 0 when empty
+     * @param coveredFrom Earliest instant the stored history is known to be complete from
+     * @param syncedTo    Latest instant the stored history has been synced with Kite up to
+     * @param verifiedTo  Bars up to this instant came from complete Kite ranges and need no gap check
+     */
+    public record Coverage(int barCount, long firstBarTs, long lastBarTs, long coveredFrom, long syncedTo, long verifiedTo) {
+
+        public boolean isEmpty() {
+            return barCount == 0;
+        }
+
+        /**
+         * True when [from, to] can be answered from disk without a Kite call.
+         */
+        public boolean covers(long from, long to) {
+            return !isEmpty() && coveredFrom <= from && syncedTo >= to;
+        }
+    }
+
+    public Coverage coverage(String instrumentToken, String interval) {
+        CandleFile file = open(instrumentToken, interval);
+        synchronized (file) {
+            return file.coverage();
+        }
+    }
+
+    /**
+     * Reads stored bars with timestamps in [fromMillis, toMillis].
+     */
+    public HistoricalData read(String instrumentToken, String interval, long fromMillis, long toMillis) {
+        return readSeries(instrumentToken, interval, fromMillis, toMillis).toHistoricalData();
+    }
+
+    /**
+     * Reads stored bars with timestamps in [fromMillis, toMillis] as primitive columns, copied in bulk
+     * from the mapped file without creating a {@link HistoricalData} per bar.
+     */
+    public CandleSeries readSeries(String instrumentToken, String interval, long fromMillis, long toMillis) {
+        CandleFile file = open(instrumentToken, interval);
+        synchronized (file) {
+            int start = file.lowerBound(fromMillis);
+            int end = toMillis == Long.MAX_VALUE ? file.count : file.lowerBound(toMillis + 1);
+            return file.copy(start, Math.max(start, end));
+        }
+    }
+
+    /**
+     * Reads the last maxBars stored bars with timestamps in [fromMillis, toMillis] into buffer's
+     * columns, growing them when needed. The returned series is a view of the buffer and is only
+     * valid until the buffer is read into again.
+     */
+    public CandleSeries readTail(String instrumentToken, String interval, long fromMillis, long toMillis, int maxBars,
+                                 TailBuffer buffer) {
+        CandleFile file = open(instrumentToken, interval);
+        synchronized (file) {
+            int end = toMillis == Long.MAX_VALUE ? file.count : file.lowerBound(toMillis + 1);
+            int start = Math.max(file.lowerBound(fromMillis), end - Math.max(0, maxBars));
+            return file.copyInto(start, Math.max(start, end), buffer);
+        }
+    }
+
+    /**
+     * Reusable columns for {@link #readTail}, one per reading thread.
+     */
+    public static final class TailBuffer {
+        private long[] timestamps = new long[0];
+        private double[] open = new double[0];
+        private double[] high = new double[0];
+        private double[] low = new double[0];
+        private double[] close = new double[0];
+        private long[] volume = new long[0];
+
+        private void ensureCapacity(int n) {
+            if (timestamps.length < n) {
+                timestamps = new long[n];
+                open = new double[n];
+                high = new double[n];
+                low = new double[n];
+                close = new double[n];
+                volume = new long[n];
+            }
+        }
+    }
+
+    /**
+     * Copies the stored bar timestamps at or after fromMillis, oldest first.
+     */
+    public long[] timestamps(String instrumentToken, String interval, long fromMillis) {
+        CandleFile file = open(instrumentToken, interval);
+        synchronized (file) {
+            int start = file.lowerBound(fromMillis);
+            long[] result = new long[file.count - start];
+            for (int i = start; i < file.count; i++) {
+                result[i - start] = file.getLong(C_TIMESTAMP, i);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Appends bars newer than the last stored bar. A bar with the same timestamp as the
+     * last stored one replaces it (a partial candle being completed); older bars are ignored.
+     *
+     * @return Number of bars appended or replaced
+     */
+    public int append(String instrumentToken, String interval, List<HistoricalData> bars) {
+        if (bars == null || bars.isEmpty()) {
+            return 0;
+        }
+        return append(instrumentToken, interval, CandleSeries.of(bars));
+    }
+
+    /**
+     * Appends a series, with the same rules as {@link #append(String, String, List)}.
+     */
+    public int append(String instrumentToken, String interval, CandleSeries bars) {
+        if (bars.isEmpty()) {
+            return 0;
+        }
+        CandleFile file = open(instrumentToken, interval);
+        synchronized (file) {
+            int written = 0;
+            for (int i = 0; i < bars.size(); i++) {
+                if (file.write(bars, i)) {
+                    written++;
+                }
+            }
+            file.publishCount();
+            log.debug("Appended {} bars to {}", written, file.path);
+            return written;
+        }
+    }
+
+    /**
+     * Merges bars anywhere into the history, e.g. a backfilled hole or an older head range.
+     * Incoming bars win over stored bars with the same timestamp. Falls back to a plain
+     * append when every bar is newer than the stored tail.
+     *
+     * @return Number of bars merged
+     */
+    public int merge(String instrumentToken, String interval, List<HistoricalData> bars) {
+        if (bars == null || bars.isEmpty()) {
+            return 0;
+        }
+        return merge(instrumentToken, interval, CandleSeries.of(bars));
+    }
+
+    /**
+     * Merges a series, with the same rules as {@link #merge(String, String, List)}. The incoming bars
+     * must be in timestamp order, as Kite returns them.
+     */
+    public int merge(String instrumentToken, String interval, CandleSeries bars) {
+        if (bars.isEmpty()) {
+            return 0;
+        }
+        CandleFile file = open(instrumentToken, interval);
+        synchronized (file) {
+            if (file.count == 0 || bars.firstTimestamp() >= file.getLong(C_TIMESTAMP, file.count - 1)) {
+                return append(instrumentToken, interval, bars);
+            }
+            // Two-way merge of the stored columns and the incoming bars, rewritten from the start
+            CandleSeries stored = file.copy(0, file.count);
+            file.count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < stored.size() || j < bars.size()) {
+                if (j == bars.size() || (i < stored.size() && stored.timestamp(i) < bars.timestamp(j))) {
+                    file.write(stored, i++);
+                } else {
+                    if (i < stored.size() && stored.timestamp(i) == bars.timestamp(j)) {
+                        i++;
+                    }
+                    file.write(bars, j++);
+                }
+            }
+            file.publishCount();
+            log.debug("Merged {} bars into {} ({} total)", bars.size(), file.path, file.count);
+            return bars.size();
+        }
+    }
+
+    /**
+     * Replaces the whole history for an instrument and records the window it covers.
+     */
+    public void replace(String instrumentToken, String interval, List<HistoricalData> bars, long coveredFrom, long syncedTo) {
+        CandleFile file = open(instrumentToken, interval);
+        synchronized (file) {
+            file.count = 0;
+            CandleSeries series = CandleSeries.of(bars);
+            for (int i = 0; i < series.size(); i++) {
+                file.write(series, i);
+            }
+            file.publishCount();
+            file.setSync(coveredFrom, syncedTo, syncedTo);
+            log.debug("Replaced history in {} with {} bars", file.path, file.count);
+        }
+    }
+
+    /**
+     * Records that the stored history is complete between coveredFrom and syncedTo, and that
+     * bars up to verifiedTo have been checked for holes.
+     */
+    public void markSynced(String instrumentToken, String interval, long coveredFrom, long syncedTo, long verifiedTo) {
+        CandleFile file = open(instrumentToken, interval);
+        synchronized (file) {
+            file.setSync(coveredFrom, syncedTo, verifiedTo);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        files.values().forEach(file -> {
+            synchronized (file) {
+                file.close();
+            }
+        });
+        files.clear();
+        log.info("Candle store flushed and closed ({})", baseDir.toAbsolutePath());
+    }
+
+    private CandleFile open(String instrumentToken, String interval) {
+        String key = instrumentToken + "_" + interval.replaceAll("[^A-Za-z0-9]", "");
+        return files.computeIfAbsent(key, k -> {
+            try {
+                Files.createDirectories(baseDir);
+                return new CandleFile(baseDir.resolve(k + ".candles"));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open candle file for " + k, e);
+            }
+        });
+    }
+
+    /**
+     * A single memory-mapped column file. All access is guarded by the instance monitor.
+     */
+    private static final class CandleFile {
+
+        private final Path path;
+        private final FileChannel channel;
+        private MappedByteBuffer buffer;
+        private int capacity;
+        private int count;
+
+        CandleFile(Path path) throws IOException {
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() >= HEADER_BYTES && isValid()) {
+                log.debug("Opened candle file {} ({} bars)", path, count);
+            } else {
+                if (channel.size() > 0) {
+                    log.warn("Candle file {} failed validation — resetting", path);
+                }
+                initialise(INITIAL_CAPACITY);
+            }
+        }
+
+        private boolean isValid() throws IOException {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            int cap = header.getInt(H_CAPACITY);
+            int cnt = header.getInt(H_COUNT);
+            if (header.getInt(H_MAGIC) != MAGIC || header.getInt(H_VERSION) != VERSION
+                    || cap <= 0 || cnt < 0 || cnt > cap
+                    || channel.size() < fileSize(cap)) {
+                return false;
+            }
+            capacity = cap;
+            count = cnt;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(cap));
+            return true;
+        }
+
+        private void initialise(int initialCapacity) throws IOException {
+            capacity = initialCapacity;
+            count = 0;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+            buffer.putInt(H_MAGIC, MAGIC);
+            buffer.putInt(H_VERSION, VERSION);
+            buffer.putInt(H_CAPACITY, capacity);
+            buffer.putInt(H_COUNT, 0);
+            buffer.putLong(H_COVERED_FROM, Long.MAX_VALUE);
+            buffer.putLong(H_SYNCED_TO, 0L);
+            buffer.putLong(H_VERIFIED_TO, 0L);
+        }
+
+        Coverage coverage() {
+            long first = count > 0 ? getLong(C_TIMESTAMP, 0) : 0L;
+            long last = count > 0 ? getLong(C_TIMESTAMP, count - 1) : 0L;
+            return new Coverage(count, first, last, buffer.getLong(H_COVERED_FROM),
+                    buffer.getLong(H_SYNCED_TO), buffer.getLong(H_VERIFIED_TO));
+        }
+
+        void setSync(long coveredFrom, long syncedTo, long verifiedTo) {
+            buffer.putLong(H_COVERED_FROM, coveredFrom);
+            buffer.putLong(H_SYNCED_TO, syncedTo);
+            buffer.putLong(H_VERIFIED_TO, verifiedTo);
+        }
+
+        /**
+         * Writes bar i of the series at the tail. Returns false when it is older than the last stored bar.
+         * The header count is only updated by {@link #publishCount()} once the batch is written.
+         */
+        boolean write(CandleSeries bars, int i) {
+            long ts = bars.timestamp(i);
+            int index = count;
+            if (count > 0) {
+                long last = getLong(C_TIMESTAMP, count - 1);
+                if (ts < last) {
+                    return false;
+                }
+                if (ts == last) {
+                    index = count - 1;
+                }
+            }
+            if (index == capacity) {
+                grow();
+            }
+            putLong(C_TIMESTAMP, index, ts);
+            putDouble(C_OPEN, index, bars.open(i));
+            putDouble(C_HIGH, index, bars.high(i));
+            putDouble(C_LOW, index, bars.low(i));
+            putDouble(C_CLOSE, index, bars.close(i));
+            putLong(C_VOLUME, index, bars.volume(i));
+            if (index == count) {
+                count++;
+            }
+            return true;
+        }
+
+        /**
+         * Bulk-copies bars [from, to) out of the mapped columns.
+         */
+        CandleSeries copy(int from, int to) {
+            int n = to - from;
+            long[] ts = new long[n];
+            double[] o = new double[n];
+            double[] h = new double[n];
+            double[] l = new double[n];
+            double[] c = new double[n];
+            long[] v = new long[n];
+            buffer.asLongBuffer().get(slot(C_TIMESTAMP, from), ts);
+            buffer.asDoubleBuffer().get(slot(C_OPEN, from), o);
+            buffer.asDoubleBuffer().get(slot(C_HIGH, from), h);
+            buffer.asDoubleBuffer().get(slot(C_LOW, from), l);
+            buffer.asDoubleBuffer().get(slot(C_CLOSE, from), c);
+            buffer.asLongBuffer().get(slot(C_VOLUME, from), v);
+            return new CandleSeries(ts, o, h, l, c, v);
+        }
+
+        /**
+         * Bulk-copies bars [from, to) into the start of the buffer's columns.
+         */
+        CandleSeries copyInto(int from, int to, TailBuffer into) {
+            int n = to - from;
+            into.ensureCapacity(n);
+            buffer.asLongBuffer().get(slot(C_TIMESTAMP, from), into.timestamps, 0, n);
+            buffer.asDoubleBuffer().get(slot(C_OPEN, from), into.open, 0, n);
+            buffer.asDoubleBuffer().get(slot(C_HIGH, from), into.high, 0, n);
+            buffer.asDoubleBuffer().get(slot(C_LOW, from), into.low, 0, n);
+            buffer.asDoubleBuffer().get(slot(C_CLOSE, from), into.close, 0, n);
+            buffer.asLongBuffer().get(slot(C_VOLUME, from), into.volume, 0, n);
+            return new CandleSeries(into.timestamps, into.open, into.high, into.low, into.close, into.volume).slice(0, n);
+        }
+
+        /**
+         * Index of a column slot in 8-byte units, for the long/double views of the buffer.
+         */
+        private int slot(int column, int index) {
+            return offset(capacity, column, index) / 8;
+        }
+
+        void publishCount() {
+            buffer.putInt(H_COUNT, count);
+        }
+
+        /**
+         * First index whose timestamp is >= ts.
+         */
+        int lowerBound(long ts) {
+            int lo = 0;
+            int hi = count;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (getLong(C_TIMESTAMP, mid) < ts) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * Doubles the column capacity in place. Columns are moved back to front so that
+         * no column is overwritten before it has been relocated.
+         */
+        private void grow() {
+            int newCapacity = capacity * 2;
+            try {
+                MappedByteBuffer grown = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(newCapacity));
+                long[] scratch = new long[count];
+                for (int col = COLUMNS - 1; col >= 1; col--) {
+                    for (int i = 0; i < count; i++) {
+                        scratch[i] = grown.getLong(offset(capacity, col, i));
+                    }
+                    for (int i = 0; i < count; i++) {
+                        grown.putLong(offset(newCapacity, col, i), scratch[i]);
+                    }
+                }
+                grown.putInt(H_CAPACITY, newCapacity);
+                buffer = grown;
+                capacity = newCapacity;
+                log.debug("Grew candle file {} to capacity {}", path, newCapacity);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to grow candle file " + path, e);
+            }
+        }
+
+        long getLong(int column, int index) {
+            return buffer.getLong(offset(capacity, column, index));
+        }
+
+        double getDouble(int column, int index) {
+            return buffer.getDouble(offset(capacity, column, index));
+        }
+
+        private void putLong(int column, int index, long value) {
+            buffer.putLong(offset(capacity, column, index), value);
+        }
+
+        private void putDouble(int column, int index, double value) {
+            buffer.putDouble(offset(capacity, column, index), value);
+        }
+
+        void close() {
+            try {
+                buffer.force();
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close candle file {}", path, e);
+            }
+        }
+
+        private static int offset(int capacity, int column, int index) {
+            return HEADER_BYTES + (column * capacity + index) * 8;
+        }
+
+        private static long fileSize(int capacity) {
+            return HEADER_BYTES + (long) COLUMNS * capacity * 8;
+        }
+    }
+}
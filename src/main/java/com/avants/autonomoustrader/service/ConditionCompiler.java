@@ -0,0 +1,448 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.avants.autonomoustrader.util.SignalProgram;
+import com.avants.autonomoustrader.util.WindowKernels;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ConditionCompiler — turns the indicators and entry/exit condition strings of strategy.json into a
+ * {@link SignalProgram}. Declared indicators become named nodes of the program's DAG ("EMA_9", "RSI_14",
+ * "BB_UPPER_20", ...) that conditions share with each other, so every distinct calculation runs once per
+ * symbol however many indicators and conditions refer to it. Compiled programs are cached per strategy version; the cache key also holds the conditions
+ * themselves, so editing strategy.json without bumping the version still recompiles.
+ * <p>
+ * Grammar (case-insensitive):
+ * <pre>
+ * condition  := "stop loss hit" | "target hit" | expr comparison expr
+ * comparison := "&gt;" | "&gt;=" | "&lt;" | "&lt;=" | "above" | "below" | "closes above" | "closes below"
+ *             | "crosses_above" | "crosses_below" | "crosses above" | "crosses below"
+ * expr       := NUMBER ("x" | "*") expr | NUMBER "-period" window field | NUMBER
+ *             | field | "EMA_n" | "SMA_n" | "RSI_n" | "ATR_n" | "BB_UPPER_n" | "BB_MIDDLE_n" | "BB_LOWER_n"
+ *             | "MACD" | "MACD_LINE" | "MACD_SIGNAL" | "MACD_HIST" | "VWAP" | "OBV"
+ * window     := "average" | "avg" | "high" | "highest" | "low" | "lowest"
+ * field      := "price" | "close" | "open" | "high" | "low" | "volume"
+ * </pre>
+ * Indicator types: EMA, SMA, MACD, MACD_SIGNAL, RSI, ATR, BOLLINGER, VWAP and OBV. MACD periods come
+ * from the strategy's MACD and MACD_SIGNAL indicators (fast and signal), with 12/26/9 as defaults;
+ * RSI and ATR default to 14 periods and Bollinger bands to 20 periods at two standard deviations.
+ */
+@Service
+public class ConditionCompiler {
+
+    private static final Logger log = LoggerFactory.getLogger(ConditionCompiler.class);
+    private static final Pattern TOKEN = Pattern.compile("\\d+(?:\\.\\d+)?|[a-z_][a-z0-9_]*|>=|<=|[<>*\\-]");
+    private static final Pattern PERIOD_SUFFIX = Pattern.compile("(ema|sma|rsi|atr|bb_upper|bb_middle|bb_lower)_(\\d+)");
+    private static final Pattern PERIOD_REFERENCE = Pattern.compile("\\b" + PERIOD_SUFFIX.pattern() + "\\b", Pattern.CASE_INSENSITIVE);
+    private static final int MACD_FAST = 12;
+    private static final int MACD_SLOW = 26;
+    private static final int MACD_SIGNAL = 9;
+    private static final int RSI_PERIOD = 14;
+    private static final int ATR_PERIOD = 14;
+    private static final int BOLLINGER_PERIOD = 20;
+    private static final double BOLLINGER_WIDTH = 2.0;
+
+    private final WindowKernels kernels;
+    private final Map<CacheKey, SignalProgram> cache = new ConcurrentHashMap<>();
+
+    public ConditionCompiler(WindowKernels kernels) {
+        this.kernels = kernels;
+    }
+
+    /**
+     * Compiled program for the strategy, or null when it defines no entry or exit conditions.
+     *
+     * @throws IllegalArgumentException when a condition cannot be parsed
+     */
+    public SignalProgram compile(TradingStrategy strategy) {
+        TradingStrategy.TechnicalStrategy technical = strategy.getTechnicalStrategy();
+        if (technical == null || (isEmpty(technical.entryConditions()) && isEmpty(technical.exitConditions()))) {
+            return null;
+        }
+        CacheKey key = new CacheKey(strategy.getStrategyVersion(), technical, strategy.getRiskParameters());
+        return cache.computeIfAbsent(key, k -> {
+            SignalProgram program = compile(technical, strategy.getRiskParameters());
+            log.info("Compiled strategy {} ({}): {} entry and {} exit conditions over {} indicator nodes",
+                    strategy.getStrategyVersion(), technical.name(), program.entryCount(), program.exitCount(), program.nodeCount());
+            return program;
+        });
+    }
+
+    /**
+     * Compiles a variant of the technical strategy without caching it, such as one point of a parameter
+     * sweep; null when it defines no entry or exit conditions.
+     *
+     * @throws IllegalArgumentException when a condition cannot be parsed
+     */
+    public SignalProgram compileVariant(TradingStrategy.TechnicalStrategy technical) {
+        if (technical == null || (isEmpty(technical.entryConditions()) && isEmpty(technical.exitConditions()))) {
+            return null;
+        }
+        return compile(technical, null);
+    }
+
+    /**
+     * The technical strategy with new indicator periods, its conditions renamed to match: sweeping EMA 9
+     * to 13 turns "Price closes below EMA_9" into "Price closes below EMA_13". Names without a period
+     * (MACD_LINE, VWAP, ...) stay as they are; MACD periods are read from their indicators anyway.
+     *
+     * @param periods New period of every declared indicator, in declaration order
+     */
+    public static TradingStrategy.TechnicalStrategy withPeriods(TradingStrategy.TechnicalStrategy technical, int[] periods) {
+        List<TradingStrategy.Indicator> declared = technical.indicators() != null ? technical.indicators() : List.of();
+        if (periods.length != declared.size()) {
+            throw new IllegalArgumentException("Expected " + declared.size() + " indicator periods, got " + periods.length);
+        }
+        List<TradingStrategy.Indicator> indicators = new ArrayList<>(declared.size());
+        Map<String, Integer> renamed = new HashMap<>(); // "ema_9" -> 13
+        for (int i = 0; i < periods.length; i++) {
+            TradingStrategy.Indicator indicator = declared.get(i);
+            indicators.add(new TradingStrategy.Indicator(indicator.type(), periods[i], indicator.source()));
+            String type = indicator.type() == null ? "" : indicator.type().toUpperCase(Locale.ROOT);
+            switch (type) {
+                case "EMA", "SMA" -> renamed.put(type.toLowerCase(Locale.ROOT) + "_" + indicator.period(), periods[i]);
+                case "RSI" -> renamed.put("rsi_" + periodOr(indicator, RSI_PERIOD), periods[i]);
+                case "ATR" -> renamed.put("atr_" + periodOr(indicator, ATR_PERIOD), periods[i]);
+                case "BOLLINGER", "BB", "BBANDS" -> {
+                    int period = periodOr(indicator, BOLLINGER_PERIOD);
+                    for (String band : List.of("bb_upper_", "bb_middle_", "bb_lower_")) {
+                        renamed.put(band + period, periods[i]);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return new TradingStrategy.TechnicalStrategy(technical.name(), technical.description(), indicators,
+                renamePeriods(technical.entryConditions(), renamed), renamePeriods(technical.exitConditions(), renamed));
+    }
+
+    private static List<String> renamePeriods(List<String> conditions, Map<String, Integer> renamed) {
+        if (conditions == null) {
+            return null;
+        }
+        // One pass per condition, so swapping two periods (EMA_9 <-> EMA_200) cannot rename twice
+        return conditions.stream()
+                .map(condition -> PERIOD_REFERENCE.matcher(condition).replaceAll(match -> {
+                    Integer period = renamed.get(match.group(1).toLowerCase(Locale.ROOT) + "_" + match.group(2));
+                    return Matcher.quoteReplacement(period != null ? match.group(1) + "_" + period : match.group());
+                }))
+                .toList();
+    }
+
+    private SignalProgram compile(TradingStrategy.TechnicalStrategy technical, TradingStrategy.RiskParameters risk) {
+        SignalProgram.Builder builder = SignalProgram.builder().kernels(kernels);
+        int[] macd = macdPeriods(technical.indicators());
+        if (technical.indicators() != null) {
+            for (TradingStrategy.Indicator indicator : technical.indicators()) {
+                declare(builder, indicator, macd);
+            }
+        }
+        Parser parser = new Parser(builder, macd);
+        if (technical.entryConditions() != null) {
+            for (String condition : technical.entryConditions()) {
+                parser.parse(condition, true);
+            }
+        }
+        if (technical.exitConditions() != null) {
+            for (String condition : technical.exitConditions()) {
+                parser.parse(condition, false);
+            }
+        }
+        double stopLoss = risk != null ? risk.stopLossPct() : 0.0;
+        double target = risk != null ? risk.targetPct() : 0.0;
+        return builder.build(stopLoss, target);
+    }
+
+    /**
+     * Adds the nodes of a declared indicator and publishes them under the names conditions use.
+     */
+    private static void declare(SignalProgram.Builder builder, TradingStrategy.Indicator indicator, int[] macd) {
+        String type = indicator.type() == null ? "" : indicator.type().toUpperCase(Locale.ROOT);
+        SignalProgram.Field source = source(indicator);
+        switch (type) {
+            case "EMA" -> builder.output("EMA_" + indicator.period(), builder.ema(builder.source(source), indicator.period()));
+            case "SMA" -> builder.output("SMA_" + indicator.period(), builder.sma(builder.source(source), indicator.period()));
+            case "MACD", "MACD_LINE" -> {
+                int line = builder.macdLine(builder.source(source), macd[0], macd[1]);
+                builder.output("MACD", line);
+                builder.output("MACD_LINE", line);
+            }
+            case "MACD_SIGNAL" -> builder.output("MACD_SIGNAL", builder.macdSignal(builder.source(source), macd[0], macd[1], macd[2]));
+            case "RSI" -> {
+                int period = periodOr(indicator, RSI_PERIOD);
+                builder.output("RSI_" + period, builder.rsi(builder.source(source), period));
+            }
+            case "ATR" -> {
+                int period = periodOr(indicator, ATR_PERIOD);
+                builder.output("ATR_" + period, builder.atr(period));
+            }
+            case "BOLLINGER", "BB", "BBANDS" -> {
+                int period = periodOr(indicator, BOLLINGER_PERIOD);
+                builder.output("BB_UPPER_" + period, builder.bollinger(builder.source(source), period, BOLLINGER_WIDTH));
+                builder.output("BB_MIDDLE_" + period, builder.bollinger(builder.source(source), period, 0.0));
+                builder.output("BB_LOWER_" + period, builder.bollinger(builder.source(source), period, -BOLLINGER_WIDTH));
+            }
+            case "VWAP" -> builder.output("VWAP", builder.vwap());
+            case "OBV" -> builder.output("OBV", builder.obv());
+            default -> throw new IllegalArgumentException("Unknown indicator type '" + indicator.type() + "'");
+        }
+    }
+
+    private static SignalProgram.Field source(TradingStrategy.Indicator indicator) {
+        String source = indicator.source() == null ? "close" : indicator.source().toLowerCase(Locale.ROOT);
+        return switch (source) {
+            case "close", "price", "ltp" -> SignalProgram.Field.CLOSE;
+            case "open" -> SignalProgram.Field.OPEN;
+            case "high" -> SignalProgram.Field.HIGH;
+            case "low" -> SignalProgram.Field.LOW;
+            case "volume" -> SignalProgram.Field.VOLUME;
+            default -> throw new IllegalArgumentException("Unknown source '" + indicator.source() + "' for indicator " + indicator.type());
+        };
+    }
+
+    private static int periodOr(TradingStrategy.Indicator indicator, int defaultPeriod) {
+        return indicator.period() > 0 ? indicator.period() : defaultPeriod;
+    }
+
+    private static int[] macdPeriods(List<TradingStrategy.Indicator> indicators) {
+        int fast = MACD_FAST;
+        int signal = MACD_SIGNAL;
+        if (indicators != null) {
+            for (TradingStrategy.Indicator indicator : indicators) {
+                if ("MACD".equalsIgnoreCase(indicator.type()) && indicator.period() > 0) {
+                    fast = indicator.period();
+                } else if ("MACD_SIGNAL".equalsIgnoreCase(indicator.type()) && indicator.period() > 0) {
+                    signal = indicator.period();
+                }
+            }
+        }
+        return new int[]{fast, Math.max(MACD_SLOW, fast + 1), signal};
+    }
+
+    private static boolean isEmpty(List<String> conditions) {
+        return conditions == null || conditions.isEmpty();
+    }
+
+    /**
+     * Everything a compiled program depends on.
+     */
+    private record CacheKey(String strategyVersion, TradingStrategy.TechnicalStrategy technical,
+                            TradingStrategy.RiskParameters risk) {}
+
+    /**
+     * Recursive-descent parser over one condition at a time, emitting nodes into the shared builder.
+     */
+    private static final class Parser {
+
+        private final SignalProgram.Builder builder;
+        private final int[] macd;
+        private String source;
+        private List<String> tokens;
+        private int pos;
+
+        Parser(SignalProgram.Builder builder, int[] macd) {
+            this.builder = builder;
+            this.macd = macd;
+        }
+
+        void parse(String condition, boolean entry) {
+            source = condition;
+            tokens = tokenize(condition);
+            pos = 0;
+            if (matches("stop", "loss", "hit")) {
+                requireEntry(!entry, "Stop loss");
+                builder.exitOnStopLoss();
+                return;
+            }
+            if (matches("target", "hit")) {
+                requireEntry(!entry, "Target");
+                builder.exitOnTarget();
+                return;
+            }
+
+            int left = expression();
+            SignalProgram.Comparison comparison = comparison();
+            int right = expression();
+            if (pos < tokens.size()) {
+                throw error("unexpected '" + tokens.get(pos) + "'");
+            }
+            if (entry) {
+                builder.entry(comparison, left, right);
+            } else {
+                builder.exit(comparison, left, right);
+            }
+        }
+
+        private int expression() {
+            String token = next("an indicator or number");
+            if (Character.isDigit(token.charAt(0))) {
+                double number = Double.parseDouble(token);
+                if (accept("x") || accept("*")) {
+                    return builder.multiply(builder.constant(number), expression());
+                }
+                if (accept("-")) {
+                    expect("period");
+                    String window = next("'average', 'highest' or 'lowest'");
+                    int period = wholePeriod(number);
+                    return switch (window) {
+                        case "average", "avg" -> builder.sma(field(next("a price field")), period);
+                        case "high", "highest" -> builder.highest(field(next("a price field")), period);
+                        case "low", "lowest" -> builder.lowest(field(next("a price field")), period);
+                        default -> throw error("expected 'average', 'highest' or 'lowest' after '-period', got '" + window + "'");
+                    };
+                }
+                return builder.constant(number);
+            }
+
+            // A declared indicator keeps its own source, e.g. an EMA of highs
+            int declared = builder.output(token.toUpperCase(Locale.ROOT));
+            if (declared >= 0) {
+                return declared;
+            }
+            Matcher periodic = PERIOD_SUFFIX.matcher(token);
+            if (periodic.matches()) {
+                int period = Integer.parseInt(periodic.group(2));
+                return switch (periodic.group(1)) {
+                    case "ema" -> builder.ema(close(), period);
+                    case "sma" -> builder.sma(close(), period);
+                    case "rsi" -> builder.rsi(close(), period);
+                    case "atr" -> builder.atr(period);
+                    case "bb_upper" -> builder.bollinger(close(), period, BOLLINGER_WIDTH);
+                    case "bb_middle" -> builder.bollinger(close(), period, 0.0);
+                    default -> builder.bollinger(close(), period, -BOLLINGER_WIDTH);
+                };
+            }
+            return switch (token) {
+                case "macd", "macd_line" -> builder.macdLine(close(), macd[0], macd[1]);
+                case "macd_signal" -> builder.macdSignal(close(), macd[0], macd[1], macd[2]);
+                case "macd_hist", "macd_histogram" -> builder.subtract(builder.macdLine(close(), macd[0], macd[1]),
+                        builder.macdSignal(close(), macd[0], macd[1], macd[2]));
+                case "vwap" -> builder.vwap();
+                case "obv" -> builder.obv();
+                default -> field(token);
+            };
+        }
+
+        private int close() {
+            return builder.source(SignalProgram.Field.CLOSE);
+        }
+
+        private int field(String token) {
+            return switch (token) {
+                case "price", "close", "ltp" -> builder.source(SignalProgram.Field.CLOSE);
+                case "open" -> builder.source(SignalProgram.Field.OPEN);
+                case "high" -> builder.source(SignalProgram.Field.HIGH);
+                case "low" -> builder.source(SignalProgram.Field.LOW);
+                case "volume" -> builder.source(SignalProgram.Field.VOLUME);
+                default -> throw error("unknown indicator '" + token + "'");
+            };
+        }
+
+        private SignalProgram.Comparison comparison() {
+            String token = next("a comparison");
+            return switch (token) {
+                case ">" -> SignalProgram.Comparison.GT;
+                case ">=" -> SignalProgram.Comparison.GE;
+                case "<" -> SignalProgram.Comparison.LT;
+                case "<=" -> SignalProgram.Comparison.LE;
+                case "above" -> SignalProgram.Comparison.GT;
+                case "below" -> SignalProgram.Comparison.LT;
+                case "closes" -> direction(SignalProgram.Comparison.GT, SignalProgram.Comparison.LT);
+                case "crosses" -> direction(SignalProgram.Comparison.CROSSES_ABOVE, SignalProgram.Comparison.CROSSES_BELOW);
+                case "crosses_above" -> SignalProgram.Comparison.CROSSES_ABOVE;
+                case "crosses_below" -> SignalProgram.Comparison.CROSSES_BELOW;
+                default -> throw error("unknown comparison '" + token + "'");
+            };
+        }
+
+        private SignalProgram.Comparison direction(SignalProgram.Comparison above, SignalProgram.Comparison below) {
+            String token = next("'above' or 'below'");
+            return switch (token) {
+                case "above" -> above;
+                case "below" -> below;
+                default -> throw error("expected 'above' or 'below', got '" + token + "'");
+            };
+        }
+
+        private int wholePeriod(double number) {
+            if (number != Math.rint(number) || number < 1) {
+                throw error("period must be a whole number: " + number);
+            }
+            return (int) number;
+        }
+
+        private void requireEntry(boolean allowed, String what) {
+            if (!allowed) {
+                throw error(what + " is only meaningful as an exit condition");
+            }
+        }
+
+        private boolean matches(String... words) {
+            if (tokens.size() != words.length) {
+                return false;
+            }
+            for (int i = 0; i < words.length; i++) {
+                if (!tokens.get(i).equals(words[i])) {
+                    return false;
+                }
+            }
+            pos = words.length;
+            return true;
+        }
+
+        private boolean accept(String token) {
+            if (pos < tokens.size() && tokens.get(pos).equals(token)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw error("expected '" + token + "'");
+            }
+        }
+
+        private String next(String expected) {
+            if (pos >= tokens.size()) {
+                throw error("expected " + expected + " at end of condition");
+            }
+            return tokens.get(pos++);
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Cannot compile condition '" + source + "': " + message);
+        }
+
+        private List<String> tokenize(String condition) {
+            String text = condition.toLowerCase(Locale.ROOT).trim();
+            List<String> result = new ArrayList<>();
+            Matcher matcher = TOKEN.matcher(text);
+            int end = 0;
+            while (matcher.find()) {
+                if (!text.substring(end, matcher.start()).isBlank()) {
+                    throw error("unexpected '" + text.substring(end, matcher.start()).trim() + "'");
+                }
+                result.add(matcher.group());
+                end = matcher.end();
+            }
+            if (!text.substring(end).isBlank()) {
+                throw error("unexpected '" + text.substring(end).trim() + "'");
+            }
+            return result;
+        }
+    }
+}
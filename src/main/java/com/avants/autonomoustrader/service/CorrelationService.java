@@ -0,0 +1,360 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.CorrelationDto;
+import com.avants.autonomoustrader.dto.KiteDto;
+import com.avants.autonomoustrader.model.CandleSeries;
+import com.avants.autonomoustrader.util.RollingCovariance;
+import com.avants.autonomoustrader.util.TradingSessions;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * CorrelationService — rolling correlation of daily returns across the strategy universe.
+ * A {@link RollingCovariance} over the last trading.correlation.window sessions is built from the
+ * {@link CandleStore} at startup and then fed only the sessions that closed since, one O(N²) update
+ * per session, by a refresh after the close. Each refresh syncs the universe's daily bars first,
+ * without holding up readers; reads never build the engine, and before the first build they find
+ * every symbol untracked.
+ * Only final daily bars are consumed: a bar for today counts once the session has closed. A session
+ * is only consumed once every symbol's stored bars reach it, so a bar that lands late is read when it
+ * arrives rather than counted as a flat day; a symbol that has bars after a session but none on it
+ * did not trade and counts as unchanged that day. A symbol that stops getting bars altogether
+ * (suspended, delisted) holds the engine back by at most {@value #MAX_PENDING_SESSIONS} sessions.
+ * A change of universe rebuilds the engine.
+ */
+@Service
+public class CorrelationService {
+
+    private static final Logger log = LoggerFactory.getLogger(CorrelationService.class);
+    private static final String INTERVAL = "day";
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final int MAX_PENDING_SESSIONS = 5;
+
+    private final PersistenceManager persistenceManager;
+    private final UniverseService universeService;
+    private final MarketDataService marketDataService;
+    private final CandleStore candleStore;
+    private final Executor virtualThreadExecutor;
+    private final int window;
+    private final Object refreshLock = new Object(); // serialises refreshes, held across the Kite sync
+    private Model model; // written under refreshLock and this, read under either
+
+    public CorrelationService(PersistenceManager persistenceManager,
+                              UniverseService universeService,
+                              MarketDataService marketDataService,
+                              CandleStore candleStore,
+                              @Qualifier("virtualThreadExecutor") Executor virtualThreadExecutor,
+                              @Value("${trading.correlation.window:250}") int window) {
+        this.persistenceManager = persistenceManager;
+        this.universeService = universeService;
+        this.marketDataService = marketDataService;
+        this.candleStore = candleStore;
+        this.virtualThreadExecutor = virtualThreadExecutor;
+        this.window = window;
+    }
+
+    /**
+     * The engine for one universe and where its feed stands.
+     */
+    private static final class Model {
+        final String exchange;
+        final List<String> symbols;
+        final Map<String, Integer> index;
+        final String[] tokens;     // per symbol index, null for symbols without an instrument token
+        final double[] lastClose;  // last close consumed per symbol index, NaN before the first
+        final RollingCovariance engine;
+        long lastSession;          // timestamp of the newest session in the engine, 0 before the first
+
+        Model(UniverseService.ScanUniverse universe, Map<String, String> tokens, int window) {
+            this.exchange = universe.exchange();
+            this.symbols = List.copyOf(universe.symbols());
+            this.index = new HashMap<>();
+            this.tokens = new String[symbols.size()];
+            for (int i = 0; i < symbols.size(); i++) {
+                index.put(symbols.get(i), i);
+                this.tokens[i] = tokens.get(symbols.get(i));
+            }
+            this.lastClose = new double[symbols.size()];
+            Arrays.fill(lastClose, Double.NaN);
+            this.engine = new RollingCovariance(symbols.size(), window);
+        }
+
+        LocalDate asOf() {
+            return lastSession > 0 ? TradingSessions.tradingDate(lastSession) : null;
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        // Off the startup thread: the first build may have a year of daily bars to sync
+        virtualThreadExecutor.execute(this::refreshAfterClose);
+    }
+
+    /**
+     * Feeds the engine the day's bars after the close. Failures are logged; the engine keeps its
+     * window and catches up on the next refresh.
+     */
+    @Scheduled(cron = "${trading.correlation.refresh-cron:0 50 15 * * MON-FRI}", zone = "Asia/Kolkata")
+    public void refreshAfterClose() {
+        try {
+            refresh();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Correlation refresh failed: {}", e.getMessage(), e);
+        } catch (KiteException e) {
+            log.warn("Kite API error during correlation refresh: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Brings the engine up to the newest final daily bar, rebuilding it when the strategy universe
+     * has changed. Reads wait only while the new sessions are fed in, not while bars are synced.
+     *
+     * @return Sessions added
+     */
+    public int refresh() throws IOException, KiteException {
+        synchronized (refreshLock) {
+            return refreshLocked();
+        }
+    }
+
+    private int refreshLocked() throws IOException, KiteException {
+        long started = System.nanoTime();
+        UniverseService.ScanUniverse universe = universeService.resolve(persistenceManager.loadStrategy());
+        boolean rebuild = model == null || !model.exchange.equals(universe.exchange())
+                || !model.symbols.equals(universe.symbols());
+        Model target = rebuild
+                ? new Model(universe, marketDataService.mapSymbolsToInstrumentTokens(universe.symbols(), universe.exchange()), window)
+                : model;
+        // Enough calendar days to span the window plus the close before it
+        int spanDays = (window + 1) * 2;
+        marketDataService.syncHistoryForSymbols(target.symbols, target.exchange, INTERVAL, spanDays);
+        long now = System.currentTimeMillis();
+        long fromMillis = rebuild ? now - spanDays * DAY_MILLIS : target.lastSession + 1;
+        int n = target.symbols.size();
+        CandleSeries[] fresh = new CandleSeries[n];
+        long[] lastBar = new long[n];
+        for (int i = 0; i < n; i++) {
+            fresh[i] = target.tokens[i] != null
+                    ? candleStore.readSeries(target.tokens[i], INTERVAL, fromMillis, Long.MAX_VALUE)
+                    : CandleSeries.empty();
+            CandleStore.Coverage coverage = target.tokens[i] != null ? candleStore.coverage(target.tokens[i], INTERVAL) : null;
+            lastBar[i] = coverage != null && !coverage.isEmpty() ? coverage.lastBarTs() : Long.MAX_VALUE; // no bars: never waited for
+        }
+        long[] sessions = complete(finalSessions(fresh, now, rebuild ? window : Integer.MAX_VALUE), lastBar);
+        synchronized (this) {
+            feed(target, fresh, sessions);
+        }
+        log.info("Correlation {} for {}: {} session(s) added, {} in window as of {} ({} ms)",
+                rebuild ? "rebuilt" : "refreshed", universe, sessions.length, target.engine.count(), target.asOf(),
+                (System.nanoTime() - started) / 1_000_000);
+        return sessions.length;
+    }
+
+    /**
+     * Adds each session's returns to the model's engine and makes it the current model.
+     */
+    private void feed(Model target, CandleSeries[] fresh, long[] sessions) {
+        int n = target.symbols.size();
+        // Bars before the first session only seed the previous close
+        int[] cursor = new int[n];
+        double[] returns = new double[n];
+        for (long session : sessions) {
+            for (int i = 0; i < n; i++) {
+                CandleSeries series = fresh[i];
+                int bar = cursor[i];
+                while (bar < series.size() && series.timestamp(bar) < session) {
+                    target.lastClose[i] = series.close(bar++);
+                }
+                double r = 0.0;
+                if (bar < series.size() && series.timestamp(bar) == session) {
+                    double close = series.close(bar++);
+                    double previous = target.lastClose[i];
+                    if (previous > 0 && close > 0) {
+                        r = close / previous - 1.0;
+                    }
+                    target.lastClose[i] = close;
+                }
+                returns[i] = r;
+                cursor[i] = bar;
+            }
+            target.engine.add(returns);
+        }
+        if (sessions.length > 0) {
+            target.lastSession = sessions[sessions.length - 1];
+        }
+        model = target;
+    }
+
+    /**
+     * Correlation of each candidate with each held symbol over the window. Before the first refresh
+     * has built the engine, every candidate is untracked.
+     *
+     * @param holdings Held symbols, or null for the synced holdings and open positions
+     */
+    public synchronized CorrelationDto.Report exposure(List<String> candidates, List<String> holdings) {
+        Model current = model;
+        if (current == null) {
+            return new CorrelationDto.Report(null, window, 0, 0, List.of(), List.of(), normalise(candidates));
+        }
+        List<String> held = holdings != null ? normalise(holdings) : heldSymbols();
+        Set<String> untracked = new LinkedHashSet<>();
+        List<Integer> heldIndex = new ArrayList<>();
+        List<String> heldTracked = new ArrayList<>();
+        for (String symbol : held) {
+            Integer i = current.index.get(symbol);
+            if (i == null) {
+                untracked.add(symbol);
+            } else {
+                heldIndex.add(i);
+                heldTracked.add(symbol);
+            }
+        }
+
+        List<CorrelationDto.Candidate> rows = new ArrayList<>();
+        for (String symbol : normalise(candidates)) {
+            Integer c = current.index.get(symbol);
+            if (c == null) {
+                untracked.add(symbol);
+                continue;
+            }
+            List<CorrelationDto.Pair> pairs = new ArrayList<>(heldIndex.size());
+            Double max = null;
+            String most = null;
+            for (int h = 0; h < heldIndex.size(); h++) {
+                Double rho = value(current.engine.correlation(c, heldIndex.get(h)));
+                pairs.add(new CorrelationDto.Pair(heldTracked.get(h), rho));
+                if (rho != null && (max == null || Math.abs(rho) > max)) {
+                    max = Math.abs(rho);
+                    most = heldTracked.get(h);
+                }
+            }
+            rows.add(new CorrelationDto.Candidate(symbol, max, most, pairs));
+        }
+        return new CorrelationDto.Report(current.asOf(), window, current.engine.count(), current.symbols.size(),
+                heldTracked, rows, List.copyOf(untracked));
+    }
+
+    /**
+     * Pairwise correlations of a set of symbols over the window; before the first refresh, every
+     * symbol is untracked.
+     */
+    public synchronized CorrelationDto.Matrix matrix(List<String> symbols) {
+        Model current = model;
+        if (current == null) {
+            return new CorrelationDto.Matrix(null, window, 0, List.of(), List.of(), normalise(symbols));
+        }
+        List<String> tracked = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        List<String> untracked = new ArrayList<>();
+        for (String symbol : normalise(symbols)) {
+            Integer i = current.index.get(symbol);
+            if (i == null) {
+                untracked.add(symbol);
+            } else {
+                tracked.add(symbol);
+                indices.add(i);
+            }
+        }
+        List<List<Double>> rows = new ArrayList<>(indices.size());
+        for (int i : indices) {
+            List<Double> row = new ArrayList<>(indices.size());
+            for (int j : indices) {
+                row.add(value(current.engine.correlation(i, j)));
+            }
+            rows.add(row);
+        }
+        return new CorrelationDto.Matrix(current.asOf(), window, current.engine.count(), tracked, rows, untracked);
+    }
+
+    /**
+     * Symbols with a non-zero quantity in the synced holdings or net positions, or none before the first sync.
+     */
+    public List<String> heldSymbols() {
+        KiteDto.LivePortfolio portfolio = persistenceManager.loadPositions().getLivePortfolio();
+        Set<String> held = new LinkedHashSet<>();
+        if (portfolio != null && portfolio.holdings() != null) {
+            for (KiteDto.HoldingDto holding : portfolio.holdings()) {
+                if (holding.quantity() + holding.t1Quantity() != 0) {
+                    held.add(holding.tradingSymbol().toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        if (portfolio != null && portfolio.positions() != null) {
+            for (KiteDto.PositionDto position : portfolio.positions()) {
+                if (position.netQuantity() != 0) {
+                    held.add(position.tradingSymbol().toUpperCase(Locale.ROOT));
+                }
+            }
+        }
+        return List.copyOf(held);
+    }
+
+    /**
+     * The sessions up to the first one that some symbol's stored bars do not reach yet; that one and
+     * the ones after it are read again by the next refresh. Only the last {@value #MAX_PENDING_SESSIONS}
+     * sessions wait: older ones are consumed whether or not every symbol caught up.
+     */
+    private static long[] complete(long[] sessions, long[] lastBar) {
+        for (int k = Math.max(0, sessions.length - MAX_PENDING_SESSIONS); k < sessions.length; k++) {
+            for (long last : lastBar) {
+                if (last < sessions[k]) {
+                    return Arrays.copyOf(sessions, k);
+                }
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Distinct timestamps of final bars, ascending, keeping the last few.
+     */
+    private static long[] finalSessions(CandleSeries[] series, long nowMillis, int limit) {
+        long[] all = Arrays.stream(series)
+                .flatMapToLong(s -> Arrays.stream(timestamps(s)))
+                .filter(ts -> TradingSessions.sessionClose(TradingSessions.tradingDate(ts)) <= nowMillis)
+                .sorted()
+                .distinct()
+                .toArray();
+        return Arrays.copyOfRange(all, Math.max(0, all.length - limit), all.length);
+    }
+
+    private static long[] timestamps(CandleSeries series) {
+        long[] timestamps = new long[series.size()];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = series.timestamp(i);
+        }
+        return timestamps;
+    }
+
+    private static List<String> normalise(List<String> symbols) {
+        Set<String> distinct = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            if (symbol != null && !symbol.isBlank()) {
+                distinct.add(symbol.trim().toUpperCase(Locale.ROOT));
+            }
+        }
+        return List.copyOf(distinct);
+    }
+
+    private static Double value(double correlation) {
+        return Double.isNaN(correlation) ? null : correlation;
+    }
+}
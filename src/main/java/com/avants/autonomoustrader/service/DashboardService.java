@@ -0,0 +1,293 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.DashboardDto;
+import com.avants.autonomoustrader.dto.HistoryDto;
+import com.avants.autonomoustrader.dto.KiteDto;
+import com.avants.autonomoustrader.dto.RiskDto;
+import com.avants.autonomoustrader.model.LivePortfolio;
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * DashboardService — builds the dashboard payload once per change and pushes it to subscribers.
+ * The payload is rebuilt when {@link KiteSyncService} finishes a sync and when strategy.json or
+ * positions.json is reloaded from disk, then serialised once into a Server-Sent Events frame that
+ * every subscriber writes as is. A rebuild whose figures match the last payload's is not pushed;
+ * when the risk report was simulated is not a figure, so a refresh of an unchanged book is not a
+ * change. Each subscriber holds at most one frame it has not written yet: a newer payload
+ * replaces it, so a slow client skips to the latest dashboard instead of queueing old ones, and
+ * costs the publisher nothing but a reference swap. With no subscribers, a change only marks the
+ * payload stale, and the next poll of /api/dashboard rebuilds it.
+ */
+@Service
+public class DashboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardService.class);
+    private static final byte[] HEARTBEAT = ": keep-alive\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final PersistenceManager governorService;
+    private final PortfolioRiskService portfolioRiskService;
+    private final PortfolioHistoryStore portfolioHistoryStore;
+    private final ObjectMapper objectMapper;
+    private final long heartbeatMillis;
+    private final Set<Subscription> subscribers = ConcurrentHashMap.newKeySet();
+
+    // Guarded by this
+    private Snapshot latest;
+    private boolean stale = true;
+
+    public DashboardService(PersistenceManager governorService,
+                            PortfolioRiskService portfolioRiskService,
+                            PortfolioHistoryStore portfolioHistoryStore,
+                            ObjectMapper objectMapper,
+                            @Value("${trading.dashboard.heartbeat-seconds:15}") long heartbeatSeconds) {
+        this.governorService = governorService;
+        this.portfolioRiskService = portfolioRiskService;
+        this.portfolioHistoryStore = portfolioHistoryStore;
+        this.objectMapper = objectMapper;
+        this.heartbeatMillis = TimeUnit.SECONDS.toMillis(Math.max(1, heartbeatSeconds));
+        governorService.onChange(this::publish);
+    }
+
+    /**
+     * One version of the dashboard.
+     *
+     * @param id    Increases by one with every payload that differs from the last
+     * @param frame The payload as a complete SSE "dashboard" event
+     */
+    public record Snapshot(long id, DashboardDto.DashboardResponse response, byte[] json, byte[] frame) {}
+
+    /**
+     * The current dashboard, rebuilt first if anything changed since it was built.
+     */
+    public synchronized Snapshot current() throws IOException {
+        if (stale || latest == null) {
+            rebuild();
+        }
+        return latest;
+    }
+
+    /**
+     * Rebuilds the dashboard and pushes it to subscribers if it changed; with no subscribers, only
+     * marks it stale. Failures keep the last payload and are logged.
+     */
+    public synchronized void publish() {
+        stale = true;
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            rebuild();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to rebuild the dashboard, subscribers keep the last one: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Subscribes to dashboard pushes, starting with the current dashboard.
+     */
+    public Subscription subscribe() throws IOException {
+        Subscription subscription = new Subscription(this, heartbeatMillis);
+        synchronized (this) {
+            Snapshot snapshot = current();
+            subscribers.add(subscription);
+            subscription.offer(snapshot.frame());
+        }
+        log.debug("Dashboard subscriber added ({} open)", subscribers.size());
+        return subscription;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void rebuild() throws IOException {
+        DashboardDto.DashboardResponse response = build();
+        stale = false;
+        if (latest != null && unstamped(latest.response()).equals(unstamped(response))) {
+            return;
+        }
+        byte[] json = objectMapper.writeValueAsBytes(response);
+        long id = latest != null ? latest.id() + 1 : 1;
+        latest = new Snapshot(id, response, json, frame(id, json));
+        for (Subscription subscription : subscribers) {
+            subscription.offer(latest.frame());
+        }
+        if (!subscribers.isEmpty()) {
+            log.debug("Pushed dashboard {} to {} subscribers", id, subscribers.size());
+        }
+    }
+
+    /**
+     * The dashboard without the risk report's timestamp, which every refresh moves.
+     */
+    private static DashboardDto.DashboardResponse unstamped(DashboardDto.DashboardResponse response) {
+        DashboardDto.RiskStats risk = response.risk();
+        if (risk == null || risk.asOf() == null) {
+            return response;
+        }
+        return new DashboardDto.DashboardResponse(response.performance(), response.holdings(), response.strategy(),
+                new DashboardDto.RiskStats(risk.confidence(), risk.oneDayVar(), risk.oneDayExpectedShortfall(),
+                        risk.tenDayVar(), risk.tenDayExpectedShortfall(), null));
+    }
+
+    private static byte[] frame(long id, byte[] json) {
+        byte[] head = ("id: " + id + "\nevent: dashboard\ndata: ").getBytes(StandardCharsets.US_ASCII);
+        byte[] frame = Arrays.copyOf(head, head.length + json.length + 2);
+        System.arraycopy(json, 0, frame, head.length, json.length);
+        frame[frame.length - 2] = '\n';
+        frame[frame.length - 1] = '\n';
+        return frame;
+    }
+
+    private DashboardDto.DashboardResponse build() throws IOException {
+        TradingStrategy strategy = governorService.loadStrategy();
+        LivePortfolio positions = governorService.loadPositions();
+
+        KiteDto.LivePortfolio livePortfolio = positions.getLivePortfolio();
+        TradingStrategy.TechnicalStrategy ts = strategy.getTechnicalStrategy();
+        TradingStrategy.RiskParameters riskParameters = strategy.getRiskParameters();
+
+        // Build holdings from live portfolio
+        List<DashboardDto.Holding> holdings;
+        double totalPnl = 0.0;
+        if (livePortfolio != null && livePortfolio.holdings() != null) {
+            double targetPct = riskParameters != null ? riskParameters.targetPct() : 3.0;
+            holdings = livePortfolio.holdings().stream()
+                    .map(h -> {
+                        double cost = h.averagePrice() * h.quantity();
+                        double pnlPct = cost > 0 ? (h.pnl() / cost) * 100.0 : 0.0;
+                        String strategyMatch;
+                        if (pnlPct >= targetPct) {
+                            strategyMatch = "STRONG MATCH";
+                        } else if (pnlPct > 0) {
+                            strategyMatch = "PARTIAL MATCH";
+                        } else {
+                            strategyMatch = "NO MATCH";
+                        }
+                        return new DashboardDto.Holding(h.tradingSymbol(), h.pnl(), pnlPct, strategyMatch);
+                    })
+                    .toList();
+            totalPnl = livePortfolio.holdings().stream().mapToDouble(KiteDto.HoldingDto::pnl).sum();
+        } else {
+            log.warn("No live portfolio in positions.json — sync may not have run yet");
+            holdings = List.of();
+        }
+
+        // Performance: from the recorded portfolio history; until there is any, daily from total PnL
+        // and weekly and monthly from stored closes, via the last risk refresh
+        RiskDto.Report risk = portfolioRiskService.latest();
+        HistoryDto.Performance history = portfolioHistoryStore.performance(System.currentTimeMillis());
+        double dailyPct = 0.0;
+        double weeklyPct = risk != null ? risk.weekReturnPct() : 0.0;
+        double monthlyPct = risk != null ? risk.monthReturnPct() : 0.0;
+        if (livePortfolio != null && livePortfolio.holdings() != null) {
+            double totalCost = livePortfolio.holdings().stream()
+                    .mapToDouble(h -> h.averagePrice() * h.quantity())
+                    .sum();
+            dailyPct = totalCost > 0 ? (totalPnl / totalCost) * 100.0 : 0.0;
+        }
+        var performance = history != null
+                ? new DashboardDto.PerformanceStats(history.dailyPct(), history.weeklyPct(), history.monthlyPct())
+                : new DashboardDto.PerformanceStats(dailyPct, weeklyPct, monthlyPct);
+
+        // Strategy from strategy.json
+        List<DashboardDto.Indicator> indicators = ts.indicators().stream()
+                .map(i -> new DashboardDto.Indicator(i.type(), i.period(), i.source()))
+                .toList();
+        List<DashboardDto.StrategyRule> entryConditions = ts.entryConditions().stream()
+                .map(DashboardDto.StrategyRule::new)
+                .toList();
+        List<DashboardDto.StrategyRule> exitConditions = ts.exitConditions().stream()
+                .map(DashboardDto.StrategyRule::new)
+                .toList();
+        var strategyViewer = new DashboardDto.StrategyViewer(
+                ts.name(),
+                ts.description(),
+                indicators,
+                entryConditions,
+                exitConditions
+        );
+
+        return new DashboardDto.DashboardResponse(performance, holdings, strategyViewer, riskStats(risk));
+    }
+
+    private static DashboardDto.RiskStats riskStats(RiskDto.Report risk) {
+        if (risk == null || risk.horizons().size() < 2) {
+            return null;
+        }
+        RiskDto.Horizon oneDay = risk.horizons().get(0);
+        RiskDto.Horizon tenDay = risk.horizons().get(1);
+        return new DashboardDto.RiskStats(risk.confidence(), oneDay.valueAtRisk(), oneDay.expectedShortfall(),
+                tenDay.valueAtRisk(), tenDay.expectedShortfall(), risk.asOf());
+    }
+
+    /**
+     * One open dashboard: a one-frame slot that a newer frame overwrites, drained by the response
+     * writing to that client.
+     */
+    public static final class Subscription implements AutoCloseable {
+
+        private final DashboardService service;
+        private final long heartbeatMillis;
+        private final AtomicReference<byte[]> pending = new AtomicReference<>();
+        private final Semaphore signal = new Semaphore(0); // one permit per empty-to-full transition of pending
+        private volatile boolean closed;
+
+        private Subscription(DashboardService service, long heartbeatMillis) {
+            this.service = service;
+            this.heartbeatMillis = heartbeatMillis;
+        }
+
+        private void offer(byte[] frame) {
+            if (pending.getAndSet(frame) == null) {
+                signal.release();
+            }
+        }
+
+        /**
+         * The newest frame not written yet, waiting up to the heartbeat interval for one; an SSE
+         * comment when none comes, so a client that went away is noticed on the next write.
+         *
+         * @return null once the subscription is closed
+         */
+        public byte[] next() throws InterruptedException {
+            if (closed) {
+                return null;
+            }
+            if (!signal.tryAcquire(heartbeatMillis, TimeUnit.MILLISECONDS)) {
+                return HEARTBEAT;
+            }
+            byte[] frame = pending.getAndSet(null);
+            return closed ? null : frame != null ? frame : HEARTBEAT;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                service.subscribers.remove(this);
+                signal.release();
+                log.debug("Dashboard subscriber removed ({} open)", service.subscribers.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.avants.autonomoustrader.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calls back when watched files may have changed on disk.
+ * A {@link WatchService} on each file's directory wakes the watcher thread as soon as the directory
+ * sees an event; the thread also wakes every poll interval regardless, which covers file systems
+ * where watch events are slow (polling implementations) or missing (network mounts), and runs on
+ * polling alone when no watch service can be had. After a wake it waits briefly for a burst of events
+ * to settle, then calls every file's callback: callbacks compare the file with what they last loaded
+ * and must be cheap when it has not changed.
+ */
+public class FileWatcher implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(FileWatcher.class);
+    private static final long SETTLE_MILLIS = 50;
+
+    private final long pollMillis;
+    private final List<Runnable> callbacks = new CopyOnWriteArrayList<>();
+    private final Map<Path, Boolean> directories = new ConcurrentHashMap<>();
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public FileWatcher(String name, long pollMillis) {
+        this.pollMillis = pollMillis;
+        WatchService service = null;
+        try {
+            service = FileSystems.getDefault().newWatchService();
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("No file watch service ({}) — polling every {} ms", e.getMessage(), pollMillis);
+        }
+        this.watchService = service;
+        this.thread = Thread.ofPlatform().name(name).daemon(true).unstarted(this::run);
+        thread.start();
+    }
+
+    /**
+     * Calls back on changes to a file, which need not exist yet.
+     */
+    public void watch(Path file, Runnable onChange) {
+        callbacks.add(onChange);
+        Path directory = file.toAbsolutePath().getParent();
+        if (watchService != null && directory != null && directories.putIfAbsent(directory, Boolean.TRUE) == null) {
+            try {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            } catch (IOException e) {
+                log.warn("Cannot watch {} ({}) — polling it every {} ms", directory, e.getMessage(), pollMillis);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.debug("Failed to close watch service", e);
+            }
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (watchService != null) {
+                    WatchKey key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+                    if (key != null) {
+                        Thread.sleep(SETTLE_MILLIS);
+                        drain(key);
+                    }
+                } else {
+                    Thread.sleep(pollMillis);
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            for (Runnable callback : callbacks) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    log.warn("File change callback failed: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Consumes the events of this key and of any others already queued.
+     */
+    private void drain(WatchKey key) {
+        Set<WatchKey> keys = new HashSet<>();
+        for (WatchKey next = key; next != null; next = watchService.poll()) {
+            keys.add(next);
+        }
+        for (WatchKey next : keys) {
+            next.pollEvents();
+            next.reset();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.model.CandleSeries;
+import com.avants.autonomoustrader.util.IndicatorState;
+import com.avants.autonomoustrader.util.TradingSessions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * IndicatorEngine — stateful indicators per (instrument, interval, parameters).
+ * Finished bars in the {@link CandleStore} are folded into an {@link IndicatorState} once, in O(1)
+ * each, and the state is persisted after every advance so a restart resumes where it left off.
+ * Reading current values therefore costs only the bars that arrived since the last read; the bar
+ * still forming — or a newer live tick — is applied provisionally without touching the state.
+ * <p>
+ * When stored history changes behind the state (a head backfill or a filled hole), the state is
+ * rebuilt from the whole series.
+ */
+@Service
+public class IndicatorEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(IndicatorEngine.class);
+
+    private static final int MAGIC = 0x494E4453; // "INDS"
+    private static final int VERSION = 1;
+
+    private final CandleStore candleStore;
+    private final TickStreamService tickStream;
+    private final Path baseDir;
+    private final ConcurrentHashMap<Key, IndicatorState> states = new ConcurrentHashMap<>();
+    private final AtomicLong barsFolded = new AtomicLong();
+
+    public IndicatorEngine(CandleStore candleStore,
+                           TickStreamService tickStream,
+                           @Value("${trading.indicators.path:data/indicators}") String baseDir) {
+        this.candleStore = candleStore;
+        this.tickStream = tickStream;
+        this.baseDir = Paths.get(baseDir);
+    }
+
+    /**
+     * Indicator values for an instrument as of nowMillis. Finished bars not yet seen are folded into
+     * the persisted state; the forming bar's close, or the live tick price when newer, is applied on top.
+     *
+     * @param instrumentToken Kite instrument token
+     * @param interval        Candle interval (e.g. "day", "5minute")
+     * @return Current values, or null when the store holds no bars for the instrument
+     */
+    public IndicatorState.Values current(String instrumentToken, String interval, IndicatorState.Params params, long nowMillis) {
+        Key key = new Key(instrumentToken, interval, params);
+        IndicatorState state = states.computeIfAbsent(key, this::load);
+        synchronized (state) {
+            CandleStore.Coverage coverage = candleStore.coverage(instrumentToken, interval);
+            if (coverage.isEmpty()) {
+                return null;
+            }
+            if (state.barCount() > 0 && !matchesStore(state, coverage, instrumentToken, interval)) {
+                log.info("Stored history for token {} ({}) changed — rebuilding indicators", instrumentToken, interval);
+                state.reset();
+            }
+
+            long from = state.barCount() > 0 ? state.lastBarTs() + 1 : Long.MIN_VALUE;
+            CandleSeries unseen = candleStore.readSeries(instrumentToken, interval, from, Long.MAX_VALUE);
+            int folded = 0;
+            while (folded < unseen.size() && TradingSessions.barClose(interval, unseen.timestamp(folded)) <= nowMillis) {
+                state.fold(unseen.timestamp(folded), unseen.close(folded), unseen.volume(folded));
+                folded++;
+            }
+            if (folded > 0) {
+                barsFolded.addAndGet(folded);
+                save(key, state);
+            }
+
+            // Anything left after the finished bars is the bar still forming
+            double price = folded < unseen.size() ? unseen.close(folded) : Double.NaN;
+            double live = livePrice(instrumentToken, interval, state, nowMillis);
+            if (!Double.isNaN(live)) {
+                price = live;
+            }
+            return Double.isNaN(price) ? state.values() : state.provisional(price);
+        }
+    }
+
+    /**
+     * Total bars folded into indicator state since startup.
+     */
+    public long getBarsFolded() {
+        return barsFolded.get();
+    }
+
+    /**
+     * The state covers exactly the stored bars up to its last bar: same first bar and same count.
+     */
+    private boolean matchesStore(IndicatorState state, CandleStore.Coverage coverage, String instrumentToken, String interval) {
+        int newer = candleStore.timestamps(instrumentToken, interval, state.lastBarTs() + 1).length;
+        return coverage.firstBarTs() == state.firstBarTs() && coverage.barCount() - newer == state.barCount();
+    }
+
+    /**
+     * Last traded price when it was received after the last folded bar closed, otherwise NaN.
+     */
+    private double livePrice(String instrumentToken, String interval, IndicatorState state, long nowMillis) {
+        if (tickStream == null || state.barCount() == 0) {
+            return Double.NaN;
+        }
+        long token;
+        try {
+            token = Long.parseLong(instrumentToken);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+        long tickTime = tickStream.latestPriceTime(token);
+        if (tickTime < TradingSessions.barClose(interval, state.lastBarTs()) || tickTime > nowMillis) {
+            return Double.NaN;
+        }
+        return tickStream.latestPrice(token);
+    }
+
+    private IndicatorState load(Key key) {
+        Path path = key.path(baseDir);
+        if (Files.exists(path)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+                if (in.readInt() == MAGIC && in.readInt() == VERSION) {
+                    IndicatorState state = IndicatorState.readFrom(in, key.params());
+                    log.debug("Loaded indicator state {} ({} bars)", path, state.barCount());
+                    return state;
+                }
+                log.warn("Ignoring indicator state {} with unknown format", path);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to read indicator state {} — rebuilding from candles", path, e);
+            }
+        }
+        return new IndicatorState(key.params());
+    }
+
+    private void save(Key key, IndicatorState state) {
+        Path path = key.path(baseDir);
+        try {
+            Files.createDirectories(baseDir);
+            Path tmp = Files.createTempFile(baseDir, "indicators", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                state.writeTo(out);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save indicator state to {}", path, e);
+        }
+    }
+
+    private record Key(String instrumentToken, String interval, IndicatorState.Params params) {
+
+        Path path(Path baseDir) {
+            return baseDir.resolve(instrumentToken + "_" + interval.replaceAll("[^A-Za-z0-9]", "") + "_"
+                    + params.emaPeriod() + "-" + params.macdFast() + "-" + params.macdSlow() + "-"
+                    + params.macdSignal() + "-" + params.volumePeriod() + ".ind");
+        }
+    }
+}
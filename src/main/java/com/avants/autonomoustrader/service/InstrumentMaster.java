@@ -0,0 +1,485 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.util.KiteTime;
+import com.avants.autonomoustrader.util.LongIntHashMap;
+import com.avants.autonomoustrader.util.TradingSessions;
+import com.zerodhatech.kiteconnect.KiteConnect;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import com.zerodhatech.models.Instrument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * InstrumentMaster — the full-exchange instrument dump, parsed once per trading day.
+ * All exchanges are downloaded in one call, stored column-wise and persisted as a compact gzip
+ * snapshot so restarts do not re-download. Lookups by (exchange, symbol), token, segment and expiry
+ * are O(1) over primitive-keyed indexes, keeping ~100k NFO rows cheap on the heap.
+ */
+@Service
+public class InstrumentMaster {
+
+    private static final Logger log = LoggerFactory.getLogger(InstrumentMaster.class);
+
+    private static final int MAGIC = 0x494E5354; // "INST"
+    private static final int VERSION = 1;
+    private static final int NO_EXPIRY = -1;
+    /** Kite publishes the day's instrument dump around 08:30 IST. */
+    private static final LocalTime DUMP_PUBLISHED_AT = LocalTime.of(8, 30);
+    private static final long RETRY_AFTER_FAILURE_MS = 5 * 60_000L;
+
+    private final KiteConnect kiteConnect;
+    private final KiteRateLimiter rateLimiter;
+    private final Path snapshotPath;
+    private volatile Index index;
+    private volatile long retryAfterMillis;
+
+    public InstrumentMaster(KiteConnect kiteConnect,
+                            KiteRateLimiter rateLimiter,
+                            @Value("${trading.instruments.path:data/instruments.bin}") String snapshotPath) {
+        this.kiteConnect = kiteConnect;
+        this.rateLimiter = rateLimiter;
+        this.snapshotPath = Paths.get(snapshotPath);
+    }
+
+    /**
+     * One row of the instrument master.
+     *
+     * @param expiry Contract expiry, or null for instruments that do not expire
+     */
+    public record InstrumentRecord(
+            long instrumentToken,
+            String exchange,
+            String tradingSymbol,
+            String name,
+            String segment,
+            String instrumentType,
+            LocalDate expiry,
+            double strike,
+            int lotSize,
+            double tickSize
+    ) {}
+
+    /**
+     * Returns the instrument token for a symbol on an exchange, or -1 when unknown.
+     */
+    public long token(String exchange, String tradingSymbol) throws IOException, KiteException {
+        Index idx = current();
+        int row = idx.rowOf(exchange, tradingSymbol);
+        return row < 0 ? -1 : idx.tokens[row];
+    }
+
+    /**
+     * Returns the instrument for a token, or null when unknown.
+     */
+    public InstrumentRecord byToken(long instrumentToken) throws IOException, KiteException {
+        Index idx = current();
+        int row = idx.byToken.get(instrumentToken, -1);
+        return row < 0 ? null : idx.record(row);
+    }
+
+    public List<InstrumentRecord> bySegment(String segment) throws IOException, KiteException {
+        Index idx = current();
+        return idx.records(idx.rowsBySegment.getOrDefault(segment, new int[0]));
+    }
+
+    public List<InstrumentRecord> byExpiry(LocalDate expiry) throws IOException, KiteException {
+        Index idx = current();
+        return idx.records(idx.rowsByExpiry.getOrDefault((int) expiry.toEpochDay(), new int[0]));
+    }
+
+    /**
+     * Maps trading symbols to instrument tokens for one exchange. Unknown symbols are left out.
+     */
+    public Map<String, String> tokensFor(List<String> symbols, String exchange) throws IOException, KiteException {
+        Index idx = current();
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            int row = idx.rowOf(exchange, symbol);
+            if (row >= 0) {
+                result.put(symbol, String.valueOf(idx.tokens[row]));
+            }
+        }
+        return result;
+    }
+
+    public int size() throws IOException, KiteException {
+        return current().size;
+    }
+
+    /**
+     * Drops the in-memory index and the on-disk snapshot so the next lookup downloads a fresh dump.
+     */
+    public synchronized void invalidate() {
+        index = null;
+        try {
+            Files.deleteIfExists(snapshotPath);
+        } catch (IOException e) {
+            log.warn("Failed to delete instrument snapshot {}", snapshotPath, e);
+        }
+        log.info("Instrument master invalidated");
+    }
+
+    /**
+     * Pre-loads the day's dump shortly after Kite publishes it, so the first scan does not pay for it.
+     */
+    @Scheduled(cron = "0 45 8 * * MON-FRI", zone = "Asia/Kolkata")
+    public void refresh() {
+        try {
+            log.info("Instrument master ready with {} instruments", size());
+        } catch (IOException | KiteException e) {
+            log.warn("Scheduled instrument master refresh failed", e);
+        }
+    }
+
+    private Index current() throws IOException, KiteException {
+        LocalDate expected = expectedSnapshotDate(LocalDateTime.now(KiteTime.IST));
+        Index idx = index;
+        if (idx != null && (idx.snapshotDate.equals(expected) || System.currentTimeMillis() < retryAfterMillis)) {
+            return idx;
+        }
+        synchronized (this) {
+            idx = index;
+            if (idx != null && idx.snapshotDate.equals(expected)) {
+                return idx;
+            }
+            if (idx == null) {
+                idx = readSnapshot();
+            }
+            if (idx == null || !idx.snapshotDate.equals(expected)) {
+                try {
+                    idx = download(expected);
+                    writeSnapshot(idx);
+                } catch (IOException | KiteException e) {
+                    if (idx == null) {
+                        throw e;
+                    }
+                    retryAfterMillis = System.currentTimeMillis() + RETRY_AFTER_FAILURE_MS;
+                    log.warn("Instrument dump download failed — keeping snapshot from {}", idx.snapshotDate, e);
+                }
+            }
+            index = idx;
+            return idx;
+        }
+    }
+
+    /**
+     * The trading date whose dump should be in use: today once the dump is published on a trading day,
+     * otherwise the previous trading day.
+     */
+    static LocalDate expectedSnapshotDate(LocalDateTime nowIst) {
+        LocalDate today = nowIst.toLocalDate();
+        if (TradingSessions.isTradingDay(today) && !nowIst.toLocalTime().isBefore(DUMP_PUBLISHED_AT)) {
+            return today;
+        }
+        return TradingSessions.previousTradingDay(today);
+    }
+
+    private Index download(LocalDate snapshotDate) throws IOException, KiteException {
+        log.info("Downloading full instrument dump from Kite (all exchanges)");
+        List<Instrument> instruments = rateLimiter.execute(
+                KiteRateLimiter.Endpoint.OTHER, KiteRateLimiter.Priority.NORMAL, kiteConnect::getInstruments);
+        IndexBuilder builder = new IndexBuilder(instruments.size());
+        for (Instrument i : instruments) {
+            LocalDate expiry = i.expiry != null ? i.expiry.toInstant().atZone(KiteTime.IST).toLocalDate() : null;
+            builder.add(i.instrument_token, i.exchange, i.tradingsymbol, i.name, i.segment, i.instrument_type,
+                    expiry != null ? (int) expiry.toEpochDay() : NO_EXPIRY, parseStrike(i.strike), i.lot_size, i.tick_size);
+        }
+        Index idx = builder.build(snapshotDate);
+        log.info("Indexed {} instruments for {}", idx.size, snapshotDate);
+        return idx;
+    }
+
+    private static double parseStrike(String strike) {
+        if (strike == null || strike.isBlank()) {
+            return 0.0;
+        }
+        try {
+            return Double.parseDouble(strike);
+        } catch (NumberFormatException e) {
+            return 0.0;
+        }
+    }
+
+    private Index readSnapshot() {
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(snapshotPath))))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("Ignoring instrument snapshot {} with unknown format", snapshotPath);
+                return null;
+            }
+            LocalDate snapshotDate = LocalDate.ofEpochDay(in.readLong());
+            String[] dictionary = new String[in.readInt()];
+            for (int d = 0; d < dictionary.length; d++) {
+                dictionary[d] = in.readUTF();
+            }
+            int rows = in.readInt();
+            IndexBuilder builder = new IndexBuilder(rows);
+            for (int r = 0; r < rows; r++) {
+                long token = in.readLong();
+                String symbol = in.readUTF();
+                String name = in.readUTF();
+                String exchange = dictionary[in.readShort()];
+                String segment = dictionary[in.readShort()];
+                String type = dictionary[in.readShort()];
+                builder.add(token, exchange, symbol, name, segment, type, in.readInt(), in.readDouble(), in.readInt(), in.readDouble());
+            }
+            Index idx = builder.build(snapshotDate);
+            log.info("Loaded instrument snapshot for {} ({} instruments) from {}", snapshotDate, idx.size, snapshotPath);
+            return idx;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to read instrument snapshot {} — will download", snapshotPath, e);
+            return null;
+        }
+    }
+
+    private void writeSnapshot(Index idx) {
+        try {
+            Path parent = snapshotPath.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path tmp = Files.createTempFile(parent, "instruments", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp))))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(idx.snapshotDate.toEpochDay());
+                out.writeInt(idx.dictionary.length);
+                for (String value : idx.dictionary) {
+                    out.writeUTF(value);
+                }
+                out.writeInt(idx.size);
+                for (int r = 0; r < idx.size; r++) {
+                    out.writeLong(idx.tokens[r]);
+                    out.writeUTF(idx.symbols[r]);
+                    out.writeUTF(idx.names[r]);
+                    out.writeShort(idx.exchangeIds[r]);
+                    out.writeShort(idx.segmentIds[r]);
+                    out.writeShort(idx.typeIds[r]);
+                    out.writeInt(idx.expiryDays[r]);
+                    out.writeDouble(idx.strikes[r]);
+                    out.writeInt(idx.lotSizes[r]);
+                    out.writeDouble(idx.tickSizes[r]);
+                }
+            }
+            Files.move(tmp, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Saved instrument snapshot to {}", snapshotPath.toAbsolutePath());
+        } catch (IOException e) {
+            log.warn("Failed to save instrument snapshot to {}", snapshotPath, e);
+        }
+    }
+
+    /**
+     * Accumulates rows column-wise, interning exchange/segment/type strings into a small dictionary.
+     */
+    private static final class IndexBuilder {
+
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Short> dictionaryIds = new HashMap<>();
+        private final long[] tokens;
+        private final String[] symbols;
+        private final String[] names;
+        private final short[] exchangeIds;
+        private final short[] segmentIds;
+        private final short[] typeIds;
+        private final int[] expiryDays;
+        private final double[] strikes;
+        private final int[] lotSizes;
+        private final double[] tickSizes;
+        private int size;
+
+        IndexBuilder(int capacity) {
+            tokens = new long[capacity];
+            symbols = new String[capacity];
+            names = new String[capacity];
+            exchangeIds = new short[capacity];
+            segmentIds = new short[capacity];
+            typeIds = new short[capacity];
+            expiryDays = new int[capacity];
+            strikes = new double[capacity];
+            lotSizes = new int[capacity];
+            tickSizes = new double[capacity];
+        }
+
+        void add(long token, String exchange, String symbol, String name, String segment, String type,
+                 int expiryDay, double strike, int lotSize, double tickSize) {
+            tokens[size] = token;
+            symbols[size] = symbol != null ? symbol : "";
+            names[size] = name != null ? name : "";
+            exchangeIds[size] = intern(exchange);
+            segmentIds[size] = intern(segment);
+            typeIds[size] = intern(type);
+            expiryDays[size] = expiryDay;
+            strikes[size] = strike;
+            lotSizes[size] = lotSize;
+            tickSizes[size] = tickSize;
+            size++;
+        }
+
+        private short intern(String value) {
+            String key = value != null ? value : "";
+            return dictionaryIds.computeIfAbsent(key, k -> {
+                dictionary.add(k);
+                return (short) (dictionary.size() - 1);
+            });
+        }
+
+        Index build(LocalDate snapshotDate) {
+            return new Index(snapshotDate, size, dictionary.toArray(new String[0]), dictionaryIds,
+                    tokens, symbols, names, exchangeIds, segmentIds, typeIds, expiryDays, strikes, lotSizes, tickSizes);
+        }
+    }
+
+    /**
+     * Immutable column store plus lookup indexes; replaced wholesale on refresh.
+     */
+    private static final class Index {
+
+        final LocalDate snapshotDate;
+        final int size;
+        final String[] dictionary;
+        final Map<String, Short> dictionaryIds;
+        final long[] tokens;
+        final String[] symbols;
+        final String[] names;
+        final short[] exchangeIds;
+        final short[] segmentIds;
+        final short[] typeIds;
+        final int[] expiryDays;
+        final double[] strikes;
+        final int[] lotSizes;
+        final double[] tickSizes;
+
+        final LongIntHashMap byToken;
+        /** Open-addressing table of row + 1 keyed by (exchange, symbol); 0 marks an empty slot. */
+        final int[] symbolTable;
+        final int symbolMask;
+        final Map<String, int[]> rowsBySegment = new HashMap<>();
+        final Map<Integer, int[]> rowsByExpiry = new HashMap<>();
+
+        Index(LocalDate snapshotDate, int size, String[] dictionary, Map<String, Short> dictionaryIds,
+              long[] tokens, String[] symbols, String[] names, short[] exchangeIds, short[] segmentIds, short[] typeIds,
+              int[] expiryDays, double[] strikes, int[] lotSizes, double[] tickSizes) {
+            this.snapshotDate = snapshotDate;
+            this.size = size;
+            this.dictionary = dictionary;
+            this.dictionaryIds = dictionaryIds;
+            this.tokens = tokens;
+            this.symbols = symbols;
+            this.names = names;
+            this.exchangeIds = exchangeIds;
+            this.segmentIds = segmentIds;
+            this.typeIds = typeIds;
+            this.expiryDays = expiryDays;
+            this.strikes = strikes;
+            this.lotSizes = lotSizes;
+            this.tickSizes = tickSizes;
+
+            this.byToken = new LongIntHashMap(size);
+            int tableSize = Integer.highestOneBit(Math.max(4, size * 2 - 1)) << 1;
+            this.symbolTable = new int[tableSize];
+            this.symbolMask = tableSize - 1;
+
+            Map<Short, Integer> segmentCounts = new HashMap<>();
+            Map<Integer, Integer> expiryCounts = new HashMap<>();
+            for (int row = 0; row < size; row++) {
+                byToken.put(tokens[row], row);
+                int slot = hash(exchangeIds[row], symbols[row]) & symbolMask;
+                while (symbolTable[slot] != 0) {
+                    int existing = symbolTable[slot] - 1;
+                    if (exchangeIds[existing] == exchangeIds[row] && symbols[existing].equals(symbols[row])) {
+                        break; // keep first match if duplicates
+                    }
+                    slot = (slot + 1) & symbolMask;
+                }
+                if (symbolTable[slot] == 0) {
+                    symbolTable[slot] = row + 1;
+                }
+                segmentCounts.merge(segmentIds[row], 1, Integer::sum);
+                if (expiryDays[row] != NO_EXPIRY) {
+                    expiryCounts.merge(expiryDays[row], 1, Integer::sum);
+                }
+            }
+
+            Map<Short, int[]> segmentRows = new HashMap<>();
+            Map<Short, Integer> segmentFill = new HashMap<>();
+            segmentCounts.forEach((id, count) -> segmentRows.put(id, new int[count]));
+            Map<Integer, Integer> expiryFill = new HashMap<>();
+            expiryCounts.forEach((day, count) -> rowsByExpiry.put(day, new int[count]));
+            for (int row = 0; row < size; row++) {
+                int s = segmentFill.merge(segmentIds[row], 1, Integer::sum) - 1;
+                segmentRows.get(segmentIds[row])[s] = row;
+                if (expiryDays[row] != NO_EXPIRY) {
+                    int e = expiryFill.merge(expiryDays[row], 1, Integer::sum) - 1;
+                    rowsByExpiry.get(expiryDays[row])[e] = row;
+                }
+            }
+            segmentRows.forEach((id, rows) -> rowsBySegment.put(dictionary[id], rows));
+        }
+
+        int rowOf(String exchange, String symbol) {
+            Short exchangeId = dictionaryIds.get(exchange);
+            if (exchangeId == null || symbol == null) {
+                return -1;
+            }
+            int slot = hash(exchangeId, symbol) & symbolMask;
+            while (symbolTable[slot] != 0) {
+                int row = symbolTable[slot] - 1;
+                if (exchangeIds[row] == exchangeId && symbols[row].equals(symbol)) {
+                    return row;
+                }
+                slot = (slot + 1) & symbolMask;
+            }
+            return -1;
+        }
+
+        InstrumentRecord record(int row) {
+            return new InstrumentRecord(
+                    tokens[row],
+                    dictionary[exchangeIds[row]],
+                    symbols[row],
+                    names[row],
+                    dictionary[segmentIds[row]],
+                    dictionary[typeIds[row]],
+                    expiryDays[row] == NO_EXPIRY ? null : LocalDate.ofEpochDay(expiryDays[row]),
+                    strikes[row],
+                    lotSizes[row],
+                    tickSizes[row]);
+        }
+
+        List<InstrumentRecord> records(int[] rows) {
+            List<InstrumentRecord> result = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                result.add(record(row));
+            }
+            return result;
+        }
+
+        private static int hash(int exchangeId, String symbol) {
+            int h = symbol.hashCode() * 31 + exchangeId;
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.avants.autonomoustrader.service;
+
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * KiteRateLimiter — the single gate every KiteConnect call goes through.
+ * Each Kite endpoint class has its own token bucket (historical 3/s, quote 1/s, portfolio/orders/other 10/s)
+ * and all of them share a global bucket. Queued requests are released in priority order, so a
+ * portfolio sync jumps ahead of a bulk backfill, and the calls themselves run concurrently on the
+ * virtual-thread executor so throughput stays at the allowed rate regardless of call latency.
+ */
+@Service
+public class KiteRateLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(KiteRateLimiter.class);
+
+    /**
+     * Kite Connect endpoint classes with their documented per-second limits.
+     */
+    public enum Endpoint {
+        HISTORICAL(3),
+        QUOTE(1),
+        PORTFOLIO(10),
+        ORDERS(10),
+        OTHER(10);
+
+        private final double permitsPerSecond;
+
+        Endpoint(double permitsPerSecond) {
+            this.permitsPerSecond = permitsPerSecond;
+        }
+    }
+
+    /**
+     * Scheduling classes, highest first.
+     */
+    public enum Priority {
+        /** Interactive and account-critical calls: portfolio sync, orders, login. */
+        HIGH,
+        /** Scans and incremental syncs. */
+        NORMAL,
+        /** Bulk backfills that can wait. */
+        LOW
+    }
+
+    /**
+     * A Kite call that may throw the SDK's checked exceptions.
+     */
+    @FunctionalInterface
+    public interface KiteCall<T> {
+        T call() throws KiteException, IOException;
+    }
+
+    private final Executor executor;
+    private final TokenBucket globalBucket;
+    private final Map<Endpoint, TokenBucket> buckets = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, PriorityQueue<Request<?>>> queues = new EnumMap<>(Endpoint.class);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public KiteRateLimiter(@Qualifier("virtualThreadExecutor") Executor executor,
+                           @Value("${kite.rate-limit.global-per-second:10}") double globalPermitsPerSecond) {
+        this.executor = executor;
+        this.globalBucket = new TokenBucket(globalPermitsPerSecond);
+        for (Endpoint endpoint : Endpoint.values()) {
+            buckets.put(endpoint, new TokenBucket(endpoint.permitsPerSecond));
+            queues.put(endpoint, new PriorityQueue<>());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        dispatcher = Thread.ofVirtual().name("kite-rate-limiter").start(this::dispatchLoop);
+        log.info("Kite rate limiter started");
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        lock.lock();
+        try {
+            queues.values().forEach(queue -> queue.forEach(request -> request.future.cancel(false)));
+            queues.values().forEach(PriorityQueue::clear);
+        } finally {
+            lock.unlock();
+        }
+        log.info("Kite rate limiter stopped");
+    }
+
+    /**
+     * Queues a call and returns immediately. Cancelling the returned future before the call has
+     * been released removes it from the queue without spending a token.
+     */
+    public <T> CompletableFuture<T> submit(Endpoint endpoint, Priority priority, KiteCall<T> call) {
+        Request<T> request = new Request<>(endpoint, priority, sequence.incrementAndGet(), call);
+        lock.lock();
+        try {
+            queues.get(endpoint).add(request);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+        return request.future;
+    }
+
+    /**
+     * Queues a call and waits for its result, rethrowing the SDK's checked exceptions unchanged.
+     */
+    public <T> T execute(Endpoint endpoint, Priority priority, KiteCall<T> call) throws KiteException, IOException {
+        return await(endpoint, submit(endpoint, priority, call));
+    }
+
+    /**
+     * Waits for a call queued with {@link #submit}, rethrowing the SDK's checked exceptions unchanged.
+     * A call cancelled while queued surfaces as a {@link java.util.concurrent.CancellationException}.
+     */
+    public <T> T await(Endpoint endpoint, CompletableFuture<T> future) throws KiteException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for Kite " + endpoint + " call");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof KiteException ke) {
+                throw ke;
+            }
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Kite " + endpoint + " call failed", cause);
+        }
+    }
+
+    /**
+     * Number of calls waiting for a token, across all endpoints.
+     */
+    public int queuedRequests() {
+        lock.lock();
+        try {
+            return queues.values().stream().mapToInt(PriorityQueue::size).sum();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dispatchLoop() {
+        lock.lock();
+        try {
+            while (running) {
+                long now = System.nanoTime();
+                Request<?> best = null;
+                long earliest = Long.MAX_VALUE;
+                for (Map.Entry<Endpoint, PriorityQueue<Request<?>>> entry : queues.entrySet()) {
+                    PriorityQueue<Request<?>> queue = entry.getValue();
+                    while (!queue.isEmpty() && queue.peek().future.isDone()) {
+                        queue.poll(); // cancelled while waiting
+                    }
+                    Request<?> head = queue.peek();
+                    if (head == null) {
+                        continue;
+                    }
+                    long readyAt = Math.max(buckets.get(entry.getKey()).readyAt(now), globalBucket.readyAt(now));
+                    if (readyAt <= now) {
+                        if (best == null || head.compareTo(best) < 0) {
+                            best = head;
+                        }
+                    } else {
+                        earliest = Math.min(earliest, readyAt);
+                    }
+                }
+
+                if (best != null) {
+                    queues.get(best.endpoint).poll();
+                    buckets.get(best.endpoint).take(now);
+                    globalBucket.take(now);
+                    executor.execute(best::run);
+                } else if (earliest == Long.MAX_VALUE) {
+                    changed.await();
+                } else {
+                    changed.awaitNanos(earliest - now);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class Request<T> implements Comparable<Request<?>> {
+
+        private final Endpoint endpoint;
+        private final Priority priority;
+        private final long sequence;
+        private final KiteCall<T> call;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Request(Endpoint endpoint, Priority priority, long sequence, KiteCall<T> call) {
+            this.endpoint = endpoint;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.call = call;
+        }
+
+        void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(call.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        @Override
+        public int compareTo(Request<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Token bucket holding at most one permit, so calls are spaced evenly at the configured rate
+     * and no one-second window ever exceeds it. Guarded by the limiter lock.
+     */
+    private static final class TokenBucket {
+
+        private final long nanosPerPermit;
+        private long nextFreeAt;
+
+        TokenBucket(double permitsPerSecond) {
+            this.nanosPerPermit = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+            this.nextFreeAt = System.nanoTime();
+        }
+
+        long readyAt(long now) {
+            return Math.max(now, nextFreeAt);
+        }
+
+        void take(long now) {
+            nextFreeAt = Math.max(now, nextFreeAt) + nanosPerPermit;
+        }
+    }
+}
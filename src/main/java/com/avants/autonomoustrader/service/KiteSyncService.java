@@ -22,6 +22,9 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * KiteSyncService — The Nervous System.
  * Fetches live Holdings and Positions from Zerodha in parallel using CompletableFuture
  * on Java 21 Virtual Threads, then updates positions.json every minute.
+ * Both calls go through the shared KiteRateLimiter at high priority, ahead of any queued backfill.
+ * Each successful sync refreshes the portfolio's Monte Carlo risk report, is appended to the portfolio history
+ * and pushes the rebuilt dashboard to its subscribers when it changed.
  * Strictly isolated: only writes to positions.json; strategy.json is never touched.
  */
 @Service
@@ -31,7 +34,11 @@ public class KiteSyncService {
 
     private final KiteConnect kiteConnect;
     private final PersistenceManager governorService;
+    private final KiteRateLimiter rateLimiter;
     private final Executor virtualThreadExecutor;
+    private final PortfolioRiskService portfolioRiskService;
+    private final PortfolioHistoryStore portfolioHistoryStore;
+    private final DashboardService dashboardService;
 
     @Value("${kite.api-key}")
     private String apiKey;
@@ -41,10 +48,18 @@ public class KiteSyncService {
 
     public KiteSyncService(KiteConnect kiteConnect,
                            PersistenceManager governorService,
-                           @Qualifier("virtualThreadExecutor") Executor virtualThreadExecutor) {
+                           KiteRateLimiter rateLimiter,
+                           @Qualifier("virtualThreadExecutor") Executor virtualThreadExecutor,
+                           PortfolioRiskService portfolioRiskService,
+                           PortfolioHistoryStore portfolioHistoryStore,
+                           DashboardService dashboardService) {
         this.kiteConnect = kiteConnect;
         this.governorService = governorService;
+        this.rateLimiter = rateLimiter;
         this.virtualThreadExecutor = virtualThreadExecutor;
+        this.portfolioRiskService = portfolioRiskService;
+        this.portfolioHistoryStore = portfolioHistoryStore;
+        this.dashboardService = dashboardService;
     }
 
     /**
@@ -88,10 +103,19 @@ public class KiteSyncService {
             List<KiteDto.PositionDto> positions = positionsFuture.get();
 
             KiteDto.LivePortfolio livePortfolio = new KiteDto.LivePortfolio(holdings, positions);
-            governorService.savePositions(livePortfolio);
+            boolean changed = governorService.savePositions(livePortfolio);
+            try {
+                portfolioHistoryStore.record(System.currentTimeMillis(), livePortfolio);
+            } catch (RuntimeException e) {
+                log.warn("Failed to append the sync to portfolio history: {}", e.getMessage(), e);
+            }
 
             sessionExpired.set(false);
             log.info("Portfolio sync complete — {} holdings, {} net positions", holdings.size(), positions.size());
+            portfolioRiskService.refresh(livePortfolio);
+            if (changed) {
+                dashboardService.publish(); // strategy.json edits publish through the reload listener
+            }
         } catch (Exception e) {
             Throwable cause = e.getCause() != null ? e.getCause() : e;
             if (cause instanceof KiteException ke && ke.code == 403) {
@@ -113,7 +137,8 @@ public class KiteSyncService {
     private List<KiteDto.HoldingDto> fetchHoldings() {
         try {
             log.debug("Fetching holdings from Kite...");
-            List<Holding> holdings = kiteConnect.getHoldings();
+            List<Holding> holdings = rateLimiter.execute(
+                    KiteRateLimiter.Endpoint.PORTFOLIO, KiteRateLimiter.Priority.HIGH, kiteConnect::getHoldings);
             List<KiteDto.HoldingDto> result = holdings.stream()
                     .map(h -> new KiteDto.HoldingDto(
                             h.tradingSymbol,
@@ -137,7 +162,8 @@ public class KiteSyncService {
     private List<KiteDto.PositionDto> fetchPositions() {
         try {
             log.debug("Fetching positions from Kite...");
-            List<Position> netPositions = kiteConnect.getPositions().get("net");
+            List<Position> netPositions = rateLimiter.execute(
+                    KiteRateLimiter.Endpoint.PORTFOLIO, KiteRateLimiter.Priority.HIGH, kiteConnect::getPositions).get("net");
             if (netPositions == null) {
                 log.warn("No net positions returned from Kite");
                 return List.of();
@@ -0,0 +1,136 @@
+package com.avants.autonomoustrader.service;
+
+import com.zerodhatech.kiteconnect.KiteConnect;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import com.zerodhatech.models.Tick;
+import com.zerodhatech.ticker.KiteTicker;
+import com.zerodhatech.ticker.OnError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * TickFeed over Kite's WebSocket ticker in full mode.
+ * The ticker is created on start with the current access token, so a login after boot is picked up
+ * on the next start. Kite rejects subscriptions on a closed socket, so the feed keeps the wanted
+ * token set itself and (re)sends it whenever the socket connects.
+ */
+public class KiteTickerFeed implements TickFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(KiteTickerFeed.class);
+
+    private final KiteConnect kiteConnect;
+    private final String apiKey;
+    private final Set<Long> subscribed = new LinkedHashSet<>();
+    private KiteTicker ticker;
+
+    public KiteTickerFeed(KiteConnect kiteConnect, String apiKey) {
+        this.kiteConnect = kiteConnect;
+        this.apiKey = apiKey;
+    }
+
+    @Override
+    public synchronized boolean start(Listener listener) {
+        String accessToken = kiteConnect.getAccessToken();
+        if (accessToken == null || accessToken.equals("placeholder") || accessToken.equals("your_access_token_here")) {
+            log.warn("Not starting Kite ticker — access token is not set. Complete OAuth handshake via the UI login flow.");
+            return false;
+        }
+        stop();
+
+        KiteTicker kiteTicker = new KiteTicker(accessToken, apiKey);
+        kiteTicker.setOnConnectedListener(() -> {
+            log.info("Kite ticker connected — subscribing {} instruments", subscribedCount());
+            listener.onConnected(System.currentTimeMillis());
+            resubscribe(kiteTicker);
+        });
+        kiteTicker.setOnDisconnectedListener(() -> log.warn("Kite ticker disconnected"));
+        kiteTicker.setOnErrorListener(new OnError() {
+            @Override
+            public void onError(Exception e) {
+                log.error("Kite ticker error", e);
+            }
+
+            @Override
+            public void onError(KiteException e) {
+                log.error("Kite ticker error: {} (code {})", e.message, e.code);
+            }
+
+            @Override
+            public void onError(String error) {
+                log.error("Kite ticker error: {}", error);
+            }
+        });
+        kiteTicker.setOnTickerArrivalListener(ticks -> {
+            for (int i = 0, n = ticks.size(); i < n; i++) {
+                Tick tick = ticks.get(i);
+                listener.onTick(tick.getInstrumentToken(), tick.getLastTradedPrice(), (long) tick.getLastTradedQuantity(),
+                        tick.getVolumeTradedToday(), timestampOf(tick));
+            }
+        });
+        try {
+            kiteTicker.setTryReconnection(true);
+            kiteTicker.setMaximumRetries(50);
+            kiteTicker.setMaximumRetryInterval(30);
+        } catch (KiteException e) {
+            log.warn("Could not enable Kite ticker reconnection: {}", e.message);
+        }
+        ticker = kiteTicker;
+        kiteTicker.connect();
+        return true;
+    }
+
+    @Override
+    public synchronized void subscribe(Collection<Long> instrumentTokens) {
+        subscribed.addAll(instrumentTokens);
+        if (isConnected() && !instrumentTokens.isEmpty()) {
+            ArrayList<Long> tokens = new ArrayList<>(instrumentTokens);
+            ticker.subscribe(tokens);
+            ticker.setMode(tokens, KiteTicker.modeFull);
+        }
+    }
+
+    @Override
+    public synchronized void unsubscribe(Collection<Long> instrumentTokens) {
+        subscribed.removeAll(instrumentTokens);
+        if (isConnected() && !instrumentTokens.isEmpty()) {
+            ticker.unsubscribe(new ArrayList<>(instrumentTokens));
+        }
+    }
+
+    @Override
+    public synchronized boolean isConnected() {
+        return ticker != null && ticker.isConnectionOpen();
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (ticker != null) {
+            ticker.disconnect();
+            ticker = null;
+        }
+    }
+
+    private synchronized int subscribedCount() {
+        return subscribed.size();
+    }
+
+    private synchronized void resubscribe(KiteTicker kiteTicker) {
+        if (kiteTicker != ticker || subscribed.isEmpty()) {
+            return;
+        }
+        ArrayList<Long> tokens = new ArrayList<>(subscribed);
+        kiteTicker.subscribe(tokens);
+        kiteTicker.setMode(tokens, KiteTicker.modeFull);
+    }
+
+    private static long timestampOf(Tick tick) {
+        Date time = tick.getTickTimestamp() != null ? tick.getTickTimestamp() : tick.getLastTradedTime();
+        return time != null ? time.getTime() : System.currentTimeMillis();
+    }
+}
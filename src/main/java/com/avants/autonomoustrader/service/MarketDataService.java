@@ -1,19 +1,25 @@
 package com.avants.autonomoustrader.service;
 
+import com.avants.autonomoustrader.model.CandleSeries;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.avants.autonomoustrader.util.TradingSessions;
 import com.zerodhatech.kiteconnect.KiteConnect;
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
 import com.zerodhatech.models.HistoricalData;
-import com.zerodhatech.models.Instrument;
 import com.zerodhatech.models.Tick;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.time.LocalDate;
-import java.time.ZoneId;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
 
 /**
  * Market data service for fetching instruments and historical candle data.
@@ -23,43 +29,46 @@ import java.util.stream.Collectors;
 public class MarketDataService {
 
     private static final Logger log = LoggerFactory.getLogger(MarketDataService.class);
+    private static final long GAP_LOOKBEHIND_MS = 10 * 86_400_000L;
 
     private final KiteConnect kiteConnect;
-    private Map<String, String> symbolToInstrumentTokenMap;
+    private final CandleStore candleStore;
+    private final InstrumentMaster instrumentMaster;
+    private final KiteRateLimiter rateLimiter;
+    private final Executor virtualThreadExecutor;
+    private final AtomicLong kiteHistoricalCalls = new AtomicLong();
 
-    public MarketDataService(KiteConnect kiteConnect) {
+    public MarketDataService(KiteConnect kiteConnect,
+                             CandleStore candleStore,
+                             InstrumentMaster instrumentMaster,
+                             KiteRateLimiter rateLimiter,
+                             @Qualifier("virtualThreadExecutor") Executor virtualThreadExecutor) {
         this.kiteConnect = kiteConnect;
+        this.candleStore = candleStore;
+        this.instrumentMaster = instrumentMaster;
+        this.rateLimiter = rateLimiter;
+        this.virtualThreadExecutor = virtualThreadExecutor;
     }
 
     /**
      * Maps trading symbols to their instrument tokens for a given exchange.
-     * Caches the result for subsequent calls.
+     * Backed by the {@link InstrumentMaster}, so any universe on any exchange resolves without
+     * another instrument download once the day's dump has been indexed.
      *
      * @param symbols  List of trading symbols (e.g., ["RELIANCE", "TCS"])
      * @param exchange Exchange code (e.g., "NSE")
      * @return Map of symbol to instrument_token
      */
     public Map<String, String> mapSymbolsToInstrumentTokens(List<String> symbols, String exchange) throws IOException, KiteException {
-        if (symbolToInstrumentTokenMap == null) {
-            log.info("Fetching instruments from Kite for exchange: {}", exchange);
-            List<Instrument> instruments = kiteConnect.getInstruments(exchange);
-
-            symbolToInstrumentTokenMap = instruments.stream()
-                    .filter(instrument -> symbols.contains(instrument.tradingsymbol))
-                    .collect(Collectors.toMap(
-                            instrument -> instrument.tradingsymbol,
-                            instrument -> String.valueOf(instrument.instrument_token),
-                            (existing, replacement) -> existing // Keep first match if duplicates
-                    ));
-
-            log.info("Mapped {} symbols to instrument tokens", symbolToInstrumentTokenMap.size());
-        }
-
-        return symbolToInstrumentTokenMap;
+        Map<String, String> tokens = instrumentMaster.tokensFor(symbols, exchange);
+        log.debug("Mapped {} of {} symbols to instrument tokens on {}", tokens.size(), symbols.size(), exchange);
+        return tokens;
     }
 
     /**
      * Fetches historical candles for a given instrument token.
+     * The local {@link CandleStore} is synced first via {@link #syncHistory}, so only bars that are
+     * missing on disk are requested from Kite; the window is then served from the store.
      *
      * @param instrumentToken The instrument token from Kite
      * @param interval        Candle interval (e.g., "day", "5minute", "15minute")
@@ -67,31 +76,221 @@ public class MarketDataService {
      * @return HistoricalData containing the candle data
      */
     public HistoricalData fetchHistoricalCandles(String instrumentToken, String interval, int daysBack) throws IOException, KiteException {
-        LocalDate toDate = LocalDate.now();
-        LocalDate fromDate = toDate.minusDays(daysBack);
+        long nowMillis = System.currentTimeMillis();
+        long fromMillis = windowStart(daysBack);
 
-        Date from = Date.from(fromDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
-        Date to = Date.from(toDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        syncHistory(instrumentToken, interval, fromMillis, nowMillis);
+        HistoricalData candles = candleStore.read(instrumentToken, interval, fromMillis, nowMillis);
 
-        log.debug("Fetching historical candles for token {} from {} to {}", instrumentToken, fromDate, toDate);
+        log.debug("Retrieved {} candles for instrument token {}", candles.dataArrayList.size(), instrumentToken);
+        return candles;
+    }
 
-        HistoricalData candles = kiteConnect.getHistoricalData(
-                from,
-                to,
-                instrumentToken,
-                interval,
-                false,
-                false
-        );
+    /**
+     * Same as {@link #fetchHistoricalCandles}, but returns the window as primitive columns read straight
+     * from the store, without a {@link HistoricalData} object per bar.
+     */
+    public CandleSeries fetchCandleSeries(String instrumentToken, String interval, int daysBack) throws IOException, KiteException {
+        long nowMillis = System.currentTimeMillis();
+        long fromMillis = windowStart(daysBack);
 
-        log.debug("Retrieved {} candles for instrument token {}", candles.dataArrayList.size(), instrumentToken);
+        syncHistory(instrumentToken, interval, fromMillis, nowMillis);
+        CandleSeries candles = candleStore.readSeries(instrumentToken, interval, fromMillis, nowMillis);
+
+        log.debug("Retrieved {} candles for instrument token {}", candles.size(), instrumentToken);
+        return candles;
+    }
+
+    /**
+     * Reads the last maxBars stored bars of the daysBack window into buffer without syncing, for
+     * callers that synced the window already (see {@link CandleStore#readTail}).
+     */
+    public CandleSeries readStoredTail(String instrumentToken, String interval, int daysBack, int maxBars,
+                                       CandleStore.TailBuffer buffer) {
+        return candleStore.readTail(instrumentToken, interval, windowStart(daysBack), System.currentTimeMillis(), maxBars, buffer);
+    }
+
+    private static long windowStart(int daysBack) {
+        return LocalDate.now(KiteTime.IST).minusDays(daysBack).atStartOfDay(KiteTime.IST).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Incrementally syncs the stored history of one instrument with Kite:
+     * <ul>
+     *   <li>head — range-fetches history older than the earliest stored window, once;</li>
+     *   <li>holes — backfills missed sessions and partial intraday days found after the last verified bar;</li>
+     *   <li>tail — fetches only the bars after the last stored bar (re-fetching that bar in case it was partial).</li>
+     * </ul>
+     * Nothing is requested when the store was synced after the last finished bar of the interval.
+     *
+     * @return Number of Kite historical calls made
+     */
+    public int syncHistory(String instrumentToken, String interval, long fromMillis, long nowMillis) throws IOException, KiteException {
+        return syncHistory(instrumentToken, interval, fromMillis, nowMillis, new ScanProgress());
+    }
+
+    private int syncHistory(String instrumentToken, String interval, long fromMillis, long nowMillis,
+                            ScanProgress progress) throws IOException, KiteException {
+        CandleStore.Coverage coverage = candleStore.coverage(instrumentToken, interval);
+        long requiredSync = TradingSessions.lastFinishedBarBoundary(interval, nowMillis);
+        if (coverage.covers(fromMillis, requiredSync) && coverage.verifiedTo() >= coverage.lastBarTs()) {
+            return 0;
+        }
+
+        if (coverage.isEmpty()) {
+            int calls = fetchRangeIntoStore(instrumentToken, interval, fromMillis, nowMillis, KiteRateLimiter.Priority.NORMAL, progress);
+            candleStore.markSynced(instrumentToken, interval, fromMillis, nowMillis, nowMillis);
+            return calls;
+        }
+
+        int calls = 0;
+        long coveredFrom = coverage.coveredFrom();
+        if (coveredFrom > fromMillis) {
+            calls += fetchRangeIntoStore(instrumentToken, interval, fromMillis, coverage.firstBarTs(), KiteRateLimiter.Priority.LOW, progress);
+            coveredFrom = fromMillis;
+        }
+
+        for (long[] gap : detectGaps(instrumentToken, interval, coverage.verifiedTo(), nowMillis)) {
+            log.info("Backfilling hole for token {} ({}) from {} to {}", instrumentToken, interval,
+                    KiteTime.formatTimestamp(gap[0]), KiteTime.formatTimestamp(gap[1]));
+            calls += fetchRangeIntoStore(instrumentToken, interval, gap[0], gap[1], KiteRateLimiter.Priority.LOW, progress);
+        }
+
+        if (coverage.syncedTo() < requiredSync) {
+            calls += fetchRangeIntoStore(instrumentToken, interval, coverage.lastBarTs(), nowMillis, KiteRateLimiter.Priority.NORMAL, progress);
+        }
+
+        candleStore.markSynced(instrumentToken, interval, coveredFrom, Math.max(nowMillis, coverage.syncedTo()), nowMillis);
+        log.debug("Synced token {} ({}) with {} Kite calls", instrumentToken, interval, calls);
+        return calls;
+    }
+
+    /**
+     * Finds holes in the stored history after the last verified instant: trading days with no
+     * bars between two stored bars, and finished intraday sessions with fewer bars than expected.
+     * Adjacent missing days are coalesced into a single range.
+     */
+    private List<long[]> detectGaps(String instrumentToken, String interval, long verifiedTo, long nowMillis) {
+        int minutes = TradingSessions.intervalMinutes(interval);
+        // Include a few bars before the verified point so the first unverified bar has a predecessor
+        long[] timestamps = candleStore.timestamps(instrumentToken, interval, verifiedTo - GAP_LOOKBEHIND_MS);
+        TreeSet<LocalDate> missing = new TreeSet<>();
+
+        int barsToday = 0;
+        for (int i = 0; i < timestamps.length; i++) {
+            LocalDate date = TradingSessions.tradingDate(timestamps[i]);
+            if (i > 0 && timestamps[i] > verifiedTo) {
+                LocalDate previous = TradingSessions.tradingDate(timestamps[i - 1]);
+                for (LocalDate d = previous.plusDays(1); d.isBefore(date); d = d.plusDays(1)) {
+                    if (TradingSessions.isTradingDay(d)) {
+                        missing.add(d);
+                    }
+                }
+            }
+            if (minutes > 0) {
+                barsToday++;
+                boolean lastOfDay = i == timestamps.length - 1
+                        || !TradingSessions.tradingDate(timestamps[i + 1]).equals(date);
+                if (lastOfDay) {
+                    if (timestamps[i] > verifiedTo
+                            && TradingSessions.sessionClose(date) <= nowMillis
+                            && barsToday < TradingSessions.barsPerSession(minutes)) {
+                        missing.add(date);
+                    }
+                    barsToday = 0;
+                }
+            }
+        }
+
+        List<long[]> gaps = new ArrayList<>();
+        LocalDate rangeStart = null;
+        LocalDate rangeEnd = null;
+        for (LocalDate d : missing) {
+            if (rangeEnd != null && !TradingSessions.previousTradingDay(d).equals(rangeEnd)) {
+                gaps.add(dayRange(rangeStart, rangeEnd));
+                rangeStart = null;
+            }
+            if (rangeStart == null) {
+                rangeStart = d;
+            }
+            rangeEnd = d;
+        }
+        if (rangeStart != null) {
+            gaps.add(dayRange(rangeStart, rangeEnd));
+        }
+        return gaps;
+    }
+
+    private static long[] dayRange(LocalDate first, LocalDate last) {
+        return new long[]{
+                first.atStartOfDay(KiteTime.IST).toInstant().toEpochMilli(),
+                last.plusDays(1).atStartOfDay(KiteTime.IST).toInstant().toEpochMilli() - 1000L
+        };
+    }
+
+    /**
+     * Range-fetches [fromMillis, toMillis] from Kite in chunks no longer than the interval allows
+     * per request, merging each chunk into the candle store. Backfills run at low priority so
+     * interactive scans overtake them in the rate limiter.
+     *
+     * @return Number of Kite calls made
+     */
+    private int fetchRangeIntoStore(String instrumentToken, String interval, long fromMillis, long toMillis,
+                                    KiteRateLimiter.Priority priority, ScanProgress progress) throws IOException, KiteException {
+        long chunkMillis = maxDaysPerRequest(interval) * 86_400_000L;
+        int calls = 0;
+        for (long chunkFrom = fromMillis; chunkFrom <= toMillis; chunkFrom += chunkMillis) {
+            long chunkTo = Math.min(toMillis, chunkFrom + chunkMillis - 1000L);
+            HistoricalData chunk = fetchFromKite(instrumentToken, interval, new Date(chunkFrom), new Date(chunkTo), priority, progress);
+            candleStore.merge(instrumentToken, interval, CandleSeries.of(chunk.dataArrayList));
+            calls++;
+        }
+        return calls;
+    }
+
+    /**
+     * Longest date range Kite serves in a single historical request for each interval.
+     */
+    private static int maxDaysPerRequest(String interval) {
+        return switch (interval) {
+            case "minute" -> 60;
+            case "3minute", "5minute", "10minute" -> 100;
+            case "15minute", "30minute" -> 200;
+            case "60minute" -> 400;
+            default -> 2000;
+        };
+    }
 
+    private HistoricalData fetchFromKite(String instrumentToken, String interval, Date from, Date to,
+                                         KiteRateLimiter.Priority priority, ScanProgress progress) throws IOException, KiteException {
+        log.debug("Fetching historical candles for token {} from {} to {}", instrumentToken, from, to);
+
+        CompletableFuture<HistoricalData> queued = rateLimiter.submit(KiteRateLimiter.Endpoint.HISTORICAL, priority, () ->
+                kiteConnect.getHistoricalData(
+                        from,
+                        to,
+                        instrumentToken,
+                        interval,
+                        false,
+                        false
+                ));
+        progress.track(queued);
+        HistoricalData candles;
+        try {
+            candles = rateLimiter.await(KiteRateLimiter.Endpoint.HISTORICAL, queued);
+        } finally {
+            progress.untrack(queued);
+        }
+
+        kiteHistoricalCalls.incrementAndGet();
         return candles;
     }
 
     /**
      * Fetches historical candles for multiple symbols in batch.
-     * Includes a small delay to respect Kite API rate limits (3 requests/sec).
+     * All symbols are submitted at once on virtual threads; the shared {@link KiteRateLimiter}
+     * keeps Kite calls at the allowed rate, and symbols served from the local candle store
+     * are not throttled at all.
      *
      * @param symbols  List of trading symbols
      * @param exchange Exchange code
@@ -104,70 +303,181 @@ public class MarketDataService {
             String exchange,
             String interval,
             int daysBack) throws IOException, KiteException {
+        return forEachSymbol(symbols, exchange, "fetch", new ScanProgress(), (symbol, instrumentToken) -> {},
+                instrumentToken -> fetchHistoricalCandles(instrumentToken, interval, daysBack));
+    }
+
+    /**
+     * Fetches candle series for multiple symbols in batch. Runs like {@link #fetchHistoricalCandlesForSymbols}.
+     *
+     * @return Map of symbol to candle series
+     */
+    public Map<String, CandleSeries> fetchCandleSeriesForSymbols(
+            List<String> symbols,
+            String exchange,
+            String interval,
+            int daysBack) throws IOException, KiteException {
+        return forEachSymbol(symbols, exchange, "fetch", new ScanProgress(), (symbol, instrumentToken) -> {},
+                instrumentToken -> fetchCandleSeries(instrumentToken, interval, daysBack));
+    }
+
+    /**
+     * Syncs the stored history of multiple symbols without reading it back, for callers that consume
+     * the {@link CandleStore} incrementally. Runs like {@link #fetchHistoricalCandlesForSymbols}.
+     *
+     * @return Map of symbol to instrument token, for every symbol whose history is in sync
+     */
+    public Map<String, String> syncHistoryForSymbols(
+            List<String> symbols,
+            String exchange,
+            String interval,
+            int daysBack) throws IOException, KiteException {
+        return syncHistoryForSymbols(symbols, exchange, interval, daysBack, new ScanProgress());
+    }
+
+    /**
+     * Same as {@link #syncHistoryForSymbols(List, String, String, int)}, counting each symbol as fetched
+     * on the progress. Once the progress is cancelled, queued Kite requests are withdrawn and the
+     * remaining symbols are skipped.
+     */
+    public Map<String, String> syncHistoryForSymbols(
+            List<String> symbols,
+            String exchange,
+            String interval,
+            int daysBack,
+            ScanProgress progress) throws IOException, KiteException {
+        return syncHistoryForSymbols(symbols, exchange, interval, daysBack, progress, (symbol, instrumentToken) -> {});
+    }
 
+    /**
+     * Same as {@link #syncHistoryForSymbols(List, String, String, int, ScanProgress)}, handing each
+     * symbol and its instrument token to onSynced as soon as that symbol's history is in sync,
+     * on the thread that synced it, rather than only once the whole batch is.
+     */
+    public Map<String, String> syncHistoryForSymbols(
+            List<String> symbols,
+            String exchange,
+            String interval,
+            int daysBack,
+            ScanProgress progress,
+            BiConsumer<String, String> onSynced) throws IOException, KiteException {
+        return forEachSymbol(symbols, exchange, "sync", progress, onSynced, instrumentToken -> {
+            syncHistory(instrumentToken, interval, windowStart(daysBack), System.currentTimeMillis(), progress);
+            return instrumentToken;
+        });
+    }
+
+    /**
+     * Runs a per-instrument task for every symbol on virtual threads, with retries, and collects
+     * the results of the symbols that succeeded. Each result also goes to onResult as it arrives.
+     */
+    private <T> Map<String, T> forEachSymbol(List<String> symbols, String exchange, String action, ScanProgress progress,
+                                             BiConsumer<String, T> onResult, SymbolTask<T> task) throws IOException, KiteException {
         Map<String, String> instrumentTokens;
         try {
             instrumentTokens = mapSymbolsToInstrumentTokens(symbols, exchange);
         } catch (Exception e) {
-            log.error("Failed to map instrument tokens for batch scan", e);
+            log.error("Failed to map instrument tokens for batch {}", action, e);
             return Collections.emptyMap();
         }
 
-        Map<String, HistoricalData> result = new HashMap<>();
-
-        for (int i = 0; i < symbols.size(); i++) {
-            String symbol = symbols.get(i);
+        long callsBefore = kiteHistoricalCalls.get();
+        Map<String, CompletableFuture<T>> pending = new LinkedHashMap<>();
+        for (String symbol : symbols) {
             String instrumentToken = instrumentTokens.get(symbol);
             if (instrumentToken == null) {
                 log.warn("No instrument token found for symbol: {}", symbol);
                 continue;
             }
-
-            // Throttling: 350ms sleep between requests to stay within 3 req/sec limit
-            if (i > 0) {
+            pending.put(symbol, CompletableFuture.supplyAsync(() -> {
+                T value;
                 try {
-                    Thread.sleep(350);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    log.warn("Throttling interrupted for symbol {}", symbol);
-                    break;
+                    value = withRetry(symbol, action, progress, () -> task.run(instrumentToken));
+                } finally {
+                    progress.symbolFetched();
+                }
+                if (value != null) {
+                    onResult.accept(symbol, value); // outside the retries: a failing consumer does not refetch
+                }
+                return value;
+            }, virtualThreadExecutor));
+        }
+
+        Map<String, T> result = new HashMap<>();
+        try {
+            for (Map.Entry<String, CompletableFuture<T>> entry : pending.entrySet()) {
+                T value = entry.getValue().get();
+                if (value != null) {
+                    result.put(entry.getKey(), value);
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.values().forEach(future -> future.cancel(true));
+            log.warn("Batch {} interrupted after {} symbols", action, result.size());
+        } catch (ExecutionException e) {
+            log.error("Unexpected failure in batch {}", action, e.getCause());
+        }
 
-            // Retry logic (3 attempts with backoff)
-            int attempts = 0;
-            boolean success = false;
-            while (attempts < 3 && !success) {
-                attempts++;
-                try {
-                    HistoricalData candles = fetchHistoricalCandles(instrumentToken, interval, daysBack);
-                    result.put(symbol, candles);
-                    success = true;
-                } catch (Exception e) {
-                    if (attempts < 3) {
-                        long backoff = attempts * 500L;
-                        log.warn("Attempt {} failed for {}: {}. Retrying in {}ms...", attempts, symbol, e.getMessage(), backoff);
-                        try {
-                            Thread.sleep(backoff);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                            break;
-                        }
-                    } else {
-                        log.error("Failed to fetch candles for {} after {} attempts", symbol, attempts, e);
+        log.info("Batch {} complete: {} of {} symbols loaded with {} Kite historical calls",
+                action, result.size(), symbols.size(), kiteHistoricalCalls.get() - callsBefore);
+        return result;
+    }
+
+    /**
+     * Runs one symbol's task with 3 attempts and linear backoff. Returns null when every attempt fails
+     * or the progress is cancelled.
+     */
+    private <T> T withRetry(String symbol, String action, ScanProgress progress, SymbolCall<T> call) {
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            if (progress.isCancelled()) {
+                return null;
+            }
+            try {
+                return call.run();
+            } catch (Exception | KiteException e) {
+                if (progress.isCancelled()) {
+                    return null; // the request was withdrawn, not failed
+                }
+                if (attempt < 3) {
+                    long backoff = attempt * 500L;
+                    log.warn("Attempt {} failed for {}: {}. Retrying in {}ms...", attempt, symbol, e.getMessage(), backoff);
+                    try {
+                        Thread.sleep(backoff);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return null;
                     }
+                } else {
+                    log.error("Failed to {} candles for {} after {} attempts", action, symbol, attempt, e);
                 }
             }
         }
+        return null;
+    }
 
-        return result;
+    @FunctionalInterface
+    private interface SymbolTask<T> {
+        T run(String instrumentToken) throws IOException, KiteException;
+    }
+
+    @FunctionalInterface
+    private interface SymbolCall<T> {
+        T run() throws IOException, KiteException;
+    }
+
+    /**
+     * Total Kite historical calls made since startup.
+     */
+    public long getKiteHistoricalCalls() {
+        return kiteHistoricalCalls.get();
     }
 
     /**
-     * Clears the cached instrument token map. Useful for refreshing data.
+     * Clears the cached instrument master so the next lookup downloads a fresh dump.
      */
     public void clearCache() {
-        symbolToInstrumentTokenMap = null;
+        instrumentMaster.invalidate();
         log.info("Cleared instrument token cache");
     }
 }
@@ -6,18 +6,41 @@ import com.avants.autonomoustrader.model.TradingStrategy;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * PersistenceManager — strategy.json ("The Rules") and positions.json ("The Money") on disk.
+ * Both files are parsed once and served from memory as immutable, versioned snapshots: a read is a
+ * volatile load with no I/O. A {@link FileWatcher} (a watch service, polled every
+ * trading.persistence.poll-ms as a fallback) compares each file's identity, size and modification
+ * time with the loaded snapshot and reloads it on any difference. A reload is parsed and validated in
+ * full before the reference is swapped, so an edit that is half-written or invalid keeps the previous
+ * snapshot in service until the file is fixed. Without a poll interval, every read checks the file's
+ * attributes instead of watching it. Snapshots are shared: callers must not mutate them. Listeners
+ * registered with {@link #onChange(Runnable)} hear about every reload the watcher swaps in.
+ */
 @Service
 public class PersistenceManager {
 
@@ -25,16 +48,72 @@ public class PersistenceManager {
 
     private final Path strategyPath;
     private final Path positionsPath;
+    private final Path versionPath;
+    private final Path journalPath;
     private final ObjectMapper objectMapper;
+    private final ObjectMapper compactMapper;
+    private final long pollMillis;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private PositionsJournal journal; // guarded by this; opened on the first save
+    private FileWatcher watcher;      // guarded by this; started on the first load
+    private volatile Cached<TradingStrategy> strategy;
+    private volatile Cached<LivePortfolio> positions;
 
+    /**
+     * Checks the files' attributes on every read instead of watching them.
+     */
+    public PersistenceManager(String strategyPath, String positionsPath) {
+        this(strategyPath, positionsPath, 0);
+    }
+
+    @Autowired
     public PersistenceManager(
             @Value("${trading.strategy.path:strategy.json}") String strategyPath,
-            @Value("${trading.positions.path:positions.json}") String positionsPath) {
+            @Value("${trading.positions.path:positions.json}") String positionsPath,
+            @Value("${trading.persistence.poll-ms:500}") long pollMillis) {
+        this.pollMillis = pollMillis;
         this.strategyPath = Paths.get(strategyPath);
         this.positionsPath = Paths.get(positionsPath);
+        String base = this.positionsPath.getFileName().toString().replaceFirst("\\.json$", "");
+        this.versionPath = this.positionsPath.resolveSibling(base + ".version");
+        this.journalPath = this.positionsPath.resolveSibling(base + ".journal");
         this.objectMapper = new ObjectMapper()
                 .registerModule(new JavaTimeModule())
                 .enable(SerializationFeature.INDENT_OUTPUT);
+        this.compactMapper = objectMapper.copy().disable(SerializationFeature.INDENT_OUTPUT);
+    }
+
+    /**
+     * The version of positions.json last written, as recorded in its sidecar.
+     *
+     * @param sequence    Increases by one with every distinct snapshot
+     * @param contentHash Hash of the live portfolio's content, as in positions.json
+     * @param savedMillis When it was written
+     */
+    public record PositionsVersion(long sequence, String contentHash, long savedMillis) {}
+
+    /**
+     * A parsed file and the attributes it was read with.
+     *
+     * @param revision Increases by one with every reload that is swapped in
+     */
+    private record Cached<T>(T value, long revision, FileStamp stamp) {}
+
+    /**
+     * What identifies one version of a file without reading it; null fields for a missing file.
+     */
+    private record FileStamp(Object fileKey, FileTime modified, long size) {
+
+        static final FileStamp MISSING = new FileStamp(null, null, -1);
+
+        static FileStamp of(Path path) throws IOException {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                return new FileStamp(attributes.fileKey(), attributes.lastModifiedTime(), attributes.size());
+            } catch (NoSuchFileException e) {
+                return MISSING;
+            }
+        }
     }
 
     /**
@@ -42,11 +121,28 @@ public class PersistenceManager {
      * If missing, it tries to copy a default from classpath to disk.
      */
     public TradingStrategy loadStrategy() throws IOException {
-        if (!Files.exists(strategyPath)) {
-            log.warn("Strategy file not found at {}. Attempting to seed from defaults...", strategyPath);
-            seedDefaultStrategy();
+        Cached<TradingStrategy> cached = strategy;
+        if (cached == null || pollMillis <= 0) {
+            cached = refreshStrategy();
         }
-        return objectMapper.readValue(strategyPath.toFile(), TradingStrategy.class);
+        return cached.value();
+    }
+
+    /**
+     * Revision of the strategy in memory: 1 for the first load, plus one per reload; 0 before the first.
+     */
+    public long strategyRevision() {
+        Cached<TradingStrategy> cached = strategy;
+        return cached != null ? cached.revision() : 0;
+    }
+
+    /**
+     * Calls back on the watcher thread, outside any lock, after an edit to strategy.json or
+     * positions.json on disk has been reloaded. Not called for {@link #savePositions}, whose caller
+     * knows, nor when reads check the files instead of watching them.
+     */
+    public void onChange(Runnable listener) {
+        listeners.add(listener);
     }
 
     /**
@@ -54,30 +150,277 @@ public class PersistenceManager {
      * If missing, returns empty - allowing for "Delete to Refresh" testing.
      */
     public LivePortfolio loadPositions() {
-        if (!Files.exists(positionsPath)) {
-            log.info("positions.json missing - returning empty state.");
-            return new LivePortfolio();
-        }
-        try {
-            return objectMapper.readValue(positionsPath.toFile(), LivePortfolio.class);
-        } catch (IOException e) {
-            log.error("Failed to parse positions.json, returning empty.", e);
-            return new LivePortfolio();
+        Cached<LivePortfolio> cached = positions;
+        if (cached == null || pollMillis <= 0) {
+            cached = refreshPositions();
         }
+        return cached.value();
     }
 
     /**
-     * Persists only position/portfolio data.
+     * Persists only position/portfolio data, when it differs from the last snapshot written.
+     * positions.json is written to a temp file and renamed into place, so readers never see it half
+     * written. Each distinct snapshot is appended to positions.journal under the next sequence number
+     * before positions.json is stamped with it, so a crash in between leaves positions.json behind the
+     * journal, never ahead of it, and the next save writes the journalled snapshot out again.
+     * positions.version is updated last: a reader can poll that one-line sidecar
+     * ("sequence contentHash savedMillis") and reparse positions.json only when the sequence moves.
+     *
+     * @return true when positions.json was written, false when it already held this snapshot
      */
-    public void savePositions(KiteDto.LivePortfolio livePortfolio) throws IOException {
+    public synchronized boolean savePositions(KiteDto.LivePortfolio livePortfolio) throws IOException {
+        byte[] content = compactMapper.writeValueAsBytes(livePortfolio);
+        long hash = contentHash(content);
+        PositionsJournal journal = journal();
+        Long filed = Files.exists(positionsPath) ? loadPositions().getSequence() : null;
+        boolean journalled = journal.size() > 0 && journal.lastHash() == hash;
+        if (journalled && filed != null && filed == journal.lastSequence()) {
+            log.debug("Positions unchanged since sequence {} — skipping write", journal.lastSequence());
+            return false;
+        }
+
+        // Never reissue a sequence that positions.json already carries
+        long sequence = journalled ? journal.lastSequence() : Math.max(journal.lastSequence(), filed != null ? filed : 0) + 1;
+        long savedMillis = System.currentTimeMillis();
+        String hex = HexFormat.of().toHexDigits(hash);
         LivePortfolio manifest = new LivePortfolio();
         manifest.setLastUpdated(LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        manifest.setSequence(sequence);
+        manifest.setContentHash(hex);
         manifest.setLivePortfolio(livePortfolio);
 
-        objectMapper.writeValue(positionsPath.toFile(), manifest);
-        log.info("Saved {} holdings to {}",
+        if (!journalled) {
+            journal.append(sequence, savedMillis, hash, content);
+        } else {
+            log.warn("positions.json is behind the journal — rewriting sequence {}", sequence);
+        }
+        writeAtomically(positionsPath, objectMapper.writeValueAsBytes(manifest));
+        Cached<LivePortfolio> previous = positions;
+        positions = new Cached<>(manifest, previous != null ? previous.revision() + 1 : 1, FileStamp.of(positionsPath));
+        writeAtomically(versionPath, (sequence + " " + hex + " " + savedMillis + "\n").getBytes(StandardCharsets.US_ASCII));
+        log.info("Saved {} holdings to {} (sequence {})",
                 livePortfolio.holdings() != null ? livePortfolio.holdings().size() : 0,
-                positionsPath.toAbsolutePath());
+                positionsPath.toAbsolutePath(), sequence);
+        return true;
+    }
+
+    /**
+     * Reads the positions.version sidecar; null before the first write or when it is unreadable.
+     */
+    public PositionsVersion positionsVersion() {
+        try {
+            String[] fields = Files.readString(versionPath, StandardCharsets.US_ASCII).trim().split(" ");
+            return new PositionsVersion(Long.parseLong(fields[0]), fields[1], Long.parseLong(fields[2]));
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Journalled snapshots newer than a sequence number, oldest first.
+     */
+    public synchronized List<PositionsJournal.Entry> positionsSince(long sequence) throws IOException {
+        return journal().read(sequence);
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Reloads strategy.json when it differs from the snapshot in memory. A file that fails to parse or
+     * validate is ignored (until it changes again) once a strategy is loaded; a deleted one keeps the
+     * loaded strategy.
+     */
+    private synchronized Cached<TradingStrategy> refreshStrategy() throws IOException {
+        Cached<TradingStrategy> cached = strategy;
+        FileStamp stamp = FileStamp.of(strategyPath);
+        if (stamp == FileStamp.MISSING) {
+            if (cached != null) {
+                log.warn("strategy.json is gone from {} — keeping strategy {}", strategyPath, cached.value().getStrategyVersion());
+                return cached;
+            }
+            log.warn("Strategy file not found at {}. Attempting to seed from defaults...", strategyPath);
+            seedDefaultStrategy();
+            stamp = FileStamp.of(strategyPath);
+        }
+        if (cached != null && cached.stamp().equals(stamp)) {
+            return cached;
+        }
+
+        TradingStrategy loaded;
+        try {
+            loaded = objectMapper.readValue(Files.readAllBytes(strategyPath), TradingStrategy.class);
+            validate(loaded, cached != null ? cached.value() : null);
+        } catch (IOException | IllegalArgumentException e) {
+            if (cached == null) {
+                throw e instanceof IOException io ? io : new IOException(e.getMessage(), e);
+            }
+            log.warn("Ignoring invalid edit to {}, keeping strategy {}: {}", strategyPath,
+                    cached.value().getStrategyVersion(), e.getMessage());
+            strategy = new Cached<>(cached.value(), cached.revision(), stamp);
+            return strategy;
+        }
+        Cached<TradingStrategy> next = new Cached<>(loaded, cached != null ? cached.revision() + 1 : 1, stamp);
+        strategy = next;
+        if (cached != null) {
+            log.info("Reloaded {}: strategy {} (revision {})", strategyPath, loaded.getStrategyVersion(), next.revision());
+        }
+        watch();
+        return next;
+    }
+
+    /**
+     * Reloads positions.json when it differs from the snapshot in memory; missing or unreadable, it
+     * reads as empty.
+     */
+    private synchronized Cached<LivePortfolio> refreshPositions() {
+        Cached<LivePortfolio> cached = positions;
+        FileStamp stamp;
+        try {
+            stamp = FileStamp.of(positionsPath);
+        } catch (IOException e) {
+            log.error("Failed to stat positions.json, keeping what is loaded.", e);
+            return cached != null ? cached : new Cached<>(new LivePortfolio(), 0, FileStamp.MISSING);
+        }
+        if (cached != null && cached.stamp().equals(stamp)) {
+            return cached;
+        }
+
+        LivePortfolio loaded;
+        if (stamp == FileStamp.MISSING) {
+            log.info("positions.json missing - returning empty state.");
+            loaded = new LivePortfolio();
+        } else {
+            try {
+                loaded = objectMapper.readValue(Files.readAllBytes(positionsPath), LivePortfolio.class);
+            } catch (IOException e) {
+                log.error("Failed to parse positions.json, returning empty.", e);
+                loaded = new LivePortfolio();
+            }
+        }
+        Cached<LivePortfolio> next = new Cached<>(loaded, cached != null ? cached.revision() + 1 : 1, stamp);
+        positions = next;
+        watch();
+        return next;
+    }
+
+    /**
+     * Rejects a strategy that drops a section the running one has, or has negative risk limits.
+     */
+    private static void validate(TradingStrategy loaded, TradingStrategy running) {
+        if (loaded == null) {
+            throw new IllegalArgumentException("strategy.json is empty");
+        }
+        if (running != null) {
+            if (running.getUniverse() != null && loaded.getUniverse() == null) {
+                throw new IllegalArgumentException("universe is missing");
+            }
+            if (running.getTechnicalStrategy() != null && loaded.getTechnicalStrategy() == null) {
+                throw new IllegalArgumentException("technical_strategy is missing");
+            }
+            if (running.getRiskParameters() != null && loaded.getRiskParameters() == null) {
+                throw new IllegalArgumentException("risk_parameters is missing");
+            }
+        }
+        TradingStrategy.RiskParameters risk = loaded.getRiskParameters();
+        if (risk != null && (risk.maxCapitalPerTradePct() < 0 || risk.maxOpenPositions() < 0
+                || risk.stopLossPct() < 0 || risk.targetPct() < 0)) {
+            throw new IllegalArgumentException("risk_parameters must not be negative");
+        }
+    }
+
+    /**
+     * Starts watching both files for edits, unless reads check them instead.
+     */
+    private synchronized void watch() {
+        if (watcher != null || pollMillis <= 0) {
+            return;
+        }
+        watcher = new FileWatcher("persistence-watcher", pollMillis);
+        watcher.watch(strategyPath, () -> {
+            try {
+                Cached<TradingStrategy> before = strategy;
+                if (before != null && refreshStrategy().revision() != before.revision()) {
+                    notifyListeners();
+                }
+            } catch (IOException e) {
+                log.warn("Failed to reload {}: {}", strategyPath, e.getMessage());
+            }
+        });
+        watcher.watch(positionsPath, () -> {
+            Cached<LivePortfolio> before = positions;
+            if (before != null && refreshPositions().revision() != before.revision()) {
+                notifyListeners();
+            }
+        });
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.warn("Persistence change listener failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private PositionsJournal journal() throws IOException {
+        if (journal == null) {
+            journal = new PositionsJournal(journalPath);
+        }
+        return journal;
+    }
+
+    private static void writeAtomically(Path path, byte[] bytes) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path tmp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, bytes);
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * The first 64 bits of the SHA-256 of a snapshot's compact JSON.
+     */
+    private static long contentHash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                hash = hash << 8 | (digest[i] & 0xFF);
+            }
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 unavailable", e);
+        }
+    }
+
+    /**
+     * Writes a candidate strategy, e.g. the pick of a parameter sweep, for review.
+     * It goes to strategy-candidates/strategy-{version}.json beside strategy.json, which is left as is;
+     * adopting the candidate means copying it over strategy.json.
+     */
+    public Path saveCandidateStrategy(TradingStrategy candidate) throws IOException {
+        Path directory = strategyPath.toAbsolutePath().resolveSibling("strategy-candidates");
+        Files.createDirectories(directory);
+        Path path = directory.resolve("strategy-" + candidate.getStrategyVersion() + ".json");
+        objectMapper.writeValue(path.toFile(), candidate);
+        log.info("Saved candidate strategy {} to {}", candidate.getStrategyVersion(), path);
+        return path;
     }
 
     private void seedDefaultStrategy() throws IOException {
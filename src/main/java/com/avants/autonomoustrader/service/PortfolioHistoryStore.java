@@ -0,0 +1,646 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.HistoryDto;
+import com.avants.autonomoustrader.dto.KiteDto;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.avants.autonomoustrader.util.TimeSeriesCodec;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PortfolioHistoryStore — time series of the book, one point per portfolio sync.
+ * Keeps the whole book's value, P&amp;L and cost, and each holding's market value, in compressed,
+ * memory-mapped segments of one IST calendar month each:
+ * <pre>
+ *   &lt;base&gt;/book/yyyy-MM.seg
+ *   &lt;base&gt;/holdings/&lt;EXCHANGE&gt;_&lt;SYMBOL&gt;/yyyy-MM.seg
+ * </pre>
+ * Points are compressed with {@link TimeSeriesCodec}: a minute sync that finds nothing changed costs a
+ * couple of bits, so years of minute history fit in tens of MB. Each segment is a 256-byte header and
+ * the bit stream, grown in place by doubling. The header holds two copies of the encoder state and
+ * which one is current; an append writes the spare copy and then flips the selector, so a crash
+ * mid-append leaves the previous state intact and the torn bits past it are cleared on open.
+ * <p>
+ * Per-day aggregates of the book (open/high/low/close value, closing P&amp;L and cost) are kept in
+ * memory, rebuilt from the book segments on first use and updated on every append, so performance
+ * over a day, week or month is a couple of array lookups. Unlike the candle cache this history cannot
+ * be refetched: a segment that fails validation is moved aside, not deleted.
+ */
+@Service
+public class PortfolioHistoryStore {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioHistoryStore.class);
+
+    private static final int MAGIC = 0x54534547; // "TSEG"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 256;
+    private static final int INITIAL_BYTES = 4_096;
+    private static final int MAX_WIDTH = 4;
+
+    // Header offsets; the encoder state is stored twice, at H_STATE and H_STATE + STATE_BYTES
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_WIDTH = 8;
+    private static final int H_CAPACITY = 12;
+    private static final int H_ACTIVE = 16;
+    private static final int H_STATE = 32;
+    private static final int STATE_BYTES = 32 + 16 * MAX_WIDTH;
+
+    // State offsets, relative to the state copy
+    private static final int S_COUNT = 0;
+    private static final int S_BIT_LENGTH = 8;
+    private static final int S_PREVIOUS_TS = 16;
+    private static final int S_PREVIOUS_DELTA = 24;
+    private static final int S_COLUMNS = 32;
+
+    // Book columns
+    private static final int BOOK_VALUE = 0;
+    private static final int BOOK_PNL = 1;
+    private static final int BOOK_COST = 2;
+    private static final int BOOK_WIDTH = 3;
+
+    private static final String BOOK = "book";
+    private static final String HOLDINGS = "holdings";
+    private static final DateTimeFormatter MONTH = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final Path baseDir;
+    private final Map<Path, Segment> segments = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private boolean loaded;
+    private final List<Day> days = new ArrayList<>(); // days.get(i) is epoch day firstDay + i
+    private long firstDay;
+    private HistoryDto.BookPoint first;
+    private HistoryDto.BookPoint latest;
+    private Set<String> lastHeld = Set.of();
+
+    public PortfolioHistoryStore(@Value("${trading.history.path:data/history}") String baseDir) {
+        this.baseDir = Paths.get(baseDir);
+    }
+
+    /**
+     * Appends a sync of the portfolio: one point to the book series and one to each holding's series.
+     * A holding that was in the previous sync of this run but has gone gets a final zero. Syncs within
+     * the same second as the last stored point, or before it, are dropped, and so is an empty book: a
+     * failed fetch returns empty lists, and a flat line is a better record than a false drop to zero.
+     *
+     * @return true when the sync was stored
+     */
+    public synchronized boolean record(long epochMillis, KiteDto.LivePortfolio portfolio) {
+        Map<String, Double> values = marketValues(portfolio);
+        if (values.isEmpty()) {
+            return false;
+        }
+        ensureLoaded();
+        long seconds = Math.floorDiv(epochMillis, 1000L);
+        if (latest != null && seconds <= latest.time() / 1000) {
+            return false;
+        }
+        double value = 0.0;
+        for (double v : values.values()) {
+            value += v;
+        }
+        HistoryDto.BookPoint point = new HistoryDto.BookPoint(seconds * 1000, value, pnl(portfolio), cost(portfolio));
+
+        YearMonth month = month(seconds);
+        segment(BOOK, month, BOOK_WIDTH).append(seconds, new double[]{point.value(), point.pnl(), point.cost()});
+        for (Map.Entry<String, Double> holding : values.entrySet()) {
+            segment(holdingSeries(holding.getKey()), month, 1).append(seconds, new double[]{holding.getValue()});
+        }
+        for (String gone : lastHeld) {
+            if (!values.containsKey(gone)) {
+                segment(holdingSeries(gone), month, 1).append(seconds, new double[]{0.0});
+            }
+        }
+        lastHeld = Set.copyOf(values.keySet());
+        aggregate(point);
+        return true;
+    }
+
+    /**
+     * The newest stored point of the book, or null when nothing has been recorded.
+     */
+    public synchronized HistoryDto.BookPoint latest() {
+        ensureLoaded();
+        return latest;
+    }
+
+    /**
+     * Change in P&amp;L since the close one, seven and thirty days before the day of nowMillis, as a
+     * percentage of the cost of the newest point, or null when nothing has been recorded.
+     */
+    public synchronized HistoryDto.Performance performance(long nowMillis) {
+        ensureLoaded();
+        if (latest == null) {
+            return null;
+        }
+        long today = epochDay(Math.floorDiv(nowMillis, 1000L));
+        return new HistoryDto.Performance(
+                changePct(closeOf(today - 1), latest),
+                changePct(closeOf(today - 7), latest),
+                changePct(closeOf(today - 30), latest),
+                Instant.ofEpochMilli(latest.time()),
+                Instant.ofEpochMilli(first.time()));
+    }
+
+    /**
+     * Daily aggregates of the book for IST days in [from, to], limited to the days with history.
+     */
+    public synchronized List<HistoryDto.Day> daily(LocalDate from, LocalDate to) {
+        ensureLoaded();
+        List<HistoryDto.Day> result = new ArrayList<>();
+        long start = Math.max(from.toEpochDay(), firstDay);
+        long end = Math.min(to.toEpochDay(), firstDay + days.size() - 1);
+        for (long day = start; day <= end; day++) {
+            Day d = days.get((int) (day - firstDay));
+            HistoryDto.BookPoint close = d.close();
+            result.add(new HistoryDto.Day(LocalDate.ofEpochDay(day), d.open(), d.high(), d.low(),
+                    close.value(), close.pnl(), close.cost()));
+        }
+        return result;
+    }
+
+    /**
+     * The book's points on IST days [from, to], and its change from the close before the range (or the
+     * range's first point, when history starts inside it) to the range's last point.
+     */
+    public HistoryDto.Book book(LocalDate from, LocalDate to) {
+        HistoryDto.BookPoint base;
+        synchronized (this) {
+            ensureLoaded();
+            base = closeOf(from.toEpochDay() - 1); // the first point, when history starts inside the range
+        }
+        List<HistoryDto.BookPoint> points = new ArrayList<>();
+        long fromSeconds = from.atStartOfDay(KiteTime.IST).toEpochSecond();
+        long toSeconds = to.plusDays(1).atStartOfDay(KiteTime.IST).toEpochSecond();
+        for (Segment segment : segments(BOOK, from, to)) {
+            segment.forEach(fromSeconds, toSeconds, (seconds, decoder) -> points.add(new HistoryDto.BookPoint(
+                    seconds * 1000, decoder.value(BOOK_VALUE), decoder.value(BOOK_PNL), decoder.value(BOOK_COST))));
+        }
+        if (points.isEmpty()) {
+            return new HistoryDto.Book(from, to, 0.0, 0.0, 0.0, 0.0, List.of());
+        }
+        HistoryDto.BookPoint last = points.get(points.size() - 1);
+        if (base == null) {
+            base = points.get(0);
+        }
+        double high = Double.NEGATIVE_INFINITY;
+        double low = Double.POSITIVE_INFINITY;
+        for (HistoryDto.BookPoint point : points) {
+            high = Math.max(high, point.value());
+            low = Math.min(low, point.value());
+        }
+        return new HistoryDto.Book(from, to, last.pnl() - base.pnl(), changePct(base, last), high, low, points);
+    }
+
+    /**
+     * One holding's market value on IST days [from, to].
+     */
+    public HistoryDto.Series holding(String exchange, String symbol, LocalDate from, LocalDate to) {
+        String name = exchange + ":" + symbol;
+        List<HistoryDto.Point> points = new ArrayList<>();
+        long fromSeconds = from.atStartOfDay(KiteTime.IST).toEpochSecond();
+        long toSeconds = to.plusDays(1).atStartOfDay(KiteTime.IST).toEpochSecond();
+        for (Segment segment : segments(holdingSeries(name), from, to)) {
+            segment.forEach(fromSeconds, toSeconds,
+                    (seconds, decoder) -> points.add(new HistoryDto.Point(seconds * 1000, decoder.value(0))));
+        }
+        return new HistoryDto.Series(name, from, to, points);
+    }
+
+    /**
+     * The book as it stood at an instant: the last point at or before it, or null before history starts.
+     * Answered from the day aggregates when the instant is after the day's last sync, otherwise by
+     * decoding that day's month.
+     */
+    public HistoryDto.BookPoint bookAt(long epochMillis) {
+        long seconds = Math.floorDiv(epochMillis, 1000L);
+        HistoryDto.BookPoint before;
+        synchronized (this) {
+            ensureLoaded();
+            if (latest == null || seconds < first.time() / 1000) {
+                return null;
+            }
+            if (seconds >= latest.time() / 1000) {
+                return latest;
+            }
+            int index = (int) (epochDay(seconds) - firstDay);
+            HistoryDto.BookPoint close = days.get(index).close();
+            if (seconds >= close.time() / 1000) {
+                return close;
+            }
+            before = index > 0 ? days.get(index - 1).close() : null;
+        }
+        HistoryDto.BookPoint[] found = {before};
+        YearMonth month = month(seconds);
+        Segment segment = existingSegment(BOOK, month, BOOK_WIDTH);
+        if (segment != null) {
+            long dayStart = LocalDate.ofEpochDay(epochDay(seconds)).atStartOfDay(KiteTime.IST).toEpochSecond();
+            segment.forEach(dayStart, seconds + 1, (s, decoder) -> found[0] = new HistoryDto.BookPoint(
+                    s * 1000, decoder.value(BOOK_VALUE), decoder.value(BOOK_PNL), decoder.value(BOOK_COST)));
+        }
+        return found[0];
+    }
+
+    @PreDestroy
+    public void close() {
+        segments.values().forEach(segment -> {
+            synchronized (segment) {
+                segment.close();
+            }
+        });
+        segments.clear();
+        log.info("Portfolio history flushed and closed ({})", baseDir.toAbsolutePath());
+    }
+
+    // -------------------------------------------------------------------------
+    // Day aggregates
+    // -------------------------------------------------------------------------
+
+    /**
+     * @param close The day's last point; a day without syncs carries the previous day's
+     */
+    private record Day(double open, double high, double low, HistoryDto.BookPoint close) {}
+
+    /**
+     * Reads every book segment once, oldest first, to rebuild the day aggregates.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        Path directory = baseDir.resolve(BOOK);
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<YearMonth> months = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.seg")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    months.add(YearMonth.parse(name.substring(0, name.length() - 4), MONTH));
+                } catch (RuntimeException e) {
+                    log.warn("Ignoring unexpected file in portfolio history: {}", file);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list portfolio history in " + directory, e);
+        }
+        months.sort(null);
+        for (YearMonth month : months) {
+            segment(BOOK, month, BOOK_WIDTH).forEach(Long.MIN_VALUE, Long.MAX_VALUE, (seconds, decoder) ->
+                    aggregate(new HistoryDto.BookPoint(seconds * 1000,
+                            decoder.value(BOOK_VALUE), decoder.value(BOOK_PNL), decoder.value(BOOK_COST))));
+        }
+        if (latest != null) {
+            log.info("Loaded portfolio history: {} days from {} ({})",
+                    days.size(), LocalDate.ofEpochDay(firstDay), baseDir.toAbsolutePath());
+        }
+    }
+
+    private void aggregate(HistoryDto.BookPoint point) {
+        long day = epochDay(point.time() / 1000);
+        if (days.isEmpty()) {
+            firstDay = day;
+            first = point;
+        }
+        int index = (int) (day - firstDay);
+        while (days.size() < index) {
+            HistoryDto.BookPoint carried = days.get(days.size() - 1).close();
+            days.add(new Day(carried.value(), carried.value(), carried.value(), carried));
+        }
+        double value = point.value();
+        if (index == days.size()) {
+            days.add(new Day(value, value, value, point));
+        } else {
+            Day d = days.get(index);
+            days.set(index, new Day(d.open(), Math.max(d.high(), value), Math.min(d.low(), value), point));
+        }
+        latest = point;
+    }
+
+    /**
+     * The last point on or before an epoch day, or the first point when history starts after it.
+     */
+    private HistoryDto.BookPoint closeOf(long epochDay) {
+        long index = epochDay - firstDay;
+        if (index < 0) {
+            return first;
+        }
+        if (index >= days.size()) {
+            return latest;
+        }
+        return days.get((int) index).close();
+    }
+
+    private static double changePct(HistoryDto.BookPoint base, HistoryDto.BookPoint now) {
+        return now.cost() > 0 ? (now.pnl() - base.pnl()) / now.cost() * 100.0 : 0.0;
+    }
+
+    // -------------------------------------------------------------------------
+    // Portfolio valuation
+    // -------------------------------------------------------------------------
+
+    /**
+     * Market value per "EXCHANGE:SYMBOL": holdings including T1 quantity, plus net positions.
+     */
+    private static Map<String, Double> marketValues(KiteDto.LivePortfolio portfolio) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        if (portfolio == null) {
+            return values;
+        }
+        if (portfolio.holdings() != null) {
+            for (KiteDto.HoldingDto holding : portfolio.holdings()) {
+                values.merge(holding.exchange() + ":" + holding.tradingSymbol(),
+                        (holding.quantity() + holding.t1Quantity()) * holding.lastPrice(), Double::sum);
+            }
+        }
+        if (portfolio.positions() != null) {
+            for (KiteDto.PositionDto position : portfolio.positions()) {
+                values.merge(position.exchange() + ":" + position.tradingSymbol(),
+                        position.netQuantity() * position.lastPrice(), Double::sum);
+            }
+        }
+        return values;
+    }
+
+    private static double pnl(KiteDto.LivePortfolio portfolio) {
+        double pnl = 0.0;
+        if (portfolio.holdings() != null) {
+            for (KiteDto.HoldingDto holding : portfolio.holdings()) {
+                pnl += holding.pnl();
+            }
+        }
+        if (portfolio.positions() != null) {
+            for (KiteDto.PositionDto position : portfolio.positions()) {
+                pnl += position.pnl();
+            }
+        }
+        return pnl;
+    }
+
+    private static double cost(KiteDto.LivePortfolio portfolio) {
+        double cost = 0.0;
+        if (portfolio.holdings() != null) {
+            for (KiteDto.HoldingDto holding : portfolio.holdings()) {
+                cost += holding.averagePrice() * (holding.quantity() + holding.t1Quantity());
+            }
+        }
+        if (portfolio.positions() != null) {
+            for (KiteDto.PositionDto position : portfolio.positions()) {
+                cost += position.averagePrice() * Math.abs(position.netQuantity());
+            }
+        }
+        return cost;
+    }
+
+    // -------------------------------------------------------------------------
+    // Segments
+    // -------------------------------------------------------------------------
+
+    private static long epochDay(long epochSeconds) {
+        return Instant.ofEpochSecond(epochSeconds).atZone(KiteTime.IST).toLocalDate().toEpochDay();
+    }
+
+    private static YearMonth month(long epochSeconds) {
+        return YearMonth.from(Instant.ofEpochSecond(epochSeconds).atZone(KiteTime.IST));
+    }
+
+    private static String holdingSeries(String name) {
+        return HOLDINGS + "/" + name.replace(':', '_').replaceAll("[^A-Za-z0-9_&.-]", "_");
+    }
+
+    private Path segmentPath(String series, YearMonth month) {
+        return baseDir.resolve(series).resolve(MONTH.format(month) + ".seg");
+    }
+
+    private Segment segment(String series, YearMonth month, int width) {
+        return segments.computeIfAbsent(segmentPath(series, month), path -> {
+            try {
+                Files.createDirectories(path.getParent());
+                return new Segment(path, width);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open history segment " + path, e);
+            }
+        });
+    }
+
+    private Segment existingSegment(String series, YearMonth month, int width) {
+        Path path = segmentPath(series, month);
+        return segments.containsKey(path) || Files.exists(path) ? segment(series, month, width) : null;
+    }
+
+    /**
+     * The existing segments of a series covering IST days [from, to], oldest first.
+     */
+    private List<Segment> segments(String series, LocalDate from, LocalDate to) {
+        List<Segment> result = new ArrayList<>();
+        int width = series.equals(BOOK) ? BOOK_WIDTH : 1;
+        for (YearMonth month = YearMonth.from(from); !month.isAfter(YearMonth.from(to)); month = month.plusMonths(1)) {
+            Segment segment = existingSegment(series, month, width);
+            if (segment != null) {
+                result.add(segment);
+            }
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface PointVisitor {
+        void visit(long epochSeconds, TimeSeriesCodec.Decoder decoder);
+    }
+
+    /**
+     * A single memory-mapped, compressed segment. All access is guarded by the instance monitor.
+     */
+    private static final class Segment {
+
+        private final Path path;
+        private final int width;
+        private FileChannel channel;
+        private MappedByteBuffer buffer;
+        private int capacity; // bytes of bit stream
+        private int active;
+        private TimeSeriesCodec.Encoder encoder;
+
+        Segment(Path path, int width) throws IOException {
+            this.path = path;
+            this.width = width;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() == 0) {
+                initialise();
+            } else if (isValid()) {
+                clearTail();
+                log.debug("Opened history segment {} ({} points)", path, encoder.count());
+            } else {
+                Path aside = path.resolveSibling(path.getFileName() + ".corrupt");
+                log.warn("History segment {} failed validation — moved to {}", path, aside);
+                channel.close();
+                Files.move(path, aside, StandardCopyOption.REPLACE_EXISTING);
+                this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                initialise();
+            }
+        }
+
+        private boolean isValid() throws IOException {
+            if (channel.size() < HEADER_BYTES) {
+                return false;
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            int cap = header.getInt(H_CAPACITY);
+            int slot = header.getInt(H_ACTIVE);
+            if (header.getInt(H_MAGIC) != MAGIC || header.getInt(H_VERSION) != VERSION
+                    || header.getInt(H_WIDTH) != width || cap <= 0 || (slot != 0 && slot != 1)
+                    || channel.size() < (long) HEADER_BYTES + cap) {
+                return false;
+            }
+            int state = H_STATE + slot * STATE_BYTES;
+            int count = header.getInt(state + S_COUNT);
+            long bitLength = header.getLong(state + S_BIT_LENGTH);
+            if (count < 0 || bitLength < 0 || bitLength > cap * 8L) {
+                return false;
+            }
+            long[] previousBits = new long[width];
+            int[] leading = new int[width];
+            int[] trailing = new int[width];
+            for (int v = 0; v < width; v++) {
+                int column = state + S_COLUMNS + v * 16;
+                previousBits[v] = header.getLong(column);
+                leading[v] = header.getInt(column + 8);
+                trailing[v] = header.getInt(column + 12);
+            }
+            capacity = cap;
+            active = slot;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) HEADER_BYTES + cap);
+            encoder = new TimeSeriesCodec.Encoder(width, bitLength, count, header.getLong(state + S_PREVIOUS_TS),
+                    header.getLong(state + S_PREVIOUS_DELTA), previousBits, leading, trailing);
+            return true;
+        }
+
+        private void initialise() throws IOException {
+            capacity = INITIAL_BYTES;
+            active = 0;
+            encoder = new TimeSeriesCodec.Encoder(width);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + capacity);
+            buffer.putInt(H_MAGIC, MAGIC);
+            buffer.putInt(H_VERSION, VERSION);
+            buffer.putInt(H_WIDTH, width);
+            buffer.putInt(H_CAPACITY, capacity);
+            writeState(0);
+            buffer.putInt(H_ACTIVE, 0);
+        }
+
+        /**
+         * Zeroes whatever a torn append left past the end of the stream, which the encoder ORs into.
+         */
+        private void clearTail() {
+            long bitLength = encoder.bitLength();
+            int index = (int) (bitLength >>> 3);
+            int end = Math.min(capacity, index + 2 * TimeSeriesCodec.maxPointBytes(width));
+            if ((bitLength & 7) != 0) {
+                int keep = 0xFF << (8 - (int) (bitLength & 7));
+                buffer.put(HEADER_BYTES + index, (byte) (buffer.get(HEADER_BYTES + index) & keep));
+                index++;
+            }
+            for (int i = index; i < end; i++) {
+                buffer.put(HEADER_BYTES + i, (byte) 0);
+            }
+        }
+
+        /**
+         * Appends a point, dropping it when it is not after the last one.
+         */
+        synchronized void append(long epochSeconds, double[] values) {
+            if (encoder.count() > 0 && epochSeconds <= encoder.previousTimestamp()) {
+                return;
+            }
+            if ((encoder.bitLength() >>> 3) + TimeSeriesCodec.maxPointBytes(width) >= capacity) {
+                grow();
+            }
+            encoder.append(buffer, HEADER_BYTES, epochSeconds, values);
+            int spare = 1 - active;
+            writeState(spare);
+            buffer.putInt(H_ACTIVE, spare);
+            active = spare;
+        }
+
+        /**
+         * Visits the points with timestamps in [fromSeconds, toSeconds), oldest first.
+         */
+        synchronized void forEach(long fromSeconds, long toSeconds, PointVisitor visitor) {
+            TimeSeriesCodec.Decoder decoder = new TimeSeriesCodec.Decoder(buffer, HEADER_BYTES, width, encoder.count());
+            while (decoder.next()) {
+                long seconds = decoder.timestamp();
+                if (seconds >= toSeconds) {
+                    break;
+                }
+                if (seconds >= fromSeconds) {
+                    visitor.visit(seconds, decoder);
+                }
+            }
+        }
+
+        private void writeState(int slot) {
+            int state = H_STATE + slot * STATE_BYTES;
+            buffer.putInt(state + S_COUNT, encoder.count());
+            buffer.putLong(state + S_BIT_LENGTH, encoder.bitLength());
+            buffer.putLong(state + S_PREVIOUS_TS, encoder.previousTimestamp());
+            buffer.putLong(state + S_PREVIOUS_DELTA, encoder.previousDelta());
+            for (int v = 0; v < width; v++) {
+                int column = state + S_COLUMNS + v * 16;
+                buffer.putLong(column, encoder.previousBits(v));
+                buffer.putInt(column + 8, encoder.leading(v));
+                buffer.putInt(column + 12, encoder.trailing(v));
+            }
+        }
+
+        /**
+         * Doubles the stream capacity; the stream starts at a fixed offset, so nothing moves.
+         */
+        private void grow() {
+            int newCapacity = capacity * 2;
+            try {
+                buffer.force();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) HEADER_BYTES + newCapacity);
+                buffer.putInt(H_CAPACITY, newCapacity);
+                capacity = newCapacity;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to grow history segment " + path, e);
+            }
+        }
+
+        void close() {
+            try {
+                buffer.force();
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close history segment {}", path, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.KiteDto;
+import com.avants.autonomoustrader.dto.RiskDto;
+import com.avants.autonomoustrader.model.CandleSeries;
+import com.avants.autonomoustrader.util.MonteCarloRisk;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * PortfolioRiskService — Monte Carlo VaR and expected shortfall of the live book.
+ * Exposures come from the synced holdings (settled and T1 quantity) and net positions at their last
+ * price; their daily closes come from the {@link CandleStore}, aligned on common sessions over the
+ * last trading.risk.lookback-days. The {@link MonteCarloRisk} simulation runs on the scan pool.
+ * The report for the configured settings is refreshed after every portfolio sync and served from
+ * memory; other settings are simulated on request.
+ */
+@Service
+public class PortfolioRiskService {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioRiskService.class);
+    private static final String INTERVAL = "day";
+    private static final int[] HORIZONS = {1, 10};
+    private static final long SEED = 0x5EED_CAFEL; // fixed, so successive refreshes differ only as the book does
+    private static final int MIN_RETURNS = 20;
+    private static final int MIN_PATHS = 1_000;
+    private static final int MAX_PATHS = 1_000_000;
+    private static final int WEEK_SESSIONS = 5;
+    private static final int MONTH_SESSIONS = 21;
+    private static final long DAY_MILLIS = 86_400_000L;
+
+    private final PersistenceManager persistenceManager;
+    private final MarketDataService marketDataService;
+    private final CandleStore candleStore;
+    private final ForkJoinPool scanPool;
+    private final String defaultMethod;
+    private final int defaultPaths;
+    private final double defaultConfidence;
+    private final int lookbackDays;
+    private final AtomicReference<RiskDto.Report> latest = new AtomicReference<>();
+
+    public PortfolioRiskService(PersistenceManager persistenceManager,
+                                MarketDataService marketDataService,
+                                CandleStore candleStore,
+                                @Qualifier("scanPool") ForkJoinPool scanPool,
+                                @Value("${trading.risk.method:bootstrap}") String defaultMethod,
+                                @Value("${trading.risk.paths:100000}") int defaultPaths,
+                                @Value("${trading.risk.confidence:0.99}") double defaultConfidence,
+                                @Value("${trading.risk.lookback-days:500}") int lookbackDays) {
+        this.persistenceManager = persistenceManager;
+        this.marketDataService = marketDataService;
+        this.candleStore = candleStore;
+        this.scanPool = scanPool;
+        this.defaultMethod = defaultMethod;
+        this.defaultPaths = defaultPaths;
+        this.defaultConfidence = defaultConfidence;
+        this.lookbackDays = lookbackDays;
+    }
+
+    /**
+     * One holding or position's market value.
+     */
+    private record Exposure(String symbol, String exchange, double value) {}
+
+    /**
+     * The report of the last refresh, or null before the first sync.
+     */
+    public RiskDto.Report latest() {
+        return latest.get();
+    }
+
+    /**
+     * Re-simulates the configured settings for a freshly synced book. Failures are logged; the previous
+     * report is kept.
+     */
+    public void refresh(KiteDto.LivePortfolio portfolio) {
+        try {
+            RiskDto.Report report = assess(portfolio, null, null, null);
+            latest.set(report);
+            log.info("Risk refreshed: {} paths in {} ms, 1-day VaR {} / ES {} at {}%", report.paths(), report.elapsedMillis(),
+                    report.horizons().isEmpty() ? "-" : String.format("%.0f", report.horizons().get(0).valueAtRisk()),
+                    report.horizons().isEmpty() ? "-" : String.format("%.0f", report.horizons().get(0).expectedShortfall()),
+                    report.confidence() * 100);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Risk refresh failed: {}", e.getMessage(), e);
+        } catch (KiteException e) {
+            log.warn("Kite API error during risk refresh: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The latest report for the configured settings, simulating it now if it is not there yet.
+     */
+    public RiskDto.Report current() throws IOException, KiteException {
+        RiskDto.Report report = latest.get();
+        if (report != null) {
+            return report;
+        }
+        KiteDto.LivePortfolio portfolio = persistenceManager.loadPositions().getLivePortfolio();
+        if (portfolio == null) {
+            return null;
+        }
+        report = assess(portfolio, null, null, null);
+        latest.compareAndSet(null, report);
+        return report;
+    }
+
+    /**
+     * Simulates the book's 1-day and 10-day losses.
+     *
+     * @param method     "bootstrap" or "normal", or null for trading.risk.method
+     * @param paths      Simulated paths, or null for trading.risk.paths
+     * @param confidence VaR confidence level, or null for trading.risk.confidence
+     * @throws IllegalArgumentException when a setting is out of range
+     */
+    public RiskDto.Report assess(KiteDto.LivePortfolio portfolio, String method, Integer paths, Double confidence)
+            throws IOException, KiteException {
+        MonteCarloRisk.Method model = method(method != null ? method : defaultMethod);
+        int pathCount = paths != null ? paths : defaultPaths;
+        double level = confidence != null ? confidence : defaultConfidence;
+        if (pathCount < MIN_PATHS || pathCount > MAX_PATHS) {
+            throw new IllegalArgumentException("paths must be between " + MIN_PATHS + " and " + MAX_PATHS + ", got " + pathCount);
+        }
+        if (!(level >= 0.5 && level < 1.0)) {
+            throw new IllegalArgumentException("confidence must be in [0.5, 1), got " + level);
+        }
+        long started = System.nanoTime();
+
+        List<Exposure> exposures = exposures(portfolio);
+        List<Exposure> priced = new ArrayList<>();
+        List<CandleSeries> histories = new ArrayList<>();
+        List<String> unpriced = new ArrayList<>();
+        long fromMillis = System.currentTimeMillis() - lookbackDays * 2L * DAY_MILLIS; // calendar days spanning the sessions
+        Map<String, List<Exposure>> byExchange = new LinkedHashMap<>();
+        exposures.forEach(exposure -> byExchange.computeIfAbsent(exposure.exchange(), e -> new ArrayList<>()).add(exposure));
+        for (Map.Entry<String, List<Exposure>> exchange : byExchange.entrySet()) {
+            Map<String, String> tokens = marketDataService.mapSymbolsToInstrumentTokens(
+                    exchange.getValue().stream().map(Exposure::symbol).toList(), exchange.getKey());
+            for (Exposure exposure : exchange.getValue()) {
+                String token = tokens.get(exposure.symbol());
+                CandleSeries series = token != null ? candleStore.readSeries(token, INTERVAL, fromMillis, Long.MAX_VALUE) : null;
+                if (series == null || series.size() <= MIN_RETURNS) {
+                    unpriced.add(exposure.symbol());
+                    continue;
+                }
+                priced.add(exposure);
+                histories.add(series.slice(Math.max(0, series.size() - lookbackDays - 1), series.size()));
+            }
+        }
+
+        double gross = priced.stream().mapToDouble(exposure -> Math.abs(exposure.value())).sum();
+        if (priced.isEmpty() || gross == 0.0) {
+            return new RiskDto.Report(Instant.now(), model.name(), pathCount, level, 0, gross, 0.0, 0.0, List.of(), unpriced,
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+        long[] sessions = sessions(histories, lookbackDays + 1);
+        double[][] closes = align(histories, sessions);
+        double[] values = priced.stream().mapToDouble(Exposure::value).toArray();
+        MonteCarloRisk.Book book = new MonteCarloRisk.Book(priced.size(), sessions.length - 1, returns(closes, sessions.length),
+                values);
+
+        List<MonteCarloRisk.Horizon> horizons;
+        try {
+            horizons = scanPool.submit(() -> MonteCarloRisk.simulate(book, model, pathCount, HORIZONS, level, SEED)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while simulating portfolio risk");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Risk simulation failed", e.getCause());
+        }
+
+        List<RiskDto.Horizon> report = new ArrayList<>(horizons.size());
+        for (MonteCarloRisk.Horizon horizon : horizons) {
+            List<RiskDto.Contribution> contributions = new ArrayList<>(priced.size());
+            for (int i = 0; i < priced.size(); i++) {
+                Exposure exposure = priced.get(i);
+                contributions.add(new RiskDto.Contribution(exposure.symbol(), exposure.exchange(), exposure.value(),
+                        horizon.varContributions()[i], horizon.esContributions()[i]));
+            }
+            report.add(new RiskDto.Horizon(horizon.days(), horizon.valueAtRisk(), horizon.valueAtRisk() / gross * 100.0,
+                    horizon.expectedShortfall(), horizon.expectedShortfall() / gross * 100.0, contributions));
+        }
+        return new RiskDto.Report(Instant.now(), model.name(), pathCount, level, book.days(), gross,
+                bookReturn(closes, values, gross, WEEK_SESSIONS), bookReturn(closes, values, gross, MONTH_SESSIONS),
+                report, unpriced, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    /**
+     * Market value per symbol and exchange: settled and T1 holdings plus net positions, which may be short.
+     */
+    private static List<Exposure> exposures(KiteDto.LivePortfolio portfolio) {
+        Map<String, Exposure> bySymbol = new LinkedHashMap<>();
+        if (portfolio != null && portfolio.holdings() != null) {
+            for (KiteDto.HoldingDto holding : portfolio.holdings()) {
+                add(bySymbol, holding.tradingSymbol(), holding.exchange(),
+                        (holding.quantity() + holding.t1Quantity()) * holding.lastPrice());
+            }
+        }
+        if (portfolio != null && portfolio.positions() != null) {
+            for (KiteDto.PositionDto position : portfolio.positions()) {
+                add(bySymbol, position.tradingSymbol(), position.exchange(), position.netQuantity() * position.lastPrice());
+            }
+        }
+        return bySymbol.values().stream()
+                .filter(exposure -> exposure.value() != 0.0)
+                .toList();
+    }
+
+    private static void add(Map<String, Exposure> bySymbol, String symbol, String exchange, double value) {
+        String venue = exchange != null ? exchange.toUpperCase(Locale.ROOT) : "NSE";
+        bySymbol.merge(venue + ":" + symbol, new Exposure(symbol, venue, value),
+                (held, more) -> new Exposure(symbol, venue, held.value() + more.value()));
+    }
+
+    /**
+     * The last sessions on which any of the holdings traded, ascending.
+     */
+    private static long[] sessions(List<CandleSeries> histories, int limit) {
+        int total = 0;
+        for (CandleSeries series : histories) {
+            total += series.size();
+        }
+        long[] all = new long[total];
+        int k = 0;
+        for (CandleSeries series : histories) {
+            for (int i = 0; i < series.size(); i++) {
+                all[k++] = series.timestamp(i);
+            }
+        }
+        long[] distinct = Arrays.stream(all).sorted().distinct().toArray();
+        return Arrays.copyOfRange(distinct, Math.max(0, distinct.length - limit), distinct.length);
+    }
+
+    /**
+     * Closes of each holding on each session, carried forward over sessions it did not trade; NaN
+     * before its first bar.
+     */
+    private static double[][] align(List<CandleSeries> histories, long[] sessions) {
+        double[][] closes = new double[histories.size()][sessions.length];
+        for (int i = 0; i < histories.size(); i++) {
+            CandleSeries series = histories.get(i);
+            int bar = 0;
+            double last = Double.NaN;
+            for (int s = 0; s < sessions.length; s++) {
+                while (bar < series.size() && series.timestamp(bar) <= sessions[s]) {
+                    last = series.close(bar++);
+                }
+                closes[i][s] = last;
+            }
+        }
+        return closes;
+    }
+
+    /**
+     * Day-major simple returns between consecutive sessions; zero where a close is missing.
+     */
+    private static double[] returns(double[][] closes, int sessions) {
+        int n = closes.length;
+        double[] returns = new double[(sessions - 1) * n];
+        for (int i = 0; i < n; i++) {
+            for (int s = 1; s < sessions; s++) {
+                double previous = closes[i][s - 1];
+                double close = closes[i][s];
+                returns[(s - 1) * n + i] = previous > 0 && close > 0 ? close / previous - 1.0 : 0.0;
+            }
+        }
+        return returns;
+    }
+
+    /**
+     * Return of today's book over the last few sessions, as a percentage of gross exposure.
+     */
+    private static double bookReturn(double[][] closes, double[] values, double gross, int sessions) {
+        double pnl = 0.0;
+        for (int i = 0; i < closes.length; i++) {
+            int last = closes[i].length - 1;
+            int first = Math.max(0, last - sessions);
+            if (closes[i][first] > 0 && closes[i][last] > 0) {
+                pnl += values[i] * (closes[i][last] / closes[i][first] - 1.0);
+            }
+        }
+        return pnl / gross * 100.0;
+    }
+
+    private static MonteCarloRisk.Method method(String method) {
+        return switch (method.toLowerCase(Locale.ROOT)) {
+            case "bootstrap", "historical" -> MonteCarloRisk.Method.BOOTSTRAP;
+            case "normal", "parametric" -> MonteCarloRisk.Method.NORMAL;
+            default -> throw new IllegalArgumentException("Unknown risk method '" + method + "'; expected bootstrap or normal");
+        };
+    }
+}
@@ -0,0 +1,244 @@
+package com.avants.autonomoustrader.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Append-only binary journal of positions snapshots, one record per distinct snapshot.
+ * <p>
+ * Layout: an 8-byte header (magic "PJNL", version), then records of
+ * <pre>
+ *   sequence (8) | savedMillis (8) | contentHash (8) | length (4) | deflated JSON (length) | CRC32 (4)
+ * </pre>
+ * The CRC covers the record from sequence to the end of the payload. Opening the journal scans it once
+ * and truncates a record torn by a crash mid-append, so the file always ends on a whole record.
+ * Every append is forced to disk before it returns.
+ */
+public class PositionsJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(PositionsJournal.class);
+    private static final int MAGIC = 0x504A4E4C; // "PJNL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEAD_BYTES = 28;
+    private static final int MAX_PAYLOAD_BYTES = 64 << 20;
+
+    private final Path path;
+    private final FileChannel channel;
+    private long lastSequence;
+    private long lastHash;
+    private int count;
+
+    /**
+     * One journalled snapshot.
+     *
+     * @param json The snapshot as compact JSON, inflated
+     */
+    public record Entry(long sequence, long savedMillis, long contentHash, byte[] json) {}
+
+    public PositionsJournal(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+            channel.write(header, 0);
+            channel.force(true);
+        } else {
+            recover();
+        }
+    }
+
+    /**
+     * Sequence number of the newest record, or 0 when the journal is empty.
+     */
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Content hash of the newest record, or 0 when the journal is empty.
+     */
+    public synchronized long lastHash() {
+        return lastHash;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Appends a snapshot and forces it to disk.
+     *
+     * @throws IllegalArgumentException when the sequence does not follow the newest record's
+     */
+    public synchronized void append(long sequence, long savedMillis, long contentHash, byte[] json) throws IOException {
+        if (sequence <= lastSequence) {
+            throw new IllegalArgumentException("Sequence " + sequence + " does not follow " + lastSequence);
+        }
+        byte[] payload = deflate(json);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEAD_BYTES + payload.length + 4)
+                .putLong(sequence)
+                .putLong(savedMillis)
+                .putLong(contentHash)
+                .putInt(payload.length)
+                .put(payload);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 0, record.position());
+        record.putInt((int) crc.getValue()).flip();
+        long position = channel.size();
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        channel.force(false);
+        lastSequence = sequence;
+        lastHash = contentHash;
+        count++;
+    }
+
+    /**
+     * Records newer than a sequence number, oldest first.
+     */
+    public synchronized List<Entry> read(long afterSequence) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        long position = HEADER_BYTES;
+        long size = channel.size();
+        while (position < size) {
+            Record record = readRecord(position, size);
+            if (record == null) {
+                break;
+            }
+            if (record.sequence > afterSequence) {
+                entries.add(new Entry(record.sequence, record.savedMillis, record.hash, inflate(record.payload)));
+            }
+            position = record.end;
+        }
+        return entries;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private record Record(long sequence, long savedMillis, long hash, byte[] payload, long end) {}
+
+    /**
+     * Checks the header, finds the newest whole record and cuts off anything after it.
+     */
+    private void recover() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a positions journal (or an unsupported version): " + path);
+        }
+        long position = HEADER_BYTES;
+        long size = channel.size();
+        while (position < size) {
+            Record record = readRecord(position, size);
+            if (record == null) {
+                break;
+            }
+            lastSequence = record.sequence;
+            lastHash = record.hash;
+            count++;
+            position = record.end;
+        }
+        if (position < size) {
+            log.warn("Truncating {} bytes of a torn record at the end of {}", size - position, path);
+            channel.truncate(position);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * The whole, intact record at a position, or null when it is cut short or fails its CRC.
+     */
+    private Record readRecord(long position, long size) throws IOException {
+        if (size - position < RECORD_HEAD_BYTES + 4) {
+            return null;
+        }
+        ByteBuffer head = ByteBuffer.allocate(RECORD_HEAD_BYTES);
+        readFully(head, position);
+        int length = head.getInt(24);
+        if (length < 0 || length > MAX_PAYLOAD_BYTES || size - position < RECORD_HEAD_BYTES + length + 4L) {
+            return null;
+        }
+        ByteBuffer body = ByteBuffer.allocate(length + 4);
+        readFully(body, position + RECORD_HEAD_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(head.array());
+        crc.update(body.array(), 0, length);
+        if ((int) crc.getValue() != body.getInt(length)) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        System.arraycopy(body.array(), 0, payload, 0, length);
+        return new Record(head.getLong(0), head.getLong(8), head.getLong(16), payload, position + RECORD_HEAD_BYTES + length + 4);
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of " + path);
+            }
+        }
+    }
+
+    private static byte[] deflate(byte[] bytes) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+            byte[] chunk = new byte[8_192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] inflate(byte[] bytes) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 4);
+            byte[] chunk = new byte[8_192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated snapshot in " + path);
+                }
+                out.write(chunk, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt snapshot in " + path, e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
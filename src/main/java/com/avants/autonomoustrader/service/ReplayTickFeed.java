@@ -0,0 +1,133 @@
+package com.avants.autonomoustrader.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TickFeed that replays recorded ticks from a CSV file instead of connecting to Kite.
+ * Stands in for the Kite WebSocket in tests and offline runs (trading.ticker.feed=replay).
+ * Each line is {@code epochMillis,instrumentToken,lastPrice,quantity,volumeToday}; blank lines and
+ * lines starting with '#' are skipped. Like the real ticker, only subscribed tokens are delivered,
+ * and replay starts with the first subscription. A speed of 0 replays without pauses.
+ */
+public class ReplayTickFeed implements TickFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplayTickFeed.class);
+
+    private final Path recording;
+    private final double speed;
+    private final Set<Long> subscribed = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile Listener listener;
+    private volatile Thread replayThread;
+    private volatile boolean running;
+
+    public ReplayTickFeed(Path recording, double speed) {
+        this.recording = recording;
+        this.speed = speed;
+    }
+
+    @Override
+    public boolean start(Listener listener) {
+        this.listener = listener;
+        this.running = true;
+        log.info("Replay tick feed ready ({}, speed {}x)", recording, speed);
+        return true;
+    }
+
+    @Override
+    public synchronized void subscribe(Collection<Long> instrumentTokens) {
+        subscribed.addAll(instrumentTokens);
+        if (running && replayThread == null && !subscribed.isEmpty()) {
+            replayThread = Thread.ofVirtual().name("tick-replay").start(this::replay);
+        }
+    }
+
+    @Override
+    public void unsubscribe(Collection<Long> instrumentTokens) {
+        subscribed.removeAll(instrumentTokens);
+    }
+
+    @Override
+    public boolean isConnected() {
+        return running;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Thread thread = replayThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Waits until the whole recording has been replayed. Returns false on timeout.
+     */
+    public boolean awaitFinished(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    private void replay() {
+        try {
+            List<String> lines = readLines();
+            long previousTime = -1;
+            int delivered = 0;
+            if (!lines.isEmpty()) {
+                listener.onConnected(Long.parseLong(lines.get(0).split(",")[0].trim()));
+            }
+            for (String line : lines) {
+                if (!running) {
+                    break;
+                }
+                String[] f = line.split(",");
+                long timestamp = Long.parseLong(f[0].trim());
+                long token = Long.parseLong(f[1].trim());
+                if (speed > 0 && previousTime >= 0 && timestamp > previousTime) {
+                    Thread.sleep((long) ((timestamp - previousTime) / speed));
+                }
+                previousTime = timestamp;
+                if (subscribed.contains(token)) {
+                    listener.onTick(token, Double.parseDouble(f[2].trim()), Long.parseLong(f[3].trim()),
+                            Long.parseLong(f[4].trim()), timestamp);
+                    delivered++;
+                }
+            }
+            log.info("Replay finished: {} ticks delivered from {}", delivered, recording);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Tick replay from {} failed", recording, e);
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    private List<String> readLines() {
+        try {
+            List<String> lines = new ArrayList<>();
+            for (String line : Files.readAllLines(recording)) {
+                String trimmed = line.trim();
+                if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                    lines.add(trimmed);
+                }
+            }
+            return lines;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read tick recording " + recording, e);
+        }
+    }
+}
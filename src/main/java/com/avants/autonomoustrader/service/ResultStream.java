@@ -0,0 +1,111 @@
+package com.avants.autonomoustrader.service;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Results of one long-running computation, handed from the threads producing them to the response
+ * writing them out, followed by one final value.
+ * The buffer between the two is bounded: once the reader falls that many results behind, the
+ * threads publishing more wait for it, so a slow client holds back its own computation instead of
+ * piling up results. Closing the stream (the client went away) cancels the computation.
+ *
+ * @param <T> Type of the streamed results
+ * @param <R> Type of the final value
+ */
+public class ResultStream<T, R> {
+
+    private static final Object END = new Object(); // compared by identity
+    private static final long OFFER_WAIT_MS = 100; // how often a waiting publisher checks for cancellation
+
+    private final BlockingQueue<Object> buffer;
+    private final ScanProgress progress = new ScanProgress();
+    private volatile R result;
+    private volatile String error;
+
+    public ResultStream(int capacity) {
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        progress.retain();
+    }
+
+    /**
+     * Progress and cancellation of the computation feeding this stream.
+     */
+    public ScanProgress progress() {
+        return progress;
+    }
+
+    /**
+     * Hands one result to the reader, waiting while the buffer is full.
+     *
+     * @return false when the stream was closed instead; the result is dropped
+     */
+    public boolean publish(T item) {
+        return offer(item);
+    }
+
+    /**
+     * Ends the stream with the final value of the whole computation.
+     */
+    public void complete(R result) {
+        this.result = result;
+        offer(END);
+    }
+
+    /**
+     * Ends the stream with a failure.
+     */
+    public void fail(String message) {
+        this.error = message != null ? message : "Failed";
+        offer(END);
+    }
+
+    /**
+     * The next result, waiting for it if need be.
+     *
+     * @return null once the computation has ended; {@link #result()} then tells how
+     */
+    @SuppressWarnings("unchecked")
+    public T next() throws InterruptedException {
+        Object item = buffer.take();
+        if (item == END) {
+            buffer.offer(END); // later calls see the end too
+            return null;
+        }
+        return (T) item;
+    }
+
+    /**
+     * The final value, once {@link #next()} has returned null.
+     *
+     * @throws IOException when the computation failed
+     */
+    public R result() throws IOException {
+        if (error != null) {
+            throw new IOException(error);
+        }
+        return result;
+    }
+
+    /**
+     * Stops reading: cancels the computation and releases any publisher waiting on the buffer.
+     */
+    public void close() {
+        progress.release();
+    }
+
+    private boolean offer(Object item) {
+        try {
+            while (!progress.isCancelled()) {
+                if (buffer.offer(item, OFFER_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+}
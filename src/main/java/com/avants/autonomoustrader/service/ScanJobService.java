@@ -0,0 +1,228 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.CandidateDto;
+import com.avants.autonomoustrader.dto.ScanJobDto;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * ScanJobService — scans submitted as jobs instead of blocking the caller.
+ * Jobs run on the virtual-thread executor, at most trading.scan.jobs.concurrency at a time; the
+ * rest wait as QUEUED. At most trading.scan.jobs.max-pending jobs may be queued or running, and
+ * submitting a job identical to one that is still pending returns that job instead of a new one.
+ * Cancelling a job releases its scan: once no other caller is waiting for the scan, its queued
+ * Kite requests are withdrawn and it stops.
+ */
+@Service
+public class ScanJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanJobService.class);
+    private static final int MAX_FINISHED = 64; // finished jobs kept for polling
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean isFinal() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    private final TechnicalScannerService technicalScannerService;
+    private final Executor virtualThreadExecutor;
+    private final int maxPending;
+    private final Semaphore running;
+    private final Map<String, Job> jobs = new LinkedHashMap<>(); // guarded by this, in submission order
+
+    public ScanJobService(TechnicalScannerService technicalScannerService,
+                          @Qualifier("virtualThreadExecutor") Executor virtualThreadExecutor,
+                          @Value("${trading.scan.jobs.max-pending:16}") int maxPending,
+                          @Value("${trading.scan.jobs.concurrency:2}") int concurrency) {
+        this.technicalScannerService = technicalScannerService;
+        this.virtualThreadExecutor = virtualThreadExecutor;
+        this.maxPending = maxPending;
+        this.running = new Semaphore(Math.max(1, concurrency), true);
+    }
+
+    /**
+     * Queues a scan, or returns the identical job that is still queued or running.
+     *
+     * @param topK Maximum number of candidates, or null for the strategy's default
+     * @throws RejectedExecutionException when max-pending jobs are already queued or running
+     */
+    public ScanJobDto submit(Integer topK) {
+        Job job;
+        synchronized (this) {
+            int pending = 0;
+            for (Job existing : jobs.values()) {
+                if (!existing.status.isFinal()) {
+                    if (Objects.equals(existing.topK, topK)) {
+                        log.debug("Scan job {} already pending for topK={}", existing.id, topK);
+                        return existing.view();
+                    }
+                    pending++;
+                }
+            }
+            if (pending >= maxPending) {
+                throw new RejectedExecutionException("Scan job queue is full (" + maxPending + " pending)");
+            }
+            job = new Job(UUID.randomUUID().toString(), topK);
+            jobs.put(job.id, job);
+            evictFinished();
+        }
+        log.info("Scan job {} queued (topK={})", job.id, topK);
+        virtualThreadExecutor.execute(() -> run(job));
+        return job.view();
+    }
+
+    /**
+     * The job's current state, or null for an unknown or evicted job.
+     */
+    public synchronized ScanJobDto find(String id) {
+        Job job = jobs.get(id);
+        return job != null ? job.view() : null;
+    }
+
+    /**
+     * Cancels a queued or running job. Finished jobs are left as they are.
+     *
+     * @return The job's state after cancelling, or null for an unknown job
+     */
+    public ScanJobDto cancel(String id) {
+        Job job;
+        synchronized (this) {
+            job = jobs.get(id);
+        }
+        if (job == null) {
+            return null;
+        }
+        job.cancel();
+        return job.view();
+    }
+
+    private void run(Job job) {
+        try {
+            running.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish(Status.CANCELLED, null, null);
+            return;
+        }
+        try {
+            if (!job.start()) {
+                return; // cancelled while queued
+            }
+            List<CandidateDto> candidates = job.topK != null
+                    ? technicalScannerService.scanForCandidates(job.topK, job::attach)
+                    : technicalScannerService.scanWithStrategyParameters(job::attach);
+            job.finish(Status.SUCCEEDED, candidates, null);
+        } catch (CancellationException e) {
+            job.finish(Status.CANCELLED, null, null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Scan job {} failed: {}", job.id, e.getMessage());
+            job.finish(Status.FAILED, null, e.getMessage());
+        } catch (KiteException e) {
+            log.warn("Scan job {} failed with Kite error {}: {}", job.id, e.code, e.message);
+            job.finish(Status.FAILED, null, "Kite error " + e.code + ": " + e.message);
+        } finally {
+            running.release();
+        }
+    }
+
+    private void evictFinished() {
+        int finished = 0;
+        for (Job job : jobs.values()) {
+            if (job.status.isFinal()) {
+                finished++;
+            }
+        }
+        for (Iterator<Job> it = jobs.values().iterator(); it.hasNext() && finished > MAX_FINISHED; ) {
+            if (it.next().status.isFinal()) {
+                it.remove();
+                finished--;
+            }
+        }
+    }
+
+    /**
+     * One job. Its status and scan progress are guarded by the job itself.
+     */
+    private static final class Job {
+        private final String id;
+        private final Integer topK;
+        private final Instant submittedAt = Instant.now();
+        private volatile Status status = Status.QUEUED;
+        private ScanProgress progress;
+        private List<CandidateDto> candidates;
+        private String error;
+        private Instant finishedAt;
+
+        Job(String id, Integer topK) {
+            this.id = id;
+            this.topK = topK;
+        }
+
+        synchronized boolean start() {
+            if (status != Status.QUEUED) {
+                return false;
+            }
+            status = Status.RUNNING;
+            return true;
+        }
+
+        /**
+         * Called by the scanner with the progress of the scan this job runs or joins.
+         */
+        synchronized void attach(ScanProgress scan) {
+            progress = scan;
+            if (status == Status.CANCELLED) {
+                scan.release();
+            }
+        }
+
+        synchronized void cancel() {
+            if (status.isFinal()) {
+                return;
+            }
+            boolean wasRunning = status == Status.RUNNING;
+            finish(Status.CANCELLED, null, null);
+            if (wasRunning && progress != null) {
+                progress.release();
+            }
+            log.info("Scan job {} cancelled", id);
+        }
+
+        synchronized void finish(Status outcome, List<CandidateDto> result, String message) {
+            if (status.isFinal()) {
+                return; // a cancelled job stays cancelled even if its shared scan completes
+            }
+            status = outcome;
+            candidates = result;
+            error = message;
+            finishedAt = Instant.now();
+        }
+
+        synchronized ScanJobDto view() {
+            ScanProgress p = progress;
+            return new ScanJobDto(id, status.name(), topK,
+                    p != null ? p.total() : 0, p != null ? p.fetched() : 0, p != null ? p.evaluated() : 0,
+                    submittedAt, finishedAt, candidates, error);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.avants.autonomoustrader.service;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress and cancellation of one scan, shared by every caller attached to it.
+ * The scan reports symbols fetched (history synced) and evaluated against the universe size.
+ * Callers retain the scan while they wait for it; when the last one releases it, the scan is
+ * cancelled: Kite requests still queued in the {@link KiteRateLimiter} are withdrawn without
+ * spending a token, and the scan stops at its next check.
+ */
+public class ScanProgress {
+
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicInteger fetched = new AtomicInteger();
+    private final AtomicInteger evaluated = new AtomicInteger();
+    private final AtomicInteger watchers = new AtomicInteger(); // -1 once released by everyone
+    private final Set<Future<?>> outstanding = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    public int total() {
+        return total.get();
+    }
+
+    public int fetched() {
+        return fetched.get();
+    }
+
+    public int evaluated() {
+        return evaluated.get();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void addTotal(int symbols) {
+        total.addAndGet(symbols);
+    }
+
+    void symbolFetched() {
+        fetched.incrementAndGet();
+    }
+
+    void symbolsEvaluated(int symbols) {
+        evaluated.addAndGet(symbols);
+    }
+
+    /**
+     * Attaches a caller.
+     *
+     * @return false when every caller has already released the scan, which is then cancelled for good
+     */
+    boolean retain() {
+        while (true) {
+            int current = watchers.get();
+            if (current < 0) {
+                return false;
+            }
+            if (watchers.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Detaches one caller; cancels the scan when nobody else is waiting for it.
+     */
+    public void release() {
+        if (watchers.decrementAndGet() == 0 && watchers.compareAndSet(0, -1)) {
+            cancel();
+        }
+    }
+
+    void cancel() {
+        cancelled = true;
+        for (Future<?> request : outstanding) {
+            request.cancel(false);
+        }
+    }
+
+    /**
+     * Withdraws a queued Kite request if the scan is cancelled, now or later.
+     */
+    void track(Future<?> request) {
+        outstanding.add(request);
+        if (cancelled) {
+            request.cancel(false);
+        }
+    }
+
+    void untrack(Future<?> request) {
+        outstanding.remove(request);
+    }
+
+    void throwIfCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Scan cancelled");
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.CandidateDto;
+import com.avants.autonomoustrader.util.TradingSessions;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * ScanSnapshotService — scan results computed ahead of time and served from memory.
+ * One immutable {@link Snapshot} holds the full ranking the scanner keeps (up to
+ * {@link TechnicalScannerService#MAX_CANDIDATES}); every topK is served by trimming it, so any number
+ * of distinct topKs shares one scan. A check every minute rescans when it is due:
+ * <ul>
+ *   <li>after each session close (15:30 IST), when the day's bar is final;</li>
+ *   <li>during the session, once the snapshot is older than trading.snapshots.intraday-minutes;</li>
+ *   <li>when strategy.json has a new strategy_version.</li>
+ * </ul>
+ * The snapshot is also computed at startup. Callers can force a rescan.
+ */
+@Service
+public class ScanSnapshotService {
+
+    private static final Logger log = LoggerFactory.getLogger(ScanSnapshotService.class);
+    private static final String UNVERSIONED = "unversioned";
+
+    private final TechnicalScannerService technicalScannerService;
+    private final PersistenceManager persistenceManager;
+    private final Executor virtualThreadExecutor;
+    private final boolean enabled;
+    private final long intradayMillis;
+    private volatile Snapshot ranked;
+
+    public ScanSnapshotService(TechnicalScannerService technicalScannerService,
+                               PersistenceManager persistenceManager,
+                               @Qualifier("virtualThreadExecutor") Executor virtualThreadExecutor,
+                               @Value("${trading.snapshots.enabled:true}") boolean enabled,
+                               @Value("${trading.snapshots.intraday-minutes:15}") int intradayMinutes) {
+        this.technicalScannerService = technicalScannerService;
+        this.persistenceManager = persistenceManager;
+        this.virtualThreadExecutor = virtualThreadExecutor;
+        this.enabled = enabled;
+        this.intradayMillis = intradayMinutes * 60_000L;
+    }
+
+    /**
+     * An immutable scan result.
+     *
+     * @param topK       Requested topK, or null for the strategy's default (and for the full ranking)
+     * @param asOfMillis When the scan that produced it finished
+     */
+    public record Snapshot(Integer topK, String strategyVersion, List<CandidateDto> candidates, long asOfMillis) {}
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Scan snapshots disabled (trading.snapshots.enabled=false) — scans run on request");
+            return;
+        }
+        // Off the startup thread: the first scan may have a year of history to sync
+        virtualThreadExecutor.execute(this::refreshDue);
+    }
+
+    /**
+     * The top candidates of the current snapshot, scanning first when there is none yet or when
+     * refresh is requested.
+     *
+     * @param topK Maximum number of candidates, or null for the strategy's default
+     */
+    public Snapshot candidates(Integer topK, boolean refresh) throws IOException, KiteException {
+        Snapshot snapshot = ranked;
+        if (snapshot == null || refresh) {
+            snapshot = scan();
+        }
+        int limit = topK != null ? topK : TechnicalScannerService.strategyTopK(persistenceManager.loadStrategy());
+        List<CandidateDto> candidates = snapshot.candidates();
+        return new Snapshot(topK, snapshot.strategyVersion(),
+                candidates.subList(0, Math.max(0, Math.min(limit, candidates.size()))), snapshot.asOfMillis());
+    }
+
+    /**
+     * True when the data behind the snapshot has moved on: a session has closed since it was taken,
+     * or the session is open and it is older than the intraday refresh interval.
+     */
+    public boolean isStale(Snapshot snapshot, long nowMillis) {
+        if (TradingSessions.lastCloseAtOrBefore(nowMillis) > snapshot.asOfMillis()) {
+            return true;
+        }
+        return intradayMillis > 0 && TradingSessions.isSessionOpen(nowMillis)
+                && nowMillis - snapshot.asOfMillis() >= intradayMillis;
+    }
+
+    /**
+     * Rescans when there is no snapshot yet, or it is stale or was computed for another strategy version.
+     */
+    @Scheduled(fixedDelayString = "${trading.snapshots.check-interval-ms:60000}",
+            initialDelayString = "${trading.snapshots.check-interval-ms:60000}")
+    public void refreshDue() {
+        if (!enabled) {
+            return;
+        }
+        String version = currentVersion();
+        Snapshot snapshot = ranked;
+        if (snapshot != null && Objects.equals(version, snapshot.strategyVersion())
+                && !isStale(snapshot, System.currentTimeMillis())) {
+            return;
+        }
+
+        log.info("Refreshing the scan snapshot for strategy {}", version);
+        try {
+            scan();
+        } catch (IOException | KiteException e) {
+            // Keep serving the previous snapshot; it reports itself as stale
+            log.warn("Scan snapshot refresh failed: {}", e.getMessage());
+        }
+    }
+
+    private Snapshot scan() throws IOException, KiteException {
+        // Read before scanning, so a strategy edited mid-scan is picked up by the next check
+        String version = currentVersion();
+        List<CandidateDto> candidates = technicalScannerService.scanForCandidates(TechnicalScannerService.MAX_CANDIDATES);
+        Snapshot snapshot = new Snapshot(null, version, List.copyOf(candidates), System.currentTimeMillis());
+        ranked = snapshot;
+        return snapshot;
+    }
+
+    private String currentVersion() {
+        try {
+            String version = persistenceManager.loadStrategy().getStrategyVersion();
+            return version != null ? version : UNVERSIONED;
+        } catch (IOException e) {
+            log.warn("Could not read strategy version for scan snapshots: {}", e.getMessage());
+            return UNVERSIONED;
+        }
+    }
+}
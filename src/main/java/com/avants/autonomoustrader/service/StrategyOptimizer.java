@@ -0,0 +1,472 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.OptimizationDto;
+import com.avants.autonomoustrader.model.CandleSeries;
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.avants.autonomoustrader.util.BacktestEngine;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.avants.autonomoustrader.util.SignalProgram;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * StrategyOptimizer — sweeps indicator periods and risk parameters of strategy.json over grids of
+ * combinations, backtesting each one on the scan pool.
+ * The universe's candles are read once per sweep. Combinations differing only in stop loss, target
+ * or capital per trade trade the same signals, so each distinct set of indicator periods is compiled
+ * and evaluated once, and its signal columns are shared by all of its risk combinations; only the
+ * cheap portfolio replay runs per combination. Variants share indicator columns too: each symbol has
+ * a {@link SignalProgram.Memo} for the length of the sweep, so EMA 9 is computed once per symbol
+ * however many variants combine it with other periods. Results are cached by a hash of the
+ * combination and its test window (strategy, universe, stored bars), so repeated and overlapping
+ * sweeps reuse them.
+ * Runs are streamed as they complete. Pool tasks only queue them; the thread that started the sweep
+ * hands them to the reader, so a slow reader holds up that thread and never a scan pool worker. A
+ * sweep stops early once patience runs out or its reader goes away, and ends with a ranked table
+ * whose rows can be written back as candidate strategies.
+ */
+@Service
+public class StrategyOptimizer {
+
+    private static final Logger log = LoggerFactory.getLogger(StrategyOptimizer.class);
+    private static final int DEFAULT_TOP = 20;
+    private static final long HANDOFF_POLL_MS = 50; // how often the forwarding thread checks whether the pool is done
+    private static final List<String> OBJECTIVES = List.of("return", "return_over_drawdown", "win_rate");
+
+    private final PersistenceManager persistenceManager;
+    private final BacktestService backtestService;
+    private final ConditionCompiler conditionCompiler;
+    private final Executor virtualThreadExecutor;
+    private final int maxCombinations;
+    private final int bufferSize;
+    private final Map<String, Result> results; // guarded by itself, least recently used first
+
+    public StrategyOptimizer(PersistenceManager persistenceManager,
+                             BacktestService backtestService,
+                             ConditionCompiler conditionCompiler,
+                             @Qualifier("virtualThreadExecutor") Executor virtualThreadExecutor,
+                             @Value("${trading.optimize.max-combinations:20000}") int maxCombinations,
+                             @Value("${trading.optimize.cache-size:100000}") int cacheSize,
+                             @Value("${trading.stream.buffer:32}") int bufferSize) {
+        this.persistenceManager = persistenceManager;
+        this.backtestService = backtestService;
+        this.conditionCompiler = conditionCompiler;
+        this.virtualThreadExecutor = virtualThreadExecutor;
+        this.maxCombinations = maxCombinations;
+        this.bufferSize = bufferSize;
+        this.results = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * A validated sweep: the strategy it varies, the names of its indicators and the grid.
+     *
+     * @param variants Indicator periods of each technical variant, in declaration order
+     * @param risks    Stop loss, target and capital per trade of each risk combination
+     */
+    record Sweep(TradingStrategy strategy, List<String> names, List<int[]> variants, List<double[]> risks,
+                 String interval, LocalDate from, LocalDate to, Double capital,
+                 String objective, int minTrades, int patience, int top) {
+
+        int combinations() {
+            return variants.size() * risks.size();
+        }
+    }
+
+    /**
+     * A cached run with what it takes to write it back as a strategy.
+     */
+    private record Result(TradingStrategy strategy, int[] periods, OptimizationDto.Run run) {}
+
+    /**
+     * Starts a sweep over the stored candles on a virtual thread. The caller reads the stream to its end
+     * and closes it; closing early stops the sweep.
+     *
+     * @throws IllegalArgumentException when the grid is invalid or larger than trading.optimize.max-combinations
+     */
+    public ResultStream<OptimizationDto.Run, OptimizationDto.Table> open(OptimizationDto.Request request) throws IOException {
+        Sweep sweep = prepare(request);
+        ResultStream<OptimizationDto.Run, OptimizationDto.Table> stream = new ResultStream<>(bufferSize);
+        virtualThreadExecutor.execute(() -> {
+            try {
+                stream.complete(sweep(sweep, stream.progress(), stream::publish));
+            } catch (CancellationException e) {
+                log.info("Parameter sweep cancelled by its reader");
+                stream.fail("Sweep cancelled");
+            } catch (IOException | RuntimeException e) {
+                log.error("Parameter sweep failed: {}", e.getMessage(), e);
+                stream.fail(e.getMessage());
+            } catch (KiteException e) {
+                log.error("Kite API error during parameter sweep: {}", e.getMessage(), e);
+                stream.fail("Kite error " + e.code + ": " + e.message);
+            }
+        });
+        return stream;
+    }
+
+    /**
+     * Writes a swept combination back as a candidate version of the strategy it varied, for review.
+     *
+     * @param hash Hash of a run still in the result cache
+     * @throws IllegalArgumentException when no cached run has that hash
+     */
+    public OptimizationDto.Candidate saveCandidate(String hash) throws IOException {
+        Result result;
+        synchronized (results) {
+            result = results.get(hash);
+        }
+        if (result == null) {
+            throw new IllegalArgumentException("No sweep result with hash " + hash);
+        }
+        TradingStrategy base = result.strategy();
+        OptimizationDto.Run run = result.run();
+        TradingStrategy.RiskParameters risk = base.getRiskParameters();
+        TradingStrategy candidate = new TradingStrategy();
+        candidate.setStrategyVersion(base.getStrategyVersion() + "-opt-" + hash.substring(0, 8));
+        candidate.setLastUpdated(LocalDateTime.now(KiteTime.IST).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        candidate.setUniverse(base.getUniverse());
+        candidate.setTechnicalStrategy(ConditionCompiler.withPeriods(base.getTechnicalStrategy(), result.periods()));
+        candidate.setRiskParameters(new TradingStrategy.RiskParameters(run.maxCapitalPerTradePct(),
+                risk != null ? risk.maxOpenPositions() : 0, run.stopLossPct(), run.targetPct()));
+        Path path = persistenceManager.saveCandidateStrategy(candidate);
+        return new OptimizationDto.Candidate(candidate.getStrategyVersion(), path.toString(), run);
+    }
+
+    /**
+     * Validates the request against strategy.json and expands its grid.
+     */
+    Sweep prepare(OptimizationDto.Request request) throws IOException {
+        TradingStrategy strategy = persistenceManager.loadStrategy();
+        SignalProgram program = conditionCompiler.compile(strategy);
+        if (program == null || program.entryCount() == 0) {
+            throw new IllegalArgumentException("strategy.json defines no entry conditions to optimise");
+        }
+        TradingStrategy.TechnicalStrategy technical = strategy.getTechnicalStrategy();
+        List<TradingStrategy.Indicator> indicators = technical.indicators() != null ? technical.indicators() : List.of();
+        List<String> names = indicators.stream()
+                .map(indicator -> String.valueOf(indicator.type()).toUpperCase(Locale.ROOT) + "_" + indicator.period())
+                .toList();
+
+        Map<String, List<Integer>> periods = request.periods() != null ? request.periods() : Map.of();
+        for (Map.Entry<String, List<Integer>> axis : periods.entrySet()) {
+            if (!names.contains(axis.getKey().toUpperCase(Locale.ROOT))) {
+                throw new IllegalArgumentException("Unknown indicator '" + axis.getKey() + "'; strategy.json declares " + names);
+            }
+            if (axis.getValue() != null && axis.getValue().stream().anyMatch(period -> period == null || period < 1)) {
+                throw new IllegalArgumentException("Periods of " + axis.getKey() + " must be positive");
+            }
+        }
+        List<int[]> periodAxes = new ArrayList<>();
+        for (int i = 0; i < indicators.size(); i++) {
+            List<Integer> values = axis(periods, names.get(i));
+            periodAxes.add(values.isEmpty()
+                    ? new int[]{indicators.get(i).period()}
+                    : values.stream().distinct().mapToInt(Integer::intValue).toArray());
+        }
+
+        TradingStrategy.RiskParameters risk = strategy.getRiskParameters();
+        double[] stopLoss = percentages("stop_loss_pct", request.stopLossPct(), risk != null ? risk.stopLossPct() : 0.0);
+        double[] target = percentages("target_pct", request.targetPct(), risk != null ? risk.targetPct() : 0.0);
+        double[] capitalPerTrade = percentages("max_capital_per_trade_pct", request.maxCapitalPerTradePct(),
+                risk != null ? risk.maxCapitalPerTradePct() : 0.0);
+
+        long combinations = (long) stopLoss.length * target.length * capitalPerTrade.length;
+        for (int[] axis : periodAxes) {
+            combinations *= axis.length;
+        }
+        if (combinations > maxCombinations) {
+            throw new IllegalArgumentException("Grid of " + combinations + " combinations exceeds trading.optimize.max-combinations ("
+                    + maxCombinations + ")");
+        }
+        String objective = request.objective() != null ? request.objective().toLowerCase(Locale.ROOT) : "return";
+        if (!OBJECTIVES.contains(objective)) {
+            throw new IllegalArgumentException("Unknown objective '" + request.objective() + "'; expected one of " + OBJECTIVES);
+        }
+
+        List<int[]> variants = new ArrayList<>();
+        product(periodAxes, 0, new int[periodAxes.size()], variants);
+        List<double[]> risks = new ArrayList<>();
+        for (double sl : stopLoss) {
+            for (double tp : target) {
+                for (double cap : capitalPerTrade) {
+                    risks.add(new double[]{sl, tp, cap});
+                }
+            }
+        }
+        LocalDate to = request.to() != null ? request.to() : LocalDate.now(KiteTime.IST);
+        LocalDate from = request.from() != null ? request.from() : to.minusYears(1);
+        return new Sweep(strategy, names, variants, risks,
+                request.interval() != null ? request.interval() : "day", from, to, request.capital(), objective,
+                request.minTrades() != null ? request.minTrades() : 0,
+                request.patience() != null ? request.patience() : 0,
+                request.top() != null && request.top() > 0 ? request.top() : DEFAULT_TOP);
+    }
+
+    /**
+     * Runs the sweep over the stored candles, handing each run to onRun as it completes, on the
+     * calling thread, which must not be a scan pool thread.
+     *
+     * @throws CancellationException when progress was cancelled (the reader went away)
+     */
+    OptimizationDto.Table sweep(Sweep sweep, ScanProgress progress, Consumer<OptimizationDto.Run> onRun)
+            throws IOException, KiteException {
+        long started = System.nanoTime();
+        BacktestService.History history = backtestService.history(sweep.strategy(), sweep.interval(), sweep.from(), sweep.to(), false);
+        String window = window(sweep, history);
+        Tally tally = new Tally(sweep.patience());
+        List<SignalProgram.Memo> memos = history.series().stream().map(SignalProgram.Memo::new).toList();
+        // Unbounded, but never longer than the grid, whose runs the tally keeps anyway
+        LinkedBlockingQueue<OptimizationDto.Run> completed = new LinkedBlockingQueue<>();
+
+        Future<Void> work = backtestService.submitToScanPool(() -> {
+            sweep.variants().parallelStream().forEach(periods -> {
+                if (tally.stopped() || progress.isCancelled()) {
+                    return;
+                }
+                List<double[]> misses = new ArrayList<>();
+                List<String> hashes = new ArrayList<>();
+                for (double[] risk : sweep.risks()) {
+                    String hash = hash(window, periods, risk);
+                    Result cached;
+                    synchronized (results) {
+                        cached = results.get(hash);
+                    }
+                    if (cached != null) {
+                        record(sweep, tally, cached.run(), true, completed::add);
+                    } else {
+                        misses.add(risk);
+                        hashes.add(hash);
+                    }
+                }
+                if (misses.isEmpty() || tally.stopped() || progress.isCancelled()) {
+                    return;
+                }
+                // One evaluation of this variant's signals serves all of its risk combinations
+                SignalProgram program = conditionCompiler.compileVariant(
+                        ConditionCompiler.withPeriods(sweep.strategy().getTechnicalStrategy(), periods));
+                List<BacktestEngine.Instrument> instruments = backtestService.signals(program, history, memos);
+                TradingStrategy.RiskParameters base = sweep.strategy().getRiskParameters();
+                IntStream.range(0, misses.size()).parallel().forEach(i -> {
+                    if (tally.stopped() || progress.isCancelled()) {
+                        return;
+                    }
+                    double[] risk = misses.get(i);
+                    TradingStrategy.RiskParameters rules = new TradingStrategy.RiskParameters(risk[2],
+                            base != null ? base.maxOpenPositions() : 0, risk[0], risk[1]);
+                    BacktestEngine.Result result = BacktestEngine.run(instruments, backtestService.rules(rules, sweep.capital()),
+                            history.fromMillis());
+                    OptimizationDto.Run run = new OptimizationDto.Run(hashes.get(i), periods(sweep.names(), periods),
+                            risk[0], risk[1], risk[2], 0.0, false, false, BacktestService.summary(result));
+                    synchronized (results) {
+                        results.put(run.hash(), new Result(sweep.strategy(), periods, run));
+                    }
+                    record(sweep, tally, run, false, completed::add);
+                });
+            });
+            return null;
+        });
+        forward(work, completed, onRun);
+        backtestService.await(work);
+        if (progress.isCancelled()) {
+            throw new CancellationException("Sweep cancelled");
+        }
+
+        List<OptimizationDto.Run> ranked = tally.runs.stream()
+                .filter(OptimizationDto.Run::ranked)
+                .sorted(Comparator.comparingDouble(OptimizationDto.Run::score).reversed()
+                        .thenComparing(OptimizationDto.Run::hash))
+                .limit(sweep.top())
+                .toList();
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        log.info("Swept {} of {} combinations ({} variants, {} cached) of strategy {} on {} in {} ms{}",
+                tally.evaluated(), sweep.combinations(), sweep.variants().size(), tally.cached(), sweep.strategy().getStrategyVersion(),
+                history.universe(), elapsedMillis, tally.stopped() ? ", stopped early" : "");
+        return new OptimizationDto.Table(sweep.strategy().getStrategyVersion(), history.universe().toString(), sweep.interval(),
+                sweep.from(), sweep.to(), sweep.objective(), sweep.combinations(), tally.evaluated(), tally.cached(),
+                tally.stopped(), elapsedMillis, ranked);
+    }
+
+    /**
+     * Hands queued runs to onRun until the pool work is done and every run it queued is handed on.
+     */
+    private static void forward(Future<Void> work, LinkedBlockingQueue<OptimizationDto.Run> completed,
+                                Consumer<OptimizationDto.Run> onRun) throws InterruptedIOException {
+        try {
+            while (!work.isDone() || !completed.isEmpty()) {
+                OptimizationDto.Run run = completed.poll(HANDOFF_POLL_MS, TimeUnit.MILLISECONDS);
+                if (run != null) {
+                    onRun.accept(run);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while streaming sweep results");
+        }
+    }
+
+    /**
+     * Scores a completed run for this sweep, counts it against the patience and hands it on.
+     */
+    private static void record(Sweep sweep, Tally tally, OptimizationDto.Run completed, boolean cached,
+                               Consumer<OptimizationDto.Run> onRun) {
+        boolean ranked = completed.summary().trades() >= sweep.minTrades();
+        OptimizationDto.Run run = new OptimizationDto.Run(completed.hash(), completed.periods(), completed.stopLossPct(),
+                completed.targetPct(), completed.maxCapitalPerTradePct(), score(sweep.objective(), completed), ranked, cached,
+                completed.summary());
+        tally.add(run);
+        onRun.accept(run);
+    }
+
+    private static double score(String objective, OptimizationDto.Run run) {
+        return switch (objective) {
+            case "return_over_drawdown" -> run.summary().returnPct() / Math.max(run.summary().maxDrawdownPct(), 1.0);
+            case "win_rate" -> run.summary().winRatePct();
+            default -> run.summary().returnPct();
+        };
+    }
+
+    /**
+     * Everything a run's result depends on besides its own parameters: the strategy being varied, the
+     * universe and the stored bars of the window, whose sizes and last timestamps change as history is synced.
+     */
+    private static String window(Sweep sweep, BacktestService.History history) {
+        StringBuilder key = new StringBuilder()
+                .append(sweep.strategy().getStrategyVersion()).append('|')
+                .append(sweep.strategy().getTechnicalStrategy()).append('|')
+                .append(sweep.strategy().getRiskParameters()).append('|')
+                .append(sweep.interval()).append('|').append(sweep.from()).append('|').append(sweep.to()).append('|')
+                .append(sweep.capital());
+        for (int i = 0; i < history.symbols().size(); i++) {
+            CandleSeries series = history.series().get(i);
+            key.append('|').append(history.symbols().get(i)).append(':').append(series.size()).append(':').append(series.lastTimestamp());
+        }
+        return key.toString();
+    }
+
+    private static String hash(String window, int[] periods, double[] risk) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(window.getBytes(StandardCharsets.UTF_8));
+            digest.update((Arrays.toString(periods) + Arrays.toString(risk)).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Map<String, Integer> periods(List<String> names, int[] periods) {
+        Map<String, Integer> named = new LinkedHashMap<>();
+        for (int i = 0; i < periods.length; i++) {
+            named.put(names.get(i), periods[i]);
+        }
+        return named;
+    }
+
+    private static List<Integer> axis(Map<String, List<Integer>> periods, String name) {
+        for (Map.Entry<String, List<Integer>> axis : periods.entrySet()) {
+            if (axis.getKey().equalsIgnoreCase(name) && axis.getValue() != null) {
+                return axis.getValue();
+            }
+        }
+        return List.of();
+    }
+
+    private static double[] percentages(String name, List<Double> values, double current) {
+        if (values == null || values.isEmpty()) {
+            return new double[]{current};
+        }
+        if (values.stream().anyMatch(value -> value == null || value < 0)) {
+            throw new IllegalArgumentException(name + " values must not be negative");
+        }
+        return values.stream().distinct().mapToDouble(Double::doubleValue).toArray();
+    }
+
+    private static void product(List<int[]> axes, int depth, int[] current, List<int[]> out) {
+        if (depth == axes.size()) {
+            out.add(current.clone());
+            return;
+        }
+        for (int value : axes.get(depth)) {
+            current[depth] = value;
+            product(axes, depth + 1, current, out);
+        }
+    }
+
+    /**
+     * Completed runs of one sweep and its early-stopping state.
+     */
+    private static final class Tally {
+
+        private final int patience;
+        private final ConcurrentLinkedQueue<OptimizationDto.Run> runs = new ConcurrentLinkedQueue<>();
+        private int evaluated; // guarded by this
+        private int cached; // guarded by this
+        private double best = Double.NEGATIVE_INFINITY; // guarded by this
+        private int sinceBest; // guarded by this
+        private volatile boolean stopped;
+
+        Tally(int patience) {
+            this.patience = patience;
+        }
+
+        synchronized void add(OptimizationDto.Run run) {
+            runs.add(run);
+            evaluated++;
+            if (run.cached()) {
+                cached++;
+            }
+            if (run.ranked() && run.score() > best) {
+                best = run.score();
+                sinceBest = 0;
+            } else if (patience > 0 && ++sinceBest >= patience) {
+                stopped = true;
+            }
+        }
+
+        synchronized int evaluated() {
+            return evaluated;
+        }
+
+        synchronized int cached() {
+            return cached;
+        }
+
+        boolean stopped() {
+            return stopped;
+        }
+    }
+}
@@ -1,125 +1,388 @@
 package com.avants.autonomoustrader.service;
 
 import com.avants.autonomoustrader.dto.CandidateDto;
+import com.avants.autonomoustrader.model.CandleSeries;
 import com.avants.autonomoustrader.model.TradingStrategy;
-import com.avants.autonomoustrader.util.MarketUniverse;
+import com.avants.autonomoustrader.util.IndicatorState;
+import com.avants.autonomoustrader.util.SignalProgram;
+import com.avants.autonomoustrader.util.TopKCollector;
+import com.avants.autonomoustrader.util.WindowKernels;
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
-import com.zerodhatech.models.HistoricalData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 /**
  * Technical analysis scanner for identifying trading candidates.
  * Implements EMA-based filtering and ranking logic.
+ * Indicator values come from the {@link IndicatorEngine}, which keeps them current incrementally,
+ * so a scan costs one store sync and one O(1) read per symbol rather than a pass over its history.
+ * When the scanned strategy defines entry conditions, they replace the plain uptrend filter:
+ * candidates must satisfy all of them, evaluated by the strategy's compiled {@link SignalProgram}
+ * over only the last {@link SignalProgram#lookback()} stored bars, read into buffers each scan task
+ * reuses and never re-synced. Without them the uptrend filter is a {@link WindowKernels} comparison
+ * over each batch of symbols.
+ * Symbols are evaluated in parallel on the dedicated scan {@link ForkJoinPool}, and candidates go
+ * straight into a bounded {@link TopKCollector} instead of a list that is sorted at the end.
+ * The universe comes from strategy.json via the {@link UniverseService} and is scanned in shards of
+ * trading.scan.shard-size symbols, each synced and evaluated before the next, so memory and the
+ * number of concurrent history fetches stay bounded however large the universe; time and heap use
+ * are logged per shard.
+ * Concurrent scans with the same parameters are coalesced: only one runs, the others wait for
+ * and share its result, each trimmed to the caller's own topK. Every caller attached to a scan sees
+ * its {@link ScanProgress}; the scan is cancelled once all of them have released it.
+ * A streamed scan instead evaluates each symbol as soon as its history is synced and hands every
+ * candidate to its caller right away, then returns the ranking; it is never coalesced.
  */
 @Service
 public class TechnicalScannerService {
 
     private static final Logger log = LoggerFactory.getLogger(TechnicalScannerService.class);
     private static final int EMA_PERIOD = 200;
+    private static final IndicatorState.Params INDICATORS = new IndicatorState.Params(EMA_PERIOD, 12, 26, 9, 20);
     private static final int HISTORICAL_DAYS = 400; // ~1 year of trading days
+    private static final String UNVERSIONED = "unversioned";
+    public static final int MAX_CANDIDATES = 100; // the largest topK served; controllers reject larger ones
+    private static final int LEAF_SIZE = 16; // symbols a scan task evaluates without splitting further
+    // Smallest distance from EMA200 first; ties by symbol so parallel scans rank deterministically
+    private static final Comparator<CandidateDto> RANKING =
+            Comparator.comparingDouble(CandidateDto::distancePct).thenComparing(CandidateDto::symbol);
 
     private final MarketDataService marketDataService;
+    private final IndicatorEngine indicatorEngine;
+    private final ConditionCompiler conditionCompiler;
     private final PersistenceManager persistenceManager;
+    private final WindowKernels kernels;
+    private final ForkJoinPool scanPool;
+    private final UniverseService universeService;
+    private final int shardSize;
+    private volatile List<ShardReport> lastScanShards = List.of();
+    private final Map<ScanKey, InFlightScan> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong scansExecuted = new AtomicLong();
+    private final AtomicLong coalescedCallers = new AtomicLong();
 
-    public TechnicalScannerService(MarketDataService marketDataService, PersistenceManager persistenceManager) {
+    public TechnicalScannerService(MarketDataService marketDataService,
+                                   IndicatorEngine indicatorEngine,
+                                   ConditionCompiler conditionCompiler,
+                                   PersistenceManager persistenceManager,
+                                   WindowKernels kernels,
+                                   @Qualifier("scanPool") ForkJoinPool scanPool,
+                                   UniverseService universeService,
+                                   @Value("${trading.scan.shard-size:250}") int shardSize) {
         this.marketDataService = marketDataService;
+        this.indicatorEngine = indicatorEngine;
+        this.conditionCompiler = conditionCompiler;
         this.persistenceManager = persistenceManager;
+        this.kernels = kernels;
+        this.scanPool = scanPool;
+        this.universeService = universeService;
+        this.shardSize = Math.max(1, shardSize);
     }
 
     /**
-     * Scans Nifty 50 stocks for candidates near their EMA 200 levels.
+     * Scans the strategy's universe for candidates near their EMA 200 levels.
      * Returns stocks in uptrend (Price > EMA200) sorted by smallest distance.
      *
      * @param topK Maximum number of candidates to return
      * @return List of candidates sorted by distance from EMA200 (ascending)
      */
     public List<CandidateDto> scanForCandidates(int topK) throws IOException, KiteException {
-        log.info("Starting technical scan for Nifty 50 stocks (topK={})", topK);
+        return scanForCandidates(topK, progress -> {});
+    }
 
-        List<String> symbols = MarketUniverse.NIFTY_50;
-        Map<String, HistoricalData> candlesMap = marketDataService.fetchHistoricalCandlesForSymbols(
-                symbols,
-                "NSE",
-                "day",
-                HISTORICAL_DAYS
-        );
+    /**
+     * Same as {@link #scanForCandidates(int)}, handing the caller the progress of the scan it runs or
+     * attaches to before waiting for it.
+     *
+     * @param onAttach Receives the scan's progress; may release it to cancel
+     */
+    public List<CandidateDto> scanForCandidates(int topK, Consumer<ScanProgress> onAttach) throws IOException, KiteException {
+        return scanForCandidates(topK, currentStrategy(), onAttach);
+    }
 
-        List<CandidateDto> candidates = new ArrayList<>();
+    private List<CandidateDto> scanForCandidates(int topK, TradingStrategy strategy, Consumer<ScanProgress> onAttach)
+            throws IOException, KiteException {
+        String version = strategy != null && strategy.getStrategyVersion() != null ? strategy.getStrategyVersion() : UNVERSIONED;
+        ScanKey key = new ScanKey(universeService.resolve(strategy), "day", HISTORICAL_DAYS, version);
+        List<CandidateDto> ranked = coalesce(key, strategy, onAttach);
+        return ranked.stream()
+                .limit(topK)
+                .toList();
+    }
 
-        for (Map.Entry<String, HistoricalData> entry : candlesMap.entrySet()) {
-            String symbol = entry.getKey();
-            HistoricalData candles = entry.getValue();
+    /**
+     * Number of full scans actually executed.
+     */
+    public long getScansExecuted() {
+        return scansExecuted.get();
+    }
 
-            if (candles == null || candles.dataArrayList == null || candles.dataArrayList.isEmpty()) {
-                log.warn("No candle data for symbol: {}", symbol);
-                continue;
+    /**
+     * Per-shard timings and heap use of the last completed scan.
+     */
+    public List<ShardReport> getLastScanShards() {
+        return lastScanShards;
+    }
+
+    /**
+     * Number of callers that attached to a scan already in flight instead of starting their own.
+     */
+    public long getCoalescedCallers() {
+        return coalescedCallers.get();
+    }
+
+    /**
+     * Runs the scan for this key, or waits for the identical scan already in flight.
+     *
+     * @param strategy The strategy the key was built from, or null when strategy.json could not be read
+     */
+    private List<CandidateDto> coalesce(ScanKey key, TradingStrategy strategy, Consumer<ScanProgress> onAttach)
+            throws IOException, KiteException {
+        InFlightScan created = new InFlightScan();
+        InFlightScan scan = inFlight.compute(key, (k, existing) -> {
+            // A scan everyone has released is being cancelled; start a fresh one instead
+            if (existing == null || !existing.progress.retain()) {
+                created.progress.retain();
+                return created;
             }
+            existing.followers.incrementAndGet();
+            coalescedCallers.incrementAndGet();
+            return existing;
+        });
+        onAttach.accept(scan.progress);
 
+        if (scan == created) {
             try {
-                double ema200 = calculateEMA(candles.dataArrayList, EMA_PERIOD);
-                double ltp = candles.dataArrayList.get(candles.dataArrayList.size() - 1).close;
-                double distancePct = ((ltp - ema200) / ema200) * 100.0;
-
-                // Filter: Only stocks in uptrend (Price > EMA200)
-                if (ltp > ema200) {
-                    candidates.add(new CandidateDto(symbol, ltp, ema200, distancePct));
-                    log.debug("Candidate found: {} at ₹{} (EMA200: ₹{}, Distance: {:.2f}%)",
-                            symbol, ltp, ema200, distancePct);
-                }
-            } catch (Exception e) {
-                log.error("Failed to calculate EMA for {}: {}", symbol, e.getMessage());
+                List<CandidateDto> ranked = runScan(key, strategy, scan.progress);
+                finish(key, scan);
+                scan.result.complete(ranked);
+                return ranked;
+            } catch (IOException | KiteException | RuntimeException e) {
+                finish(key, scan);
+                scan.result.completeExceptionally(e);
+                throw e;
             }
         }
 
-        // Sort by smallest distance from EMA200 (ascending)
-        candidates.sort(Comparator.comparingDouble(CandidateDto::distancePct));
+        log.info("Attaching to scan already in flight for {}", key);
+        try {
+            return scan.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for scan " + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof KiteException ke) {
+                throw ke;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException("Scan " + key + " failed", cause);
+        }
+    }
 
-        List<CandidateDto> topCandidates = candidates.stream()
-                .limit(topK)
-                .toList();
+    private void finish(ScanKey key, InFlightScan scan) {
+        // Removing before completing means late arrivals start a fresh scan instead of reusing this one
+        inFlight.remove(key, scan);
+        scansExecuted.incrementAndGet();
+        int followers = scan.followers.get();
+        if (followers > 0) {
+            log.info("Scan {} absorbed {} concurrent caller(s)", key, followers);
+        }
+    }
 
-        log.info("Technical scan complete: {} candidates found, returning top {}", candidates.size(), topCandidates.size());
-        return topCandidates;
+    /**
+     * Scans the universe and returns every candidate, ranked by distance from EMA200. Selection uses
+     * the strategy the key was built from, so it always matches the key's version.
+     */
+    private List<CandidateDto> runScan(ScanKey key, TradingStrategy strategy, ScanProgress progress)
+            throws IOException, KiteException {
+        List<String> symbols = key.universe().symbols();
+        progress.addTotal(symbols.size());
+        int shards = (symbols.size() + shardSize - 1) / shardSize;
+        log.info("Starting technical scan of {} in {} shard(s) ({})", key.universe(), shards, key);
+
+        SignalProgram program = strategy != null ? conditionCompiler.compile(strategy) : null;
+        if (program != null && program.entryCount() == 0) {
+            program = null;
+        }
+
+        TopKCollector<CandidateDto> ranked = new TopKCollector<>(MAX_CANDIDATES, RANKING);
+        List<ShardReport> reports = new ArrayList<>(shards);
+        long scanStarted = System.nanoTime();
+        for (int shard = 0; shard < shards; shard++) {
+            List<String> shardSymbols = symbols.subList(shard * shardSize, Math.min(symbols.size(), (shard + 1) * shardSize));
+            progress.throwIfCancelled();
+            ShardReport report = scanShard(key, program, shard, shardSymbols, ranked, progress);
+            log.info("Scan shard {}/{}: {} of {} symbols synced in {} ms, evaluated in {} ms, heap used {} MB",
+                    shard + 1, shards, report.evaluated(), report.symbols(), report.syncMillis(), report.evaluateMillis(),
+                    report.heapUsedBytes() >> 20);
+            reports.add(report);
+        }
+        lastScanShards = List.copyOf(reports);
+
+        List<CandidateDto> candidates = ranked.sorted();
+        log.info("Technical scan complete: {} candidates found in {} ms", candidates.size(),
+                (System.nanoTime() - scanStarted) / 1_000_000);
+        return List.copyOf(candidates);
     }
 
     /**
-     * Calculates Exponential Moving Average (EMA) for a given period.
-     * Formula: EMA = (Price × α) + (PrevEMA × (1 - α))
-     * where α = 2 / (period + 1)
-     *
-     * @param candles Historical candle data
-     * @param period  EMA period (e.g., 200)
-     * @return The most recent EMA value
+     * Syncs one shard's history, then evaluates it on the scan pool into the shared collector.
      */
-    private double calculateEMA(List<HistoricalData> candles, int period) {
-        if (candles.size() < period) {
-            throw new IllegalArgumentException("Not enough data points for EMA calculation");
+    private ShardReport scanShard(ScanKey key, SignalProgram program, int shard, List<String> symbols,
+                                  TopKCollector<CandidateDto> ranked, ScanProgress progress) throws IOException, KiteException {
+        long started = System.nanoTime();
+        Map<String, String> instrumentTokens = marketDataService.syncHistoryForSymbols(
+                symbols,
+                key.universe().exchange(),
+                key.interval(),
+                key.lookbackDays(),
+                progress
+        );
+        progress.throwIfCancelled();
+        long synced = System.nanoTime();
+
+        String[] names = instrumentTokens.keySet().toArray(new String[0]);
+        String[] tokens = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            tokens[i] = instrumentTokens.get(names[i]);
         }
+        ScanContext context = new ScanContext(key, program, names, tokens, System.currentTimeMillis(), ranked, progress,
+                candidate -> {});
+        scanPool.invoke(new ScanTask(context, 0, names.length));
+        long evaluated = System.nanoTime();
+
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        return new ShardReport(shard, symbols.size(), names.length, (synced - started) / 1_000_000,
+                (evaluated - synced) / 1_000_000, heapUsed);
+    }
+
+    /**
+     * Evaluates symbols [from, to) of the scan and offers the selected ones to its collector. Reads
+     * only the store: the symbols' history was synced before they were handed to the scan.
+     */
+    private void scanRange(ScanContext context, int from, int to) {
+        context.progress().throwIfCancelled();
+        SignalProgram program = context.program();
+        Scratch scratch = new Scratch(program);
+        String interval = context.key().interval();
 
-        double alpha = 2.0 / (period + 1);
+        int size = to - from;
+        String[] names = new String[size];
+        double[] prices = new double[size];
+        double[] emas = new double[size];
+        boolean[] selected = new boolean[size];
+        int n = 0;
 
-        // Start with Simple Moving Average (SMA) for the first EMA value
-        double sma = 0.0;
-        for (int i = 0; i < period; i++) {
-            sma += candles.get(i).close;
+        for (int i = from; i < to; i++) {
+            String symbol = context.symbols()[i];
+            String instrumentToken = context.tokens()[i];
+
+            IndicatorState.Values indicators = indicators(symbol, instrumentToken, interval, context.nowMillis());
+            if (indicators == null) {
+                continue;
+            }
+
+            names[n] = symbol;
+            prices[n] = indicators.lastPrice();
+            emas[n] = indicators.ema();
+            // Filter: the strategy's entry conditions
+            if (program != null) {
+                selected[n] = entry(context.key(), program, instrumentToken, scratch);
+            }
+            n++;
+        }
+        if (program == null) {
+            // Without entry conditions: only stocks in uptrend (Price > EMA200)
+            kernels.greaterThan(prices, emas, n, selected);
         }
-        double ema = sma / period;
 
-        // Calculate EMA for remaining data points
-        for (int i = period; i < candles.size(); i++) {
-            double price = candles.get(i).close;
-            ema = (price * alpha) + (ema * (1 - alpha));
+        for (int i = 0; i < n; i++) {
+            if (selected[i]) {
+                offer(context.ranked(), context.onCandidate(), names[i], prices[i], emas[i]);
+            }
         }
+        context.progress().symbolsEvaluated(size);
+    }
 
-        return ema;
+    /**
+     * Evaluates one symbol of a streamed scan with the caller's scratch, as {@link #scanRange} does a
+     * range of them.
+     */
+    private void scanOne(ScanKey key, SignalProgram program, String symbol, String instrumentToken, Scratch scratch,
+                         TopKCollector<CandidateDto> ranked, ScanProgress progress, Consumer<CandidateDto> onCandidate) {
+        progress.throwIfCancelled();
+        IndicatorState.Values indicators = indicators(symbol, instrumentToken, key.interval(), System.currentTimeMillis());
+        if (indicators != null) {
+            boolean selected = program != null
+                    ? entry(key, program, instrumentToken, scratch)
+                    : indicators.lastPrice() > indicators.ema();
+            if (selected) {
+                offer(ranked, onCandidate, symbol, indicators.lastPrice(), indicators.ema());
+            }
+        }
+        progress.symbolsEvaluated(1);
+    }
+
+    /**
+     * The symbol's current indicators, or null (logged) when it has no bars or too few for the EMA.
+     */
+    private IndicatorState.Values indicators(String symbol, String instrumentToken, String interval, long nowMillis) {
+        IndicatorState.Values indicators = indicatorEngine.current(instrumentToken, interval, INDICATORS, nowMillis);
+        if (indicators == null) {
+            log.warn("No candle data for symbol: {}", symbol);
+            return null;
+        }
+        if (Double.isNaN(indicators.ema())) {
+            log.warn("Not enough history for EMA{} on {}", EMA_PERIOD, symbol);
+            return null;
+        }
+        return indicators;
+    }
+
+    /**
+     * Whether the strategy's entry conditions hold on the last bar of the symbol's stored tail.
+     */
+    private boolean entry(ScanKey key, SignalProgram program, String instrumentToken, Scratch scratch) {
+        CandleSeries series = marketDataService.readStoredTail(instrumentToken, key.interval(), key.lookbackDays(),
+                program.lookback(), scratch.tail);
+        program.evaluate(series, scratch.workspace);
+        return program.entry(scratch.workspace);
+    }
+
+    private static void offer(TopKCollector<CandidateDto> ranked, Consumer<CandidateDto> onCandidate,
+                              String symbol, double price, double ema) {
+        double distancePct = ((price - ema) / ema) * 100.0;
+        CandidateDto candidate = new CandidateDto(symbol, price, ema, distancePct);
+        ranked.offer(candidate);
+        onCandidate.accept(candidate);
+        log.debug("Candidate found: {} at ₹{} (EMA200: ₹{}, Distance: {:.2f}%)", symbol, price, ema, distancePct);
     }
 
     /**
@@ -129,8 +392,22 @@ public class TechnicalScannerService {
      * @return List of top candidates
      */
     public List<CandidateDto> scanWithStrategyParameters() throws IOException, KiteException {
+        return scanWithStrategyParameters(progress -> {});
+    }
+
+    /**
+     * Same as {@link #scanWithStrategyParameters()}, handing the caller the scan's progress as
+     * {@link #scanForCandidates(int, Consumer)} does.
+     */
+    public List<CandidateDto> scanWithStrategyParameters(Consumer<ScanProgress> onAttach) throws IOException, KiteException {
         TradingStrategy strategy = persistenceManager.loadStrategy();
+        int topK = strategyTopK(strategy);
+
+        log.info("Using strategy parameters: topK={}", topK);
+        return scanForCandidates(topK, strategy, onAttach);
+    }
 
+    static int strategyTopK(TradingStrategy strategy) {
         // Extract topK from strategy if available, otherwise default to 10
         int topK = 10; // Default value
 
@@ -139,8 +416,160 @@ public class TechnicalScannerService {
         if (strategy.getRiskParameters() != null) {
             topK = strategy.getRiskParameters().maxOpenPositions();
         }
+        return topK;
+    }
 
-        log.info("Using strategy parameters: topK={}", topK);
-        return scanForCandidates(topK);
+    /**
+     * Scans the strategy's universe symbol by symbol: each candidate goes to onCandidate as soon as
+     * its symbol is synced and evaluated, on the thread that synced it, so the first result arrives
+     * after one symbol's fetch rather than the whole universe's. onCandidate may block to hold the
+     * scan back. Streamed scans run on their own and are not coalesced with others.
+     *
+     * @param topK        Maximum number of candidates in the final ranking, or null for the strategy's
+     * @param progress    Progress of this scan; cancelling it stops the scan
+     * @param onCandidate Receives every candidate, in the order they are found
+     * @return The top candidates sorted by distance from EMA200, once the whole universe is scanned
+     */
+    public List<CandidateDto> streamCandidates(Integer topK, ScanProgress progress, Consumer<CandidateDto> onCandidate)
+            throws IOException, KiteException {
+        TradingStrategy strategy = persistenceManager.loadStrategy();
+        int limit = topK != null ? topK : strategyTopK(strategy);
+        String version = strategy.getStrategyVersion() != null ? strategy.getStrategyVersion() : UNVERSIONED;
+        ScanKey key = new ScanKey(universeService.resolve(strategy), "day", HISTORICAL_DAYS, version);
+
+        List<String> symbols = key.universe().symbols();
+        progress.addTotal(symbols.size());
+        log.info("Starting streamed scan of {} ({})", key.universe(), key);
+        SignalProgram program = conditionCompiler.compile(strategy);
+        if (program != null && program.entryCount() == 0) {
+            program = null;
+        }
+
+        TopKCollector<CandidateDto> ranked = new TopKCollector<>(MAX_CANDIDATES, RANKING);
+        Queue<Scratch> scratches = new ConcurrentLinkedQueue<>();
+        long scanStarted = System.nanoTime();
+        for (int from = 0; from < symbols.size(); from += shardSize) {
+            progress.throwIfCancelled();
+            streamShard(key, program, symbols.subList(from, Math.min(symbols.size(), from + shardSize)), ranked,
+                    scratches, progress, onCandidate);
+        }
+        scansExecuted.incrementAndGet();
+
+        List<CandidateDto> candidates = ranked.sorted();
+        log.info("Streamed scan complete: {} candidates found in {} ms", candidates.size(),
+                (System.nanoTime() - scanStarted) / 1_000_000);
+        return candidates.stream()
+                .limit(limit)
+                .toList();
+    }
+
+    /**
+     * Syncs one shard, evaluating each symbol on its sync thread the moment its history is in. Every
+     * symbol gets a thread of its own, so scratch is borrowed from the scan's pool instead: the scan
+     * allocates one per symbol evaluated at the same time, not one per symbol.
+     */
+    private void streamShard(ScanKey key, SignalProgram program, List<String> symbols, TopKCollector<CandidateDto> ranked,
+                             Queue<Scratch> scratches, ScanProgress progress, Consumer<CandidateDto> onCandidate)
+            throws IOException, KiteException {
+        marketDataService.syncHistoryForSymbols(symbols, key.universe().exchange(), key.interval(), key.lookbackDays(),
+                progress, (symbol, instrumentToken) -> {
+                    if (progress.isCancelled()) {
+                        return;
+                    }
+                    Scratch pooled = scratches.poll();
+                    Scratch scratch = pooled != null ? pooled : new Scratch(program);
+                    try {
+                        scanOne(key, program, symbol, instrumentToken, scratch, ranked, progress, onCandidate);
+                    } catch (CancellationException e) {
+                        // cancelled mid-shard; the check after the sync stops the scan
+                    } finally {
+                        scratches.offer(scratch);
+                    }
+                });
+        progress.throwIfCancelled();
+    }
+
+    /**
+     * The current strategy, or null when strategy.json cannot be read (the scan then covers the
+     * default universe, unversioned).
+     */
+    private TradingStrategy currentStrategy() {
+        try {
+            return persistenceManager.loadStrategy();
+        } catch (IOException e) {
+            log.warn("Could not read strategy for scan key: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Parameters that make two scans interchangeable.
+     */
+    private record ScanKey(UniverseService.ScanUniverse universe, String interval, int lookbackDays, String strategyVersion) {}
+
+    /**
+     * One shard of a scan.
+     *
+     * @param symbols       Symbols in the shard
+     * @param evaluated     Symbols whose instrument token resolved and whose history synced
+     * @param heapUsedBytes Heap in use once the shard was evaluated
+     */
+    public record ShardReport(int shard, int symbols, int evaluated, long syncMillis, long evaluateMillis, long heapUsedBytes) {}
+
+    /**
+     * Everything the tasks of one scan share. The collector and the progress are the only mutable parts.
+     * onCandidate sees every candidate offered to the collector, from whichever thread found it.
+     */
+    private record ScanContext(ScanKey key, SignalProgram program, String[] symbols, String[] tokens, long nowMillis,
+                               TopKCollector<CandidateDto> ranked, ScanProgress progress,
+                               Consumer<CandidateDto> onCandidate) {}
+
+    /**
+     * Space to evaluate a strategy's entry conditions in, reused from symbol to symbol by one thread
+     * at a time; holds nothing without entry conditions.
+     */
+    private static final class Scratch {
+        final SignalProgram.Workspace workspace;
+        final CandleStore.TailBuffer tail;
+
+        Scratch(SignalProgram program) {
+            this.workspace = program != null ? program.newWorkspace() : null;
+            this.tail = program != null ? new CandleStore.TailBuffer() : null;
+        }
+    }
+
+    /**
+     * Halves its range of the universe until it is small enough to evaluate in place; idle pool
+     * threads steal the other halves. Each leaf has its own scratch.
+     */
+    private final class ScanTask extends RecursiveAction {
+        private final ScanContext context;
+        private final int from;
+        private final int to;
+
+        ScanTask(ScanContext context, int from, int to) {
+            this.context = context;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                scanRange(context, from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ScanTask(context, from, mid), new ScanTask(context, mid, to));
+        }
+    }
+
+    /**
+     * A scan in progress and the callers waiting on it.
+     */
+    private static final class InFlightScan {
+        private final CompletableFuture<List<CandidateDto>> result = new CompletableFuture<>();
+        private final ScanProgress progress = new ScanProgress();
+        private final AtomicInteger followers = new AtomicInteger();
     }
 }
@@ -0,0 +1,39 @@
+package com.avants.autonomoustrader.service;
+
+import java.util.Collection;
+
+/**
+ * A source of live ticks: the Kite WebSocket ticker in production, a recorded replay in tests.
+ * Implementations deliver ticks to the listener from a single thread at a time.
+ */
+public interface TickFeed {
+
+    /**
+     * Receives one tick at a time as primitives, so the consumer does not allocate per tick.
+     */
+    @FunctionalInterface
+    interface Listener {
+        void onTick(long instrumentToken, double lastPrice, long quantity, long volumeToday, long timestamp);
+
+        /**
+         * Called on the tick thread whenever the feed (re)connects; ticks may have been missed before it.
+         */
+        default void onConnected(long timestamp) {
+        }
+    }
+
+    /**
+     * Connects the feed. Ticks only arrive for tokens that have been subscribed.
+     *
+     * @return false when the feed cannot start yet (e.g. no Kite session) and should be retried later
+     */
+    boolean start(Listener listener);
+
+    void subscribe(Collection<Long> instrumentTokens);
+
+    void unsubscribe(Collection<Long> instrumentTokens);
+
+    boolean isConnected();
+
+    void stop();
+}
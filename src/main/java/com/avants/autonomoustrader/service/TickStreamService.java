@@ -0,0 +1,214 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.KiteDto;
+import com.avants.autonomoustrader.model.LivePortfolio;
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.avants.autonomoustrader.util.LatestPriceTable;
+import com.avants.autonomoustrader.util.TickRingBuffer;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * TickStreamService — live ticks for the strategy universe and current holdings.
+ * The feed thread is the ring buffer's single producer: each tick is copied into preallocated
+ * primitive columns and into the latest-price table, with no allocation on our side. Consumers
+ * (bar building, dashboards) poll the ring with their own sequence.
+ * Subscriptions follow strategy.json and positions.json and are reconciled every minute.
+ */
+@Service
+public class TickStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(TickStreamService.class);
+
+    /**
+     * Pseudo instrument token published into the ring when the feed (re)connects, with the connect
+     * time as its timestamp, so consumers know ticks before it may be missing. Kite never uses token 0.
+     */
+    public static final long FEED_CONNECTED = 0L;
+
+    private final TickFeed tickFeed;
+    private final InstrumentMaster instrumentMaster;
+    private final PersistenceManager persistenceManager;
+    private final boolean enabled;
+    private final TickRingBuffer ring;
+    private volatile LatestPriceTable prices = new LatestPriceTable(new long[0]);
+    private volatile boolean feedStarted;
+
+    public TickStreamService(TickFeed tickFeed,
+                             InstrumentMaster instrumentMaster,
+                             PersistenceManager persistenceManager,
+                             @Value("${trading.ticker.enabled:false}") boolean enabled,
+                             @Value("${trading.ticker.buffer-size:65536}") int bufferSize) {
+        this.tickFeed = tickFeed;
+        this.instrumentMaster = instrumentMaster;
+        this.persistenceManager = persistenceManager;
+        this.enabled = enabled;
+        this.ring = new TickRingBuffer(bufferSize);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Tick stream disabled (trading.ticker.enabled=false)");
+            return;
+        }
+        refreshSubscriptions();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (feedStarted) {
+            tickFeed.stop();
+            feedStarted = false;
+        }
+    }
+
+    /**
+     * Starts the feed if it could not start before (e.g. no session yet) and reconciles subscriptions
+     * with the current universe and holdings.
+     */
+    @Scheduled(fixedDelay = 60_000, initialDelay = 60_000)
+    public synchronized void refreshSubscriptions() {
+        if (!enabled) {
+            return;
+        }
+        if (!feedStarted) {
+            feedStarted = tickFeed.start(new TickFeed.Listener() {
+                @Override
+                public void onTick(long instrumentToken, double lastPrice, long quantity, long volumeToday, long timestamp) {
+                    TickStreamService.this.onTick(instrumentToken, lastPrice, quantity, volumeToday, timestamp);
+                }
+
+                @Override
+                public void onConnected(long timestamp) {
+                    ring.publish(FEED_CONNECTED, Double.NaN, 0, 0, timestamp);
+                }
+            });
+            if (!feedStarted) {
+                return;
+            }
+        }
+
+        long[] wanted;
+        try {
+            wanted = resolveTokens();
+        } catch (IOException | KiteException e) {
+            log.warn("Could not resolve ticker subscriptions — keeping {} current: {}", prices.tokens().length, e.getMessage());
+            return;
+        }
+
+        LatestPriceTable current = prices;
+        long[] existing = current.tokens();
+        if (Arrays.equals(existing, wanted)) {
+            return;
+        }
+        LatestPriceTable next = current.withTokens(wanted);
+        List<Long> added = new ArrayList<>();
+        for (long token : wanted) {
+            if (!current.contains(token)) {
+                added.add(token);
+            }
+        }
+        List<Long> removed = new ArrayList<>();
+        for (long token : existing) {
+            if (!next.contains(token)) {
+                removed.add(token);
+            }
+        }
+
+        prices = next;
+        tickFeed.unsubscribe(removed);
+        tickFeed.subscribe(added);
+        log.info("Ticker subscriptions updated: {} instruments (+{}, -{})", wanted.length, added.size(), removed.size());
+    }
+
+    /**
+     * Ring of every tick received, for consumers that need the full stream.
+     */
+    public TickRingBuffer ticks() {
+        return ring;
+    }
+
+    /**
+     * Last traded price for a subscribed token, or NaN when it has not ticked.
+     */
+    public double latestPrice(long instrumentToken) {
+        return prices.price(instrumentToken);
+    }
+
+    /**
+     * Epoch millis of the last tick for a token, or 0 when none.
+     */
+    public long latestPriceTime(long instrumentToken) {
+        return prices.time(instrumentToken);
+    }
+
+    public long[] subscribedTokens() {
+        return prices.tokens();
+    }
+
+    /**
+     * Number of entries published to the ring since startup, including connect markers.
+     */
+    public long ticksReceived() {
+        return ring.cursor() + 1;
+    }
+
+    private void onTick(long instrumentToken, double lastPrice, long quantity, long volumeToday, long timestamp) {
+        ring.publish(instrumentToken, lastPrice, quantity, volumeToday, timestamp);
+        prices.update(instrumentToken, lastPrice, timestamp);
+    }
+
+    /**
+     * Tokens for the strategy universe plus every holding and open position, sorted and de-duplicated.
+     */
+    private long[] resolveTokens() throws IOException, KiteException {
+        TreeSet<Long> tokens = new TreeSet<>();
+        TradingStrategy strategy = persistenceManager.loadStrategy();
+        TradingStrategy.Universe universe = strategy.getUniverse();
+        if (universe != null && universe.symbols() != null) {
+            for (String symbol : universe.symbols()) {
+                addToken(tokens, universe.exchange(), symbol);
+            }
+        }
+
+        LivePortfolio portfolio = persistenceManager.loadPositions();
+        KiteDto.LivePortfolio live = portfolio.getLivePortfolio();
+        if (live != null) {
+            if (live.holdings() != null) {
+                for (KiteDto.HoldingDto holding : live.holdings()) {
+                    addToken(tokens, holding.exchange(), holding.tradingSymbol());
+                }
+            }
+            if (live.positions() != null) {
+                for (KiteDto.PositionDto position : live.positions()) {
+                    if (position.netQuantity() != 0) {
+                        addToken(tokens, position.exchange(), position.tradingSymbol());
+                    }
+                }
+            }
+        }
+        return tokens.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private void addToken(TreeSet<Long> tokens, String exchange, String symbol) throws IOException, KiteException {
+        long token = instrumentMaster.token(exchange, symbol);
+        if (token < 0) {
+            log.warn("No instrument token for {}:{} — not subscribing", exchange, symbol);
+            return;
+        }
+        tokens.add(token);
+    }
+}
@@ -0,0 +1,179 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.avants.autonomoustrader.util.MarketUniverse;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resolves the symbols a scan covers from the universe in strategy.json, in order of precedence:
+ * <ol>
+ *   <li>the universe's own symbols list, when it is not empty;</li>
+ *   <li>a constituents file named after the universe in the universes directory, e.g. "Nifty 500" →
+ *       nifty_500.csv or nifty_500.txt: either the exchange's CSV download with a Symbol column, or one
+ *       symbol per line with # comments;</li>
+ *   <li>"&lt;EXCHANGE&gt; Equity" (e.g. "NSE Equity"): every EQ instrument of that exchange in the
+ *       {@link InstrumentMaster}, roughly 2000 symbols on NSE;</li>
+ *   <li>"Nifty 50", or no universe at all: the built-in {@link MarketUniverse#NIFTY_50}.</li>
+ * </ol>
+ * Constituent files are re-read only when their modification time changes.
+ */
+@Service
+public class UniverseService {
+
+    private static final Logger log = LoggerFactory.getLogger(UniverseService.class);
+    private static final String DEFAULT_EXCHANGE = "NSE";
+    private static final String DEFAULT_NAME = "Nifty 50";
+    private static final String EQUITY_SUFFIX = "_equity";
+
+    private final InstrumentMaster instrumentMaster;
+    private final Path directory;
+    private final Map<Path, ConstituentFile> files = new ConcurrentHashMap<>();
+
+    public UniverseService(InstrumentMaster instrumentMaster,
+                           @Value("${trading.universes.path:data/universes}") String directory) {
+        this.instrumentMaster = instrumentMaster;
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * A resolved universe: upper-case symbols, de-duplicated, in the order they were listed.
+     */
+    public record ScanUniverse(String name, String exchange, List<String> symbols) {
+        @Override
+        public String toString() {
+            // Keeps scan keys in logs readable for universes of thousands of symbols
+            return name + "@" + exchange + " (" + symbols.size() + " symbols)";
+        }
+    }
+
+    /**
+     * Resolves the universe of a strategy; null means the default Nifty 50 on NSE.
+     *
+     * @throws IOException when the universe names neither a constituents file nor a built-in universe
+     */
+    public ScanUniverse resolve(TradingStrategy strategy) throws IOException, KiteException {
+        TradingStrategy.Universe universe = strategy != null ? strategy.getUniverse() : null;
+        if (universe == null) {
+            return new ScanUniverse(DEFAULT_NAME, DEFAULT_EXCHANGE, MarketUniverse.NIFTY_50);
+        }
+        String exchange = isBlank(universe.exchange()) ? DEFAULT_EXCHANGE : universe.exchange().trim().toUpperCase(Locale.ROOT);
+        String name = isBlank(universe.name()) ? DEFAULT_NAME : universe.name().trim();
+        if (universe.symbols() != null && !universe.symbols().isEmpty()) {
+            return new ScanUniverse(name, exchange, normalise(universe.symbols()));
+        }
+
+        String slug = slug(name);
+        for (String extension : new String[]{".csv", ".txt"}) {
+            Path file = directory.resolve(slug + extension);
+            if (Files.isRegularFile(file)) {
+                return new ScanUniverse(name, exchange, constituents(file));
+            }
+        }
+        if (slug.equals(exchange.toLowerCase(Locale.ROOT) + EQUITY_SUFFIX)) {
+            return new ScanUniverse(name, exchange, equities(exchange));
+        }
+        if (slug.equals(slug(DEFAULT_NAME))) {
+            return new ScanUniverse(name, exchange, MarketUniverse.NIFTY_50);
+        }
+        throw new IOException("Unknown universe '" + name + "': no symbols in strategy.json and no "
+                + slug + ".csv or " + slug + ".txt in " + directory);
+    }
+
+    private List<String> constituents(Path file) throws IOException {
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        ConstituentFile cached = files.get(file);
+        if (cached != null && cached.modifiedMillis() == modified) {
+            return cached.symbols();
+        }
+        List<String> symbols = parse(Files.readAllLines(file));
+        if (symbols.isEmpty()) {
+            throw new IOException("Universe file lists no symbols: " + file);
+        }
+        files.put(file, new ConstituentFile(modified, symbols));
+        log.info("Loaded {} symbols from {}", symbols.size(), file);
+        return symbols;
+    }
+
+    /**
+     * Reads either a CSV with a header row containing a Symbol column, or one symbol per line.
+     */
+    static List<String> parse(List<String> lines) {
+        List<String> symbols = new ArrayList<>();
+        int column = -1;
+        boolean first = true;
+        for (String raw : lines) {
+            String line = raw.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (first) {
+                first = false;
+                String[] header = line.split(",");
+                for (int i = 0; i < header.length; i++) {
+                    if (header[i].strip().replace("\"", "").equalsIgnoreCase("symbol")) {
+                        column = i;
+                    }
+                }
+                if (column >= 0) {
+                    continue;
+                }
+            }
+            // Without a Symbol column the first field is the symbol
+            String[] fields = line.split(",");
+            if (fields.length > Math.max(column, 0)) {
+                symbols.add(fields[Math.max(column, 0)]);
+            }
+        }
+        return normalise(symbols);
+    }
+
+    private List<String> equities(String exchange) throws IOException, KiteException {
+        List<String> symbols = new ArrayList<>();
+        for (InstrumentMaster.InstrumentRecord instrument : instrumentMaster.bySegment(exchange)) {
+            if ("EQ".equals(instrument.instrumentType())) {
+                symbols.add(instrument.tradingSymbol());
+            }
+        }
+        log.debug("{} equity universe: {} symbols", exchange, symbols.size());
+        return normalise(symbols);
+    }
+
+    private static List<String> normalise(List<String> symbols) {
+        Set<String> unique = new LinkedHashSet<>();
+        for (String symbol : symbols) {
+            if (symbol != null) {
+                String trimmed = symbol.strip().replace("\"", "").toUpperCase(Locale.ROOT);
+                if (!trimmed.isEmpty()) {
+                    unique.add(trimmed);
+                }
+            }
+        }
+        return List.copyOf(unique);
+    }
+
+    private static String slug(String name) {
+        return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "_").replaceAll("^_|_$", "");
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private record ConstituentFile(long modifiedMillis, List<String> symbols) {}
+}
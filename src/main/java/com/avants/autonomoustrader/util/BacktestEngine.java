@@ -0,0 +1,199 @@
+package com.avants.autonomoustrader.util;
+
+import com.avants.autonomoustrader.model.CandleSeries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Event-driven replay of a strategy's signals over stored candles, as one portfolio.
+ * The bars of every instrument are merged into one timeline and processed a timestamp at a time:
+ * <ol>
+ *   <li>open — positions whose exit signal fired on the previous close are sold at this bar's open,
+ *       then pending entries are bought at it while open slots (max_open_positions) and cash remain,
+ *       in instrument order;</li>
+ *   <li>intrabar — a held position is stopped out once the bar trades down to entry × (1 - stop_loss_pct),
+ *       or takes profit once it trades up to entry × (1 + target_pct); a bar that opens beyond either
+ *       level fills at its open, and a bar reaching both is assumed to hit the stop first;</li>
+ *   <li>close — open positions are marked to market and the bar's entry and exit signals queue
+ *       orders for the next open, so no decision uses a price it could not have seen.</li>
+ * </ol>
+ * Each entry commits max_capital_per_trade_pct of current equity in whole shares (an equal slice per
+ * open position when unset), without costs or slippage. Bars before the start of the test only warm
+ * the indicators up; positions still open at the end are closed at their last close.
+ * All per-instrument state lives in primitive arrays; the only allocations are the trades.
+ */
+public final class BacktestEngine {
+
+    public enum ExitReason { SIGNAL, STOP_LOSS, TARGET, END }
+
+    /**
+     * One instrument's bars and the strategy's signals on each bar's close, as produced by
+     * {@link SignalProgram#evaluateBars}.
+     */
+    public record Instrument(String symbol, CandleSeries series, boolean[] entries, boolean[] exits) {}
+
+    /**
+     * Capital and the risk parameters of strategy.json. A non-positive limit or percentage disables it.
+     */
+    public record Rules(double capital, double capitalPerTradePct, int maxOpenPositions, double stopLossPct, double targetPct) {}
+
+    public record Trade(String symbol, long entryTime, double entryPrice, long exitTime, double exitPrice, int quantity,
+                        ExitReason reason) {
+
+        public double pnl() {
+            return (exitPrice - entryPrice) * quantity;
+        }
+
+        public double returnPct() {
+            return (exitPrice / entryPrice - 1.0) * 100.0;
+        }
+    }
+
+    /**
+     * @param bars           Bars replayed from the start of the test, across all instruments
+     * @param maxDrawdown    Largest fall of marked-to-market equity from a previous peak
+     * @param maxDrawdownPct Largest such fall as a percentage of its peak
+     * @param trades         Closed trades in the order they were closed
+     */
+    public record Result(double startingCapital, double endingEquity, double maxDrawdown, double maxDrawdownPct,
+                         long bars, List<Trade> trades) {}
+
+    private BacktestEngine() {
+    }
+
+    /**
+     * Replays the instruments from fromMillis on.
+     */
+    public static Result run(List<Instrument> instruments, Rules rules, long fromMillis) {
+        int n = instruments.size();
+        CandleSeries[] series = new CandleSeries[n];
+        for (int s = 0; s < n; s++) {
+            series[s] = instruments.get(s).series();
+        }
+        int[] cursor = new int[n];
+        int[] quantity = new int[n];
+        double[] entryPrice = new double[n];
+        long[] entryTime = new long[n];
+        double[] mark = new double[n];
+        boolean[] pendingEntry = new boolean[n];
+        boolean[] pendingExit = new boolean[n];
+        int[] due = new int[n];
+        double stopFactor = rules.stopLossPct() > 0 ? 1.0 - rules.stopLossPct() / 100.0 : 0.0;
+        double targetFactor = rules.targetPct() > 0 ? 1.0 + rules.targetPct() / 100.0 : Double.POSITIVE_INFINITY;
+        int maxOpen = rules.maxOpenPositions() > 0 ? rules.maxOpenPositions() : Integer.MAX_VALUE;
+
+        double cash = rules.capital();
+        double holdings = 0.0; // open positions at their last mark
+        int open = 0;
+        double peak = cash;
+        double maxDrawdown = 0.0;
+        double maxDrawdownPct = 0.0;
+        long bars = 0;
+        List<Trade> trades = new ArrayList<>();
+
+        while (true) {
+            long now = Long.MAX_VALUE;
+            for (int s = 0; s < n; s++) {
+                if (cursor[s] < series[s].size()) {
+                    now = Math.min(now, series[s].timestamp(cursor[s]));
+                }
+            }
+            if (now == Long.MAX_VALUE) {
+                break;
+            }
+            int count = 0;
+            for (int s = 0; s < n; s++) {
+                if (cursor[s] < series[s].size() && series[s].timestamp(cursor[s]) == now) {
+                    due[count++] = s;
+                }
+            }
+
+            // Open: exits first, so the slots they free are available to entries
+            for (int k = 0; k < count; k++) {
+                int s = due[k];
+                if (quantity[s] > 0 && pendingExit[s]) {
+                    double price = series[s].open(cursor[s]);
+                    holdings -= quantity[s] * mark[s];
+                    cash += quantity[s] * price;
+                    trades.add(new Trade(instruments.get(s).symbol(), entryTime[s], entryPrice[s], now, price, quantity[s], ExitReason.SIGNAL));
+                    quantity[s] = 0;
+                    open--;
+                }
+            }
+            for (int k = 0; k < count && open < maxOpen; k++) {
+                int s = due[k];
+                double price = series[s].open(cursor[s]);
+                if (quantity[s] > 0 || !pendingEntry[s] || !(price > 0)) {
+                    continue;
+                }
+                double equity = cash + holdings;
+                double budget = rules.capitalPerTradePct() > 0 ? equity * rules.capitalPerTradePct() / 100.0
+                        : maxOpen != Integer.MAX_VALUE ? equity / maxOpen : cash;
+                int shares = (int) Math.floor(Math.min(budget, cash) / price);
+                if (shares > 0) {
+                    cash -= shares * price;
+                    holdings += shares * price;
+                    quantity[s] = shares;
+                    entryPrice[s] = price;
+                    entryTime[s] = now;
+                    mark[s] = price;
+                    open++;
+                }
+            }
+
+            // Intrabar stops and targets, then the close
+            for (int k = 0; k < count; k++) {
+                int s = due[k];
+                int bar = cursor[s];
+                CandleSeries candles = series[s];
+                if (quantity[s] > 0) {
+                    double stop = entryPrice[s] * stopFactor;
+                    double target = entryPrice[s] * targetFactor;
+                    double barOpen = candles.open(bar);
+                    double price = Double.NaN;
+                    ExitReason reason = null;
+                    if (barOpen <= stop || candles.low(bar) <= stop) {
+                        price = Math.min(barOpen, stop);
+                        reason = ExitReason.STOP_LOSS;
+                    } else if (barOpen >= target || candles.high(bar) >= target) {
+                        price = Math.max(barOpen, target);
+                        reason = ExitReason.TARGET;
+                    }
+                    if (reason != null) {
+                        holdings -= quantity[s] * mark[s];
+                        cash += quantity[s] * price;
+                        trades.add(new Trade(instruments.get(s).symbol(), entryTime[s], entryPrice[s], now, price, quantity[s], reason));
+                        quantity[s] = 0;
+                        open--;
+                    }
+                }
+                if (quantity[s] > 0) {
+                    double close = candles.close(bar);
+                    holdings += quantity[s] * (close - mark[s]);
+                    mark[s] = close;
+                }
+                pendingExit[s] = quantity[s] > 0 && instruments.get(s).exits()[bar];
+                pendingEntry[s] = quantity[s] == 0 && now >= fromMillis && instruments.get(s).entries()[bar];
+                cursor[s]++;
+            }
+
+            if (now >= fromMillis) {
+                bars += count;
+                double equity = cash + holdings;
+                peak = Math.max(peak, equity);
+                maxDrawdown = Math.max(maxDrawdown, peak - equity);
+                maxDrawdownPct = Math.max(maxDrawdownPct, (peak - equity) / peak * 100.0);
+            }
+        }
+
+        for (int s = 0; s < n; s++) {
+            if (quantity[s] > 0) {
+                cash += quantity[s] * mark[s];
+                trades.add(new Trade(instruments.get(s).symbol(), entryTime[s], entryPrice[s], series[s].lastTimestamp(), mark[s],
+                        quantity[s], ExitReason.END));
+            }
+        }
+        return new Result(rules.capital(), cash, maxDrawdown, maxDrawdownPct, bars, List.copyOf(trades));
+    }
+}
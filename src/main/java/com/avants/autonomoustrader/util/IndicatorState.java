@@ -0,0 +1,267 @@
+package com.avants.autonomoustrader.util;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Running indicator state for one instrument series: an EMA, MACD with its signal line, and a rolling
+ * volume average. Each finished bar is folded in O(1), and the bar still forming can be evaluated
+ * against the state without changing it. EMAs are seeded with the SMA of their first {@code period}
+ * values, as the batch calculation did. Not thread-safe.
+ */
+public class IndicatorState {
+
+    /**
+     * Indicator periods. Two states are only interchangeable when their parameters are equal.
+     */
+    public record Params(int emaPeriod, int macdFast, int macdSlow, int macdSignal, int volumePeriod) {
+
+        public static final Params DEFAULT = new Params(200, 12, 26, 9, 20);
+
+        public Params {
+            if (emaPeriod < 1 || macdFast < 1 || macdSlow <= macdFast || macdSignal < 1 || volumePeriod < 1) {
+                throw new IllegalArgumentException("Invalid indicator parameters: " + emaPeriod + "/" + macdFast
+                        + "/" + macdSlow + "/" + macdSignal + "/" + volumePeriod);
+            }
+        }
+    }
+
+    /**
+     * Indicator values at one point in time. Values without enough history yet are NaN.
+     *
+     * @param lastPrice     Close of the last bar, or the provisional price of the forming bar
+     * @param volumeAverage Average volume over the last {@code volumePeriod} finished bars
+     */
+    public record Values(double lastPrice, double ema, double macd, double macdSignal, double macdHistogram, double volumeAverage) {}
+
+    private final Params params;
+    private final Ema ema;
+    private final Ema macdFast;
+    private final Ema macdSlow;
+    private final Ema macdSignal;
+    private final long[] volumes;
+    private int volumeIndex;
+    private int volumeCount;
+    private long volumeSum;
+    private long firstBarTs;
+    private long lastBarTs;
+    private int barCount;
+    private double lastClose;
+
+    public IndicatorState(Params params) {
+        this.params = params;
+        this.ema = new Ema(params.emaPeriod());
+        this.macdFast = new Ema(params.macdFast());
+        this.macdSlow = new Ema(params.macdSlow());
+        this.macdSignal = new Ema(params.macdSignal());
+        this.volumes = new long[params.volumePeriod()];
+        reset();
+    }
+
+    /**
+     * Forgets every folded bar.
+     */
+    public void reset() {
+        ema.reset();
+        macdFast.reset();
+        macdSlow.reset();
+        macdSignal.reset();
+        volumeIndex = 0;
+        volumeCount = 0;
+        volumeSum = 0;
+        firstBarTs = Long.MIN_VALUE;
+        lastBarTs = Long.MIN_VALUE;
+        barCount = 0;
+        lastClose = Double.NaN;
+    }
+
+    /**
+     * Folds one finished bar into the state. Bars must arrive in timestamp order.
+     */
+    public void fold(long barTs, double close, long volume) {
+        if (barTs <= lastBarTs) {
+            throw new IllegalArgumentException("Bar at " + barTs + " is not after the last folded bar at " + lastBarTs);
+        }
+        ema.fold(close);
+        macdFast.fold(close);
+        macdSlow.fold(close);
+        if (macdSlow.isReady()) {
+            macdSignal.fold(macdFast.value - macdSlow.value);
+        }
+
+        if (volumeCount == volumes.length) {
+            volumeSum -= volumes[volumeIndex];
+        } else {
+            volumeCount++;
+        }
+        volumes[volumeIndex] = volume;
+        volumeSum += volume;
+        volumeIndex = (volumeIndex + 1) % volumes.length;
+
+        if (barCount == 0) {
+            firstBarTs = barTs;
+        }
+        lastBarTs = barTs;
+        barCount++;
+        lastClose = close;
+    }
+
+    /**
+     * Values as of the last folded bar.
+     */
+    public Values values() {
+        double macd = macdSlow.isReady() ? macdFast.value - macdSlow.value : Double.NaN;
+        double signal = macdSignal.current();
+        return new Values(lastClose, ema.current(), macd, signal, macd - signal, volumeAverage());
+    }
+
+    /**
+     * Values as if the forming bar closed at this price. The state itself is left unchanged.
+     */
+    public Values provisional(double price) {
+        double slow = macdSlow.peek(price);
+        double macd = Double.isNaN(slow) ? Double.NaN : macdFast.peek(price) - slow;
+        double signal = Double.isNaN(macd) ? Double.NaN : macdSignal.peek(macd);
+        return new Values(price, ema.peek(price), macd, signal, macd - signal, volumeAverage());
+    }
+
+    private double volumeAverage() {
+        return volumeCount == volumes.length ? (double) volumeSum / volumes.length : Double.NaN;
+    }
+
+    public Params params() {
+        return params;
+    }
+
+    /**
+     * Timestamp of the oldest folded bar, or Long.MIN_VALUE before the first.
+     */
+    public long firstBarTs() {
+        return firstBarTs;
+    }
+
+    /**
+     * Timestamp of the newest folded bar, or Long.MIN_VALUE before the first.
+     */
+    public long lastBarTs() {
+        return lastBarTs;
+    }
+
+    public int barCount() {
+        return barCount;
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(params.emaPeriod());
+        out.writeInt(params.macdFast());
+        out.writeInt(params.macdSlow());
+        out.writeInt(params.macdSignal());
+        out.writeInt(params.volumePeriod());
+        out.writeLong(firstBarTs);
+        out.writeLong(lastBarTs);
+        out.writeInt(barCount);
+        out.writeDouble(lastClose);
+        ema.writeTo(out);
+        macdFast.writeTo(out);
+        macdSlow.writeTo(out);
+        macdSignal.writeTo(out);
+        out.writeInt(volumeIndex);
+        out.writeInt(volumeCount);
+        out.writeLong(volumeSum);
+        for (long volume : volumes) {
+            out.writeLong(volume);
+        }
+    }
+
+    /**
+     * Reads a state written by {@link #writeTo}. Fails when it was written for other parameters.
+     */
+    public static IndicatorState readFrom(DataInput in, Params params) throws IOException {
+        Params stored = new Params(in.readInt(), in.readInt(), in.readInt(), in.readInt(), in.readInt());
+        if (!stored.equals(params)) {
+            throw new IOException("Indicator state was written for " + stored + ", expected " + params);
+        }
+        IndicatorState state = new IndicatorState(params);
+        state.firstBarTs = in.readLong();
+        state.lastBarTs = in.readLong();
+        state.barCount = in.readInt();
+        state.lastClose = in.readDouble();
+        state.ema.readFrom(in);
+        state.macdFast.readFrom(in);
+        state.macdSlow.readFrom(in);
+        state.macdSignal.readFrom(in);
+        state.volumeIndex = in.readInt();
+        state.volumeCount = in.readInt();
+        state.volumeSum = in.readLong();
+        for (int i = 0; i < state.volumes.length; i++) {
+            state.volumes[i] = in.readLong();
+        }
+        return state;
+    }
+
+    /**
+     * EMA = (Price × α) + (PrevEMA × (1 - α)) with α = 2 / (period + 1), seeded with an SMA.
+     */
+    private static final class Ema {
+
+        private final int period;
+        private final double alpha;
+        private int count;
+        private double seedSum;
+        private double value;
+
+        Ema(int period) {
+            this.period = period;
+            this.alpha = 2.0 / (period + 1);
+        }
+
+        void reset() {
+            count = 0;
+            seedSum = 0.0;
+            value = Double.NaN;
+        }
+
+        boolean isReady() {
+            return count >= period;
+        }
+
+        void fold(double price) {
+            if (count < period) {
+                seedSum += price;
+                count++;
+                if (count == period) {
+                    value = seedSum / period;
+                }
+            } else {
+                value = (price * alpha) + (value * (1 - alpha));
+            }
+        }
+
+        double current() {
+            return isReady() ? value : Double.NaN;
+        }
+
+        /**
+         * The value fold(price) would produce, without folding it.
+         */
+        double peek(double price) {
+            if (isReady()) {
+                return (price * alpha) + (value * (1 - alpha));
+            }
+            return count == period - 1 ? (seedSum + price) / period : Double.NaN;
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeInt(count);
+            out.writeDouble(seedSum);
+            out.writeDouble(value);
+        }
+
+        void readFrom(DataInput in) throws IOException {
+            count = in.readInt();
+            seedSum = in.readDouble();
+            value = in.readDouble();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.avants.autonomoustrader.util;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Time helpers for Kite Connect payloads.
+ * Kite reports candle timestamps as ISO strings with a compact IST offset (e.g. 2026-02-27T00:00:00+0530).
+ */
+public class KiteTime {
+
+    /**
+     * Exchange time zone for NSE/BSE sessions.
+     */
+    public static final ZoneId IST = ZoneId.of("Asia/Kolkata");
+
+    private static final DateTimeFormatter KITE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+
+    /**
+     * Parses a Kite candle timestamp into epoch milliseconds.
+     */
+    public static long parseTimestamp(String timestamp) {
+        return OffsetDateTime.parse(timestamp, KITE_TIMESTAMP).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Formats epoch milliseconds in the same shape Kite uses for candle timestamps.
+     */
+    public static String formatTimestamp(long epochMillis) {
+        return KITE_TIMESTAMP.format(Instant.ofEpochMilli(epochMillis).atZone(IST));
+    }
+
+    private KiteTime() {
+        // Utility class
+    }
+}
@@ -0,0 +1,81 @@
+package com.avants.autonomoustrader.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Last traded price and time per instrument token, for a fixed set of tokens.
+ * One writer updates it; any number of readers see each price together with a release/acquire
+ * pair, without locks. The token set is fixed at construction — build a new table to change it.
+ */
+public class LatestPriceTable {
+
+    private final long[] tokens;
+    private final LongIntHashMap slots;
+    private final AtomicLongArray priceBits;
+    private final AtomicLongArray times;
+
+    public LatestPriceTable(long[] tokens) {
+        this.tokens = tokens.clone();
+        this.slots = new LongIntHashMap(tokens.length);
+        this.priceBits = new AtomicLongArray(tokens.length);
+        this.times = new AtomicLongArray(tokens.length);
+        for (int i = 0; i < tokens.length; i++) {
+            slots.put(tokens[i], i);
+            priceBits.set(i, Double.doubleToRawLongBits(Double.NaN));
+        }
+    }
+
+    /**
+     * Returns a table for the new token set that keeps the prices already known here.
+     */
+    public LatestPriceTable withTokens(long[] newTokens) {
+        LatestPriceTable next = new LatestPriceTable(newTokens);
+        for (int i = 0; i < tokens.length; i++) {
+            long time = times.get(i);
+            if (time != 0) {
+                next.update(tokens[i], Double.longBitsToDouble(priceBits.get(i)), time);
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Records a price. Returns false for tokens outside this table.
+     */
+    public boolean update(long instrumentToken, double lastPrice, long timestamp) {
+        int slot = slots.get(instrumentToken, -1);
+        if (slot < 0) {
+            return false;
+        }
+        priceBits.lazySet(slot, Double.doubleToRawLongBits(lastPrice));
+        times.set(slot, timestamp);
+        return true;
+    }
+
+    /**
+     * Last traded price, or NaN when the token is unknown or has not ticked yet.
+     */
+    public double price(long instrumentToken) {
+        int slot = slots.get(instrumentToken, -1);
+        if (slot < 0 || times.get(slot) == 0) {
+            return Double.NaN;
+        }
+        return Double.longBitsToDouble(priceBits.get(slot));
+    }
+
+    /**
+     * Epoch millis of the last tick for the token, or 0 when none.
+     */
+    public long time(long instrumentToken) {
+        int slot = slots.get(instrumentToken, -1);
+        return slot < 0 ? 0 : times.get(slot);
+    }
+
+    public long[] tokens() {
+        return tokens.clone();
+    }
+
+    public boolean contains(long instrumentToken) {
+        return slots.containsKey(instrumentToken);
+    }
+}
@@ -0,0 +1,386 @@
+package com.avants.autonomoustrader.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Monte Carlo value at risk and expected shortfall of a book of holdings over daily return history.
+ * Two models generate each path's per-holding returns:
+ * <ul>
+ *   <li>{@link Method#BOOTSTRAP} — historical bootstrap: the path replays randomly drawn days of the
+ *       history, whole days at a time so holdings keep their co-movement, compounding day by day;</li>
+ *   <li>{@link Method#NORMAL} — correlated normal: returns are drawn from the sample mean and
+ *       covariance of the history through its Cholesky factor; an h-day return is h·μ + √h·Lz, so
+ *       every horizon scales the same draw.</li>
+ * </ul>
+ * Paths are simulated in parallel blocks. Each path draws from its own SplitMix64 stream split off
+ * the run's seed by path index, so results do not depend on how blocks land on threads and any path
+ * can be replayed: a second pass replays only the tail paths to attribute the loss to holdings.
+ * A holding's expected shortfall contribution is its mean loss over the tail beyond VaR; its VaR
+ * contribution is its mean loss over the paths ranked next to the VaR path, scaled to add up to
+ * VaR. Both sum over holdings to the portfolio figure. Scratch state lives in primitive arrays
+ * per block; nothing is allocated per path.
+ */
+public final class MonteCarloRisk {
+
+    public enum Method { BOOTSTRAP, NORMAL }
+
+    private static final int BLOCK = 1_024; // paths per parallel task
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Holdings and their aligned daily return history.
+     *
+     * @param returns   Simple daily returns, day-major: returns[day * assets + holding]
+     * @param exposures Market value of each holding, negative when short
+     */
+    public record Book(int assets, int days, double[] returns, double[] exposures) {
+
+        public Book {
+            if (returns.length != assets * days || exposures.length != assets) {
+                throw new IllegalArgumentException("Returns must hold " + days + " days of " + assets + " holdings");
+            }
+        }
+    }
+
+    /**
+     * Loss at one horizon, as positive amounts.
+     *
+     * @param varContributions Share of VaR per holding, in book order
+     * @param esContributions  Share of expected shortfall per holding, in book order
+     * @param meanPnl          Mean P&amp;L over all paths
+     */
+    public record Horizon(int days, double valueAtRisk, double expectedShortfall, double[] varContributions,
+                          double[] esContributions, double meanPnl) {}
+
+    private MonteCarloRisk() {
+    }
+
+    /**
+     * Simulates the book over each horizon. Run it on the scan pool: paths are spread over the pool of
+     * the calling thread.
+     *
+     * @param horizons   Horizons in days, ascending
+     * @param confidence E.g. 0.99 for the loss exceeded on 1% of paths
+     */
+    public static List<Horizon> simulate(Book book, Method method, int paths, int[] horizons, double confidence, long seed) {
+        if (book.days() < 2) {
+            throw new IllegalArgumentException("At least two days of returns are needed, got " + book.days());
+        }
+        if (paths < 1 || !(confidence > 0 && confidence < 1) || horizons.length == 0) {
+            throw new IllegalArgumentException("Invalid simulation settings");
+        }
+        for (int h = 0; h < horizons.length; h++) {
+            if (horizons[h] < 1 || (h > 0 && horizons[h] <= horizons[h - 1])) {
+                throw new IllegalArgumentException("Horizons must be positive and ascending: " + Arrays.toString(horizons));
+            }
+        }
+        Model model = method == Method.NORMAL ? new Normal(book) : new Bootstrap(book, horizons[horizons.length - 1]);
+        int n = book.assets();
+        double[][] pnl = new double[horizons.length][paths];
+        int blocks = (paths + BLOCK - 1) / BLOCK;
+
+        // Pass 1: portfolio P&L of every path at every horizon
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            SplitMix rng = new SplitMix(seed);
+            double[] scratch = model.scratch();
+            double[][] assetPnl = new double[horizons.length][n];
+            for (int p = block * BLOCK, end = Math.min(paths, p + BLOCK); p < end; p++) {
+                rng.path(p);
+                model.path(rng, horizons, scratch, assetPnl);
+                for (int h = 0; h < horizons.length; h++) {
+                    double total = 0.0;
+                    for (int i = 0; i < n; i++) {
+                        total += assetPnl[h][i];
+                    }
+                    pnl[h][p] = total;
+                }
+            }
+        });
+
+        // Thresholds: the tail beyond VaR, and a window of ranks around it
+        int tail = Math.max(1, (int) Math.ceil((1.0 - confidence) * paths));
+        int window = Math.max(1, paths / 500);
+        double[] tailBound = new double[horizons.length];
+        double[] windowLow = new double[horizons.length];
+        double[] windowHigh = new double[horizons.length];
+        double[] var = new double[horizons.length];
+        double[] mean = new double[horizons.length];
+        for (int h = 0; h < horizons.length; h++) {
+            double[] sorted = pnl[h].clone();
+            Arrays.sort(sorted);
+            tailBound[h] = sorted[tail - 1];
+            var[h] = -sorted[tail - 1];
+            windowLow[h] = sorted[Math.max(0, tail - 1 - window)];
+            windowHigh[h] = sorted[Math.min(paths - 1, tail - 1 + window)];
+            double sum = 0.0;
+            for (double value : sorted) {
+                sum += value;
+            }
+            mean[h] = sum / paths;
+        }
+
+        // Pass 2: replay the paths in the tail or the VaR window and attribute their P&L to holdings
+        double[][][] partials = new double[blocks][][];
+        IntStream.range(0, blocks).parallel().forEach(block -> {
+            SplitMix rng = new SplitMix(seed);
+            double[] scratch = model.scratch();
+            double[][] assetPnl = new double[horizons.length][n];
+            double[][] sums = new double[horizons.length * 2][n + 1]; // per holding, then the path count
+            for (int p = block * BLOCK, end = Math.min(paths, p + BLOCK); p < end; p++) {
+                boolean needed = false;
+                for (int h = 0; h < horizons.length && !needed; h++) {
+                    needed = pnl[h][p] <= tailBound[h] || (pnl[h][p] >= windowLow[h] && pnl[h][p] <= windowHigh[h]);
+                }
+                if (!needed) {
+                    continue;
+                }
+                rng.path(p);
+                model.path(rng, horizons, scratch, assetPnl);
+                for (int h = 0; h < horizons.length; h++) {
+                    if (pnl[h][p] <= tailBound[h]) {
+                        accumulate(sums[2 * h], assetPnl[h]);
+                    }
+                    if (pnl[h][p] >= windowLow[h] && pnl[h][p] <= windowHigh[h]) {
+                        accumulate(sums[2 * h + 1], assetPnl[h]);
+                    }
+                }
+            }
+            partials[block] = sums;
+        });
+
+        List<Horizon> result = new ArrayList<>(horizons.length);
+        for (int h = 0; h < horizons.length; h++) {
+            double[] tailSums = new double[n + 1];
+            double[] windowSums = new double[n + 1];
+            for (double[][] partial : partials) {
+                for (int i = 0; i <= n; i++) {
+                    tailSums[i] += partial[2 * h][i];
+                    windowSums[i] += partial[2 * h + 1][i];
+                }
+            }
+            double[] es = new double[n];
+            double[] varShare = new double[n];
+            double esTotal = 0.0;
+            double windowLoss = 0.0;
+            for (int i = 0; i < n; i++) {
+                es[i] = -tailSums[i] / tailSums[n];
+                esTotal += es[i];
+                varShare[i] = -windowSums[i] / windowSums[n];
+                windowLoss += varShare[i];
+            }
+            if (windowLoss != 0.0) {
+                for (int i = 0; i < n; i++) {
+                    varShare[i] *= var[h] / windowLoss;
+                }
+            }
+            result.add(new Horizon(horizons[h], var[h], esTotal, varShare, es, mean[h]));
+        }
+        return result;
+    }
+
+    private static void accumulate(double[] sums, double[] values) {
+        for (int i = 0; i < values.length; i++) {
+            sums[i] += values[i];
+        }
+        sums[values.length]++;
+    }
+
+    /**
+     * Generates one path's P&amp;L per holding at each horizon.
+     */
+    private interface Model {
+
+        double[] scratch();
+
+        void path(SplitMix rng, int[] horizons, double[] scratch, double[][] assetPnl);
+    }
+
+    private static final class Bootstrap implements Model {
+
+        private final Book book;
+        private final int maxHorizon;
+
+        Bootstrap(Book book, int maxHorizon) {
+            this.book = book;
+            this.maxHorizon = maxHorizon;
+        }
+
+        @Override
+        public double[] scratch() {
+            return new double[book.assets()]; // compounded growth per holding
+        }
+
+        @Override
+        public void path(SplitMix rng, int[] horizons, double[] growth, double[][] assetPnl) {
+            int n = book.assets();
+            double[] returns = book.returns();
+            double[] exposures = book.exposures();
+            Arrays.fill(growth, 1.0);
+            int next = 0;
+            for (int day = 1; day <= maxHorizon; day++) {
+                int offset = rng.nextInt(book.days()) * n;
+                for (int i = 0; i < n; i++) {
+                    growth[i] *= 1.0 + returns[offset + i];
+                }
+                if (day == horizons[next]) {
+                    for (int i = 0; i < n; i++) {
+                        assetPnl[next][i] = exposures[i] * (growth[i] - 1.0);
+                    }
+                    next++;
+                }
+            }
+        }
+    }
+
+    private static final class Normal implements Model {
+
+        private final int n;
+        private final double[] exposures;
+        private final double[] mean;
+        private final double[] cholesky; // lower triangle, row-major n × n
+
+        Normal(Book book) {
+            this.n = book.assets();
+            this.exposures = book.exposures();
+            this.mean = new double[n];
+            int days = book.days();
+            double[] returns = book.returns();
+            for (int d = 0; d < days; d++) {
+                for (int i = 0; i < n; i++) {
+                    mean[i] += returns[d * n + i];
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                mean[i] /= days;
+            }
+            double[] covariance = new double[n * n];
+            for (int d = 0; d < days; d++) {
+                int offset = d * n;
+                for (int i = 0; i < n; i++) {
+                    double di = returns[offset + i] - mean[i];
+                    for (int j = 0; j <= i; j++) {
+                        covariance[i * n + j] += di * (returns[offset + j] - mean[j]);
+                    }
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j <= i; j++) {
+                    covariance[i * n + j] /= days - 1;
+                }
+            }
+            this.cholesky = cholesky(covariance, n);
+        }
+
+        @Override
+        public double[] scratch() {
+            return new double[n]; // standard normal draws
+        }
+
+        @Override
+        public void path(SplitMix rng, int[] horizons, double[] z, double[][] assetPnl) {
+            for (int i = 0; i < n; i++) {
+                z[i] = rng.nextGaussian();
+            }
+            for (int i = 0; i < n; i++) {
+                double shock = 0.0;
+                int row = i * n;
+                for (int j = 0; j <= i; j++) {
+                    shock += cholesky[row + j] * z[j];
+                }
+                for (int h = 0; h < horizons.length; h++) {
+                    assetPnl[h][i] = exposures[i] * (horizons[h] * mean[i] + Math.sqrt(horizons[h]) * shock);
+                }
+            }
+        }
+
+        /**
+         * Cholesky factor of a covariance matrix (lower triangle given). A singular matrix — a holding
+         * that never moved, or one duplicating others — gets zero columns where its pivots vanish.
+         */
+        private static double[] cholesky(double[] covariance, int n) {
+            double[] l = new double[n * n];
+            for (int j = 0; j < n; j++) {
+                double pivot = covariance[j * n + j];
+                for (int k = 0; k < j; k++) {
+                    pivot -= l[j * n + k] * l[j * n + k];
+                }
+                double diagonal = pivot > 1e-18 ? Math.sqrt(pivot) : 0.0;
+                l[j * n + j] = diagonal;
+                for (int i = j + 1; i < n; i++) {
+                    if (diagonal == 0.0) {
+                        continue;
+                    }
+                    double value = covariance[i * n + j];
+                    for (int k = 0; k < j; k++) {
+                        value -= l[i * n + k] * l[j * n + k];
+                    }
+                    l[i * n + j] = value / diagonal;
+                }
+            }
+            return l;
+        }
+    }
+
+    /**
+     * SplitMix64, re-seeded per path from the run's seed and the path index.
+     */
+    private static final class SplitMix {
+
+        private final long seed;
+        private long state;
+        private double spare;
+        private boolean hasSpare;
+
+        SplitMix(long seed) {
+            this.seed = seed;
+        }
+
+        void path(long index) {
+            state = mix(seed + index * GOLDEN_GAMMA);
+            hasSpare = false;
+        }
+
+        long nextLong() {
+            return mix(state += GOLDEN_GAMMA);
+        }
+
+        int nextInt(int bound) {
+            return (int) (((nextLong() >>> 32) * bound) >>> 32);
+        }
+
+        double nextDouble() {
+            return (nextLong() >>> 11) * 0x1.0p-53;
+        }
+
+        /**
+         * Marsaglia's polar method; the second variate of each pair is kept for the next call.
+         */
+        double nextGaussian() {
+            if (hasSpare) {
+                hasSpare = false;
+                return spare;
+            }
+            double u;
+            double v;
+            double s;
+            do {
+                u = 2.0 * nextDouble() - 1.0;
+                v = 2.0 * nextDouble() - 1.0;
+                s = u * u + v * v;
+            } while (s >= 1.0 || s == 0.0);
+            double scale = Math.sqrt(-2.0 * Math.log(s) / s);
+            spare = v * scale;
+            hasSpare = true;
+            return u * scale;
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
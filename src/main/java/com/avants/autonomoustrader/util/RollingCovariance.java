@@ -0,0 +1,171 @@
+package com.avants.autonomoustrader.util;
+
+import java.util.Arrays;
+
+/**
+ * Rolling sample covariance and correlation of N return series over the last W bars.
+ * The window's returns sit in a ring buffer, next to running sums and a flat N×N matrix of cross
+ * products (row-major, lower triangle maintained). A new bar adds its cross products and subtracts
+ * those of the bar leaving the window, so an update costs O(N²) whatever the window length;
+ * covariances are read off the running sums on demand. Add-and-subtract accumulates rounding error,
+ * so the sums are recomputed exactly from the ring buffer once every W updates, which keeps the
+ * amortised cost at O(N²) per bar.
+ * <p>
+ * Not thread-safe; callers serialise updates and reads.
+ */
+public final class RollingCovariance {
+
+    private final int assets;
+    private final int window;
+    private final double[] ring;     // window × assets, one row per bar
+    private final double[] evicted;  // scratch copy of the row leaving the window
+    private final double[] sums;     // per asset
+    private final double[] cross;    // assets × assets, row-major; [i * assets + j] kept for j <= i
+    private int count;
+    private int next;                // ring row the next bar goes into
+    private int sinceRebuild;
+
+    public RollingCovariance(int assets, int window) {
+        if (assets < 1) {
+            throw new IllegalArgumentException("assets must be at least 1, got " + assets);
+        }
+        if (window < 2) {
+            throw new IllegalArgumentException("window must be at least 2, got " + window);
+        }
+        this.assets = assets;
+        this.window = window;
+        this.ring = new double[window * assets];
+        this.evicted = new double[assets];
+        this.sums = new double[assets];
+        this.cross = new double[assets * assets];
+    }
+
+    public int assets() {
+        return assets;
+    }
+
+    public int window() {
+        return window;
+    }
+
+    /**
+     * Bars currently in the window, at most {@link #window()}.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Adds one bar of returns, evicting the oldest bar once the window is full. NaN counts as no
+     * change (0).
+     */
+    public void add(double[] returns) {
+        if (returns.length != assets) {
+            throw new IllegalArgumentException("Expected " + assets + " returns, got " + returns.length);
+        }
+        int row = next * assets;
+        boolean evict = count == window;
+        for (int i = 0; i < assets; i++) {
+            double r = Double.isNaN(returns[i]) ? 0.0 : returns[i];
+            evicted[i] = evict ? ring[row + i] : 0.0;
+            ring[row + i] = r;
+            sums[i] += r - evicted[i];
+        }
+        next = next + 1 == window ? 0 : next + 1;
+        if (!evict) {
+            count++;
+        }
+
+        if (++sinceRebuild == window) {
+            rebuild();
+            return;
+        }
+        for (int i = 0; i < assets; i++) {
+            double ri = ring[row + i];
+            double oi = evicted[i];
+            int base = i * assets;
+            for (int j = 0; j <= i; j++) {
+                cross[base + j] += ri * ring[row + j] - oi * evicted[j];
+            }
+        }
+    }
+
+    /**
+     * Sample covariance of assets i and j, or NaN with fewer than two bars.
+     */
+    public double covariance(int i, int j) {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        int hi = Math.max(i, j);
+        int lo = Math.min(i, j);
+        return (cross[hi * assets + lo] - sums[hi] * sums[lo] / count) / (count - 1);
+    }
+
+    /**
+     * Pearson correlation of assets i and j, or NaN when either did not move over the window.
+     */
+    public double correlation(int i, int j) {
+        double vi = covariance(i, i);
+        double vj = covariance(j, j);
+        if (!(vi > 0.0 && vj > 0.0)) {
+            return Double.NaN;
+        }
+        double c = covariance(i, j) / Math.sqrt(vi * vj);
+        return Math.max(-1.0, Math.min(1.0, c));
+    }
+
+    /**
+     * The full covariance matrix, flat and row-major: [i * assets + j].
+     */
+    public double[] covariance() {
+        double[] matrix = new double[assets * assets];
+        for (int i = 0; i < assets; i++) {
+            for (int j = 0; j <= i; j++) {
+                double c = covariance(i, j);
+                matrix[i * assets + j] = c;
+                matrix[j * assets + i] = c;
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * The full correlation matrix, flat and row-major: [i * assets + j]; NaN where a variance is 0.
+     */
+    public double[] correlation() {
+        double[] matrix = covariance();
+        double[] scale = new double[assets];
+        for (int i = 0; i < assets; i++) {
+            double v = matrix[i * assets + i];
+            scale[i] = v > 0.0 ? 1.0 / Math.sqrt(v) : Double.NaN;
+        }
+        for (int i = 0; i < assets; i++) {
+            for (int j = 0; j < assets; j++) {
+                double c = matrix[i * assets + j] * scale[i] * scale[j];
+                matrix[i * assets + j] = Double.isNaN(c) ? c : Math.max(-1.0, Math.min(1.0, c));
+            }
+        }
+        return matrix;
+    }
+
+    /**
+     * Recomputes the running sums exactly from the bars in the window.
+     */
+    private void rebuild() {
+        Arrays.fill(sums, 0.0);
+        Arrays.fill(cross, 0.0);
+        for (int b = 0; b < count; b++) {
+            int row = b * assets;
+            for (int i = 0; i < assets; i++) {
+                double ri = ring[row + i];
+                sums[i] += ri;
+                int base = i * assets;
+                for (int j = 0; j <= i; j++) {
+                    cross[base + j] += ri * ring[row + j];
+                }
+            }
+        }
+        sinceRebuild = 0;
+    }
+}
@@ -0,0 +1,101 @@
+package com.avants.autonomoustrader.util;
+
+import java.util.Arrays;
+
+/**
+ * Plain-loop {@link WindowKernels}; the fallback when the Vector API is unavailable or disabled.
+ */
+final class ScalarWindowKernels implements WindowKernels {
+
+    static final ScalarWindowKernels INSTANCE = new ScalarWindowKernels();
+
+    private ScalarWindowKernels() {}
+
+    @Override
+    public void rollingSum(double[] in, int n, int period, double[] out) {
+        requirePeriod(period);
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += in[i];
+            if (i >= period) {
+                sum -= in[i - period];
+            }
+            out[i] = i >= period - 1 ? sum : Double.NaN;
+        }
+    }
+
+    @Override
+    public void rollingMean(double[] in, int n, int period, double[] out) {
+        rollingSum(in, n, period, out);
+        for (int i = period - 1; i < n; i++) {
+            out[i] /= period;
+        }
+    }
+
+    @Override
+    public void rollingMax(double[] in, int n, int period, double[] out, double[] scratch) {
+        blockScans(in, n, period, out, scratch, true);
+        for (int i = period - 1; i < n; i++) {
+            out[i] = Math.max(scratch[i - period + 1], out[i]);
+        }
+        clearWarmUp(out, n, period);
+    }
+
+    @Override
+    public void rollingMin(double[] in, int n, int period, double[] out, double[] scratch) {
+        blockScans(in, n, period, out, scratch, false);
+        for (int i = period - 1; i < n; i++) {
+            out[i] = Math.min(scratch[i - period + 1], out[i]);
+        }
+        clearWarmUp(out, n, period);
+    }
+
+    @Override
+    public void greaterThan(double[] a, double[] b, int n, boolean[] out) {
+        for (int i = 0; i < n; i++) {
+            out[i] = a[i] > b[i];
+        }
+    }
+
+    @Override
+    public void toDouble(long[] in, int n, double[] out) {
+        for (int i = 0; i < n; i++) {
+            out[i] = in[i];
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    /**
+     * First half of the van Herk/Gil-Werman rolling extreme: within consecutive blocks of period
+     * elements, prefix extremes go to prefix and suffix extremes to suffix. The extreme of the window
+     * ending at i is then the extreme of suffix[i - period + 1] and prefix[i], whatever the period.
+     */
+    static void blockScans(double[] in, int n, int period, double[] prefix, double[] suffix, boolean max) {
+        requirePeriod(period);
+        for (int start = 0; start < n; start += period) {
+            int end = Math.min(start + period, n);
+            prefix[start] = in[start];
+            for (int i = start + 1; i < end; i++) {
+                prefix[i] = max ? Math.max(prefix[i - 1], in[i]) : Math.min(prefix[i - 1], in[i]);
+            }
+            suffix[end - 1] = in[end - 1];
+            for (int i = end - 2; i >= start; i--) {
+                suffix[i] = max ? Math.max(suffix[i + 1], in[i]) : Math.min(suffix[i + 1], in[i]);
+            }
+        }
+    }
+
+    static void clearWarmUp(double[] out, int n, int period) {
+        Arrays.fill(out, 0, Math.min(period - 1, n), Double.NaN);
+    }
+
+    static void requirePeriod(int period) {
+        if (period < 1) {
+            throw new IllegalArgumentException("Window period must be positive: " + period);
+        }
+    }
+}
@@ -0,0 +1,749 @@
+package com.avants.autonomoustrader.util;
+
+import com.avants.autonomoustrader.model.CandleSeries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Compiled indicators and entry/exit conditions of a strategy.
+ * Indicators are nodes of a small DAG held in flat arrays and shared between conditions: a node is
+ * created once per distinct expression, so "EMA_9" in an entry and an exit condition is computed once.
+ * Composite indicators are built from primitive nodes — MACD from the same EMA-12/EMA-26 nodes a
+ * strategy may also use directly, RSI and ATR from Wilder averages, Bollinger bands from one SMA and
+ * one standard deviation — so declaring more indicators only adds the nodes that are genuinely new.
+ * {@link #evaluate} streams a {@link CandleSeries} through every node in one pass, keeping only each
+ * node's current and previous value (enough for crossovers) in a reusable {@link Workspace}, so
+ * evaluating a symbol allocates nothing once the workspace has grown to the longest series.
+ * Rolling windows over a raw candle column (the 20-period volume average, an N-period high) are
+ * computed for the whole series up front by the {@link WindowKernels}, vectorised where the JVM
+ * allows, and the streaming pass just reads them.
+ * <p>
+ * Entry conditions must all hold; any exit condition is enough to exit.
+ */
+public final class SignalProgram {
+
+    public enum Field { OPEN, HIGH, LOW, CLOSE, VOLUME }
+
+    public enum Comparison { GT, GE, LT, LE, CROSSES_ABOVE, CROSSES_BELOW }
+
+    private enum Op { SOURCE, CONST, EMA, SMA, WILDER, STDDEV, MAX, MIN, ADD, SUB, MUL, CHANGE, GAIN, LOSS, RSI, TRUE_RANGE, VWAP, OBV }
+
+    private static final long IST_OFFSET_MS = 19_800_000L;
+    private static final long DAY_MS = 86_400_000L;
+
+    // values() clones its array on every call, so evaluation reads these copies instead
+    private static final Field[] FIELDS = Field.values();
+    private static final Comparison[] COMPARISONS = Comparison.values();
+    private static final int STOP_LOSS = -1;
+    private static final int TARGET = -2;
+    // Bars after which an exponential average's seed weighs under 0.1%: (1 - α)^k < 1e-3
+    private static final double SEED_DECAY = Math.log(1_000.0);
+
+    private final Op[] ops;
+    private final int[] inputA;
+    private final int[] inputB;
+    private final int[] periods;
+    private final double[] constants;
+    private final String[] labels;
+    private final Map<String, Integer> outputs;
+    private final int[] windowOffset;
+    private final int windowTotal;
+    private final WindowKernels kernels;
+    private final int[] columnar;
+    private final boolean[] fromColumn;
+    private final int[][] entry;
+    private final int[][] exit;
+    private final double stopLossPct;
+    private final double targetPct;
+    private final int lookback;
+
+    private SignalProgram(Builder builder, double stopLossPct, double targetPct) {
+        int n = builder.ops.size();
+        this.ops = builder.ops.toArray(new Op[0]);
+        this.inputA = builder.inputA.stream().mapToInt(Integer::intValue).toArray();
+        this.inputB = builder.inputB.stream().mapToInt(Integer::intValue).toArray();
+        this.periods = builder.periods.stream().mapToInt(Integer::intValue).toArray();
+        this.constants = builder.constants.stream().mapToDouble(Double::doubleValue).toArray();
+        this.labels = builder.labels.toArray(new String[0]);
+        this.outputs = Map.copyOf(builder.outputs);
+        this.windowOffset = new int[n];
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            if (ops[i] == Op.SMA || ops[i] == Op.STDDEV || ops[i] == Op.MAX || ops[i] == Op.MIN) {
+                windowOffset[i] = total;
+                total += periods[i];
+            }
+        }
+        this.windowTotal = total;
+        this.kernels = builder.kernels;
+        this.fromColumn = new boolean[n];
+        for (int i = 0; i < n; i++) {
+            fromColumn[i] = (ops[i] == Op.SMA || ops[i] == Op.MAX || ops[i] == Op.MIN) && ops[inputA[i]] == Op.SOURCE;
+        }
+        this.columnar = IntStream.range(0, n).filter(i -> fromColumn[i]).toArray();
+        this.entry = builder.entry.toArray(new int[0][]);
+        this.exit = builder.exit.toArray(new int[0][]);
+        this.stopLossPct = stopLossPct;
+        this.targetPct = targetPct;
+        this.lookback = longestLookback();
+    }
+
+    /**
+     * Bars each node needs before its value on the last bar no longer depends on where the series
+     * started; the largest over the nodes the conditions read, plus one for crossovers.
+     */
+    private int longestLookback() {
+        int[] bars = new int[ops.length];
+        for (int i = 0; i < ops.length; i++) {
+            int a = inputA[i] >= 0 ? bars[inputA[i]] : 1;
+            int b = inputB[i] >= 0 ? bars[inputB[i]] : 1;
+            long needed = switch (ops[i]) {
+                case SOURCE, CONST -> 1;
+                case TRUE_RANGE -> 2;
+                case CHANGE -> a + 1L;
+                case ADD, SUB, MUL, RSI -> Math.max(a, b);
+                case GAIN, LOSS -> a;
+                case SMA, STDDEV, MAX, MIN -> a + periods[i] - 1L;
+                case EMA -> a + periods[i] - 1L + (long) Math.ceil(SEED_DECAY * (periods[i] + 1) / 2.0);
+                case WILDER -> a + periods[i] - 1L + (long) Math.ceil(SEED_DECAY * periods[i]);
+                // Session-anchored and cumulative: depend on the whole series
+                case VWAP, OBV -> Integer.MAX_VALUE;
+            };
+            bars[i] = (int) Math.min(Integer.MAX_VALUE, needed);
+        }
+        long longest = 1;
+        for (int[][] conditions : new int[][][]{entry, exit}) {
+            for (int[] condition : conditions) {
+                if (condition[0] >= 0) {
+                    longest = Math.max(longest, Math.max(bars[condition[1]], bars[condition[2]]) + 1L);
+                }
+            }
+        }
+        return (int) Math.min(Integer.MAX_VALUE, longest);
+    }
+
+    /**
+     * Per-thread evaluation state, sized once for this program and reused for every symbol.
+     */
+    public final class Workspace {
+        private final double[] current = new double[ops.length];
+        private final double[] previous = new double[ops.length];
+        private final int[] counts = new int[ops.length];
+        private final double[] sums = new double[ops.length];
+        private final double[] sums2 = new double[ops.length];
+        private final double[] windows = new double[windowTotal];
+        private final double[][] fields = new double[FIELDS.length][];
+        private final boolean[] filled = new boolean[FIELDS.length];
+        private final double[][] precomputed = new double[ops.length][];
+        private final double[][] memoised = new double[ops.length][]; // columns read from a Memo
+        private final double[][] recording = new double[ops.length][]; // columns being written to one
+        private long[] volumes = new long[0];
+        private double[] scratch = new double[0];
+        private double lastClose = Double.NaN;
+        private int bars;
+
+        private Workspace() {
+        }
+
+        private void reset() {
+            Arrays.fill(current, Double.NaN);
+            Arrays.fill(previous, Double.NaN);
+            Arrays.fill(counts, 0);
+            Arrays.fill(sums, 0.0);
+            Arrays.fill(sums2, 0.0);
+            lastClose = Double.NaN;
+            bars = 0;
+        }
+
+        /**
+         * Runs the window kernels over every column-fed node, growing the buffers when the series is
+         * longer than any seen before.
+         */
+        private void precompute(CandleSeries series) {
+            int n = series.size();
+            if (scratch.length < n) {
+                scratch = new double[n];
+                volumes = new long[n];
+                Arrays.fill(fields, null);
+                for (int node : columnar) {
+                    precomputed[node] = new double[n];
+                }
+            }
+            Arrays.fill(filled, false);
+            for (int node : columnar) {
+                if (memoised[node] != null) {
+                    continue;
+                }
+                double[] in = field(series, periods[inputA[node]], n);
+                switch (ops[node]) {
+                    case MAX -> kernels.rollingMax(in, n, periods[node], precomputed[node], scratch);
+                    case MIN -> kernels.rollingMin(in, n, periods[node], precomputed[node], scratch);
+                    default -> kernels.rollingMean(in, n, periods[node], precomputed[node]);
+                }
+            }
+        }
+
+        private double[] field(CandleSeries series, int field, int n) {
+            if (fields[field] == null) {
+                fields[field] = new double[scratch.length];
+            }
+            double[] column = fields[field];
+            if (filled[field]) {
+                return column;
+            }
+            filled[field] = true;
+            switch (FIELDS[field]) {
+                case OPEN -> series.copyOpen(column);
+                case HIGH -> series.copyHigh(column);
+                case LOW -> series.copyLow(column);
+                case CLOSE -> series.copyClose(column);
+                case VOLUME -> {
+                    series.copyVolume(volumes);
+                    kernels.toDouble(volumes, n, column);
+                }
+            }
+            return column;
+        }
+
+        /**
+         * Value of a node after the last evaluated bar, e.g. for diagnostics.
+         */
+        public double value(int node) {
+            return current[node];
+        }
+
+        public int bars() {
+            return bars;
+        }
+    }
+
+    public Workspace newWorkspace() {
+        return new Workspace();
+    }
+
+    /**
+     * Streams the series through every node, oldest bar first.
+     */
+    public void evaluate(CandleSeries series, Workspace ws) {
+        evaluate(series, ws, null, null);
+    }
+
+    /**
+     * Same as {@link #evaluate(CandleSeries, Workspace)}, also recording on every bar's close whether
+     * all entry conditions hold and whether any exit condition other than stop loss and target holds,
+     * for replaying the strategy over history. Both arrays must hold series.size() elements.
+     */
+    public void evaluateBars(CandleSeries series, Workspace ws, boolean[] entries, boolean[] exits) {
+        evaluateBars(series, ws, entries, exits, null);
+    }
+
+    /**
+     * Same as {@link #evaluateBars(CandleSeries, Workspace, boolean[], boolean[])}, reading every
+     * indicator column the memo already holds instead of computing it, and adding the ones it computes.
+     *
+     * @param memo Columns of the same series, or null
+     */
+    public void evaluateBars(CandleSeries series, Workspace ws, boolean[] entries, boolean[] exits, Memo memo) {
+        if (entries.length < series.size() || exits.length < series.size()) {
+            throw new IllegalArgumentException("Signal arrays shorter than " + series.size() + " bars");
+        }
+        if (memo != null && memo.series != series) {
+            throw new IllegalArgumentException("Memo belongs to another series");
+        }
+        evaluate(series, ws, entries, exits, memo);
+    }
+
+    private void evaluate(CandleSeries series, Workspace ws, boolean[] entries, boolean[] exits) {
+        evaluate(series, ws, entries, exits, null);
+    }
+
+    private void evaluate(CandleSeries series, Workspace ws, boolean[] entries, boolean[] exits, Memo memo) {
+        ws.reset();
+        Arrays.fill(ws.memoised, null);
+        Arrays.fill(ws.recording, null);
+        if (memo != null) {
+            for (int node = 0; node < ops.length; node++) {
+                if (isIndicator(ops[node])) {
+                    double[] column = memo.columns.get(labels[node]);
+                    if (column != null) {
+                        ws.memoised[node] = column;
+                    } else {
+                        ws.recording[node] = new double[series.size()];
+                    }
+                }
+            }
+        }
+        if (columnar.length > 0 && !series.isEmpty()) {
+            ws.precompute(series);
+        }
+        for (int bar = 0; bar < series.size(); bar++) {
+            for (int node = 0; node < ops.length; node++) {
+                ws.previous[node] = ws.current[node];
+                double[] memoised = ws.memoised[node];
+                ws.current[node] = memoised != null ? memoised[bar] : step(node, series, bar, ws);
+                if (ws.recording[node] != null) {
+                    ws.recording[node][bar] = ws.current[node];
+                }
+            }
+            if (entries != null) {
+                entries[bar] = entry(ws);
+                exits[bar] = exit(ws, Double.NaN); // stop loss and target need a position
+            }
+        }
+        if (memo != null) {
+            for (int node = 0; node < ops.length; node++) {
+                if (ws.recording[node] != null) {
+                    memo.columns.putIfAbsent(labels[node], ws.recording[node]);
+                    ws.recording[node] = null;
+                }
+            }
+        }
+        ws.bars = series.size();
+        ws.lastClose = series.isEmpty() ? Double.NaN : series.lastClose();
+    }
+
+    /**
+     * Nodes worth memoising: everything with a period. Sources, constants and arithmetic cost less
+     * to recompute than to read back.
+     */
+    private static boolean isIndicator(Op op) {
+        return switch (op) {
+            case EMA, SMA, WILDER, STDDEV, MAX, MIN, RSI -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * Indicator columns of one series, shared by every program evaluated over it: programs that
+     * differ only in some indicator periods (the variants of a parameter sweep) compute each distinct
+     * indicator, such as "ema(close,9)", once per series instead of once per program. Thread-safe;
+     * holds one double per bar for every distinct indicator, so keep it only as long as the series
+     * is being swept.
+     */
+    public static final class Memo {
+        private final CandleSeries series;
+        private final Map<String, double[]> columns = new ConcurrentHashMap<>();
+
+        public Memo(CandleSeries series) {
+            this.series = series;
+        }
+
+        /**
+         * Number of distinct indicator columns held.
+         */
+        public int size() {
+            return columns.size();
+        }
+    }
+
+    private double step(int node, CandleSeries series, int bar, Workspace ws) {
+        double[] current = ws.current;
+        int a = inputA[node];
+        int period = periods[node];
+        return switch (ops[node]) {
+            case SOURCE -> switch (FIELDS[period]) {
+                case OPEN -> series.open(bar);
+                case HIGH -> series.high(bar);
+                case LOW -> series.low(bar);
+                case CLOSE -> series.close(bar);
+                case VOLUME -> series.volume(bar);
+            };
+            case CONST -> constants[node];
+            case ADD -> current[a] + current[inputB[node]];
+            case SUB -> current[a] - current[inputB[node]];
+            case MUL -> current[a] * current[inputB[node]];
+            case CHANGE -> current[a] - ws.previous[a];
+            case GAIN -> Double.isNaN(current[a]) ? Double.NaN : Math.max(current[a], 0.0);
+            case LOSS -> Double.isNaN(current[a]) ? Double.NaN : Math.max(-current[a], 0.0);
+            // EMA = (Price × α) + (PrevEMA × (1 - α)) with α = 2 / (period + 1); Wilder uses α = 1 / period
+            case EMA -> smooth(node, current[a], period, 2.0 / (period + 1), ws);
+            case WILDER -> smooth(node, current[a], period, 1.0 / period, ws);
+            case SMA, STDDEV, MAX, MIN -> fromColumn[node] ? ws.precomputed[node][bar] : window(node, current[a], period, ws);
+            case RSI -> {
+                double gain = current[a];
+                double loss = current[inputB[node]];
+                if (Double.isNaN(gain) || Double.isNaN(loss)) {
+                    yield Double.NaN;
+                }
+                yield loss == 0.0 ? 100.0 : 100.0 - 100.0 / (1.0 + gain / loss);
+            }
+            case TRUE_RANGE -> {
+                double range = series.high(bar) - series.low(bar);
+                if (bar == 0) {
+                    yield range;
+                }
+                double previousClose = series.close(bar - 1);
+                yield Math.max(range, Math.max(Math.abs(series.high(bar) - previousClose), Math.abs(series.low(bar) - previousClose)));
+            }
+            case VWAP -> {
+                // Anchored to the session: sums restart on the first bar of each IST trading day
+                int day = (int) Math.floorDiv(series.timestamp(bar) + IST_OFFSET_MS, DAY_MS);
+                if (ws.counts[node] != day) {
+                    ws.counts[node] = day;
+                    ws.sums[node] = 0.0;
+                    ws.sums2[node] = 0.0;
+                }
+                double typical = (series.high(bar) + series.low(bar) + series.close(bar)) / 3.0;
+                ws.sums[node] += typical * series.volume(bar);
+                ws.sums2[node] += series.volume(bar);
+                yield ws.sums2[node] > 0 ? ws.sums[node] / ws.sums2[node] : typical;
+            }
+            case OBV -> {
+                if (bar == 0) {
+                    yield 0.0;
+                }
+                double change = series.close(bar) - series.close(bar - 1);
+                yield current[node] + (change > 0 ? series.volume(bar) : change < 0 ? -series.volume(bar) : 0);
+            }
+        };
+    }
+
+    /**
+     * Exponential smoothing seeded with the SMA of the first period values. NaN inputs (an upstream
+     * node still warming up) are skipped.
+     */
+    private static double smooth(int node, double x, int period, double alpha, Workspace ws) {
+        if (Double.isNaN(x)) {
+            return ws.current[node];
+        }
+        if (ws.counts[node] < period) {
+            ws.sums[node] += x;
+            return ++ws.counts[node] == period ? ws.sums[node] / period : Double.NaN;
+        }
+        return (x * alpha) + (ws.current[node] * (1 - alpha));
+    }
+
+    /**
+     * Rolling mean (SMA), population standard deviation (STDDEV), maximum or minimum over the last
+     * period values of a computed node.
+     */
+    private double window(int node, double x, int period, Workspace ws) {
+        if (Double.isNaN(x)) {
+            return ws.current[node];
+        }
+        int slot = windowOffset[node] + ws.counts[node] % period;
+        if (ws.counts[node] >= period) {
+            double dropped = ws.windows[slot];
+            ws.sums[node] -= dropped;
+            ws.sums2[node] -= dropped * dropped;
+        }
+        ws.windows[slot] = x;
+        ws.sums[node] += x;
+        ws.sums2[node] += x * x;
+        ws.counts[node]++;
+        if (ws.counts[node] < period) {
+            return Double.NaN;
+        }
+        if (ops[node] == Op.MAX || ops[node] == Op.MIN) {
+            double extreme = ws.windows[windowOffset[node]];
+            for (int k = 1; k < period; k++) {
+                double value = ws.windows[windowOffset[node] + k];
+                extreme = ops[node] == Op.MAX ? Math.max(extreme, value) : Math.min(extreme, value);
+            }
+            return extreme;
+        }
+        double mean = ws.sums[node] / period;
+        return ops[node] == Op.SMA ? mean : Math.sqrt(Math.max(0.0, ws.sums2[node] / period - mean * mean));
+    }
+
+    /**
+     * True when every entry condition holds on the last evaluated bar. A program without entry
+     * conditions never signals.
+     */
+    public boolean entry(Workspace ws) {
+        if (entry.length == 0) {
+            return false;
+        }
+        for (int[] condition : entry) {
+            if (!holds(condition, ws, Double.NaN)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * True when any exit condition holds on the last evaluated bar. Stop loss and target conditions
+     * need the position's entry price; pass NaN when there is no position.
+     */
+    public boolean exit(Workspace ws, double entryPrice) {
+        for (int[] condition : exit) {
+            if (holds(condition, ws, entryPrice)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean holds(int[] condition, Workspace ws, double entryPrice) {
+        int kind = condition[0];
+        if (kind == STOP_LOSS) {
+            return !Double.isNaN(entryPrice) && ws.lastClose <= entryPrice * (1 - stopLossPct / 100.0);
+        }
+        if (kind == TARGET) {
+            return !Double.isNaN(entryPrice) && ws.lastClose >= entryPrice * (1 + targetPct / 100.0);
+        }
+        double left = ws.current[condition[1]];
+        double right = ws.current[condition[2]];
+        // NaN (not enough history) fails every comparison
+        return switch (COMPARISONS[kind]) {
+            case GT -> left > right;
+            case GE -> left >= right;
+            case LT -> left < right;
+            case LE -> left <= right;
+            case CROSSES_ABOVE -> left > right && ws.previous[condition[1]] <= ws.previous[condition[2]];
+            case CROSSES_BELOW -> left < right && ws.previous[condition[1]] >= ws.previous[condition[2]];
+        };
+    }
+
+    /**
+     * Bars of history that evaluating the conditions needs: {@link #evaluate} over only the last
+     * lookback() bars of a longer series decides entries and exits as over all of it, up to the
+     * seed of an exponential average weighing under 0.1%. Integer.MAX_VALUE when a condition reads
+     * VWAP or OBV, which depend on the whole series.
+     */
+    public int lookback() {
+        return lookback;
+    }
+
+    /**
+     * Number of distinct indicator nodes after deduplication.
+     */
+    public int nodeCount() {
+        return ops.length;
+    }
+
+    public int entryCount() {
+        return entry.length;
+    }
+
+    public int exitCount() {
+        return exit.length;
+    }
+
+    /**
+     * Node computing a named indicator declared by the strategy (e.g. "EMA_9", "BB_UPPER_20"), or -1.
+     */
+    public int output(String name) {
+        return outputs.getOrDefault(name, -1);
+    }
+
+    /**
+     * Names of the declared indicators this program computes.
+     */
+    public Set<String> outputNames() {
+        return outputs.keySet();
+    }
+
+    /**
+     * Canonical expression of a node, e.g. "ema(close,9)".
+     */
+    public String label(int node) {
+        return labels[node];
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Builds the node DAG. Every factory method returns the existing node when an identical
+     * expression was added before, which is what shares subexpressions between conditions.
+     */
+    public static final class Builder {
+        private final List<Op> ops = new ArrayList<>();
+        private final List<Integer> inputA = new ArrayList<>();
+        private final List<Integer> inputB = new ArrayList<>();
+        private final List<Integer> periods = new ArrayList<>();
+        private final List<Double> constants = new ArrayList<>();
+        private final List<String> labels = new ArrayList<>();
+        private final Map<String, Integer> byLabel = new HashMap<>();
+        private final Map<String, Integer> outputs = new HashMap<>();
+        private final List<int[]> entry = new ArrayList<>();
+        private final List<int[]> exit = new ArrayList<>();
+        private WindowKernels kernels = WindowKernels.scalar();
+
+        private Builder() {
+        }
+
+        public int source(Field field) {
+            return node(Op.SOURCE, -1, -1, field.ordinal(), 0.0, field.name().toLowerCase());
+        }
+
+        public int constant(double value) {
+            return node(Op.CONST, -1, -1, 0, value, Double.toString(value));
+        }
+
+        public int ema(int input, int period) {
+            requirePeriod(period);
+            return node(Op.EMA, input, -1, period, 0.0, "ema(" + labels.get(input) + "," + period + ")");
+        }
+
+        public int sma(int input, int period) {
+            requirePeriod(period);
+            return node(Op.SMA, input, -1, period, 0.0, "sma(" + labels.get(input) + "," + period + ")");
+        }
+
+        /**
+         * Highest value over the last period bars, the current one included.
+         */
+        public int highest(int input, int period) {
+            requirePeriod(period);
+            return node(Op.MAX, input, -1, period, 0.0, "max(" + labels.get(input) + "," + period + ")");
+        }
+
+        /**
+         * Lowest value over the last period bars, the current one included.
+         */
+        public int lowest(int input, int period) {
+            requirePeriod(period);
+            return node(Op.MIN, input, -1, period, 0.0, "min(" + labels.get(input) + "," + period + ")");
+        }
+
+        /**
+         * Wilder's smoothing (α = 1 / period), as used by RSI and ATR.
+         */
+        public int wilder(int input, int period) {
+            requirePeriod(period);
+            return node(Op.WILDER, input, -1, period, 0.0, "wilder(" + labels.get(input) + "," + period + ")");
+        }
+
+        /**
+         * Rolling population standard deviation.
+         */
+        public int stddev(int input, int period) {
+            requirePeriod(period);
+            return node(Op.STDDEV, input, -1, period, 0.0, "stddev(" + labels.get(input) + "," + period + ")");
+        }
+
+        public int add(int a, int b) {
+            return node(Op.ADD, a, b, 0, 0.0, "(" + labels.get(a) + "+" + labels.get(b) + ")");
+        }
+
+        public int subtract(int a, int b) {
+            return node(Op.SUB, a, b, 0, 0.0, "(" + labels.get(a) + "-" + labels.get(b) + ")");
+        }
+
+        public int multiply(int a, int b) {
+            return node(Op.MUL, a, b, 0, 0.0, "(" + labels.get(a) + "*" + labels.get(b) + ")");
+        }
+
+        public int macdLine(int input, int fast, int slow) {
+            return subtract(ema(input, fast), ema(input, slow));
+        }
+
+        public int macdSignal(int input, int fast, int slow, int signal) {
+            return ema(macdLine(input, fast, slow), signal);
+        }
+
+        /**
+         * Wilder RSI: 100 - 100 / (1 + avgGain / avgLoss) over bar-to-bar changes of the input.
+         */
+        public int rsi(int input, int period) {
+            int change = node(Op.CHANGE, input, -1, 0, 0.0, "change(" + labels.get(input) + ")");
+            int gain = wilder(node(Op.GAIN, change, -1, 0, 0.0, "gain(" + labels.get(change) + ")"), period);
+            int loss = wilder(node(Op.LOSS, change, -1, 0, 0.0, "loss(" + labels.get(change) + ")"), period);
+            return node(Op.RSI, gain, loss, period, 0.0, "rsi(" + labels.get(input) + "," + period + ")");
+        }
+
+        public int atr(int period) {
+            return wilder(node(Op.TRUE_RANGE, -1, -1, 0, 0.0, "true_range"), period);
+        }
+
+        /**
+         * Middle ± width × standard deviation; a negative width gives the lower band.
+         */
+        public int bollinger(int input, int period, double width) {
+            int middle = sma(input, period);
+            return width == 0.0 ? middle : add(middle, multiply(constant(width), stddev(input, period)));
+        }
+
+        /**
+         * Volume-weighted average of the typical price, restarting every trading day.
+         */
+        public int vwap() {
+            return node(Op.VWAP, -1, -1, 0, 0.0, "vwap");
+        }
+
+        /**
+         * On-balance volume, accumulated from the first bar of the evaluated series.
+         */
+        public int obv() {
+            return node(Op.OBV, -1, -1, 0, 0.0, "obv");
+        }
+
+        /**
+         * Publishes a node under an indicator name, for conditions and callers to look it up.
+         */
+        public int output(String name, int node) {
+            outputs.put(name, node);
+            return node;
+        }
+
+        public int output(String name) {
+            return outputs.getOrDefault(name, -1);
+        }
+
+        public Builder entry(Comparison comparison, int left, int right) {
+            entry.add(new int[]{comparison.ordinal(), left, right});
+            return this;
+        }
+
+        public Builder exit(Comparison comparison, int left, int right) {
+            exit.add(new int[]{comparison.ordinal(), left, right});
+            return this;
+        }
+
+        public Builder exitOnStopLoss() {
+            exit.add(new int[]{STOP_LOSS});
+            return this;
+        }
+
+        public Builder exitOnTarget() {
+            exit.add(new int[]{TARGET});
+            return this;
+        }
+
+        /**
+         * Kernels for the column-fed rolling windows; scalar unless set.
+         */
+        public Builder kernels(WindowKernels kernels) {
+            this.kernels = kernels;
+            return this;
+        }
+
+        public SignalProgram build(double stopLossPct, double targetPct) {
+            return new SignalProgram(this, stopLossPct, targetPct);
+        }
+
+        private int node(Op op, int a, int b, int period, double constant, String label) {
+            Integer existing = byLabel.get(label);
+            if (existing != null) {
+                return existing;
+            }
+            // Inputs always exist before the node that reads them, so index order is evaluation order
+            int index = ops.size();
+            ops.add(op);
+            inputA.add(a);
+            inputB.add(b);
+            periods.add(period);
+            constants.add(constant);
+            labels.add(label);
+            byLabel.put(label, index);
+            return index;
+        }
+
+        private static void requirePeriod(int period) {
+            if (period < 1) {
+                throw new IllegalArgumentException("Indicator period must be positive: " + period);
+            }
+        }
+    }
+}
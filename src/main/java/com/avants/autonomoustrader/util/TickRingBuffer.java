@@ -0,0 +1,117 @@
+package com.avants.autonomoustrader.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Preallocated single-producer / multi-consumer ring of ticks stored as primitive columns.
+ * The producer never blocks and never allocates; consumers keep their own sequence and poll.
+ * A consumer that falls more than {@code capacity} ticks behind is moved forward to the oldest
+ * tick still held, and sees the gap through the sequence numbers handed to its handler.
+ */
+public class TickRingBuffer {
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle CURSOR;
+
+    static {
+        try {
+            CURSOR = MethodHandles.lookup().findVarHandle(TickRingBuffer.class, "cursor", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Receives ticks from {@link #poll}. Arguments are primitives so reading allocates nothing.
+     */
+    @FunctionalInterface
+    public interface TickHandler {
+        void onTick(long sequence, long instrumentToken, double lastPrice, long quantity, long volumeToday, long timestamp);
+    }
+
+    private final int capacity;
+    private final int mask;
+    /** Sequence held by each slot, or -1 while the producer is overwriting it. */
+    private final long[] slotSequences;
+    private final long[] tokens;
+    private final double[] prices;
+    private final long[] quantities;
+    private final long[] volumes;
+    private final long[] timestamps;
+    @SuppressWarnings("unused") // accessed through CURSOR
+    private volatile long cursor = -1;
+
+    public TickRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slotSequences = new long[capacity];
+        Arrays.fill(slotSequences, -1L);
+        this.tokens = new long[capacity];
+        this.prices = new double[capacity];
+        this.quantities = new long[capacity];
+        this.volumes = new long[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    /**
+     * Appends a tick. Must only be called from the single producer thread.
+     */
+    public void publish(long instrumentToken, double lastPrice, long quantity, long volumeToday, long timestamp) {
+        long sequence = (long) CURSOR.getOpaque(this) + 1;
+        int i = (int) (sequence & mask);
+        SLOT.setOpaque(slotSequences, i, -1L);
+        VarHandle.storeStoreFence();
+        tokens[i] = instrumentToken;
+        prices[i] = lastPrice;
+        quantities[i] = quantity;
+        volumes[i] = volumeToday;
+        timestamps[i] = timestamp;
+        SLOT.setRelease(slotSequences, i, sequence);
+        CURSOR.setRelease(this, sequence);
+    }
+
+    /**
+     * Highest published sequence, or -1 before the first tick.
+     */
+    public long cursor() {
+        return (long) CURSOR.getAcquire(this);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Delivers up to maxTicks ticks starting at nextSequence and returns the sequence to poll from next.
+     * Ticks overwritten while being read are skipped.
+     */
+    public long poll(long nextSequence, int maxTicks, TickHandler handler) {
+        long available = cursor();
+        long oldest = available - capacity + 1;
+        long sequence = Math.max(nextSequence, Math.max(oldest, 0));
+        long end = Math.min(available, sequence + maxTicks - 1);
+        for (; sequence <= end; sequence++) {
+            int i = (int) (sequence & mask);
+            long before = (long) SLOT.getAcquire(slotSequences, i);
+            if (before != sequence) {
+                continue; // lapped by the producer
+            }
+            long token = tokens[i];
+            double price = prices[i];
+            long quantity = quantities[i];
+            long volume = volumes[i];
+            long timestamp = timestamps[i];
+            VarHandle.loadLoadFence();
+            if ((long) SLOT.getOpaque(slotSequences, i) != sequence) {
+                continue; // overwritten while reading
+            }
+            handler.onTick(sequence, token, price, quantity, volume, timestamp);
+        }
+        return sequence;
+    }
+}
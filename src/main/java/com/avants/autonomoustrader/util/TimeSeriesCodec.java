@@ -0,0 +1,289 @@
+package com.avants.autonomoustrader.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Gorilla-style compression of time series with one or more double values per timestamp.
+ * <ul>
+ *   <li>Timestamps (epoch seconds) are stored as delta-of-delta: 1 bit when points keep their
+ *       spacing, 9–16 bits for the jitter of a scheduled sampler, 36 bits for anything else;</li>
+ *   <li>each value column is XORed with its previous value: 1 bit when unchanged, otherwise the
+ *       meaningful bits of the XOR, reusing the previous leading/trailing-zero window when it fits.</li>
+ * </ul>
+ * The first point is stored raw. Bits are written MSB-first into a caller-supplied buffer at a base
+ * offset, by absolute index, so the stream can live in a memory-mapped file; bytes past the end of
+ * the stream must be zero. The encoder's whole state is a handful of numbers, so an appender can be
+ * resumed from a file header without decoding the stream.
+ */
+public final class TimeSeriesCodec {
+
+    /**
+     * Upper bound on the bytes one point adds for a given number of values.
+     */
+    public static int maxPointBytes(int width) {
+        return (64 + 36 + width * 77 + 7) / 8 + 1;
+    }
+
+    private TimeSeriesCodec() {
+    }
+
+    /**
+     * Appends points to a stream.
+     */
+    public static final class Encoder {
+
+        private final int width;
+        private long bitLength;
+        private int count;
+        private long previousTimestamp;
+        private long previousDelta;
+        private final long[] previousBits;
+        private final int[] leading;   // -1 before the first window
+        private final int[] trailing;
+
+        /**
+         * An encoder for an empty stream.
+         */
+        public Encoder(int width) {
+            this(width, 0, 0, 0, 0, new long[width], filled(width, -1), new int[width]);
+        }
+
+        /**
+         * Resumes an encoder from its saved state.
+         */
+        public Encoder(int width, long bitLength, int count, long previousTimestamp, long previousDelta,
+                       long[] previousBits, int[] leading, int[] trailing) {
+            if (width < 1 || previousBits.length != width || leading.length != width || trailing.length != width) {
+                throw new IllegalArgumentException("State must hold " + width + " value columns");
+            }
+            this.width = width;
+            this.bitLength = bitLength;
+            this.count = count;
+            this.previousTimestamp = previousTimestamp;
+            this.previousDelta = previousDelta;
+            this.previousBits = previousBits.clone();
+            this.leading = leading.clone();
+            this.trailing = trailing.clone();
+        }
+
+        /**
+         * Appends a point; the buffer must have {@link #maxPointBytes(int)} bytes free past the stream.
+         *
+         * @throws IllegalArgumentException when the timestamp goes backwards
+         */
+        public void append(ByteBuffer buffer, int base, long epochSeconds, double[] values) {
+            if (values.length != width) {
+                throw new IllegalArgumentException("Expected " + width + " values, got " + values.length);
+            }
+            if (count == 0) {
+                write(buffer, base, epochSeconds, 64);
+                for (int v = 0; v < width; v++) {
+                    previousBits[v] = Double.doubleToRawLongBits(values[v]);
+                    write(buffer, base, previousBits[v], 64);
+                }
+                previousTimestamp = epochSeconds;
+                previousDelta = 0;
+                count = 1;
+                return;
+            }
+            long delta = epochSeconds - previousTimestamp;
+            if (delta < 0) {
+                throw new IllegalArgumentException("Timestamp " + epochSeconds + " is before " + previousTimestamp);
+            }
+            long dod = delta - previousDelta;
+            if (dod == 0) {
+                write(buffer, base, 0b0, 1);
+            } else if (dod >= -63 && dod <= 64) {
+                write(buffer, base, 0b10, 2);
+                write(buffer, base, dod + 63, 7);
+            } else if (dod >= -255 && dod <= 256) {
+                write(buffer, base, 0b110, 3);
+                write(buffer, base, dod + 255, 9);
+            } else if (dod >= -2047 && dod <= 2048) {
+                write(buffer, base, 0b1110, 4);
+                write(buffer, base, dod + 2047, 12);
+            } else {
+                write(buffer, base, 0b1111, 4);
+                write(buffer, base, dod, 32);
+            }
+            previousTimestamp = epochSeconds;
+            previousDelta = delta;
+
+            for (int v = 0; v < width; v++) {
+                long bits = Double.doubleToRawLongBits(values[v]);
+                long xor = bits ^ previousBits[v];
+                previousBits[v] = bits;
+                if (xor == 0) {
+                    write(buffer, base, 0b0, 1);
+                    continue;
+                }
+                int lead = Math.min(31, Long.numberOfLeadingZeros(xor));
+                int trail = Long.numberOfTrailingZeros(xor);
+                if (leading[v] >= 0 && lead >= leading[v] && trail >= trailing[v]) {
+                    write(buffer, base, 0b10, 2);
+                    write(buffer, base, xor >>> trailing[v], 64 - leading[v] - trailing[v]);
+                } else {
+                    int length = 64 - lead - trail;
+                    write(buffer, base, 0b11, 2);
+                    write(buffer, base, lead, 5);
+                    write(buffer, base, length & 63, 6); // 64 is stored as 0
+                    write(buffer, base, xor >>> trail, length);
+                    leading[v] = lead;
+                    trailing[v] = trail;
+                }
+            }
+            count++;
+        }
+
+        public int width() {
+            return width;
+        }
+
+        public long bitLength() {
+            return bitLength;
+        }
+
+        public int count() {
+            return count;
+        }
+
+        public long previousTimestamp() {
+            return previousTimestamp;
+        }
+
+        public long previousDelta() {
+            return previousDelta;
+        }
+
+        public long previousBits(int column) {
+            return previousBits[column];
+        }
+
+        public int leading(int column) {
+            return leading[column];
+        }
+
+        public int trailing(int column) {
+            return trailing[column];
+        }
+
+        private void write(ByteBuffer buffer, int base, long value, int bits) {
+            long position = bitLength;
+            int remaining = bits;
+            while (remaining > 0) {
+                int index = base + (int) (position >>> 3);
+                int free = 8 - (int) (position & 7);
+                int take = Math.min(free, remaining);
+                int chunk = (int) (value >>> (remaining - take)) & ((1 << take) - 1);
+                buffer.put(index, (byte) (buffer.get(index) | chunk << (free - take)));
+                remaining -= take;
+                position += take;
+            }
+            bitLength = position;
+        }
+    }
+
+    /**
+     * Reads the points of a stream in order.
+     */
+    public static final class Decoder {
+
+        private final ByteBuffer buffer;
+        private final int base;
+        private final int width;
+        private final int count;
+        private long position;
+        private int read;
+        private long timestamp;
+        private long delta;
+        private final long[] bits;
+        private final int[] leading;
+        private final int[] trailing;
+
+        public Decoder(ByteBuffer buffer, int base, int width, int count) {
+            this.buffer = buffer;
+            this.base = base;
+            this.width = width;
+            this.count = count;
+            this.bits = new long[width];
+            this.leading = new int[width];
+            this.trailing = new int[width];
+        }
+
+        /**
+         * Moves to the next point.
+         *
+         * @return false after the last point
+         */
+        public boolean next() {
+            if (read == count) {
+                return false;
+            }
+            if (read++ == 0) {
+                timestamp = read(64);
+                for (int v = 0; v < width; v++) {
+                    bits[v] = read(64);
+                }
+                return true;
+            }
+            long dod;
+            if (read(1) == 0) {
+                dod = 0;
+            } else if (read(1) == 0) {
+                dod = read(7) - 63;
+            } else if (read(1) == 0) {
+                dod = read(9) - 255;
+            } else if (read(1) == 0) {
+                dod = read(12) - 2047;
+            } else {
+                dod = (int) read(32);
+            }
+            delta += dod;
+            timestamp += delta;
+
+            for (int v = 0; v < width; v++) {
+                if (read(1) == 0) {
+                    continue;
+                }
+                if (read(1) == 1) {
+                    leading[v] = (int) read(5);
+                    int length = (int) read(6);
+                    trailing[v] = 64 - leading[v] - (length == 0 ? 64 : length);
+                }
+                int length = 64 - leading[v] - trailing[v];
+                bits[v] ^= read(length) << trailing[v];
+            }
+            return true;
+        }
+
+        public long timestamp() {
+            return timestamp;
+        }
+
+        public double value(int column) {
+            return Double.longBitsToDouble(bits[column]);
+        }
+
+        private long read(int n) {
+            long value = 0;
+            int remaining = n;
+            while (remaining > 0) {
+                int index = base + (int) (position >>> 3);
+                int available = 8 - (int) (position & 7);
+                int take = Math.min(available, remaining);
+                int chunk = (buffer.get(index) >>> (available - take)) & ((1 << take) - 1);
+                value = value << take | chunk;
+                remaining -= take;
+                position += take;
+            }
+            return value;
+        }
+    }
+
+    private static int[] filled(int length, int value) {
+        int[] array = new int[length];
+        Arrays.fill(array, value);
+        return array;
+    }
+}
@@ -0,0 +1,111 @@
+package com.avants.autonomoustrader.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Thread-safe collector of the k best items under an ordering, in O(log k) per offer.
+ * Items live in a binary heap whose root is the worst item kept, so once k items are held anything
+ * not better than the root is rejected after a single comparison, and nothing beyond the k survivors
+ * is ever sorted.
+ */
+public final class TopKCollector<T> {
+
+    private final int capacity;
+    private final Comparator<? super T> order;
+    private final Object[] heap;
+    private int size;
+
+    /**
+     * @param capacity Number of items to keep
+     * @param order    Best first: the collector keeps the items that sort first
+     */
+    public TopKCollector(int capacity, Comparator<? super T> order) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.order = order;
+        this.heap = new Object[capacity];
+    }
+
+    /**
+     * Keeps the item if it is among the k best seen so far.
+     *
+     * @return false when the item was rejected
+     */
+    public synchronized boolean offer(T item) {
+        if (size < capacity) {
+            heap[size] = item;
+            siftUp(size++);
+            return true;
+        }
+        if (order.compare(item, at(0)) >= 0) {
+            return false;
+        }
+        heap[0] = item;
+        siftDown(0);
+        return true;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Items kept so far, best first.
+     */
+    public List<T> sorted() {
+        List<T> items = snapshot();
+        items.sort(order);
+        return items;
+    }
+
+    private synchronized List<T> snapshot() {
+        List<T> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(at(i));
+        }
+        return items;
+    }
+
+    // Max-heap under order: every parent sorts after its children, the root is the worst item kept
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (order.compare(at(i), at(parent)) <= 0) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int worse = left + 1 < size && order.compare(at(left + 1), at(left)) > 0 ? left + 1 : left;
+            if (order.compare(at(worse), at(i)) <= 0) {
+                return;
+            }
+            swap(i, worse);
+            i = worse;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T at(int i) {
+        return (T) heap[i];
+    }
+
+    private void swap(int i, int j) {
+        Object tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
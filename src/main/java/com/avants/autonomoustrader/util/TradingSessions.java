@@ -0,0 +1,114 @@
+package com.avants.autonomoustrader.util;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+
+/**
+ * NSE cash-market session calendar (09:15–15:30 IST, Monday to Friday) and Kite interval helpers.
+ * Exchange holidays are not modelled; a weekday without bars is simply a gap that backfills to nothing.
+ */
+public class TradingSessions {
+
+    public static final LocalTime SESSION_OPEN = LocalTime.of(9, 15);
+    public static final LocalTime SESSION_CLOSE = LocalTime.of(15, 30);
+    public static final int SESSION_MINUTES = 375;
+
+    public static boolean isTradingDay(LocalDate date) {
+        DayOfWeek day = date.getDayOfWeek();
+        return day != DayOfWeek.SATURDAY && day != DayOfWeek.SUNDAY;
+    }
+
+    public static LocalDate previousTradingDay(LocalDate date) {
+        LocalDate d = date.minusDays(1);
+        while (!isTradingDay(d)) {
+            d = d.minusDays(1);
+        }
+        return d;
+    }
+
+    public static long sessionOpen(LocalDate date) {
+        return date.atTime(SESSION_OPEN).atZone(KiteTime.IST).toInstant().toEpochMilli();
+    }
+
+    public static long sessionClose(LocalDate date) {
+        return date.atTime(SESSION_CLOSE).atZone(KiteTime.IST).toInstant().toEpochMilli();
+    }
+
+    public static LocalDate tradingDate(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(KiteTime.IST).toLocalDate();
+    }
+
+    /**
+     * True when the instant falls inside a regular session.
+     */
+    public static boolean isSessionOpen(long epochMillis) {
+        ZonedDateTime t = Instant.ofEpochMilli(epochMillis).atZone(KiteTime.IST);
+        LocalTime time = t.toLocalTime();
+        return isTradingDay(t.toLocalDate()) && !time.isBefore(SESSION_OPEN) && time.isBefore(SESSION_CLOSE);
+    }
+
+    /**
+     * The most recent session close at or before the given instant.
+     */
+    public static long lastCloseAtOrBefore(long epochMillis) {
+        LocalDate date = tradingDate(epochMillis);
+        if (isTradingDay(date) && sessionClose(date) <= epochMillis) {
+            return sessionClose(date);
+        }
+        return sessionClose(previousTradingDay(date));
+    }
+
+    /**
+     * Minutes per bar for a Kite interval name ("minute", "5minute", "60minute"), or 0 for "day".
+     */
+    public static int intervalMinutes(String interval) {
+        if ("day".equals(interval)) {
+            return 0;
+        }
+        if ("minute".equals(interval)) {
+            return 1;
+        }
+        if (interval.endsWith("minute")) {
+            return Integer.parseInt(interval.substring(0, interval.length() - "minute".length()));
+        }
+        throw new IllegalArgumentException("Unsupported candle interval: " + interval);
+    }
+
+    /**
+     * Number of bars a complete session produces for an intraday interval (the last bar may be short).
+     */
+    public static int barsPerSession(int intervalMinutes) {
+        return (SESSION_MINUTES + intervalMinutes - 1) / intervalMinutes;
+    }
+
+    /**
+     * The instant up to which finished bars of this interval can exist. Stored history synced
+     * at or after this point has nothing new to fetch.
+     */
+    public static long lastFinishedBarBoundary(String interval, long nowMillis) {
+        int minutes = intervalMinutes(interval);
+        if (minutes == 0 || !isSessionOpen(nowMillis)) {
+            return lastCloseAtOrBefore(nowMillis);
+        }
+        long open = sessionOpen(tradingDate(nowMillis));
+        long step = minutes * 60_000L;
+        return open + ((nowMillis - open) / step) * step;
+    }
+
+    /**
+     * The instant a bar of this interval starting at barStart is finished: the end of its step,
+     * or the session close for daily bars and for the last, shorter intraday bar.
+     */
+    public static long barClose(String interval, long barStart) {
+        long close = sessionClose(tradingDate(barStart));
+        int minutes = intervalMinutes(interval);
+        return minutes == 0 ? close : Math.min(barStart + minutes * 60_000L, close);
+    }
+
+    private TradingSessions() {
+        // Utility class
+    }
+}
@@ -0,0 +1,115 @@
+package com.avants.autonomoustrader.util;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link WindowKernels} on the Java Vector API, at the CPU's preferred vector width.
+ * Loaded reflectively by {@link WindowKernels#select} so the application still starts, on the scalar
+ * kernels, when the JVM runs without --add-modules jdk.incubator.vector.
+ * <p>
+ * Rolling sums vectorise the window differences and keep only the running sum scalar; rolling
+ * extremes vectorise the combining half of the van Herk/Gil-Werman scheme.
+ */
+final class VectorWindowKernels implements WindowKernels {
+
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED; // same lane count as DOUBLES
+
+    @Override
+    public void rollingSum(double[] in, int n, int period, double[] out) {
+        ScalarWindowKernels.requirePeriod(period);
+        // out[i] - out[i - 1] = in[i] - in[i - period]: the differences are independent and vectorise,
+        // leaving a running sum with one dependent add per element instead of two
+        int head = Math.min(period, n);
+        System.arraycopy(in, 0, out, 0, head);
+        int i = head;
+        for (int bound = head + DOUBLES.loopBound(n - head); i < bound; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, in, i)
+                    .sub(DoubleVector.fromArray(DOUBLES, in, i - period))
+                    .intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = in[i] - in[i - period];
+        }
+        double sum = 0.0;
+        for (int k = 0; k < n; k++) {
+            sum += out[k];
+            out[k] = sum;
+        }
+        ScalarWindowKernels.clearWarmUp(out, n, period);
+    }
+
+    @Override
+    public void rollingMean(double[] in, int n, int period, double[] out) {
+        rollingSum(in, n, period, out);
+        int i = period - 1;
+        for (; i + DOUBLES.length() <= n; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, out, i).div(period).intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] /= period;
+        }
+    }
+
+    @Override
+    public void rollingMax(double[] in, int n, int period, double[] out, double[] scratch) {
+        ScalarWindowKernels.blockScans(in, n, period, out, scratch, true);
+        int i = period - 1;
+        for (; i + DOUBLES.length() <= n; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, scratch, i - period + 1)
+                    .max(DoubleVector.fromArray(DOUBLES, out, i))
+                    .intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = Math.max(scratch[i - period + 1], out[i]);
+        }
+        ScalarWindowKernels.clearWarmUp(out, n, period);
+    }
+
+    @Override
+    public void rollingMin(double[] in, int n, int period, double[] out, double[] scratch) {
+        ScalarWindowKernels.blockScans(in, n, period, out, scratch, false);
+        int i = period - 1;
+        for (; i + DOUBLES.length() <= n; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, scratch, i - period + 1)
+                    .min(DoubleVector.fromArray(DOUBLES, out, i))
+                    .intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = Math.min(scratch[i - period + 1], out[i]);
+        }
+        ScalarWindowKernels.clearWarmUp(out, n, period);
+    }
+
+    @Override
+    public void greaterThan(double[] a, double[] b, int n, boolean[] out) {
+        int i = 0;
+        for (int bound = DOUBLES.loopBound(n); i < bound; i += DOUBLES.length()) {
+            DoubleVector.fromArray(DOUBLES, a, i)
+                    .compare(VectorOperators.GT, DoubleVector.fromArray(DOUBLES, b, i))
+                    .intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = a[i] > b[i];
+        }
+    }
+
+    @Override
+    public void toDouble(long[] in, int n, double[] out) {
+        int i = 0;
+        for (int bound = LONGS.loopBound(n); i < bound; i += LONGS.length()) {
+            ((DoubleVector) LongVector.fromArray(LONGS, in, i).convert(VectorOperators.L2D, 0)).intoArray(out, i);
+        }
+        for (; i < n; i++) {
+            out[i] = in[i];
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector";
+    }
+}
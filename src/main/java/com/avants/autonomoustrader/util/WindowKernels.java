@@ -0,0 +1,68 @@
+package com.avants.autonomoustrader.util;
+
+/**
+ * Array kernels behind indicator and condition evaluation: rolling sums, means, maxima and minima
+ * over candle columns, and element-wise comparisons. Every method reads the first n elements of its
+ * inputs and writes the first n elements of out; rolling outputs are NaN until a full window exists.
+ * <p>
+ * Two implementations compute the same results: a scalar one, and one on the Java Vector API
+ * ({@code jdk.incubator.vector}) that is used when the module is available at runtime.
+ */
+public interface WindowKernels {
+
+    /**
+     * out[i] = in[i - period + 1] + ... + in[i]
+     */
+    void rollingSum(double[] in, int n, int period, double[] out);
+
+    /**
+     * out[i] = rolling sum / period
+     */
+    void rollingMean(double[] in, int n, int period, double[] out);
+
+    /**
+     * out[i] = max(in[i - period + 1 .. i]); scratch must hold at least n elements.
+     */
+    void rollingMax(double[] in, int n, int period, double[] out, double[] scratch);
+
+    /**
+     * out[i] = min(in[i - period + 1 .. i]); scratch must hold at least n elements.
+     */
+    void rollingMin(double[] in, int n, int period, double[] out, double[] scratch);
+
+    /**
+     * out[i] = a[i] &gt; b[i]
+     */
+    void greaterThan(double[] a, double[] b, int n, boolean[] out);
+
+    /**
+     * Widens a long column (volume) to doubles.
+     */
+    void toDouble(long[] in, int n, double[] out);
+
+    /**
+     * "scalar" or "vector", for logs and benchmarks.
+     */
+    String name();
+
+    static WindowKernels scalar() {
+        return ScalarWindowKernels.INSTANCE;
+    }
+
+    /**
+     * The Vector API kernels when preferred and jdk.incubator.vector is resolvable (the JVM was started
+     * with --add-modules jdk.incubator.vector), otherwise the scalar ones.
+     */
+    static WindowKernels select(boolean preferVector) {
+        if (preferVector) {
+            try {
+                return (WindowKernels) Class.forName("com.avants.autonomoustrader.util.VectorWindowKernels")
+                        .getDeclaredConstructor()
+                        .newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Module not added to this JVM — fall through to the scalar kernels
+            }
+        }
+        return scalar();
+    }
+}
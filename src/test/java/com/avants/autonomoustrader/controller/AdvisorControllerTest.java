@@ -1,23 +1,36 @@
 package com.avants.autonomoustrader.controller;
 
 import com.avants.autonomoustrader.dto.CandidateDto;
+import com.avants.autonomoustrader.service.ScanProgress;
 import com.avants.autonomoustrader.service.TechnicalScannerService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zerodhatech.kiteconnect.KiteConnect;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -50,6 +63,58 @@ public class AdvisorControllerTest {
                 .andExpect(jsonPath("$[0].symbol").value("RELIANCE"))
                 .andExpect(jsonPath("$[0].currentPrice").value(2500.0))
                 .andExpect(jsonPath("$[0].ema200").value(2400.0))
-                .andExpect(jsonPath("$[0].distancePct").value(4.16));
+                .andExpect(jsonPath("$[0].distancePct").value(4.16))
+                .andExpect(header().exists(AdvisorController.AS_OF_HEADER))
+                .andExpect(header().string(AdvisorController.STALE_HEADER, "false"));
+    }
+
+    @Test
+    public void testStreamTopCandidatesWritesEachCandidateThenTheRanking() throws Exception {
+        CandidateDto reliance = new CandidateDto("RELIANCE", 2500.0, 2400.0, 4.16);
+        CandidateDto tcs = new CandidateDto("TCS", 3450.0, 3400.0, 1.47);
+        try {
+            when(technicalScannerService.streamCandidates(eq(1), any(ScanProgress.class), any())).thenAnswer(invocation -> {
+                Consumer<CandidateDto> onCandidate = invocation.getArgument(2);
+                onCandidate.accept(reliance);
+                onCandidate.accept(tcs);
+                return List.of(tcs);
+            });
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException e) {
+            throw new RuntimeException(e);
+        }
+
+        MvcResult streaming = mockMvc.perform(get("/api/v1/advice/top-candidates/stream").param("topK", "1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(streaming))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON_VALUE))
+                .andReturn().getResponse().getContentAsString();
+
+        // One line per candidate in the order found, then the ranked summary
+        List<String> lines = body.lines().toList();
+        assertEquals(3, lines.size());
+        ObjectMapper mapper = new ObjectMapper();
+        JsonNode first = mapper.readTree(lines.get(0));
+        assertEquals("candidate", first.get("type").asText());
+        assertEquals("RELIANCE", first.get("candidate").get("symbol").asText());
+        assertEquals("TCS", mapper.readTree(lines.get(1)).get("candidate").get("symbol").asText());
+        JsonNode summary = mapper.readTree(lines.get(2));
+        assertEquals("summary", summary.get("type").asText());
+        assertEquals(1, summary.get("ranked").size());
+        assertEquals("TCS", summary.get("ranked").get(0).get("symbol").asText());
+    }
+
+    @Test
+    public void testTopKOutsideTheRankingIsRejected() throws Exception {
+        String tooMany = Integer.toString(TechnicalScannerService.MAX_CANDIDATES + 1);
+        mockMvc.perform(get("/api/v1/advice/top-candidates").param("topK", tooMany))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/advice/top-candidates").param("topK", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/advice/top-candidates/stream").param("topK", tooMany))
+                .andExpect(status().isBadRequest());
     }
 }
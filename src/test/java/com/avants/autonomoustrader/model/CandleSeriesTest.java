@@ -0,0 +1,76 @@
+package com.avants.autonomoustrader.model;
+
+import com.avants.autonomoustrader.util.KiteTime;
+import com.zerodhatech.models.HistoricalData;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandleSeriesTest {
+
+    private static final long START = KiteTime.parseTimestamp("2025-01-01T09:15:00+0530");
+
+    private static CandleSeries minutes(int count) {
+        List<HistoricalData> bars = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            HistoricalData bar = new HistoricalData();
+            bar.timeStamp = KiteTime.formatTimestamp(START + i * 60_000L);
+            bar.open = 100 + i;
+            bar.high = 101 + i;
+            bar.low = 99 + i;
+            bar.close = 100.5 + i;
+            bar.volume = 10L * i;
+            bars.add(bar);
+        }
+        return CandleSeries.of(bars);
+    }
+
+    @Test
+    void shouldConvertKiteCandlesIntoColumns() {
+        CandleSeries series = minutes(5);
+
+        assertEquals(5, series.size());
+        assertEquals(START + 4 * 60_000L, series.lastTimestamp());
+        assertEquals(102.0, series.open(2));
+        assertEquals(104.5, series.lastClose());
+        assertEquals(30L, series.volume(3));
+    }
+
+    @Test
+    void shouldSliceWithoutCopying() {
+        CandleSeries series = minutes(100);
+
+        CandleSeries slice = series.slice(10, 20).slice(5, 10);
+        assertEquals(5, slice.size());
+        assertEquals(series.close(15), slice.close(0));
+        assertEquals(series.timestamp(19), slice.lastTimestamp());
+        assertThrows(IndexOutOfBoundsException.class, () -> slice.close(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> series.slice(90, 101));
+    }
+
+    @Test
+    void shouldSelectWindowsByTime() {
+        CandleSeries series = minutes(60);
+
+        CandleSeries window = series.window(START + 10 * 60_000L, START + 14 * 60_000L);
+        assertEquals(5, window.size());
+        assertEquals(START + 10 * 60_000L, window.firstTimestamp());
+        assertEquals(0, series.window(START - 120_000L, START - 60_000L).size());
+        assertEquals(3, series.last(3).size());
+        assertEquals(series.lastClose(), series.last(3).lastClose());
+        assertArrayEquals(new double[]{157.5, 158.5, 159.5}, series.last(3).closes());
+    }
+
+    @Test
+    void shouldRoundTripThroughHistoricalData() {
+        CandleSeries series = minutes(3);
+
+        HistoricalData data = series.slice(1, 3).toHistoricalData();
+        assertEquals(2, data.dataArrayList.size());
+        assertEquals(KiteTime.formatTimestamp(START + 60_000L), data.dataArrayList.get(0).timeStamp);
+        assertEquals(102.5, data.dataArrayList.get(1).close);
+    }
+}
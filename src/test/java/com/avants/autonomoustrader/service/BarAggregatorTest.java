@@ -0,0 +1,170 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.util.KiteTime;
+import com.avants.autonomoustrader.util.TradingSessions;
+import com.zerodhatech.models.HistoricalData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BarAggregatorTest {
+
+    private static final long TOKEN = 738561L;
+    private static final String KEY = "738561";
+    private static final LocalDate MONDAY = LocalDate.of(2026, 3, 16);
+    private static final long OPEN = TradingSessions.sessionOpen(MONDAY);
+
+    @TempDir
+    Path tempDir;
+
+    private CandleStore candleStore;
+    private BarAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        candleStore = new CandleStore(tempDir.toString());
+        // Wall clock never overtakes the ticks, so bars are finished by tick time alone
+        aggregator = new BarAggregator(null, candleStore, true, () -> 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        candleStore.close();
+    }
+
+    @Test
+    void testTicksBuildMinuteBarsAndRollUps() {
+        seedSyncedThroughPreviousClose();
+        connectAt(OPEN - 60_000);
+        aggregator.onTick(TOKEN, 99, 1_000, 1_000, OPEN - 10_000); // pre-open tick: the stream is live before 09:15
+
+        // 09:15 .. 09:20, two ticks per minute; day volume grows by 100 per tick
+        long volumeToday = 1_000;
+        for (int minute = 0; minute < 6; minute++) {
+            double base = 100 + minute;
+            volumeToday += 100;
+            aggregator.onTick(TOKEN, base, 100, volumeToday, OPEN + minute * 60_000L + 1_000);
+            volumeToday += 100;
+            aggregator.onTick(TOKEN, base + 0.5, 100, volumeToday, OPEN + minute * 60_000L + 30_000);
+        }
+        aggregator.advanceClock(OPEN + 6 * 60_000L);
+
+        List<HistoricalData> minutes = candleStore.read(KEY, "minute", OPEN, OPEN + 3_600_000L).dataArrayList;
+        assertEquals(6, minutes.size());
+        assertEquals(OPEN, KiteTime.parseTimestamp(minutes.get(0).timeStamp));
+        assertEquals(100.0, minutes.get(0).open);
+        assertEquals(100.5, minutes.get(0).close);
+        assertEquals(200, minutes.get(1).volume);
+
+        List<HistoricalData> fives = candleStore.read(KEY, "5minute", OPEN, OPEN + 3_600_000L).dataArrayList;
+        assertEquals(1, fives.size());
+        assertEquals(100.0, fives.get(0).open);
+        assertEquals(104.5, fives.get(0).high);
+        assertEquals(100.0, fives.get(0).low);
+        assertEquals(104.5, fives.get(0).close);
+        assertEquals(1_000, fives.get(0).volume);
+
+        List<HistoricalData> threes = candleStore.read(KEY, "3minute", OPEN, OPEN + 3_600_000L).dataArrayList;
+        assertEquals(2, threes.size());
+
+        // The stored minute history is now synced through 09:21, so a scan needs no Kite call for it
+        CandleStore.Coverage coverage = candleStore.coverage(KEY, "minute");
+        assertTrue(coverage.syncedTo() >= OPEN + 6 * 60_000L);
+        assertEquals(coverage.lastBarTs(), coverage.verifiedTo() - 60_000L);
+        // six 1-minute bars, 3minute 09:15 and 09:18, 5minute 09:15; later bars are still forming
+        assertEquals(9, aggregator.barsWritten());
+    }
+
+    @Test
+    void testNothingPersistedWhenStoreHasAHoleBeforeTheBar() {
+        // No prior sync: persisting today's bars would hide the missing history from the REST sync
+        connectAt(OPEN - 60_000);
+        aggregator.onTick(TOKEN, 100, 1, 10, OPEN + 1_000);
+        aggregator.onTick(TOKEN, 101, 1, 20, OPEN + 61_000);
+        aggregator.advanceClock(OPEN + 120_000);
+
+        assertTrue(candleStore.coverage(KEY, "minute").isEmpty());
+        assertEquals(0, aggregator.barsWritten());
+    }
+
+    @Test
+    void testBarInProgressAtStartupIsNotPersisted() {
+        seedSyncedThroughPreviousClose();
+        connectAt(OPEN - 60_000);
+
+        // First tick arrives mid-bar at 09:17:30, so the 09:17 bar and the 09:15 five-minute bar are partial
+        aggregator.onTick(TOKEN, 100, 1, 10, OPEN + 150_000);
+        aggregator.onTick(TOKEN, 101, 1, 20, OPEN + 200_000);
+        aggregator.advanceClock(OPEN + 240_000);
+
+        assertEquals(0, candleStore.read(KEY, "minute", OPEN, OPEN + 3_600_000L).dataArrayList.size());
+        assertEquals(0, aggregator.barsWritten());
+    }
+
+    @Test
+    void testBarsSpanningAReconnectAreNotPersisted() {
+        seedSyncedThroughPreviousClose();
+        connectAt(OPEN - 60_000);
+        aggregator.onTick(TOKEN, 99, 1, 5, OPEN - 50_000); // snapshot tick on subscribe
+        aggregator.onTick(TOKEN, 100, 1, 10, OPEN + 1_000);
+        aggregator.onTick(TOKEN, 101, 1, 20, OPEN + 61_000);
+
+        // Feed drops and reconnects at 09:16:40: the 09:16 minute bar may have missed ticks
+        connectAt(OPEN + 100_000);
+        aggregator.onTick(TOKEN, 102, 1, 30, OPEN + 121_000);
+        aggregator.advanceClock(OPEN + 180_000);
+
+        // Only 09:15 is stored; 09:17 is complete but would hide the 09:16 hole until the REST sync fills it
+        List<HistoricalData> minutes = candleStore.read(KEY, "minute", OPEN, OPEN + 3_600_000L).dataArrayList;
+        assertEquals(1, minutes.size());
+        assertEquals(OPEN, KiteTime.parseTimestamp(minutes.get(0).timeStamp));
+        assertEquals(OPEN + 60_000, candleStore.coverage(KEY, "minute").syncedTo());
+        // The 09:15 three-minute bar also spans the reconnect
+        assertEquals(0, candleStore.read(KEY, "3minute", OPEN, OPEN + 3_600_000L).dataArrayList.size());
+    }
+
+    @Test
+    void testLastHourlyBarIsCutAtSessionClose() {
+        seedSyncedThroughPreviousClose();
+        connectAt(OPEN - 60_000);
+        long lastHour = OPEN + 6 * 3_600_000L; // 15:15
+        long close = TradingSessions.sessionClose(MONDAY);
+        for (long t = OPEN; t < close - 60_000L; t += 20_000L) {
+            aggregator.onTick(TOKEN, 100, 1, (t - OPEN) / 1_000, t);
+        }
+        aggregator.onTick(TOKEN, 105, 1, 30_000, close - 60_000L);
+
+        aggregator.advanceClock(close);
+
+        List<HistoricalData> hours = candleStore.read(KEY, "60minute", lastHour, lastHour).dataArrayList;
+        assertEquals(1, hours.size());
+        assertEquals(105.0, hours.get(0).close);
+        assertEquals(7, candleStore.read(KEY, "60minute", OPEN, close).dataArrayList.size());
+    }
+
+    private void connectAt(long timestamp) {
+        aggregator.onTick(TickStreamService.FEED_CONNECTED, Double.NaN, 0, 0, timestamp);
+    }
+
+    /**
+     * Stores one bar per interval on the previous trading day and marks history synced through its close.
+     */
+    private void seedSyncedThroughPreviousClose() {
+        LocalDate friday = TradingSessions.previousTradingDay(MONDAY);
+        long fridayClose = TradingSessions.sessionClose(friday);
+        for (String interval : BarAggregator.INTERVALS) {
+            HistoricalData bar = new HistoricalData();
+            bar.timeStamp = KiteTime.formatTimestamp(TradingSessions.sessionOpen(friday));
+            bar.open = bar.high = bar.low = bar.close = 99.0;
+            candleStore.append(KEY, interval, List.of(bar));
+            candleStore.markSynced(KEY, interval, TradingSessions.sessionOpen(friday), fridayClose + 60_000L, fridayClose + 60_000L);
+        }
+    }
+}
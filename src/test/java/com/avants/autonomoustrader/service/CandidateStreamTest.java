@@ -0,0 +1,60 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.CandidateDto;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandidateStreamTest {
+
+    private static final CandidateDto RELIANCE = new CandidateDto("RELIANCE", 2500.0, 2400.0, 4.16);
+    private static final CandidateDto TCS = new CandidateDto("TCS", 3450.0, 3400.0, 1.47);
+
+    @Test
+    void testPublisherWaitsForASlowReader() throws Exception {
+        CandidateStream stream = new CandidateStream(1);
+        assertTrue(stream.publish(RELIANCE));
+
+        CompletableFuture<Boolean> blocked = CompletableFuture.supplyAsync(() -> stream.publish(TCS));
+        Thread.sleep(50);
+        assertFalse(blocked.isDone()); // the buffer is full until the reader catches up
+
+        assertEquals(RELIANCE, stream.next());
+        assertTrue(blocked.get(5, TimeUnit.SECONDS));
+        assertEquals(TCS, stream.next());
+    }
+
+    @Test
+    void testClosingReleasesPublishersAndCancelsTheScan() throws Exception {
+        CandidateStream stream = new CandidateStream(1);
+        stream.publish(RELIANCE);
+        CompletableFuture<Boolean> blocked = CompletableFuture.supplyAsync(() -> stream.publish(TCS));
+
+        stream.close();
+
+        assertFalse(blocked.get(5, TimeUnit.SECONDS));
+        assertTrue(stream.progress().isCancelled());
+    }
+
+    @Test
+    void testEndCarriesTheRankedResultOrTheFailure() throws Exception {
+        CandidateStream done = new CandidateStream(4);
+        done.publish(TCS);
+        done.complete(List.of(TCS, RELIANCE));
+        assertEquals(TCS, done.next());
+        assertNull(done.next());
+        assertNull(done.next());
+        assertEquals(List.of(TCS, RELIANCE), done.result());
+
+        CandidateStream failed = new CandidateStream(4);
+        failed.fail("Kite error 503: down");
+        assertNull(failed.next());
+        IOException e = assertThrows(IOException.class, failed::result);
+        assertEquals("Kite error 503: down", e.getMessage());
+    }
+}
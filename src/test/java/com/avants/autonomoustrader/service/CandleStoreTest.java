@@ -0,0 +1,119 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.model.CandleSeries;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.zerodhatech.models.HistoricalData;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandleStoreTest {
+
+    private static final long DAY_MS = 86_400_000L;
+    private static final long START = KiteTime.parseTimestamp("2025-01-01T00:00:00+0530");
+
+    @TempDir
+    Path tempDir;
+
+    private static List<HistoricalData> bars(int fromIndex, int count) {
+        List<HistoricalData> bars = new ArrayList<>();
+        for (int i = fromIndex; i < fromIndex + count; i++) {
+            HistoricalData bar = new HistoricalData();
+            bar.timeStamp = KiteTime.formatTimestamp(START + i * DAY_MS);
+            bar.open = 100 + i;
+            bar.high = 101 + i;
+            bar.low = 99 + i;
+            bar.close = 100.5 + i;
+            bar.volume = 1000L + i;
+            bars.add(bar);
+        }
+        return bars;
+    }
+
+    @Test
+    void shouldRoundTripBarsAcrossColumnGrowth() {
+        CandleStore store = new CandleStore(tempDir.toString());
+        store.replace("256265", "day", bars(0, 1500), START, START + 1500 * DAY_MS);
+
+        HistoricalData all = store.read("256265", "day", Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(1500, all.dataArrayList.size());
+        assertEquals(100.5, all.dataArrayList.get(0).close);
+        assertEquals(100.5 + 1499, all.dataArrayList.get(1499).close);
+        assertEquals(1000L + 1499, all.dataArrayList.get(1499).volume);
+    }
+
+    @Test
+    void shouldPersistAcrossRestarts() {
+        CandleStore store = new CandleStore(tempDir.toString());
+        store.replace("738561", "day", bars(0, 10), START, START + 10 * DAY_MS);
+        store.close();
+
+        CandleStore reopened = new CandleStore(tempDir.toString());
+        CandleStore.Coverage coverage = reopened.coverage("738561", "day");
+        assertEquals(10, coverage.barCount());
+        assertTrue(coverage.covers(START, START + 10 * DAY_MS));
+        assertFalse(coverage.covers(START, START + 11 * DAY_MS));
+    }
+
+    @Test
+    void shouldReplaceLastBarAndSkipOlderBarsOnAppend() {
+        CandleStore store = new CandleStore(tempDir.toString());
+        store.append("738561", "day", bars(0, 5));
+
+        List<HistoricalData> update = bars(3, 4);
+        update.get(1).close = 999.0; // index 4 — the previously partial last bar
+        int written = store.append("738561", "day", update);
+
+        assertEquals(3, written);
+        HistoricalData all = store.read("738561", "day", Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(7, all.dataArrayList.size());
+        assertEquals(999.0, all.dataArrayList.get(4).close);
+    }
+
+    @Test
+    void shouldReadOnlyRequestedWindow() {
+        CandleStore store = new CandleStore(tempDir.toString());
+        store.append("738561", "day", bars(0, 20));
+
+        HistoricalData window = store.read("738561", "day", START + 5 * DAY_MS, START + 9 * DAY_MS);
+        assertEquals(5, window.dataArrayList.size());
+        assertEquals(KiteTime.formatTimestamp(START + 5 * DAY_MS), window.dataArrayList.get(0).timeStamp);
+    }
+
+    @Test
+    void shouldReadWindowAsColumns() {
+        CandleStore store = new CandleStore(tempDir.toString());
+        store.append("738561", "day", bars(0, 700)); // spans a column growth
+
+        CandleSeries window = store.readSeries("738561", "day", START + 600 * DAY_MS, START + 649 * DAY_MS);
+        assertEquals(50, window.size());
+        assertEquals(START + 600 * DAY_MS, window.firstTimestamp());
+        assertEquals(100.5 + 649, window.lastClose());
+        assertEquals(1000L + 620, window.volume(20));
+        assertEquals(101.0 + 610, window.high(10));
+    }
+
+    @Test
+    void shouldMergeBackfilledBarsIntoTheMiddle() {
+        CandleStore store = new CandleStore(tempDir.toString());
+        List<HistoricalData> withHole = bars(0, 5);
+        withHole.addAll(bars(8, 4));
+        store.append("738561", "day", withHole);
+
+        List<HistoricalData> backfill = bars(4, 4);
+        backfill.get(0).close = 555.0; // overlaps the stored bar at index 4 and wins over it
+        store.merge("738561", "day", backfill);
+
+        CandleSeries all = store.readSeries("738561", "day", Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(12, all.size());
+        for (int i = 0; i < all.size(); i++) {
+            assertEquals(START + i * DAY_MS, all.timestamp(i));
+        }
+        assertEquals(555.0, all.close(4));
+    }
+}
@@ -0,0 +1,157 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.model.CandleSeries;
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.avants.autonomoustrader.util.SignalProgram;
+import com.avants.autonomoustrader.util.WindowKernels;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConditionCompilerTest {
+
+    private final ConditionCompiler compiler = new ConditionCompiler(WindowKernels.select(true));
+
+    @Test
+    void testCompilesStrategyJsonConditionsWithSharedIndicators() {
+        SignalProgram program = compiler.compile(strategy("1.0.0",
+                List.of("EMA_9 > EMA_200", "MACD_LINE crosses_above MACD_SIGNAL", "VOLUME > 1.5x 20-period average volume"),
+                List.of("MACD_LINE crosses_below MACD_SIGNAL", "Price closes below EMA_9", "Stop loss hit", "Target hit")));
+
+        assertEquals(3, program.entryCount());
+        assertEquals(4, program.exitCount());
+        // close, EMA 9/200/12/26, MACD line and signal, volume, 1.5, SMA20(volume), 1.5 × SMA — exits add nothing new
+        assertEquals(11, program.nodeCount());
+    }
+
+    @Test
+    void testCrossoverOnlyFiresOnTheCrossingBar() {
+        SignalProgram program = compiler.compile(strategy("1.0.0", List.of("EMA_3 crosses_above EMA_6"), List.of()));
+        double[] closes = new double[40];
+        for (int i = 0; i < 39; i++) {
+            closes[i] = 100 - i * 0.5; // steady decline: EMA3 stays under EMA6
+        }
+        closes[39] = 120; // breakout bar
+        CandleSeries series = series(closes);
+        SignalProgram.Workspace workspace = program.newWorkspace();
+
+        program.evaluate(series, workspace);
+        assertTrue(program.entry(workspace));
+
+        // The same workspace is reused for the next evaluation
+        program.evaluate(series.slice(0, 39), workspace);
+        assertFalse(program.entry(workspace));
+        assertEquals(39, workspace.bars());
+    }
+
+    @Test
+    void testVolumeAndStopLossConditions() {
+        SignalProgram program = compiler.compile(strategy("1.0.0",
+                List.of("volume > 1.5x 5-period average volume"),
+                List.of("Stop loss hit", "Target hit")));
+        long[] volumes = {100, 100, 100, 100, 400};
+        SignalProgram.Workspace workspace = program.newWorkspace();
+
+        program.evaluate(series(new double[]{100, 100, 100, 100, 98}, volumes), workspace);
+        assertTrue(program.entry(workspace)); // 400 > 1.5 × 160
+        assertFalse(program.exit(workspace, Double.NaN)); // no position
+        assertTrue(program.exit(workspace, 100.0)); // 98 is below the 1.5% stop at 98.5
+        assertFalse(program.exit(workspace, 99.0));
+    }
+
+    @Test
+    void testCompiledProgramIsCachedPerVersionAndConditions() {
+        SignalProgram first = compiler.compile(strategy("1.0.0", List.of("EMA_9 > EMA_200"), List.of()));
+
+        assertSame(first, compiler.compile(strategy("1.0.0", List.of("EMA_9 > EMA_200"), List.of())));
+        assertNotSame(first, compiler.compile(strategy("1.0.1", List.of("EMA_9 > EMA_200"), List.of())));
+        assertNotSame(first, compiler.compile(strategy("1.0.0", List.of("EMA_9 > EMA_50"), List.of())));
+        assertNull(compiler.compile(strategy("1.0.0", List.of(), List.of())));
+    }
+
+    @Test
+    void testDeclaredIndicatorsShareIntermediateNodes() {
+        SignalProgram program = compiler.compile(strategy("1.0.0", List.of(
+                        new TradingStrategy.Indicator("EMA", 12, "close"),
+                        new TradingStrategy.Indicator("MACD", 12, "close"),
+                        new TradingStrategy.Indicator("MACD_SIGNAL", 9, "close"),
+                        new TradingStrategy.Indicator("SMA", 20, "close"),
+                        new TradingStrategy.Indicator("BOLLINGER", 20, "close"),
+                        new TradingStrategy.Indicator("RSI", 14, "close"),
+                        new TradingStrategy.Indicator("ATR", 14, null),
+                        new TradingStrategy.Indicator("VWAP", 0, null),
+                        new TradingStrategy.Indicator("OBV", 0, null)),
+                List.of("RSI_14 < 30", "close < BB_LOWER_20", "MACD crosses_above MACD_SIGNAL"), List.of()));
+
+        // MACD reuses EMA_12, the Bollinger middle band is SMA_20, and conditions add only the constant 30
+        assertEquals(program.output("SMA_20"), program.output("BB_MIDDLE_20"));
+        assertEquals("(ema(close,12)-ema(close,26))", program.label(program.output("MACD")));
+        assertTrue(program.outputNames().containsAll(List.of("EMA_12", "RSI_14", "ATR_14", "BB_UPPER_20", "VWAP", "OBV")));
+        // close, EMA 12/26, MACD, signal, SMA20, 2, stddev, 2σ, upper, -2, -2σ, lower,
+        // change, gain, avg gain, loss, avg loss, RSI, true range, ATR, VWAP, OBV, 30
+        assertEquals(24, program.nodeCount());
+    }
+
+    @Test
+    void testRejectsConditionsItCannotCompile() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> compiler.compile(strategy("1.0.0", List.of("ADX_14 > 25"), List.of())));
+        assertTrue(e.getMessage().contains("ADX_14 > 25"));
+        assertThrows(IllegalArgumentException.class,
+                () -> compiler.compile(strategy("1.0.0", List.of("Stop loss hit"), List.of())));
+        assertThrows(IllegalArgumentException.class,
+                () -> compiler.compile(strategy("1.0.0", List.of("EMA_9 >"), List.of())));
+        assertThrows(IllegalArgumentException.class,
+                () -> compiler.compile(strategy("1.0.0", List.of("close > 20-period median close"), List.of())));
+        assertThrows(IllegalArgumentException.class, () -> compiler.compile(strategy("1.0.0",
+                List.of(new TradingStrategy.Indicator("ICHIMOKU", 9, "close")), List.of("close > 1"), List.of())));
+    }
+
+    @Test
+    void testSweptPeriodsRenameTheConditionsThatUseThem() {
+        TradingStrategy.TechnicalStrategy technical = new TradingStrategy.TechnicalStrategy("Test", "", List.of(
+                new TradingStrategy.Indicator("EMA", 9, "close"),
+                new TradingStrategy.Indicator("EMA", 200, "close"),
+                new TradingStrategy.Indicator("BOLLINGER", 20, "close"),
+                new TradingStrategy.Indicator("MACD_SIGNAL", 9, "close")),
+                List.of("EMA_9 > EMA_200", "close < bb_lower_20", "MACD_LINE crosses_above MACD_SIGNAL"),
+                List.of("Price closes below EMA_9", "EMA_90 > EMA_9"));
+
+        TradingStrategy.TechnicalStrategy swept = ConditionCompiler.withPeriods(technical, new int[]{200, 9, 30, 5});
+
+        assertEquals(List.of(200, 9, 30, 5), swept.indicators().stream().map(TradingStrategy.Indicator::period).toList());
+        // The two EMAs trade places in one pass; undeclared EMA_90 and period-less names are kept
+        assertEquals(List.of("EMA_200 > EMA_9", "close < bb_lower_30", "MACD_LINE crosses_above MACD_SIGNAL"),
+                swept.entryConditions());
+        assertEquals(List.of("Price closes below EMA_200", "EMA_90 > EMA_200"), swept.exitConditions());
+        assertNotNull(compiler.compileVariant(swept));
+        assertThrows(IllegalArgumentException.class, () -> ConditionCompiler.withPeriods(technical, new int[]{5}));
+    }
+
+    private static TradingStrategy strategy(String version, List<String> entry, List<String> exit) {
+        return strategy(version, List.of(), entry, exit);
+    }
+
+    private static TradingStrategy strategy(String version, List<TradingStrategy.Indicator> indicators,
+                                            List<String> entry, List<String> exit) {
+        TradingStrategy strategy = new TradingStrategy();
+        strategy.setStrategyVersion(version);
+        strategy.setTechnicalStrategy(new TradingStrategy.TechnicalStrategy("Test", "", indicators, entry, exit));
+        strategy.setRiskParameters(new TradingStrategy.RiskParameters(5.0, 5, 1.5, 3.0));
+        return strategy;
+    }
+
+    private static CandleSeries series(double[] closes) {
+        return series(closes, new long[closes.length]);
+    }
+
+    private static CandleSeries series(double[] closes, long[] volumes) {
+        long[] timestamps = new long[closes.length];
+        for (int i = 0; i < closes.length; i++) {
+            timestamps[i] = i * 60_000L;
+        }
+        return new CandleSeries(timestamps, closes.clone(), closes.clone(), closes.clone(), closes, volumes);
+    }
+}
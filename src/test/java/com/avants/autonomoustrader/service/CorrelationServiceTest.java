@@ -0,0 +1,175 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.CorrelationDto;
+import com.avants.autonomoustrader.dto.KiteDto;
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import com.zerodhatech.models.HistoricalData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CorrelationServiceTest {
+
+    private static final Map<String, String> TOKENS = Map.of("AAA", "401", "BBB", "402", "CCC", "403");
+    private static final LocalDate TODAY = LocalDate.now(KiteTime.IST);
+
+    @Mock
+    private MarketDataService marketDataService;
+
+    @TempDir
+    Path tempDir;
+
+    private CandleStore candleStore;
+    private PersistenceManager persistenceManager;
+    private UniverseService universeService;
+
+    @BeforeEach
+    void setUp() throws IOException, KiteException {
+        MockitoAnnotations.openMocks(this);
+        when(marketDataService.mapSymbolsToInstrumentTokens(anyList(), eq("NSE"))).thenReturn(TOKENS);
+        TradingStrategy strategy = new TradingStrategy();
+        strategy.setUniverse(new TradingStrategy.Universe("Test", "NSE", List.of("AAA", "BBB", "CCC")));
+        Path strategyFile = tempDir.resolve("strategy.json");
+        new ObjectMapper().writeValue(strategyFile.toFile(), strategy);
+        persistenceManager = new PersistenceManager(strategyFile.toString(), tempDir.resolve("positions.json").toString());
+        persistenceManager.savePositions(new KiteDto.LivePortfolio(
+                List.of(new KiteDto.HoldingDto("AAA", "NSE", "CNC", 10, 0, 100.0, 105.0, 50.0)), List.of()));
+        universeService = new UniverseService(null, tempDir.resolve("universes").toString());
+        candleStore = new CandleStore(tempDir.resolve("candles").toString());
+        // BBB follows AAA; CCC moves on its own. The last stored bar is two days old.
+        candleStore.append("401", "day", bars(TODAY.minusDays(41), 40, 0));
+        candleStore.append("402", "day", bars(TODAY.minusDays(41), 40, 0));
+        candleStore.append("403", "day", bars(TODAY.minusDays(41), 40, 5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        candleStore.close();
+    }
+
+    private CorrelationService service() {
+        return new CorrelationService(persistenceManager, universeService, marketDataService, candleStore, Runnable::run, 20);
+    }
+
+    private CorrelationService refreshed() throws IOException, KiteException {
+        CorrelationService service = service();
+        service.refresh();
+        return service;
+    }
+
+    @Test
+    void testReadsBeforeTheFirstRefreshFindEverySymbolUntracked() throws IOException, KiteException {
+        CorrelationService service = service();
+
+        CorrelationDto.Report report = service.exposure(List.of("bbb", "AAA"), null);
+        assertNull(report.asOf());
+        assertEquals(0, report.bars());
+        assertTrue(report.holdings().isEmpty());
+        assertTrue(report.candidates().isEmpty());
+        assertEquals(List.of("BBB", "AAA"), report.untracked());
+        assertEquals(List.of("AAA"), service.matrix(List.of("aaa")).untracked());
+        verify(marketDataService, never()).syncHistoryForSymbols(anyList(), anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void testComparesCandidatesWithTheSyncedHoldings() throws IOException, KiteException {
+        CorrelationService service = refreshed();
+
+        CorrelationDto.Report report = service.exposure(List.of("bbb", "CCC", "ZZZ"), null);
+
+        assertEquals(TODAY.minusDays(2), report.asOf());
+        assertEquals(20, report.bars());
+        assertEquals(3, report.universeSize());
+        assertEquals(List.of("AAA"), report.holdings());
+        assertEquals(List.of("ZZZ"), report.untracked());
+        CorrelationDto.Candidate follower = report.candidates().get(0);
+        assertEquals("BBB", follower.symbol());
+        assertEquals("AAA", follower.mostCorrelatedWith());
+        assertEquals(1.0, follower.maxAbsCorrelation(), 1e-9);
+        assertTrue(report.candidates().get(1).maxAbsCorrelation() < 0.9);
+    }
+
+    @Test
+    void testNewSessionsUpdateTheWindowInPlace() throws IOException, KiteException {
+        CorrelationService service = service();
+        assertEquals(20, service.refresh());
+        assertEquals(0, service.refresh());
+
+        // Yesterday's bar is final; tomorrow's is not, so it is left for a later refresh
+        for (String token : TOKENS.values()) {
+            candleStore.append(token, "day", bars(TODAY.minusDays(1), 1, token.equals("403") ? 7 : 3));
+            candleStore.append(token, "day", bars(TODAY.plusDays(1), 1, 1));
+        }
+        assertEquals(1, service.refresh());
+
+        CorrelationDto.Matrix updated = service.matrix(List.of("AAA", "BBB", "CCC"));
+        CorrelationDto.Matrix rebuilt = refreshed().matrix(List.of("AAA", "BBB", "CCC"));
+        assertEquals(TODAY.minusDays(1), updated.asOf());
+        assertEquals(rebuilt.asOf(), updated.asOf());
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(rebuilt.correlations().get(i).get(j), updated.correlations().get(i).get(j), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    void testASessionWaitsForEverySymbolsBar() throws IOException, KiteException {
+        CorrelationService service = service();
+        assertEquals(20, service.refresh());
+        verify(marketDataService).syncHistoryForSymbols(eq(List.of("AAA", "BBB", "CCC")), eq("NSE"), eq("day"), anyInt());
+
+        // CCC's bar for yesterday lands after the refresh: the session waits for it instead of counting CCC as flat
+        candleStore.append("401", "day", bars(TODAY.minusDays(1), 1, 3));
+        candleStore.append("402", "day", bars(TODAY.minusDays(1), 1, 3));
+        assertEquals(0, service.refresh());
+        assertEquals(TODAY.minusDays(2), service.matrix(List.of("AAA")).asOf());
+
+        candleStore.append("403", "day", bars(TODAY.minusDays(1), 1, 7));
+        assertEquals(1, service.refresh());
+        CorrelationDto.Matrix updated = service.matrix(List.of("AAA", "BBB", "CCC"));
+        CorrelationDto.Matrix rebuilt = refreshed().matrix(List.of("AAA", "BBB", "CCC"));
+        assertEquals(TODAY.minusDays(1), updated.asOf());
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(rebuilt.correlations().get(i).get(j), updated.correlations().get(i).get(j), 1e-12);
+            }
+        }
+    }
+
+    /**
+     * Daily bars whose returns follow a fixed pattern, shifted by phase.
+     */
+    private static List<HistoricalData> bars(LocalDate first, int days, int phase) {
+        List<HistoricalData> bars = new ArrayList<>();
+        double close = 100.0;
+        for (int i = 0; i < days; i++) {
+            close *= 1.0 + 0.01 * Math.sin((i + phase) * 1.3) + 0.004 * Math.cos((i + phase) * 0.4);
+            HistoricalData candle = new HistoricalData();
+            candle.timeStamp = KiteTime.formatTimestamp(first.plusDays(i).atStartOfDay(KiteTime.IST).toInstant().toEpochMilli());
+            candle.open = close;
+            candle.high = close;
+            candle.low = close;
+            candle.close = close;
+            bars.add(candle);
+        }
+        return bars;
+    }
+}
@@ -0,0 +1,160 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.KiteDto;
+import com.avants.autonomoustrader.dto.RiskDto;
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DashboardServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PersistenceManager persistenceManager;
+    private PortfolioHistoryStore historyStore;
+    private DashboardService dashboardService;
+    private volatile double oneDayVar = 1_200.0;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path strategyFile = tempDir.resolve("strategy.json");
+        persistenceManager = new PersistenceManager(strategyFile.toString(), tempDir.resolve("positions.json").toString());
+        TradingStrategy strategy = new TradingStrategy();
+        strategy.setStrategyVersion("1.0.0");
+        strategy.setUniverse(new TradingStrategy.Universe("Nifty 50", "NSE", List.of("RELIANCE", "TCS")));
+        strategy.setTechnicalStrategy(new TradingStrategy.TechnicalStrategy("EMA Crossover", "Test strategy",
+                List.of(new TradingStrategy.Indicator("EMA", 9, "close")), List.of("EMA_9 > EMA_200"), List.of("Stop loss hit")));
+        strategy.setRiskParameters(new TradingStrategy.RiskParameters(5.0, 5, 1.5, 3.0));
+        new ObjectMapper().writeValue(strategyFile.toFile(), strategy);
+
+        historyStore = new PortfolioHistoryStore(tempDir.resolve("history").toString());
+        PortfolioRiskService riskService = new PortfolioRiskService(persistenceManager, null, null, null,
+                "bootstrap", 1_000, 0.95, 500); // never refreshed: no risk report
+        dashboardService = new DashboardService(persistenceManager, riskService, historyStore,
+                new ObjectMapper().registerModule(new JavaTimeModule()), 1);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        historyStore.close();
+        persistenceManager.close();
+    }
+
+    private static KiteDto.LivePortfolio portfolio(double lastPrice) {
+        return new KiteDto.LivePortfolio(List.of(new KiteDto.HoldingDto(
+                "RELIANCE", "NSE", "CNC", 10, 0, 1_400.0, lastPrice, (lastPrice - 1_400.0) * 10)), List.of());
+    }
+
+    private static String text(byte[] frame) {
+        return new String(frame, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void shouldPushOneSharedFramePerChangeToEverySubscriber() throws Exception {
+        DashboardService.Subscription first = dashboardService.subscribe();
+        String initial = text(first.next());
+        assertTrue(initial.startsWith("id: 1\nevent: dashboard\ndata: {"), initial);
+        assertTrue(initial.endsWith("}\n\n"));
+        assertTrue(initial.contains("EMA Crossover"));
+
+        List<DashboardService.Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            DashboardService.Subscription subscription = dashboardService.subscribe();
+            subscription.next(); // the current dashboard
+            subscriptions.add(subscription);
+        }
+        assertEquals(201, dashboardService.subscriberCount());
+
+        persistenceManager.savePositions(portfolio(1_450.0));
+        dashboardService.publish();
+        byte[] pushed = first.next();
+        assertTrue(text(pushed).startsWith("id: 2\n"));
+        assertTrue(text(pushed).contains("RELIANCE"));
+        for (DashboardService.Subscription subscription : subscriptions) {
+            assertSame(pushed, subscription.next(), "serialised once, shared by every subscriber");
+        }
+
+        dashboardService.publish(); // nothing changed
+        assertEquals(": keep-alive\n\n", text(first.next()), "no push without a change, only the heartbeat");
+
+        subscriptions.forEach(DashboardService.Subscription::close);
+        first.close();
+        assertNull(first.next());
+        assertEquals(0, dashboardService.subscriberCount());
+    }
+
+    @Test
+    void shouldConflateASlowSubscriberToTheLatestDashboard() throws Exception {
+        DashboardService.Subscription slow = dashboardService.subscribe();
+        for (int i = 1; i <= 5; i++) {
+            persistenceManager.savePositions(portfolio(1_400.0 + i));
+            dashboardService.publish();
+        }
+        String latest = text(slow.next());
+        assertTrue(latest.startsWith("id: 6\n"), "skips straight to the newest payload: " + latest);
+        assertTrue(latest.contains("\"pnl\":50.0"));
+        assertEquals(": keep-alive\n\n", text(slow.next()));
+        slow.close();
+
+        // Without subscribers a change only marks the payload stale; the next read rebuilds it
+        persistenceManager.savePositions(portfolio(1_500.0));
+        dashboardService.publish();
+        DashboardService.Snapshot snapshot = dashboardService.current();
+        assertEquals(7, snapshot.id());
+        assertEquals(1_000.0, snapshot.response().holdings().get(0).pnl());
+        assertSame(snapshot, dashboardService.current());
+    }
+
+    @Test
+    void shouldNotPushARiskRefreshThatOnlyMovesItsTimestamp() throws Exception {
+        // Refreshed on every read, as each sync does: a new asOf, the same figures unless the book moves
+        PortfolioRiskService refreshed = new PortfolioRiskService(persistenceManager, null, null, null,
+                "bootstrap", 1_000, 0.95, 500) {
+            @Override
+            public RiskDto.Report latest() {
+                List<RiskDto.Horizon> horizons = List.of(
+                        new RiskDto.Horizon(1, oneDayVar, 8.5, oneDayVar * 1.2, 10.2, List.of()),
+                        new RiskDto.Horizon(10, oneDayVar * 3, 25.5, oneDayVar * 3.6, 30.6, List.of()));
+                return new RiskDto.Report(Instant.now(), "BOOTSTRAP", 1_000, 0.95, 250, 14_000.0, 0.0, 0.0,
+                        horizons, List.of(), 5);
+            }
+        };
+        DashboardService service = new DashboardService(persistenceManager, refreshed, historyStore,
+                new ObjectMapper().registerModule(new JavaTimeModule()), 1);
+        persistenceManager.savePositions(portfolio(1_450.0));
+
+        DashboardService.Subscription subscription = service.subscribe();
+        String initial = text(subscription.next());
+        assertTrue(initial.startsWith("id: 1\n"), initial);
+        assertTrue(initial.contains("\"oneDayVar\":1200.0"), initial);
+        assertTrue(initial.contains("\"asOf\""), "the payload still says when the risk was simulated");
+
+        for (int i = 0; i < 3; i++) {
+            Thread.sleep(2);
+            service.publish();
+            assertEquals(": keep-alive\n\n", text(subscription.next()), "refresh " + i + " changed nothing but asOf");
+        }
+        assertEquals(1, service.current().id());
+
+        oneDayVar = 1_300.0;
+        service.publish();
+        String moved = text(subscription.next());
+        assertTrue(moved.startsWith("id: 2\n"), moved);
+        assertTrue(moved.contains("\"oneDayVar\":1300.0"), moved);
+        subscription.close();
+    }
+}
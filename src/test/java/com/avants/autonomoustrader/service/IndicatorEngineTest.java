@@ -0,0 +1,148 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.util.IndicatorState;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.avants.autonomoustrader.util.TradingSessions;
+import com.zerodhatech.models.HistoricalData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndicatorEngineTest {
+
+    private static final String TOKEN = "738561";
+    private static final IndicatorState.Params PARAMS = new IndicatorState.Params(20, 12, 26, 9, 5);
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+
+    @TempDir
+    Path tempDir;
+
+    private CandleStore candleStore;
+
+    @BeforeEach
+    void setUp() {
+        candleStore = new CandleStore(tempDir.resolve("candles").toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        candleStore.close();
+    }
+
+    @Test
+    void testIncrementalValuesMatchFullRecompute() {
+        List<HistoricalData> bars = dailyBars(0, 60);
+        candleStore.append(TOKEN, "day", bars);
+        IndicatorEngine engine = newEngine();
+
+        IndicatorState.Values values = engine.current(TOKEN, "day", PARAMS, afterClose(59));
+        assertEquals(ema(closes(bars), 20), values.ema(), 1e-9);
+        assertEquals(ema(closes(bars), 12) - ema(closes(bars), 26), values.macd(), 1e-9);
+        assertEquals(bars.get(59).close, values.lastPrice());
+        assertEquals((55 + 56 + 57 + 58 + 59) * 10 / 5.0, values.volumeAverage());
+
+        // One new bar costs one fold, and lands where a recompute over all 61 bars would
+        List<HistoricalData> next = dailyBars(60, 61);
+        candleStore.append(TOKEN, "day", next);
+        bars.addAll(next);
+        values = engine.current(TOKEN, "day", PARAMS, afterClose(60));
+
+        assertEquals(ema(closes(bars), 20), values.ema(), 1e-9);
+        assertEquals(61, engine.getBarsFolded());
+    }
+
+    @Test
+    void testStateSurvivesRestartWithoutReplayingHistory() {
+        candleStore.append(TOKEN, "day", dailyBars(0, 60));
+        double ema = newEngine().current(TOKEN, "day", PARAMS, afterClose(59)).ema();
+
+        IndicatorEngine restarted = newEngine();
+        assertEquals(ema, restarted.current(TOKEN, "day", PARAMS, afterClose(59)).ema());
+        assertEquals(0, restarted.getBarsFolded());
+    }
+
+    @Test
+    void testFormingBarIsProvisionalAndNotFolded() {
+        List<HistoricalData> bars = dailyBars(0, 61);
+        candleStore.append(TOKEN, "day", bars);
+        IndicatorEngine engine = newEngine();
+
+        // Mid-session on day 60: its bar is still forming, so it only shapes the values provisionally
+        long midSession = TradingSessions.sessionOpen(FIRST_DAY.plusDays(60)) + 3_600_000L;
+        IndicatorState.Values values = engine.current(TOKEN, "day", PARAMS, midSession);
+        assertEquals(ema(closes(bars), 20), values.ema(), 1e-9);
+        assertEquals(60, engine.getBarsFolded());
+
+        HistoricalData finalBar = dailyBars(60, 61).get(0);
+        finalBar.close = 50.0;
+        candleStore.append(TOKEN, "day", List.of(finalBar));
+        bars.set(60, finalBar);
+        values = engine.current(TOKEN, "day", PARAMS, afterClose(60));
+        assertEquals(ema(closes(bars), 20), values.ema(), 1e-9);
+        assertEquals(61, engine.getBarsFolded());
+    }
+
+    @Test
+    void testBackfilledHistoryRebuildsState() {
+        candleStore.append(TOKEN, "day", dailyBars(10, 60));
+        IndicatorEngine engine = newEngine();
+        engine.current(TOKEN, "day", PARAMS, afterClose(59));
+
+        // A head backfill puts older bars in front of the ones already folded
+        List<HistoricalData> all = dailyBars(0, 60);
+        candleStore.merge(TOKEN, "day", all.subList(0, 10));
+
+        assertEquals(ema(closes(all), 20), engine.current(TOKEN, "day", PARAMS, afterClose(59)).ema(), 1e-9);
+    }
+
+    private IndicatorEngine newEngine() {
+        return new IndicatorEngine(candleStore, null, tempDir.resolve("indicators").toString());
+    }
+
+    private static long afterClose(int day) {
+        return TradingSessions.sessionClose(FIRST_DAY.plusDays(day)) + 1;
+    }
+
+    /**
+     * Daily bars [from, to) with a wavy close and volume 10 × index.
+     */
+    private static List<HistoricalData> dailyBars(int from, int to) {
+        List<HistoricalData> bars = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            HistoricalData bar = new HistoricalData();
+            bar.timeStamp = KiteTime.formatTimestamp(FIRST_DAY.plusDays(i).atStartOfDay(KiteTime.IST).toInstant().toEpochMilli());
+            bar.close = 100.0 + i * 0.3 + Math.sin(i) * 4;
+            bar.volume = 10L * i;
+            bars.add(bar);
+        }
+        return bars;
+    }
+
+    private static double[] closes(List<HistoricalData> bars) {
+        return bars.stream().mapToDouble(bar -> bar.close).toArray();
+    }
+
+    /**
+     * Batch EMA seeded with the SMA of the first period closes, as the scanner used to compute it.
+     */
+    private static double ema(double[] closes, int period) {
+        double alpha = 2.0 / (period + 1);
+        double ema = 0.0;
+        for (int i = 0; i < period; i++) {
+            ema += closes[i];
+        }
+        ema /= period;
+        for (int i = period; i < closes.length; i++) {
+            ema = (closes[i] * alpha) + (ema * (1 - alpha));
+        }
+        return ema;
+    }
+}
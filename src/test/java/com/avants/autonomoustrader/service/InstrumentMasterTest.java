@@ -0,0 +1,119 @@
+package com.avants.autonomoustrader.service;
+
+import com.zerodhatech.kiteconnect.KiteConnect;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import com.zerodhatech.models.Instrument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InstrumentMasterTest {
+
+    @Mock
+    private KiteConnect kiteConnect;
+
+    @TempDir
+    Path tempDir;
+
+    private KiteRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        rateLimiter = new KiteRateLimiter(Executors.newVirtualThreadPerTaskExecutor(), 10);
+        rateLimiter.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        rateLimiter.stop();
+    }
+
+    @Test
+    void testLookupsAcrossExchangesAndSegments() throws IOException, KiteException {
+        LocalDate expiry = LocalDate.of(2026, 3, 26);
+        when(kiteConnect.getInstruments()).thenReturn(List.of(
+                instrument(738561L, "NSE", "RELIANCE", "NSE", "EQ", null),
+                instrument(128083204L, "BSE", "RELIANCE", "BSE", "EQ", null),
+                instrument(12580610L, "NFO", "NIFTY26MARFUT", "NFO-FUT", "FUT", expiry),
+                instrument(12580866L, "NFO", "NIFTY26MAR22000CE", "NFO-OPT", "CE", expiry)));
+
+        InstrumentMaster master = new InstrumentMaster(kiteConnect, rateLimiter, tempDir.resolve("instruments.bin").toString());
+
+        assertEquals(738561L, master.token("NSE", "RELIANCE"));
+        assertEquals(128083204L, master.token("BSE", "RELIANCE"));
+        assertEquals(-1L, master.token("NSE", "UNKNOWN"));
+        assertEquals(-1L, master.token("MCX", "RELIANCE"));
+        assertEquals("NIFTY26MARFUT", master.byToken(12580610L).tradingSymbol());
+        assertNull(master.byToken(1L));
+        assertEquals(1, master.bySegment("NFO-OPT").size());
+        assertEquals(2, master.byExpiry(expiry).size());
+        assertEquals(Map.of("RELIANCE", "128083204"), master.tokensFor(List.of("RELIANCE", "TCS"), "BSE"));
+        verify(kiteConnect, times(1)).getInstruments();
+    }
+
+    @Test
+    void testSnapshotSurvivesRestart() throws IOException, KiteException {
+        LocalDate expiry = LocalDate.of(2026, 3, 26);
+        when(kiteConnect.getInstruments()).thenReturn(List.of(
+                instrument(738561L, "NSE", "RELIANCE", "NSE", "EQ", null),
+                instrument(12580866L, "NFO", "NIFTY26MAR22000CE", "NFO-OPT", "CE", expiry)));
+        Path snapshot = tempDir.resolve("instruments.bin");
+
+        new InstrumentMaster(kiteConnect, rateLimiter, snapshot.toString()).size();
+        assertTrue(Files.exists(snapshot));
+
+        InstrumentMaster restarted = new InstrumentMaster(kiteConnect, rateLimiter, snapshot.toString());
+        InstrumentMaster.InstrumentRecord option = restarted.byToken(12580866L);
+
+        assertEquals(2, restarted.size());
+        assertEquals("NFO", option.exchange());
+        assertEquals("CE", option.instrumentType());
+        assertEquals(expiry, option.expiry());
+        assertEquals(22000.0, option.strike());
+        verify(kiteConnect, times(1)).getInstruments();
+    }
+
+    @Test
+    void testExpectedSnapshotDate() {
+        // Friday 2026-03-13, Saturday 2026-03-14, Monday 2026-03-16
+        assertEquals(LocalDate.of(2026, 3, 13), InstrumentMaster.expectedSnapshotDate(LocalDateTime.of(2026, 3, 13, 9, 0)));
+        assertEquals(LocalDate.of(2026, 3, 13), InstrumentMaster.expectedSnapshotDate(LocalDateTime.of(2026, 3, 14, 12, 0)));
+        assertEquals(LocalDate.of(2026, 3, 13), InstrumentMaster.expectedSnapshotDate(LocalDateTime.of(2026, 3, 16, 8, 0)));
+        assertEquals(LocalDate.of(2026, 3, 16), InstrumentMaster.expectedSnapshotDate(LocalDateTime.of(2026, 3, 16, 8, 30)));
+    }
+
+    private static Instrument instrument(long token, String exchange, String symbol, String segment, String type, LocalDate expiry) {
+        Instrument i = new Instrument();
+        i.instrument_token = token;
+        i.exchange = exchange;
+        i.tradingsymbol = symbol;
+        i.name = symbol;
+        i.segment = segment;
+        i.instrument_type = type;
+        i.strike = "CE".equals(type) ? "22000" : "0";
+        i.lot_size = "NFO".equals(exchange) ? 75 : 1;
+        i.tick_size = 0.05;
+        if (expiry != null) {
+            i.expiry = Date.from(expiry.atStartOfDay(ZoneId.of("Asia/Kolkata")).toInstant());
+        }
+        return i;
+    }
+}
@@ -0,0 +1,84 @@
+package com.avants.autonomoustrader.service;
+
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.NetworkException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KiteRateLimiterTest {
+
+    private KiteRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        rateLimiter = new KiteRateLimiter(Executors.newVirtualThreadPerTaskExecutor(), 10);
+        rateLimiter.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        rateLimiter.stop();
+    }
+
+    @Test
+    void shouldSpaceHistoricalCallsAtThreePerSecond() {
+        List<CompletableFuture<Long>> calls = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < 7; i++) {
+            calls.add(rateLimiter.submit(KiteRateLimiter.Endpoint.HISTORICAL, KiteRateLimiter.Priority.NORMAL, System::nanoTime));
+        }
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture[0])).join();
+
+        long lastStartedMs = (calls.get(6).join() - start) / 1_000_000;
+        assertTrue(lastStartedMs >= 1900, "7 calls at 3/s need at least 2s, took " + lastStartedMs + "ms");
+    }
+
+    @Test
+    void shouldReleaseHigherPriorityFirst() {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        rateLimiter.submit(KiteRateLimiter.Endpoint.HISTORICAL, KiteRateLimiter.Priority.LOW, () -> order.add("backfill-1")).join();
+        // The bucket is now empty, so both of these queue behind the next token
+        CompletableFuture<?> second = rateLimiter.submit(KiteRateLimiter.Endpoint.HISTORICAL, KiteRateLimiter.Priority.LOW, () -> order.add("backfill-2"));
+        CompletableFuture<?> urgent = rateLimiter.submit(KiteRateLimiter.Endpoint.HISTORICAL, KiteRateLimiter.Priority.HIGH, () -> order.add("sync"));
+        CompletableFuture.allOf(second, urgent).join();
+
+        assertEquals(List.of("backfill-1", "sync", "backfill-2"), order);
+    }
+
+    @Test
+    void shouldSkipCancelledRequests() {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<?> first = rateLimiter.submit(KiteRateLimiter.Endpoint.HISTORICAL, KiteRateLimiter.Priority.NORMAL, () -> order.add("a"));
+        CompletableFuture<?> cancelled = rateLimiter.submit(KiteRateLimiter.Endpoint.HISTORICAL, KiteRateLimiter.Priority.NORMAL, () -> order.add("b"));
+        CompletableFuture<?> last = rateLimiter.submit(KiteRateLimiter.Endpoint.HISTORICAL, KiteRateLimiter.Priority.NORMAL, () -> order.add("c"));
+        cancelled.cancel(false);
+        CompletableFuture.allOf(first, last).join();
+
+        assertEquals(List.of("a", "c"), order);
+    }
+
+    @Test
+    void shouldRethrowKiteExceptionsFromExecute() {
+        assertThrows(NetworkException.class, () -> rateLimiter.execute(
+                KiteRateLimiter.Endpoint.QUOTE, KiteRateLimiter.Priority.NORMAL, () -> {
+                    throw new NetworkException("timeout", 0);
+                }));
+    }
+
+    @Test
+    void shouldNotDelayIndependentEndpoints() throws Exception, KiteException {
+        rateLimiter.execute(KiteRateLimiter.Endpoint.QUOTE, KiteRateLimiter.Priority.NORMAL, () -> 1);
+        long start = System.nanoTime();
+        rateLimiter.execute(KiteRateLimiter.Endpoint.PORTFOLIO, KiteRateLimiter.Priority.HIGH, () -> 1);
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 500);
+    }
+}
@@ -1,22 +1,28 @@
 package com.avants.autonomoustrader.service;
 
+import com.avants.autonomoustrader.util.KiteTime;
+import com.avants.autonomoustrader.util.TradingSessions;
 import com.zerodhatech.kiteconnect.KiteConnect;
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
 import com.zerodhatech.kiteconnect.kitehttp.exceptions.NetworkException;
 import com.zerodhatech.models.HistoricalData;
 import com.zerodhatech.models.Instrument;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -27,12 +33,28 @@ class MarketDataServiceTest {
     @Mock
     private KiteConnect kiteConnect;
 
-    @InjectMocks
+    @TempDir
+    Path tempDir;
+
+    private KiteRateLimiter rateLimiter;
     private MarketDataService marketDataService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        rateLimiter = new KiteRateLimiter(Executors.newVirtualThreadPerTaskExecutor(), 10);
+        rateLimiter.start();
+        marketDataService = newService(new CandleStore(tempDir.toString()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        rateLimiter.stop();
+    }
+
+    private MarketDataService newService(CandleStore candleStore) {
+        InstrumentMaster instrumentMaster = new InstrumentMaster(kiteConnect, rateLimiter, tempDir.resolve("instruments.bin").toString());
+        return new MarketDataService(kiteConnect, candleStore, instrumentMaster, rateLimiter, Executors.newVirtualThreadPerTaskExecutor());
     }
 
     @Test
@@ -41,24 +63,34 @@ class MarketDataServiceTest {
         List<Instrument> mockInstruments = new ArrayList<>();
         Instrument i1 = new Instrument();
         i1.tradingsymbol = "RELIANCE";
+        i1.exchange = "NSE";
         i1.instrument_token = 12345L;
         mockInstruments.add(i1);
 
         Instrument i2 = new Instrument();
         i2.tradingsymbol = "TCS";
+        i2.exchange = "NSE";
         i2.instrument_token = 67890L;
         mockInstruments.add(i2);
 
-        when(kiteConnect.getInstruments(anyString())).thenReturn(mockInstruments);
+        Instrument i3 = new Instrument();
+        i3.tradingsymbol = "RELIANCE";
+        i3.exchange = "BSE";
+        i3.instrument_token = 128083204L;
+        mockInstruments.add(i3);
+
+        when(kiteConnect.getInstruments()).thenReturn(mockInstruments);
 
         // Act
         Map<String, String> tokens = marketDataService.mapSymbolsToInstrumentTokens(List.of("RELIANCE", "TCS"), "NSE");
+        Map<String, String> bseTokens = marketDataService.mapSymbolsToInstrumentTokens(List.of("RELIANCE"), "BSE");
 
         // Assert
         assertEquals(2, tokens.size());
         assertEquals("12345", tokens.get("RELIANCE"));
         assertEquals("67890", tokens.get("TCS"));
-        verify(kiteConnect, times(1)).getInstruments("NSE");
+        assertEquals("128083204", bseTokens.get("RELIANCE"));
+        verify(kiteConnect, times(1)).getInstruments();
     }
 
     @Test
@@ -75,6 +107,74 @@ class MarketDataServiceTest {
         });
     }
 
+    @Test
+    void testFetchHistoricalCandles_WarmStoreSkipsKite() throws IOException, KiteException {
+        HistoricalData response = new HistoricalData();
+        response.dataArrayList = new ArrayList<>(List.of(
+                candle(daysAgo(3), 100.0),
+                candle(daysAgo(2), 101.0)));
+        when(kiteConnect.getHistoricalData(any(), any(), anyString(), anyString(), anyBoolean(), anyBoolean()))
+                .thenReturn(response);
+
+        HistoricalData cold = marketDataService.fetchHistoricalCandles("12345", "day", 10);
+        HistoricalData warm = marketDataService.fetchHistoricalCandles("12345", "day", 10);
+
+        assertEquals(2, cold.dataArrayList.size());
+        assertEquals(2, warm.dataArrayList.size());
+        assertEquals(101.0, warm.dataArrayList.get(1).close);
+        verify(kiteConnect, times(1)).getHistoricalData(any(), any(), anyString(), anyString(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    void testFetchHistoricalCandles_BackfillsMissedSessionsOnce() throws IOException, KiteException {
+        CandleStore candleStore = new CandleStore(tempDir.resolve("gaps").toString());
+        marketDataService = newService(candleStore);
+
+        // Trading days t[1] (most recent) .. t[7]; t[3]..t[5] were missed
+        LocalDate[] t = new LocalDate[8];
+        t[0] = LocalDate.now(KiteTime.IST);
+        for (int i = 1; i < t.length; i++) {
+            t[i] = TradingSessions.previousTradingDay(t[i - 1]);
+        }
+        candleStore.append("12345", "day", List.of(
+                candle(dayStart(t[7]), 100.0), candle(dayStart(t[6]), 101.0),
+                candle(dayStart(t[2]), 105.0), candle(dayStart(t[1]), 106.0)));
+        candleStore.markSynced("12345", "day", 0L, System.currentTimeMillis(), 0L);
+
+        HistoricalData backfill = new HistoricalData();
+        backfill.dataArrayList = new ArrayList<>(List.of(
+                candle(dayStart(t[5]), 102.0), candle(dayStart(t[4]), 103.0), candle(dayStart(t[3]), 104.0)));
+        when(kiteConnect.getHistoricalData(any(), any(), anyString(), anyString(), anyBoolean(), anyBoolean()))
+                .thenReturn(backfill);
+
+        HistoricalData first = marketDataService.fetchHistoricalCandles("12345", "day", 30);
+        HistoricalData second = marketDataService.fetchHistoricalCandles("12345", "day", 30);
+
+        assertEquals(7, first.dataArrayList.size());
+        assertEquals(103.0, first.dataArrayList.get(3).close);
+        assertEquals(7, second.dataArrayList.size());
+        verify(kiteConnect, times(1)).getHistoricalData(any(), any(), anyString(), anyString(), anyBoolean(), anyBoolean());
+    }
+
+    private static String dayStart(LocalDate date) {
+        return KiteTime.formatTimestamp(date.atStartOfDay(KiteTime.IST).toInstant().toEpochMilli());
+    }
+
+    private static String daysAgo(int days) {
+        return KiteTime.formatTimestamp(LocalDate.now().minusDays(days).atStartOfDay(KiteTime.IST).toInstant().toEpochMilli());
+    }
+
+    private static HistoricalData candle(String timestamp, double close) {
+        HistoricalData bar = new HistoricalData();
+        bar.timeStamp = timestamp;
+        bar.open = close;
+        bar.high = close;
+        bar.low = close;
+        bar.close = close;
+        bar.volume = 1000;
+        return bar;
+    }
+
     @Disabled("Requires mocking final class KiteConnect with inline mock maker; disabling to keep build green in this environment")
     @Test
     void testFetchHistoricalCandlesForSymbols_ResilienceToException() throws IOException, KiteException {
@@ -90,7 +190,7 @@ class MarketDataServiceTest {
         i2.instrument_token = 67890L;
         mockInstruments.add(i2);
 
-        when(kiteConnect.getInstruments(anyString())).thenReturn(mockInstruments);
+        when(kiteConnect.getInstruments()).thenReturn(mockInstruments);
 
         // Throw exception for RELIANCE, but return data for TCS
         when(kiteConnect.getHistoricalData(any(), any(), eq("12345"), anyString(), anyBoolean(), anyBoolean()))
@@ -11,8 +11,11 @@ import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -107,5 +110,143 @@ class PersistenceManagerTest {
         assertNotNull(parsed.getLivePortfolio());
     }
 
+    @Test
+    void shouldSaveCandidateStrategyBesideStrategyJson() throws IOException {
+        TradingStrategy candidate = buildSampleStrategy();
+        candidate.setStrategyVersion("1.0.0-opt-1a2b3c4d");
+
+        Path saved = persistenceManager.saveCandidateStrategy(candidate);
+
+        assertEquals(tempDir.resolve("strategy-candidates").resolve("strategy-1.0.0-opt-1a2b3c4d.json").toAbsolutePath(), saved);
+        assertEquals("1.0.0-opt-1a2b3c4d", objectMapper.readValue(saved.toFile(), TradingStrategy.class).getStrategyVersion());
+        assertEquals("1.0.0", persistenceManager.loadStrategy().getStrategyVersion());
+    }
+
+    @Test
+    void shouldSkipUnchangedPositionsAndVersionEachChange() throws IOException {
+        assertNull(persistenceManager.positionsVersion());
+        assertTrue(persistenceManager.savePositions(buildSamplePortfolio()));
+        PersistenceManager.PositionsVersion first = persistenceManager.positionsVersion();
+        String written = Files.readString(positionsFile.toPath());
+
+        assertFalse(persistenceManager.savePositions(buildSamplePortfolio()));
+        assertEquals(written, Files.readString(positionsFile.toPath()));
+        assertEquals(first, persistenceManager.positionsVersion());
+
+        KiteDto.LivePortfolio moved = new KiteDto.LivePortfolio(
+                List.of(new KiteDto.HoldingDto("RELIANCE", "NSE", "CNC", 10, 0, 1400.0, 1455.0, 550.0)), List.of());
+        assertTrue(persistenceManager.savePositions(moved));
+        PersistenceManager.PositionsVersion second = persistenceManager.positionsVersion();
+        assertEquals(1, first.sequence());
+        assertEquals(2, second.sequence());
+        assertNotEquals(first.contentHash(), second.contentHash());
+        LivePortfolio loaded = persistenceManager.loadPositions();
+        assertEquals(Long.valueOf(2), loaded.getSequence());
+        assertEquals(second.contentHash(), loaded.getContentHash());
+        try (var files = Files.list(tempDir)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")));
+        }
+    }
+
+    @Test
+    void shouldServeCachedSnapshotsAndReloadEditsOnDisk() throws Exception {
+        PersistenceManager watched = new PersistenceManager(tempDir.resolve("strategy.json").toString(),
+                positionsFile.getAbsolutePath(), 50);
+        AtomicInteger changes = new AtomicInteger();
+        watched.onChange(changes::incrementAndGet);
+        try {
+            TradingStrategy first = watched.loadStrategy();
+            assertSame(first, watched.loadStrategy());
+            assertEquals(1, watched.strategyRevision());
+            assertThrows(UnsupportedOperationException.class, () -> first.getUniverse().symbols().add("SBIN"));
+
+            TradingStrategy edited = buildSampleStrategy();
+            edited.setStrategyVersion("1.1.0");
+            objectMapper.writeValue(tempDir.resolve("strategy.json").toFile(), edited);
+            await(() -> watched.strategyRevision() == 2);
+            assertEquals("1.1.0", watched.loadStrategy().getStrategyVersion());
+            await(() -> changes.get() == 1);
+
+            // Half-written and invalid edits leave the last good strategy in service
+            Files.writeString(tempDir.resolve("strategy.json"), "{\"strategy_version\": \"1.2.0\", \"universe\": {");
+            TradingStrategy withoutRules = buildSampleStrategy();
+            withoutRules.setStrategyVersion("1.3.0");
+            withoutRules.setTechnicalStrategy(null);
+            Thread.sleep(300);
+            objectMapper.writeValue(tempDir.resolve("strategy.json").toFile(), withoutRules);
+            Thread.sleep(300);
+            assertEquals("1.1.0", watched.loadStrategy().getStrategyVersion());
+            assertEquals(2, watched.strategyRevision());
+            assertEquals(1, changes.get(), "ignored edits are not announced");
+
+            watched.savePositions(buildSamplePortfolio());
+            LivePortfolio saved = watched.loadPositions();
+            assertSame(saved, watched.loadPositions());
+            assertEquals(Long.valueOf(1), saved.getSequence());
+            Thread.sleep(300);
+            assertEquals(1, changes.get(), "a save is not announced as an edit on disk");
+        } finally {
+            watched.close();
+        }
+    }
+
+    @Test
+    void shouldJournalEachDistinctSnapshotAcrossRestarts() throws IOException {
+        KiteDto.LivePortfolio sample = buildSamplePortfolio();
+        KiteDto.LivePortfolio empty = new KiteDto.LivePortfolio(List.of(), List.of());
+        persistenceManager.savePositions(sample);
+        persistenceManager.savePositions(sample);
+        persistenceManager.savePositions(empty);
+        persistenceManager.close();
+
+        PersistenceManager restarted = new PersistenceManager(tempDir.resolve("strategy.json").toString(), positionsFile.getAbsolutePath());
+        assertFalse(restarted.savePositions(empty)); // the journal remembers the last snapshot
+        assertTrue(restarted.savePositions(sample));
+
+        List<PositionsJournal.Entry> entries = restarted.positionsSince(0);
+        assertEquals(List.of(1L, 2L, 3L), entries.stream().map(PositionsJournal.Entry::sequence).toList());
+        assertEquals(sample, objectMapper.readValue(entries.get(0).json(), KiteDto.LivePortfolio.class));
+        assertEquals(empty, objectMapper.readValue(entries.get(1).json(), KiteDto.LivePortfolio.class));
+        assertEquals(entries.get(0).contentHash(), entries.get(2).contentHash());
+        assertEquals(List.of(3L), restarted.positionsSince(2).stream().map(PositionsJournal.Entry::sequence).toList());
+        assertTrue(Files.exists(tempDir.resolve("positions.journal")));
+        restarted.close();
+    }
 
+    @Test
+    void shouldNeverReissueASequenceWhenPositionsJsonAndTheJournalDisagree() throws IOException {
+        KiteDto.LivePortfolio sample = buildSamplePortfolio();
+        KiteDto.LivePortfolio empty = new KiteDto.LivePortfolio(List.of(), List.of());
+        persistenceManager.savePositions(sample);
+        byte[] firstFile = Files.readAllBytes(positionsFile.toPath());
+        persistenceManager.savePositions(empty);
+        persistenceManager.close();
+
+        // Died after journalling sequence 2, before positions.json was stamped with it
+        Files.write(positionsFile.toPath(), firstFile);
+        PersistenceManager restarted = new PersistenceManager(tempDir.resolve("strategy.json").toString(), positionsFile.getAbsolutePath());
+        assertTrue(restarted.savePositions(empty), "positions.json catches up with the journal");
+        assertEquals(Long.valueOf(2), restarted.loadPositions().getSequence());
+        assertEquals(2, restarted.positionsVersion().sequence());
+        assertFalse(restarted.savePositions(empty));
+        restarted.close();
+
+        // A positions.json stamped ahead of the journal keeps its sequence to itself
+        LivePortfolio ahead = objectMapper.readValue(positionsFile, LivePortfolio.class);
+        ahead.setSequence(5L);
+        objectMapper.writeValue(positionsFile, ahead);
+        PersistenceManager again = new PersistenceManager(tempDir.resolve("strategy.json").toString(), positionsFile.getAbsolutePath());
+        assertTrue(again.savePositions(sample));
+        assertEquals(List.of(1L, 2L, 6L), again.positionsSince(0).stream().map(PositionsJournal.Entry::sequence).toList());
+        assertEquals(Long.valueOf(6), again.loadPositions().getSequence());
+        again.close();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "timed out waiting for the reload");
+            Thread.sleep(20);
+        }
+    }
 }
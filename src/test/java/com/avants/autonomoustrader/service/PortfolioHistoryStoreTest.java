@@ -0,0 +1,115 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.HistoryDto;
+import com.avants.autonomoustrader.dto.KiteDto;
+import com.avants.autonomoustrader.util.KiteTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortfolioHistoryStoreTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 3, 20);
+    private static final long MINUTE_MS = 60_000L;
+
+    @TempDir
+    Path tempDir;
+
+    private static long at(LocalDate day, int hour, int minute) {
+        return day.atTime(hour, minute).atZone(KiteTime.IST).toInstant().toEpochMilli();
+    }
+
+    private static KiteDto.HoldingDto holding(String symbol, int quantity, double average, double last) {
+        return new KiteDto.HoldingDto(symbol, "NSE", "CNC", quantity, 0, average, last, (last - average) * quantity);
+    }
+
+    /**
+     * INFY held throughout, rising by 1 per day; TCS held for the first five days.
+     */
+    private static KiteDto.LivePortfolio portfolio(int day, int minute) {
+        double infy = 1_000 + day + minute * 0.01;
+        return day < 5
+                ? new KiteDto.LivePortfolio(List.of(holding("INFY", 10, 1_000, infy), holding("TCS", 2, 3_000, 3_000)), List.of())
+                : new KiteDto.LivePortfolio(List.of(holding("INFY", 10, 1_000, infy)), List.of());
+    }
+
+    @Test
+    void shouldAggregateSyncsIntoPerformanceAndRangesThatSurviveARestart() {
+        PortfolioHistoryStore store = new PortfolioHistoryStore(tempDir.toString());
+        // 20 days across a month end, 30 minute syncs a day
+        for (int day = 0; day < 20; day++) {
+            for (int minute = 0; minute < 30; minute++) {
+                assertTrue(store.record(at(START.plusDays(day), 9, 15) + minute * MINUTE_MS, portfolio(day, minute)));
+            }
+        }
+        LocalDate last = START.plusDays(19);
+        long now = at(last, 15, 0);
+
+        HistoryDto.Performance performance = store.performance(now);
+        double pnlNow = (19 + 0.29) * 10;
+        double cost = 10_000;
+        assertEquals((pnlNow - (18 + 0.29) * 10) / cost * 100, performance.dailyPct(), 1e-9);
+        assertEquals((pnlNow - (12 + 0.29) * 10) / cost * 100, performance.weeklyPct(), 1e-9);
+        assertEquals(pnlNow / cost * 100, performance.monthlyPct(), 1e-9, "a month back is before history: from the first sync");
+        assertEquals(at(START, 9, 15), performance.historyStart().toEpochMilli());
+
+        HistoryDto.Book book = store.book(START.plusDays(10), START.plusDays(12));
+        assertEquals(90, book.points().size());
+        assertEquals(at(START.plusDays(10), 9, 15), book.points().get(0).time());
+        assertEquals((12.29 - 9.29) * 10, book.pnlChange(), 1e-9);
+        assertEquals(10 * (1_000 + 12.29), book.high(), 1e-9);
+        assertEquals(10 * 1_010.0, book.low(), 1e-9);
+
+        List<HistoryDto.Day> daily = store.daily(START.minusDays(5), last.plusDays(5));
+        assertEquals(20, daily.size());
+        assertEquals(START, daily.get(0).date());
+        assertEquals(10 * 1_000.0 + 6_000, daily.get(0).open(), 1e-9);
+        assertEquals(10 * 1_019.29, daily.get(19).close(), 1e-9);
+
+        HistoryDto.Series tcs = store.holding("NSE", "TCS", START, last);
+        assertEquals(5 * 30 + 1, tcs.points().size(), "a sold holding ends on a zero");
+        assertEquals(0.0, tcs.points().get(tcs.points().size() - 1).value());
+
+        HistoryDto.BookPoint midday = store.bookAt(at(START.plusDays(3), 9, 20) + 30_000);
+        assertEquals(at(START.plusDays(3), 9, 20), midday.time());
+        assertEquals(10 * 3.05, midday.pnl(), 1e-9);
+        assertNull(store.bookAt(at(START, 9, 0)));
+        store.close();
+
+        PortfolioHistoryStore reopened = new PortfolioHistoryStore(tempDir.toString());
+        assertEquals(performance, reopened.performance(now));
+        assertEquals(book, reopened.book(START.plusDays(10), START.plusDays(12)));
+        assertTrue(reopened.record(now, portfolio(19, 200)));
+        assertEquals(10 * (1_000 + 19 + 2.0), reopened.latest().value(), 1e-9);
+        reopened.close();
+    }
+
+    @Test
+    void shouldDropStaleOrEmptySyncsAndSetACorruptSegmentAside() throws Exception {
+        PortfolioHistoryStore store = new PortfolioHistoryStore(tempDir.toString());
+        assertNull(store.performance(at(START, 12, 0)));
+        assertFalse(store.record(at(START, 10, 0), new KiteDto.LivePortfolio(List.of(), List.of())));
+        assertTrue(store.record(at(START, 10, 0), portfolio(0, 0)));
+        assertFalse(store.record(at(START, 10, 0) + 500, portfolio(0, 1)), "same second");
+        assertFalse(store.record(at(START, 9, 0), portfolio(0, 1)), "older than the last point");
+        store.close();
+
+        Path segment = tempDir.resolve("book").resolve("2026-03.seg");
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[0] = 0;
+        Files.write(segment, bytes);
+
+        PortfolioHistoryStore reopened = new PortfolioHistoryStore(tempDir.toString());
+        assertNull(reopened.latest());
+        assertTrue(Files.exists(tempDir.resolve("book").resolve("2026-03.seg.corrupt")));
+        assertTrue(reopened.record(at(START, 11, 0), portfolio(0, 2)));
+        assertEquals(1, reopened.daily(START, START).size());
+        reopened.close();
+    }
+}
@@ -0,0 +1,112 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.KiteDto;
+import com.avants.autonomoustrader.dto.RiskDto;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import com.zerodhatech.models.HistoricalData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PortfolioRiskServiceTest {
+
+    @Mock
+    private MarketDataService marketDataService;
+
+    @Mock
+    private PersistenceManager persistenceManager;
+
+    @TempDir
+    Path tempDir;
+
+    private final ForkJoinPool scanPool = new ForkJoinPool(2);
+    private CandleStore candleStore;
+    private PortfolioRiskService riskService;
+
+    @BeforeEach
+    void setUp() throws IOException, KiteException {
+        MockitoAnnotations.openMocks(this);
+        when(marketDataService.mapSymbolsToInstrumentTokens(anyList(), eq("NSE")))
+                .thenReturn(Map.of("RELIANCE", "301", "TCS", "302"));
+        candleStore = new CandleStore(tempDir.resolve("candles").toString());
+        LocalDate today = LocalDate.now(KiteTime.IST);
+        candleStore.append("301", "day", closes(today.minusDays(59), 60, 0.002));
+        candleStore.append("302", "day", closes(today.minusDays(29), 30, -0.001)); // listed later: a shorter history
+        riskService = new PortfolioRiskService(persistenceManager, marketDataService, candleStore, scanPool,
+                "bootstrap", 10_000, 0.95, 500);
+    }
+
+    @AfterEach
+    void tearDown() {
+        candleStore.close();
+        scanPool.shutdown();
+    }
+
+    @Test
+    void testSimulatesHoldingsAndPositionsWithStoredHistory() throws IOException, KiteException {
+        KiteDto.LivePortfolio portfolio = new KiteDto.LivePortfolio(
+                List.of(new KiteDto.HoldingDto("RELIANCE", "NSE", "CNC", 10, 5, 2400.0, 2500.0, 1500.0),
+                        new KiteDto.HoldingDto("NEWCO", "NSE", "CNC", 100, 0, 10.0, 12.0, 200.0)),
+                List.of(new KiteDto.PositionDto("TCS", "NSE", "MIS", -4, 3500.0, 3450.0, 3480.0, 200.0, 200.0, 0.0, 200.0)));
+
+        RiskDto.Report report = riskService.assess(portfolio, null, null, null);
+
+        assertEquals("BOOTSTRAP", report.method());
+        assertEquals(List.of("NEWCO"), report.unpriced()); // no stored history
+        assertEquals(59, report.historyDays()); // sessions aligned across both histories
+        assertEquals(15 * 2500.0 + 4 * 3450.0, report.grossExposure(), 1e-9);
+        assertEquals(List.of(1, 10), report.horizons().stream().map(RiskDto.Horizon::days).toList());
+        RiskDto.Horizon oneDay = report.horizons().get(0);
+        assertEquals(List.of("RELIANCE", "TCS"), oneDay.contributions().stream().map(RiskDto.Contribution::symbol).toList());
+        assertEquals(-4 * 3450.0, oneDay.contributions().get(1).exposure(), 1e-9);
+        assertEquals(oneDay.expectedShortfall(),
+                oneDay.contributions().stream().mapToDouble(RiskDto.Contribution::expectedShortfall).sum(), 1e-6);
+        assertTrue(report.weekReturnPct() != 0.0);
+    }
+
+    @Test
+    void testRefreshKeepsTheLatestReport() {
+        assertNull(riskService.latest());
+
+        riskService.refresh(new KiteDto.LivePortfolio(
+                List.of(new KiteDto.HoldingDto("RELIANCE", "NSE", "CNC", 10, 0, 2400.0, 2500.0, 1000.0)), List.of()));
+
+        assertNotNull(riskService.latest());
+        assertEquals(10_000, riskService.latest().paths());
+        assertThrows(IllegalArgumentException.class, () -> riskService.assess(null, "garch", null, null));
+        assertThrows(IllegalArgumentException.class, () -> riskService.assess(null, null, 10, null));
+        assertThrows(IllegalArgumentException.class, () -> riskService.assess(null, null, null, 1.0));
+    }
+
+    private static List<HistoricalData> closes(LocalDate first, int days, double drift) {
+        List<HistoricalData> bars = new ArrayList<>();
+        double close = 1000.0;
+        for (int i = 0; i < days; i++) {
+            close *= 1.0 + drift + (i % 3 == 0 ? 0.01 : -0.005);
+            HistoricalData candle = new HistoricalData();
+            candle.timeStamp = KiteTime.formatTimestamp(first.plusDays(i).atStartOfDay(KiteTime.IST).toInstant().toEpochMilli());
+            candle.open = close;
+            candle.high = close;
+            candle.low = close;
+            candle.close = close;
+            bars.add(candle);
+        }
+        return bars;
+    }
+}
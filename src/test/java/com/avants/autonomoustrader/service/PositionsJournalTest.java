@@ -0,0 +1,58 @@
+package com.avants.autonomoustrader.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionsJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTornTailIsCutOffOnOpen() throws IOException {
+        Path path = tempDir.resolve("positions.journal");
+        try (PositionsJournal journal = new PositionsJournal(path)) {
+            journal.append(1, 1_000, 11, json("{\"holdings\":[]}"));
+            journal.append(2, 2_000, 22, json("{\"holdings\":[{\"tradingSymbol\":\"TCS\"}]}"));
+        }
+        long whole = Files.size(path);
+        // A crash part-way through a third append
+        Files.write(path, new byte[]{0, 0, 0, 0, 0, 0, 0, 3, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (PositionsJournal journal = new PositionsJournal(path)) {
+            assertEquals(whole, Files.size(path));
+            assertEquals(2, journal.size());
+            assertEquals(2, journal.lastSequence());
+            assertEquals(22, journal.lastHash());
+            journal.append(3, 3_000, 33, json("{}"));
+
+            List<PositionsJournal.Entry> entries = journal.read(1);
+            assertEquals(List.of(2L, 3L), entries.stream().map(PositionsJournal.Entry::sequence).toList());
+            assertEquals("{\"holdings\":[{\"tradingSymbol\":\"TCS\"}]}", new String(entries.get(0).json(), StandardCharsets.UTF_8));
+            assertEquals(2_000, entries.get(0).savedMillis());
+        }
+    }
+
+    @Test
+    void testSequenceMustIncrease() throws IOException {
+        try (PositionsJournal journal = new PositionsJournal(tempDir.resolve("positions.journal"))) {
+            journal.append(5, 1_000, 1, json("{}"));
+            assertThrows(IllegalArgumentException.class, () -> journal.append(5, 2_000, 2, json("{}")));
+        }
+        Files.writeString(tempDir.resolve("other.journal"), "not a journal");
+        assertThrows(IOException.class, () -> new PositionsJournal(tempDir.resolve("other.journal")));
+    }
+
+    private static byte[] json(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,123 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.CandidateDto;
+import com.avants.autonomoustrader.dto.ScanJobDto;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ScanJobServiceTest {
+
+    private static final List<CandidateDto> CANDIDATES = List.of(new CandidateDto("RELIANCE", 2500.0, 2400.0, 4.16));
+
+    @Mock
+    private TechnicalScannerService technicalScannerService;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ScanProgress progress = new ScanProgress();
+
+    @BeforeEach
+    void setUp() throws IOException, KiteException {
+        MockitoAnnotations.openMocks(this);
+        progress.addTotal(50);
+        // Every scan reports progress, then waits until released or cancelled
+        when(technicalScannerService.scanForCandidates(anyInt(), any())).thenAnswer(invocation -> {
+            Consumer<ScanProgress> onAttach = invocation.getArgument(1);
+            progress.retain();
+            onAttach.accept(progress);
+            progress.symbolFetched();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!release.await(5, TimeUnit.MILLISECONDS) && System.currentTimeMillis() < deadline) {
+                progress.throwIfCancelled();
+            }
+            return CANDIDATES;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.shutdown();
+    }
+
+    @Test
+    void testIdenticalPendingJobsAreDeduplicatedAndTheQueueIsBounded() throws InterruptedException {
+        ScanJobService jobs = new ScanJobService(technicalScannerService, executor, 2, 1);
+
+        ScanJobDto first = jobs.submit(5);
+        assertEquals(first.id(), jobs.submit(5).id());
+        ScanJobDto second = jobs.submit(7);
+        assertNotEquals(first.id(), second.id());
+        assertThrows(RejectedExecutionException.class, () -> jobs.submit(9));
+
+        ScanJobDto running = awaitStatus(jobs, first.id(), "RUNNING");
+        assertEquals(50, running.total());
+        assertEquals(1, running.fetched());
+        assertEquals("QUEUED", jobs.find(second.id()).status()); // concurrency 1
+
+        release.countDown();
+        ScanJobDto done = awaitStatus(jobs, first.id(), "SUCCEEDED");
+        assertEquals(CANDIDATES, done.candidates());
+        assertNotNull(done.finishedAt());
+        awaitStatus(jobs, second.id(), "SUCCEEDED");
+        assertNotEquals(first.id(), jobs.submit(5).id()); // finished jobs are not reused
+    }
+
+    @Test
+    void testCancellingARunningJobReleasesItsScan() throws InterruptedException {
+        ScanJobService jobs = new ScanJobService(technicalScannerService, executor, 4, 2);
+        ScanJobDto job = jobs.submit(5);
+        awaitStatus(jobs, job.id(), "RUNNING");
+
+        assertEquals("CANCELLED", jobs.cancel(job.id()).status());
+
+        assertTrue(progress.isCancelled());
+        Thread.sleep(50); // the scan stops; the job stays cancelled rather than failed
+        assertEquals("CANCELLED", jobs.find(job.id()).status());
+        assertNull(jobs.find(job.id()).candidates());
+        assertNull(jobs.cancel("unknown"));
+    }
+
+    @Test
+    void testJobCancelledWhileQueuedNeverScans() throws Exception, KiteException {
+        ScanJobService jobs = new ScanJobService(technicalScannerService, executor, 4, 1);
+        ScanJobDto running = jobs.submit(5);
+        awaitStatus(jobs, running.id(), "RUNNING");
+        ScanJobDto queued = jobs.submit(null);
+
+        jobs.cancel(queued.id());
+        release.countDown();
+
+        awaitStatus(jobs, running.id(), "SUCCEEDED");
+        assertEquals("CANCELLED", jobs.find(queued.id()).status());
+        verify(technicalScannerService, never()).scanWithStrategyParameters(any());
+    }
+
+    private static ScanJobDto awaitStatus(ScanJobService jobs, String id, String status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        ScanJobDto job = jobs.find(id);
+        while (!job.status().equals(status) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+            job = jobs.find(id);
+        }
+        assertEquals(status, job.status());
+        return job;
+    }
+}
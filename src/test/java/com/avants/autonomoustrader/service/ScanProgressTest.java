@@ -0,0 +1,59 @@
+package com.avants.autonomoustrader.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScanProgressTest {
+
+    @Test
+    void testLastReleaseCancelsAndWithdrawsQueuedRequests() {
+        ScanProgress progress = new ScanProgress();
+        CompletableFuture<String> queued = new CompletableFuture<>();
+        CompletableFuture<String> answered = new CompletableFuture<>();
+        assertTrue(progress.retain());
+        assertTrue(progress.retain());
+        progress.track(queued);
+        progress.track(answered);
+        answered.complete("candles");
+        progress.untrack(answered);
+
+        progress.release();
+        assertFalse(progress.isCancelled());
+        assertFalse(queued.isDone());
+
+        progress.release();
+        assertTrue(progress.isCancelled());
+        assertTrue(queued.isCancelled());
+        assertThrows(CancellationException.class, progress::throwIfCancelled);
+    }
+
+    @Test
+    void testReleasedScanCannotBeJoinedAgain() {
+        ScanProgress progress = new ScanProgress();
+        assertTrue(progress.retain());
+        progress.release();
+
+        assertFalse(progress.retain());
+        CompletableFuture<String> late = new CompletableFuture<>();
+        progress.track(late);
+        assertTrue(late.isCancelled());
+    }
+
+    @Test
+    void testCountsAccumulateAcrossShards() {
+        ScanProgress progress = new ScanProgress();
+        progress.addTotal(3);
+        progress.symbolFetched();
+        progress.symbolFetched();
+        progress.symbolsEvaluated(2);
+
+        assertEquals(3, progress.total());
+        assertEquals(2, progress.fetched());
+        assertEquals(2, progress.evaluated());
+        assertDoesNotThrow(progress::throwIfCancelled);
+    }
+}
@@ -0,0 +1,108 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.CandidateDto;
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ScanSnapshotServiceTest {
+
+    private static final List<CandidateDto> CANDIDATES = IntStream.range(0, TechnicalScannerService.MAX_CANDIDATES)
+            .mapToObj(i -> new CandidateDto("SYM" + i, 2500.0, 2400.0, 0.01 * i))
+            .toList();
+
+    @Mock
+    private TechnicalScannerService technicalScannerService;
+
+    @Mock
+    private PersistenceManager persistenceManager;
+
+    private ScanSnapshotService snapshots;
+
+    @BeforeEach
+    void setUp() throws IOException, KiteException {
+        MockitoAnnotations.openMocks(this);
+        useVersion("1.0.0");
+        when(technicalScannerService.scanForCandidates(TechnicalScannerService.MAX_CANDIDATES)).thenReturn(CANDIDATES);
+        snapshots = new ScanSnapshotService(technicalScannerService, persistenceManager, Runnable::run, true, 15);
+    }
+
+    @Test
+    void testSnapshotIsServedUntilRefreshIsRequested() throws IOException, KiteException {
+        ScanSnapshotService.Snapshot first = snapshots.candidates(null, false);
+
+        assertEquals(first, snapshots.candidates(null, false));
+        assertEquals(CANDIDATES.subList(0, 10), first.candidates(), "the strategy's default topK");
+        assertEquals("1.0.0", first.strategyVersion());
+        assertNull(first.topK());
+        verify(technicalScannerService, times(1)).scanForCandidates(TechnicalScannerService.MAX_CANDIDATES);
+
+        assertTrue(snapshots.candidates(null, true).asOfMillis() >= first.asOfMillis());
+        verify(technicalScannerService, times(2)).scanForCandidates(TechnicalScannerService.MAX_CANDIDATES);
+    }
+
+    @Test
+    void testEveryTopKIsTrimmedFromOneRankedSnapshot() throws IOException, KiteException {
+        for (int topK = 1; topK <= 40; topK++) {
+            ScanSnapshotService.Snapshot snapshot = snapshots.candidates(topK, false);
+            assertEquals(Integer.valueOf(topK), snapshot.topK());
+            assertEquals(CANDIDATES.subList(0, topK), snapshot.candidates());
+        }
+        assertEquals(CANDIDATES, snapshots.candidates(500, false).candidates());
+        assertEquals(List.of(), snapshots.candidates(0, false).candidates());
+        verify(technicalScannerService, times(1)).scanForCandidates(anyInt());
+        verify(technicalScannerService, never()).scanWithStrategyParameters();
+    }
+
+    @Test
+    void testStalenessFollowsSessionClosesAndIntradayAge() {
+        long friday0930 = ist(2026, 6, 12, 9, 30);
+        ScanSnapshotService.Snapshot morning = new ScanSnapshotService.Snapshot(null, "1.0.0", CANDIDATES, friday0930);
+
+        assertFalse(snapshots.isStale(morning, friday0930 + 14 * 60_000L));
+        assertTrue(snapshots.isStale(morning, friday0930 + 15 * 60_000L));
+
+        ScanSnapshotService.Snapshot afterClose = new ScanSnapshotService.Snapshot(null, "1.0.0", CANDIDATES, ist(2026, 6, 12, 15, 35));
+        // Nothing changes over the weekend or before Monday's open
+        assertFalse(snapshots.isStale(afterClose, ist(2026, 6, 14, 20, 0)));
+        assertFalse(snapshots.isStale(afterClose, ist(2026, 6, 15, 9, 10)));
+        assertTrue(snapshots.isStale(afterClose, ist(2026, 6, 15, 9, 20)));
+        assertTrue(snapshots.isStale(afterClose, ist(2026, 6, 15, 18, 0)));
+    }
+
+    @Test
+    void testRefreshDueRescansWhenTheStrategyVersionChanges() throws IOException, KiteException {
+        snapshots.refreshDue(); // computes the snapshot
+        snapshots.candidates(3, false);
+        snapshots.refreshDue(); // fresh and same version: nothing to do
+        verify(technicalScannerService, times(1)).scanForCandidates(TechnicalScannerService.MAX_CANDIDATES);
+
+        useVersion("1.1.0");
+        snapshots.refreshDue();
+
+        verify(technicalScannerService, times(2)).scanForCandidates(TechnicalScannerService.MAX_CANDIDATES);
+        assertEquals("1.1.0", snapshots.candidates(3, false).strategyVersion());
+    }
+
+    private void useVersion(String version) throws IOException {
+        TradingStrategy strategy = new TradingStrategy();
+        strategy.setStrategyVersion(version);
+        when(persistenceManager.loadStrategy()).thenReturn(strategy);
+    }
+
+    private static long ist(int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute).atZone(KiteTime.IST).toInstant().toEpochMilli();
+    }
+}
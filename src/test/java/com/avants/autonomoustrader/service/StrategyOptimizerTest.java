@@ -0,0 +1,195 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.BacktestDto;
+import com.avants.autonomoustrader.dto.OptimizationDto;
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.avants.autonomoustrader.util.WindowKernels;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import com.zerodhatech.models.HistoricalData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StrategyOptimizerTest {
+
+    private static final Map<String, String> TOKENS = Map.of("AAA", "201", "BBB", "202");
+    private static final LocalDate FIRST_DAY = LocalDate.of(2025, 1, 1);
+
+    @Mock
+    private MarketDataService marketDataService;
+
+    @TempDir
+    Path tempDir;
+
+    private final ForkJoinPool scanPool = new ForkJoinPool(2);
+    private CandleStore candleStore;
+    private PersistenceManager persistenceManager;
+    private BacktestService backtestService;
+    private StrategyOptimizer optimizer;
+
+    @BeforeEach
+    void setUp() throws IOException, KiteException {
+        MockitoAnnotations.openMocks(this);
+        when(marketDataService.mapSymbolsToInstrumentTokens(anyList(), eq("NSE"))).thenReturn(TOKENS);
+        Path strategyFile = tempDir.resolve("strategy.json");
+        new ObjectMapper().writeValue(strategyFile.toFile(), strategy());
+        persistenceManager = new PersistenceManager(strategyFile.toString(), tempDir.resolve("positions.json").toString());
+        candleStore = new CandleStore(tempDir.resolve("candles").toString());
+        candleStore.append(TOKENS.get("AAA"), "day", zigzag(0.4));
+        candleStore.append(TOKENS.get("BBB"), "day", zigzag(-0.1));
+        ConditionCompiler compiler = new ConditionCompiler(WindowKernels.select(true));
+        backtestService = new BacktestService(persistenceManager, new UniverseService(null, tempDir.resolve("universes").toString()),
+                marketDataService, candleStore, compiler, scanPool, 100_000);
+        optimizer = new StrategyOptimizer(persistenceManager, backtestService, compiler, Runnable::run, 1_000, 1_000, 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        candleStore.close();
+        scanPool.shutdown();
+    }
+
+    @Test
+    void testSweepsTheWholeGridAndRanksTheRuns() throws Exception, KiteException {
+        ConcurrentLinkedQueue<OptimizationDto.Run> streamed = new ConcurrentLinkedQueue<>();
+        Thread caller = Thread.currentThread();
+        List<Thread> handedOnBy = new ArrayList<>();
+
+        OptimizationDto.Table table = optimizer.sweep(optimizer.prepare(request(List.of(2, 3, 5), List.of(0.0, 2.0), List.of(0.0, 5.0), 0)),
+                new ScanProgress(), run -> {
+                    handedOnBy.add(Thread.currentThread());
+                    streamed.add(run);
+                });
+
+        assertEquals(12, table.combinations());
+        assertEquals(12, table.evaluated());
+        assertEquals(12, streamed.size());
+        assertEquals(12, streamed.stream().map(OptimizationDto.Run::hash).distinct().count());
+        // Runs reach the reader on the sweep's own thread, never on a scan pool worker
+        assertTrue(handedOnBy.stream().allMatch(thread -> thread == caller));
+        assertFalse(table.stoppedEarly());
+        for (int i = 1; i < table.ranked().size(); i++) {
+            assertTrue(table.ranked().get(i - 1).score() >= table.ranked().get(i).score());
+        }
+        // The strategy's own parameters reproduce a plain backtest of strategy.json
+        OptimizationDto.Run own = streamed.stream()
+                .filter(run -> run.periods().get("EMA_3") == 3 && run.stopLossPct() == 2.0 && run.targetPct() == 5.0)
+                .findFirst().orElseThrow();
+        BacktestDto.Report report = backtestService.run("day", FIRST_DAY.plusDays(30), FIRST_DAY.plusDays(79), null, false);
+        assertEquals(report.summary(), own.summary());
+    }
+
+    @Test
+    void testRepeatedSweepIsServedFromTheCache() throws Exception, KiteException {
+        OptimizationDto.Request request = request(List.of(2, 5), List.of(1.0, 2.0), List.of(), 0);
+        OptimizationDto.Table first = optimizer.sweep(optimizer.prepare(request), new ScanProgress(), run -> {});
+
+        List<OptimizationDto.Run> again = new ArrayList<>();
+        OptimizationDto.Table second = optimizer.sweep(optimizer.prepare(request), new ScanProgress(), again::add);
+
+        assertEquals(0, first.cached());
+        assertEquals(4, second.cached());
+        assertTrue(again.stream().allMatch(OptimizationDto.Run::cached));
+        assertEquals(first.ranked().stream().map(OptimizationDto.Run::summary).toList(),
+                second.ranked().stream().map(OptimizationDto.Run::summary).toList());
+    }
+
+    @Test
+    void testPatienceStopsTheSweepEarly() throws Exception, KiteException {
+        // Targets this far away are never reached, so no run improves on the first
+        List<Double> targets = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            targets.add(100.0 + i);
+        }
+
+        OptimizationDto.Table table = optimizer.sweep(optimizer.prepare(request(List.of(), List.of(), targets, 2)),
+                new ScanProgress(), run -> {});
+
+        assertTrue(table.stoppedEarly());
+        assertTrue(table.evaluated() < table.combinations());
+    }
+
+    @Test
+    void testRejectsUnknownIndicatorsAndOversizedGrids() {
+        OptimizationDto.Request unknown = new OptimizationDto.Request(null, null, null, null, Map.of("SMA_50", List.of(20)),
+                null, null, null, null, null, null, null);
+        assertThrows(IllegalArgumentException.class, () -> optimizer.prepare(unknown));
+
+        List<Double> many = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            many.add(i * 0.25);
+        }
+        assertThrows(IllegalArgumentException.class, () -> optimizer.prepare(request(List.of(), many, many, 0)));
+    }
+
+    @Test
+    void testWritesARunBackAsACandidateStrategy() throws Exception, KiteException {
+        List<OptimizationDto.Run> runs = new ArrayList<>();
+        optimizer.sweep(optimizer.prepare(request(List.of(5), List.of(1.0), List.of(4.0), 0)), new ScanProgress(), runs::add);
+
+        OptimizationDto.Candidate candidate = optimizer.saveCandidate(runs.get(0).hash());
+
+        assertEquals("1.0.0-opt-" + runs.get(0).hash().substring(0, 8), candidate.strategyVersion());
+        TradingStrategy saved = new ObjectMapper().readValue(Path.of(candidate.path()).toFile(), TradingStrategy.class);
+        assertEquals(5, saved.getTechnicalStrategy().indicators().get(0).period());
+        assertEquals(List.of("close > EMA_5"), saved.getTechnicalStrategy().entryConditions());
+        assertEquals(List.of("close < EMA_5"), saved.getTechnicalStrategy().exitConditions());
+        assertEquals(new TradingStrategy.RiskParameters(50.0, 2, 1.0, 4.0), saved.getRiskParameters());
+        assertEquals("1.0.0", persistenceManager.loadStrategy().getStrategyVersion()); // strategy.json is untouched
+        assertTrue(Files.exists(tempDir.resolve("strategy-candidates")));
+        assertThrows(IllegalArgumentException.class, () -> optimizer.saveCandidate("0000000000000000"));
+    }
+
+    private static OptimizationDto.Request request(List<Integer> emaPeriods, List<Double> stopLoss, List<Double> target, int patience) {
+        return new OptimizationDto.Request("day", FIRST_DAY.plusDays(30), FIRST_DAY.plusDays(79), null,
+                Map.of("EMA_3", emaPeriods), stopLoss, target, List.of(), null, null, patience, null);
+    }
+
+    private static TradingStrategy strategy() {
+        TradingStrategy strategy = new TradingStrategy();
+        strategy.setStrategyVersion("1.0.0");
+        strategy.setUniverse(new TradingStrategy.Universe("Test", "NSE", List.of("AAA", "BBB")));
+        strategy.setTechnicalStrategy(new TradingStrategy.TechnicalStrategy("EMA trend", "",
+                List.of(new TradingStrategy.Indicator("EMA", 3, "close")), List.of("close > EMA_3"), List.of("close < EMA_3")));
+        strategy.setRiskParameters(new TradingStrategy.RiskParameters(50.0, 2, 2.0, 5.0));
+        return strategy;
+    }
+
+    /**
+     * 80 daily bars swinging around a trend, so entries and exits depend on the EMA period.
+     */
+    private static List<HistoricalData> zigzag(double slope) {
+        List<HistoricalData> bars = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            double close = 100.0 + slope * i + 3.0 * Math.sin(i * 0.7);
+            HistoricalData candle = new HistoricalData();
+            candle.timeStamp = KiteTime.formatTimestamp(FIRST_DAY.plusDays(i).atStartOfDay(KiteTime.IST).toInstant().toEpochMilli());
+            candle.open = close - 0.5;
+            candle.high = close + 1.0;
+            candle.low = close - 1.5;
+            candle.close = close;
+            candle.volume = 1_000;
+            bars.add(candle);
+        }
+        return bars;
+    }
+}
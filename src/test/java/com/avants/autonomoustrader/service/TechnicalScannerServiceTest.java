@@ -0,0 +1,324 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.CandidateDto;
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.avants.autonomoustrader.util.KiteTime;
+import com.avants.autonomoustrader.util.WindowKernels;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.NetworkException;
+import com.zerodhatech.models.HistoricalData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TechnicalScannerServiceTest {
+
+    private static final Map<String, String> TOKENS = Map.of("CCC", "101", "AAA", "102", "BBB", "103");
+
+    @Mock
+    private MarketDataService marketDataService;
+
+    @Mock
+    private PersistenceManager persistenceManager;
+
+    @TempDir
+    Path tempDir;
+
+    private final ForkJoinPool scanPool = new ForkJoinPool(4);
+    private CandleStore candleStore;
+    private TechnicalScannerService scanner;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        MockitoAnnotations.openMocks(this);
+        TradingStrategy strategy = new TradingStrategy();
+        strategy.setStrategyVersion("1.0.0");
+        strategy.setRiskParameters(new TradingStrategy.RiskParameters(5.0, 2, 1.5, 3.0));
+        when(persistenceManager.loadStrategy()).thenReturn(strategy);
+        candleStore = new CandleStore(tempDir.resolve("candles").toString());
+        storeUptrendCandles();
+        IndicatorEngine indicatorEngine = new IndicatorEngine(candleStore, null, tempDir.resolve("indicators").toString());
+        WindowKernels kernels = WindowKernels.select(true);
+        scanner = new TechnicalScannerService(marketDataService, indicatorEngine, new ConditionCompiler(kernels), persistenceManager,
+                kernels, scanPool, universes(), 250);
+    }
+
+    @AfterEach
+    void tearDown() {
+        candleStore.close();
+        scanPool.shutdown();
+    }
+
+    @Test
+    void testConcurrentScansShareOneExecution() throws Exception, KiteException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(marketDataService.syncHistoryForSymbols(anyList(), eq("NSE"), eq("day"), anyInt(), any(ScanProgress.class)))
+                .thenAnswer(invocation -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    return TOKENS;
+                });
+
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        Future<List<CandidateDto>> leader = submit(callers, () -> scanner.scanForCandidates(3));
+        Future<List<CandidateDto>> strategyCaller = submit(callers, scanner::scanWithStrategyParameters);
+        Future<List<CandidateDto>> singleCaller = submit(callers, () -> scanner.scanForCandidates(1));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (scanner.getCoalescedCallers() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertEquals(3, leader.get(5, TimeUnit.SECONDS).size());
+        assertEquals(2, strategyCaller.get(5, TimeUnit.SECONDS).size());
+        assertEquals(List.of("AAA"), singleCaller.get(5, TimeUnit.SECONDS).stream().map(CandidateDto::symbol).toList());
+        assertEquals(1, scanner.getScansExecuted());
+        assertEquals(2, scanner.getCoalescedCallers());
+        verify(marketDataService, times(1)).syncHistoryForSymbols(anyList(), anyString(), anyString(), anyInt(), any(ScanProgress.class));
+        callers.shutdown();
+    }
+
+    @Test
+    void testSequentialScansRunIndependently() throws IOException, KiteException {
+        when(marketDataService.syncHistoryForSymbols(anyList(), anyString(), anyString(), anyInt(), any(ScanProgress.class)))
+                .thenReturn(TOKENS);
+
+        scanner.scanForCandidates(5);
+        scanner.scanForCandidates(5);
+
+        assertEquals(2, scanner.getScansExecuted());
+        assertEquals(0, scanner.getCoalescedCallers());
+    }
+
+    @Test
+    void testFailureIsRethrownAndNotCached() throws IOException, KiteException {
+        when(marketDataService.syncHistoryForSymbols(anyList(), anyString(), anyString(), anyInt(), any(ScanProgress.class)))
+                .thenThrow(new NetworkException("Kite down", 503))
+                .thenReturn(TOKENS);
+
+        assertThrows(NetworkException.class, () -> scanner.scanForCandidates(5));
+        assertEquals(3, scanner.scanForCandidates(5).size());
+    }
+
+    @Test
+    void testScanIsCancelledOnceEveryCallerReleasesIt() throws Exception, KiteException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(marketDataService.syncHistoryForSymbols(anyList(), anyString(), anyString(), anyInt(), any(ScanProgress.class)))
+                .thenAnswer(invocation -> {
+                    release.await(5, TimeUnit.SECONDS);
+                    return TOKENS;
+                });
+        AtomicReference<ScanProgress> leaderProgress = new AtomicReference<>();
+        AtomicReference<ScanProgress> followerProgress = new AtomicReference<>();
+
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        Future<List<CandidateDto>> leader = submit(callers, () -> scanner.scanForCandidates(3, leaderProgress::set));
+        while (leaderProgress.get() == null) {
+            Thread.sleep(5);
+        }
+        Future<List<CandidateDto>> follower = submit(callers, () -> scanner.scanForCandidates(3, followerProgress::set));
+        while (followerProgress.get() == null) {
+            Thread.sleep(5);
+        }
+        assertSame(leaderProgress.get(), followerProgress.get());
+        assertEquals(50, leaderProgress.get().total()); // the default Nifty 50 universe
+
+        // The follower still wants the result, so the leader giving up does not stop the scan
+        leaderProgress.get().release();
+        assertFalse(leaderProgress.get().isCancelled());
+        followerProgress.get().release();
+        assertTrue(leaderProgress.get().isCancelled());
+        release.countDown();
+
+        ExecutionException cancelled = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(CancellationException.class, cancelled.getCause());
+        assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        // A new caller starts a fresh scan
+        assertEquals(3, scanner.scanForCandidates(3).size());
+        callers.shutdown();
+    }
+
+    @Test
+    void testStrategyEntryConditionsDecideSelection() throws IOException, KiteException {
+        when(marketDataService.syncHistoryForSymbols(anyList(), anyString(), anyString(), anyInt(), any(ScanProgress.class)))
+                .thenReturn(TOKENS);
+        when(marketDataService.readStoredTail(anyString(), eq("day"), anyInt(), anyInt(), any(CandleStore.TailBuffer.class)))
+                .thenAnswer(invocation -> candleStore.readTail(invocation.getArgument(0), "day", Long.MIN_VALUE, Long.MAX_VALUE,
+                        invocation.getArgument(3), invocation.getArgument(4)));
+
+        useEntryConditions("1.1.0", List.of("Price > EMA_200", "close < 200"));
+        assertEquals(List.of("AAA"), scanner.scanForCandidates(5).stream().map(CandidateDto::symbol).toList());
+
+        // Editing strategy.json changes the selection on the next scan
+        useEntryConditions("1.2.0", List.of("EMA_9 > EMA_200", "Price closes above 200"));
+        assertEquals(List.of("BBB", "CCC"), scanner.scanForCandidates(5).stream().map(CandidateDto::symbol).toList());
+        // Evaluation reads the synced store; it never syncs a symbol again
+        verify(marketDataService, never()).fetchCandleSeries(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    void testParallelScanKeepsTheSameTopCandidatesAsASequentialOne() throws IOException, KiteException {
+        Map<String, String> universe = new HashMap<>();
+        for (int i = 0; i < 120; i++) {
+            String token = Integer.toString(1_000 + i);
+            universe.put("SYM" + i, token);
+            // Interleave slopes so symbol order and ranking order differ; every 7th is in a downtrend
+            candleStore.append(token, "day", series(i % 7 == 0 ? -0.2 : 0.05 + (i * 37 % 120) / 100.0));
+        }
+        when(marketDataService.syncHistoryForSymbols(anyList(), anyString(), anyString(), anyInt(), any(ScanProgress.class))).thenReturn(universe);
+        ForkJoinPool sequentialPool = new ForkJoinPool(1);
+        WindowKernels kernels = WindowKernels.select(true);
+        IndicatorEngine sequentialEngine = new IndicatorEngine(candleStore, null, tempDir.resolve("indicators-seq").toString());
+        TechnicalScannerService sequential = new TechnicalScannerService(marketDataService, sequentialEngine,
+                new ConditionCompiler(kernels), persistenceManager, kernels, sequentialPool, universes(), 250);
+
+        List<CandidateDto> parallelTop = scanner.scanForCandidates(10);
+        List<CandidateDto> sequentialTop = sequential.scanForCandidates(10);
+        sequentialPool.shutdown();
+
+        assertEquals(sequentialTop, parallelTop);
+        assertEquals(10, parallelTop.size());
+        for (int i = 1; i < parallelTop.size(); i++) {
+            assertTrue(parallelTop.get(i - 1).distancePct() <= parallelTop.get(i).distancePct());
+        }
+        assertEquals(120 - 18, scanner.scanForCandidates(500).size()); // downtrends filtered out
+    }
+
+    @Test
+    void testLargeUniverseIsScannedShardByShard() throws IOException, KiteException {
+        TradingStrategy strategy = new TradingStrategy();
+        strategy.setStrategyVersion("1.0.0");
+        strategy.setUniverse(new TradingStrategy.Universe("Test", "NSE", List.of("CCC", "AAA", "BBB")));
+        when(persistenceManager.loadStrategy()).thenReturn(strategy);
+        when(marketDataService.syncHistoryForSymbols(anyList(), eq("NSE"), eq("day"), anyInt(), any(ScanProgress.class)))
+                .thenAnswer(invocation -> {
+                    Map<String, String> tokens = new HashMap<>();
+                    for (String symbol : invocation.<List<String>>getArgument(0)) {
+                        tokens.put(symbol, TOKENS.get(symbol));
+                    }
+                    return tokens;
+                });
+        WindowKernels kernels = WindowKernels.scalar();
+        IndicatorEngine engine = new IndicatorEngine(candleStore, null, tempDir.resolve("indicators-sharded").toString());
+        TechnicalScannerService sharded = new TechnicalScannerService(marketDataService, engine, new ConditionCompiler(kernels),
+                persistenceManager, kernels, scanPool, universes(), 2);
+
+        List<CandidateDto> candidates = sharded.scanForCandidates(5);
+
+        // The collector ranks across shards
+        assertEquals(List.of("AAA", "BBB", "CCC"), candidates.stream().map(CandidateDto::symbol).toList());
+        verify(marketDataService).syncHistoryForSymbols(eq(List.of("CCC", "AAA")), eq("NSE"), eq("day"), anyInt(), any(ScanProgress.class));
+        verify(marketDataService).syncHistoryForSymbols(eq(List.of("BBB")), eq("NSE"), eq("day"), anyInt(), any(ScanProgress.class));
+        List<TechnicalScannerService.ShardReport> shards = sharded.getLastScanShards();
+        assertEquals(2, shards.size());
+        assertEquals(2, shards.get(0).evaluated());
+        assertEquals(1, shards.get(1).symbols());
+        assertTrue(shards.get(1).heapUsedBytes() > 0);
+    }
+
+    @Test
+    void testStreamedScanHandsOverEachCandidateAsItIsSynced() throws IOException, KiteException {
+        TradingStrategy strategy = new TradingStrategy();
+        strategy.setStrategyVersion("1.0.0");
+        strategy.setUniverse(new TradingStrategy.Universe("Test", "NSE", List.of("CCC", "AAA", "BBB")));
+        when(persistenceManager.loadStrategy()).thenReturn(strategy);
+        List<String> events = new ArrayList<>();
+        when(marketDataService.syncHistoryForSymbols(anyList(), eq("NSE"), eq("day"), anyInt(), any(ScanProgress.class), any()))
+                .thenAnswer(invocation -> {
+                    List<String> symbols = invocation.getArgument(0);
+                    BiConsumer<String, String> onSynced = invocation.getArgument(5);
+                    events.add("sync " + symbols);
+                    Map<String, String> tokens = new HashMap<>();
+                    for (String symbol : symbols) {
+                        tokens.put(symbol, TOKENS.get(symbol));
+                        onSynced.accept(symbol, TOKENS.get(symbol));
+                    }
+                    return tokens;
+                });
+        WindowKernels kernels = WindowKernels.scalar();
+        IndicatorEngine engine = new IndicatorEngine(candleStore, null, tempDir.resolve("indicators-streamed").toString());
+        TechnicalScannerService streamed = new TechnicalScannerService(marketDataService, engine, new ConditionCompiler(kernels),
+                persistenceManager, kernels, scanPool, universes(), 2);
+        ScanProgress progress = new ScanProgress();
+
+        List<CandidateDto> ranked = streamed.streamCandidates(2, progress, candidate -> events.add(candidate.symbol()));
+
+        // Each candidate arrives as soon as its own symbol is synced, before the next shard is fetched
+        assertEquals(List.of("sync [CCC, AAA]", "CCC", "AAA", "sync [BBB]", "BBB"), events);
+        assertEquals(List.of("AAA", "BBB"), ranked.stream().map(CandidateDto::symbol).toList());
+        assertEquals(3, progress.evaluated());
+        verify(marketDataService, never()).syncHistoryForSymbols(anyList(), anyString(), anyString(), anyInt(), any(ScanProgress.class));
+    }
+
+    private UniverseService universes() {
+        return new UniverseService(null, tempDir.resolve("universes").toString());
+    }
+
+    private void useEntryConditions(String version, List<String> entryConditions) throws IOException {
+        TradingStrategy strategy = new TradingStrategy();
+        strategy.setStrategyVersion(version);
+        strategy.setTechnicalStrategy(new TradingStrategy.TechnicalStrategy("Test", "", List.of(), entryConditions, List.of()));
+        when(persistenceManager.loadStrategy()).thenReturn(strategy);
+    }
+
+    @FunctionalInterface
+    private interface Scan {
+        List<CandidateDto> run() throws IOException, KiteException;
+    }
+
+    private static Future<List<CandidateDto>> submit(ExecutorService executor, Scan scan) {
+        return executor.submit(() -> {
+            try {
+                return scan.run();
+            } catch (KiteException e) {
+                throw new IllegalStateException(e.message, e);
+            }
+        });
+    }
+
+    /**
+     * Three rising daily series whose last close sits progressively further above EMA200.
+     */
+    private void storeUptrendCandles() {
+        candleStore.append(TOKENS.get("CCC"), "day", series(1.0));
+        candleStore.append(TOKENS.get("AAA"), "day", series(0.1));
+        candleStore.append(TOKENS.get("BBB"), "day", series(0.5));
+    }
+
+    private static List<HistoricalData> series(double slope) {
+        LocalDate first = LocalDate.of(2025, 1, 1);
+        List<HistoricalData> bars = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            HistoricalData candle = new HistoricalData();
+            candle.timeStamp = KiteTime.formatTimestamp(first.plusDays(i).atStartOfDay(KiteTime.IST).toInstant().toEpochMilli());
+            candle.close = 100.0 + slope * i;
+            bars.add(candle);
+        }
+        return bars;
+    }
+}
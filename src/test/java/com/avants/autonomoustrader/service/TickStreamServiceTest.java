@@ -0,0 +1,119 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.dto.KiteDto;
+import com.avants.autonomoustrader.model.LivePortfolio;
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TickStreamServiceTest {
+
+    @Mock
+    private InstrumentMaster instrumentMaster;
+
+    @Mock
+    private PersistenceManager persistenceManager;
+
+    @TempDir
+    Path tempDir;
+
+    private TickStreamService tickStream;
+
+    @BeforeEach
+    void setUp() throws IOException, KiteException {
+        MockitoAnnotations.openMocks(this);
+        TradingStrategy strategy = new TradingStrategy();
+        strategy.setUniverse(new TradingStrategy.Universe("Test", "NSE", List.of("RELIANCE", "TCS")));
+        when(persistenceManager.loadStrategy()).thenReturn(strategy);
+
+        LivePortfolio portfolio = new LivePortfolio();
+        portfolio.setLivePortfolio(new KiteDto.LivePortfolio(
+                List.of(new KiteDto.HoldingDto("INFY", "NSE", "CNC", 5, 0, 1500.0, 1510.0, 50.0)),
+                List.of()));
+        when(persistenceManager.loadPositions()).thenReturn(portfolio);
+
+        when(instrumentMaster.token("NSE", "RELIANCE")).thenReturn(738561L);
+        when(instrumentMaster.token("NSE", "TCS")).thenReturn(2953217L);
+        when(instrumentMaster.token("NSE", "INFY")).thenReturn(408065L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (tickStream != null) {
+            tickStream.stop();
+        }
+    }
+
+    @Test
+    void testReplayedTicksReachRingAndLatestPrices() throws IOException, InterruptedException {
+        Path recording = tempDir.resolve("ticks.csv");
+        Files.writeString(recording, """
+                # epochMillis,token,lastPrice,quantity,volumeToday
+                1772437500000,738561,2500.00,10,1000
+                1772437500100,2953217,3450.00,5,500
+                1772437500200,999999,10.00,1,1
+                1772437500300,738561,2501.50,20,1020
+                1772437500400,408065,1510.25,3,300
+                """);
+        ReplayTickFeed feed = new ReplayTickFeed(recording, 0);
+        tickStream = new TickStreamService(feed, instrumentMaster, persistenceManager, true, 1024);
+
+        tickStream.start();
+        assertTrue(feed.awaitFinished(5, TimeUnit.SECONDS));
+
+        assertArrayEquals(new long[]{408065L, 738561L, 2953217L}, tickStream.subscribedTokens());
+        assertEquals(5, tickStream.ticksReceived()); // connect marker + 4; the unsubscribed token is never delivered
+        assertEquals(2501.50, tickStream.latestPrice(738561L));
+        assertEquals(1772437500300L, tickStream.latestPriceTime(738561L));
+        assertEquals(1510.25, tickStream.latestPrice(408065L));
+        assertTrue(Double.isNaN(tickStream.latestPrice(999999L)));
+
+        List<Long> tokens = new ArrayList<>();
+        tickStream.ticks().poll(0, 100, (seq, token, price, qty, volume, ts) -> tokens.add(token));
+        assertEquals(List.of(TickStreamService.FEED_CONNECTED, 738561L, 2953217L, 738561L, 408065L), tokens);
+    }
+
+    @Test
+    void testRefreshKeepsPricesAndDropsSoldHoldings() throws IOException, InterruptedException {
+        Path recording = tempDir.resolve("ticks.csv");
+        Files.writeString(recording, "1772437500000,408065,1510.25,3,300\n1772437500100,738561,2500.00,10,1000\n");
+        ReplayTickFeed feed = new ReplayTickFeed(recording, 0);
+        tickStream = new TickStreamService(feed, instrumentMaster, persistenceManager, true, 1024);
+        tickStream.start();
+        assertTrue(feed.awaitFinished(5, TimeUnit.SECONDS));
+
+        when(persistenceManager.loadPositions()).thenReturn(new LivePortfolio());
+        tickStream.refreshSubscriptions();
+
+        assertArrayEquals(new long[]{738561L, 2953217L}, tickStream.subscribedTokens());
+        assertEquals(2500.00, tickStream.latestPrice(738561L));
+        assertTrue(Double.isNaN(tickStream.latestPrice(408065L)));
+    }
+
+    @Test
+    void testDisabledStreamNeverStartsFeed() {
+        TickFeed feed = mock(TickFeed.class);
+        tickStream = new TickStreamService(feed, instrumentMaster, persistenceManager, false, 1024);
+
+        tickStream.start();
+        tickStream.refreshSubscriptions();
+
+        verifyNoInteractions(feed);
+        assertEquals(0, tickStream.subscribedTokens().length);
+    }
+}
@@ -0,0 +1,86 @@
+package com.avants.autonomoustrader.service;
+
+import com.avants.autonomoustrader.model.TradingStrategy;
+import com.avants.autonomoustrader.util.MarketUniverse;
+import com.zerodhatech.kiteconnect.kitehttp.exceptions.KiteException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UniverseServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private UniverseService universes;
+
+    @BeforeEach
+    void setUp() {
+        universes = new UniverseService(null, tempDir.toString());
+    }
+
+    @Test
+    void testStrategySymbolsTakePrecedence() throws IOException, KiteException {
+        Files.writeString(tempDir.resolve("nifty_500.txt"), "RELIANCE\n");
+
+        UniverseService.ScanUniverse universe = universes.resolve(strategy("Nifty 500", "bse", List.of(" tcs", "INFY", "TCS", "")));
+
+        assertEquals("BSE", universe.exchange());
+        assertEquals(List.of("TCS", "INFY"), universe.symbols());
+    }
+
+    @Test
+    void testConstituentFilesAreFoundByUniverseName() throws IOException, KiteException {
+        Files.writeString(tempDir.resolve("nifty_500.csv"), """
+                Company Name,Industry,Symbol,Series,ISIN Code
+                Reliance Industries Ltd.,Oil Gas & Consumable Fuels,RELIANCE,EQ,INE002A01018
+                Tata Consultancy Services Ltd.,Information Technology,TCS,EQ,INE467B01029
+                """);
+        Files.writeString(tempDir.resolve("fno_stocks.txt"), """
+                # F&O underlyings
+                SBIN
+                m&m
+                """);
+
+        assertEquals(List.of("RELIANCE", "TCS"), universes.resolve(strategy("Nifty 500", "NSE", null)).symbols());
+        assertEquals(List.of("SBIN", "M&M"), universes.resolve(strategy("FnO Stocks", null, List.of())).symbols());
+        assertEquals("NSE", universes.resolve(strategy("FnO Stocks", null, List.of())).exchange());
+    }
+
+    @Test
+    void testEditedFileIsReloaded() throws IOException, KiteException {
+        Path file = tempDir.resolve("watchlist.txt");
+        Files.writeString(file, "SBIN\n");
+        assertEquals(List.of("SBIN"), universes.resolve(strategy("Watchlist", "NSE", null)).symbols());
+
+        Files.writeString(file, "SBIN\nITC\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2_000));
+
+        assertEquals(List.of("SBIN", "ITC"), universes.resolve(strategy("Watchlist", "NSE", null)).symbols());
+    }
+
+    @Test
+    void testDefaultsAndUnknownUniverses() throws IOException, KiteException {
+        UniverseService.ScanUniverse fallback = universes.resolve(new TradingStrategy());
+        assertEquals(MarketUniverse.NIFTY_50, fallback.symbols());
+        assertEquals("NSE", fallback.exchange());
+        assertEquals(MarketUniverse.NIFTY_50, universes.resolve(strategy("NIFTY-50", "NSE", null)).symbols());
+
+        IOException unknown = assertThrows(IOException.class, () -> universes.resolve(strategy("Midcap 150", "NSE", null)));
+        assertTrue(unknown.getMessage().contains("midcap_150.csv"));
+    }
+
+    private static TradingStrategy strategy(String name, String exchange, List<String> symbols) {
+        TradingStrategy strategy = new TradingStrategy();
+        strategy.setUniverse(new TradingStrategy.Universe(name, exchange, symbols));
+        return strategy;
+    }
+}
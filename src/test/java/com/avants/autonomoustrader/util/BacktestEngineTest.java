@@ -0,0 +1,107 @@
+package com.avants.autonomoustrader.util;
+
+import com.avants.autonomoustrader.model.CandleSeries;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BacktestEngineTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long START = 1_717_977_600_000L; // 2024-06-10 05:30 IST
+
+    @Test
+    void testEntriesFillAtTheNextOpenAndExitAtStopsTargetsAndSignals() {
+        // bar:          0    1    2      3    4    5    6    7   8
+        double[] open = {100, 100, 101, 104, 100, 100, 100, 99, 100};
+        double[] high = {101, 102, 102.5, 106, 101, 101, 101, 100, 101};
+        double[] low = {99, 99, 100, 103, 99, 99, 99, 95, 99};
+        double[] close = {100, 101, 102, 105, 100, 100, 100, 96, 100};
+        BacktestEngine.Instrument instrument = instrument("AAA", open, high, low, close,
+                bars(9, 0, 4, 5, 6), bars(9, 5));
+        BacktestEngine.Rules rules = new BacktestEngine.Rules(10_000, 50, 0, 2.0, 3.0);
+
+        BacktestEngine.Result result = BacktestEngine.run(List.of(instrument), rules, START);
+
+        List<BacktestEngine.Trade> trades = result.trades();
+        assertEquals(3, trades.size());
+        // Signal on bar 0's close, bought at bar 1's open; bar 3 gaps past the 103 target and fills at its open
+        assertTrade(trades.get(0), 1, 100, 3, 104, 50, BacktestEngine.ExitReason.TARGET);
+        assertEquals(200, trades.get(0).pnl(), 1e-9);
+        assertEquals(4.0, trades.get(0).returnPct(), 1e-9);
+        // Bought at bar 5's open with half of the grown equity; the exit signal on its close sells at bar 6's open.
+        // Bar 5's own entry signal is ignored while the position is held
+        assertTrade(trades.get(1), 5, 100, 6, 100, 51, BacktestEngine.ExitReason.SIGNAL);
+        // Bar 6's signal buys at bar 7's open, which then trades through the 2% stop
+        assertTrade(trades.get(2), 7, 99, 7, 97.02, 51, BacktestEngine.ExitReason.STOP_LOSS);
+        assertEquals(10_000 + 200 - 51 * 1.98, result.endingEquity(), 1e-9);
+        assertEquals(9, result.bars());
+    }
+
+    @Test
+    void testStopIsAssumedBeforeTargetAndEntriesRespectPositionLimit() {
+        double[] open = {100, 100, 100};
+        double[] high = {100, 110, 100};
+        double[] low = {100, 90, 100};
+        double[] close = {100, 100, 100};
+        BacktestEngine.Instrument first = instrument("AAA", open, high, low, close, bars(3, 0), bars(3));
+        BacktestEngine.Instrument second = instrument("BBB", open, high, low, close, bars(3, 0, 1), bars(3));
+        BacktestEngine.Rules rules = new BacktestEngine.Rules(10_000, 10, 1, 5.0, 5.0);
+
+        BacktestEngine.Result result = BacktestEngine.run(List.of(first, second), rules, START);
+
+        // Only one slot: AAA (first in order) is bought, BBB waits; the wide bar hits AAA's stop first
+        assertTrade(result.trades().get(0), 1, 100, 1, 95, 10, BacktestEngine.ExitReason.STOP_LOSS);
+        // The slot AAA freed goes to BBB's signal from bar 1's close, sized on equity after the loss
+        assertTrade(result.trades().get(1), 2, 100, 2, 100, 9, BacktestEngine.ExitReason.END);
+        assertEquals(2, result.trades().size());
+        assertEquals(9_950, result.endingEquity(), 1e-9);
+        assertEquals(50.0, result.maxDrawdown(), 1e-9);
+        assertEquals(0.5, result.maxDrawdownPct(), 1e-9);
+    }
+
+    @Test
+    void testSignalsBeforeTheStartOnlyWarmUp() {
+        double[] flat = {100, 100, 100, 100, 100};
+        BacktestEngine.Instrument instrument = instrument("AAA", flat, flat, flat, flat, bars(5, 0, 1, 3), bars(5));
+        BacktestEngine.Rules rules = new BacktestEngine.Rules(1_000, 0, 2, 0, 0);
+
+        BacktestEngine.Result result = BacktestEngine.run(List.of(instrument), rules, START + 2 * DAY);
+
+        // Bars 0 and 1 precede the test; bar 3's signal buys at bar 4 with half the equity (two slots)
+        assertEquals(1, result.trades().size());
+        assertTrade(result.trades().get(0), 4, 100, 4, 100, 5, BacktestEngine.ExitReason.END);
+        assertEquals(3, result.bars());
+        assertEquals(1_000, result.endingEquity(), 1e-9);
+    }
+
+    private static void assertTrade(BacktestEngine.Trade trade, int entryBar, double entryPrice, int exitBar, double exitPrice,
+                                    int quantity, BacktestEngine.ExitReason reason) {
+        assertEquals(START + entryBar * DAY, trade.entryTime());
+        assertEquals(entryPrice, trade.entryPrice(), 1e-9);
+        assertEquals(START + exitBar * DAY, trade.exitTime());
+        assertEquals(exitPrice, trade.exitPrice(), 1e-9);
+        assertEquals(quantity, trade.quantity());
+        assertEquals(reason, trade.reason());
+    }
+
+    private static BacktestEngine.Instrument instrument(String symbol, double[] open, double[] high, double[] low, double[] close,
+                                                       boolean[] entries, boolean[] exits) {
+        int n = close.length;
+        long[] ts = new long[n];
+        for (int i = 0; i < n; i++) {
+            ts[i] = START + i * DAY;
+        }
+        return new BacktestEngine.Instrument(symbol, new CandleSeries(ts, open, high, low, close, new long[n]), entries, exits);
+    }
+
+    private static boolean[] bars(int n, int... set) {
+        boolean[] signals = new boolean[n];
+        for (int bar : set) {
+            signals[bar] = true;
+        }
+        return signals;
+    }
+}
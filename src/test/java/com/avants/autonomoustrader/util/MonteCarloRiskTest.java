@@ -0,0 +1,83 @@
+package com.avants.autonomoustrader.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonteCarloRiskTest {
+
+    private static final int[] HORIZONS = {1, 10};
+
+    @Test
+    void testContributionsAddUpAndRunsAreReproducible() {
+        MonteCarloRisk.Book book = randomBook(4, 250, new double[]{100_000, 250_000, -50_000, 80_000});
+
+        for (MonteCarloRisk.Method method : MonteCarloRisk.Method.values()) {
+            List<MonteCarloRisk.Horizon> first = MonteCarloRisk.simulate(book, method, 20_000, HORIZONS, 0.99, 7);
+            List<MonteCarloRisk.Horizon> again = MonteCarloRisk.simulate(book, method, 20_000, HORIZONS, 0.99, 7);
+
+            for (int h = 0; h < HORIZONS.length; h++) {
+                MonteCarloRisk.Horizon horizon = first.get(h);
+                assertEquals(horizon.valueAtRisk(), again.get(h).valueAtRisk()); // same seed, same paths
+                assertArrayEquals(horizon.esContributions(), again.get(h).esContributions());
+                assertTrue(horizon.valueAtRisk() > 0);
+                assertTrue(horizon.expectedShortfall() >= horizon.valueAtRisk());
+                assertEquals(horizon.valueAtRisk(), Arrays.stream(horizon.varContributions()).sum(), 1e-6 * horizon.valueAtRisk());
+                assertEquals(horizon.expectedShortfall(), Arrays.stream(horizon.esContributions()).sum(), 1e-6 * horizon.expectedShortfall());
+            }
+            assertTrue(first.get(1).valueAtRisk() > first.get(0).valueAtRisk(), method + ": ten days risk more than one");
+        }
+    }
+
+    @Test
+    void testNormalModelMatchesTheAnalyticQuantiles() {
+        int days = 500;
+        double[] returns = new double[days];
+        for (int d = 0; d < days; d++) {
+            returns[d] = d % 2 == 0 ? 0.01 : -0.01; // mean 0, sample deviation just over 1%
+        }
+        double sigma = 0.01 * Math.sqrt(days / (days - 1.0)) * 1_000_000;
+        MonteCarloRisk.Book book = new MonteCarloRisk.Book(1, days, returns, new double[]{1_000_000});
+
+        List<MonteCarloRisk.Horizon> horizons = MonteCarloRisk.simulate(book, MonteCarloRisk.Method.NORMAL, 200_000, HORIZONS, 0.99, 11);
+
+        // z(0.99) = 2.3263; the normal tail beyond it averages φ(z) / 1% = 2.6652 deviations
+        assertEquals(2.3263 * sigma, horizons.get(0).valueAtRisk(), 0.02 * 2.3263 * sigma);
+        assertEquals(2.6652 * sigma, horizons.get(0).expectedShortfall(), 0.02 * 2.6652 * sigma);
+        assertEquals(2.3263 * sigma * Math.sqrt(10), horizons.get(1).valueAtRisk(), 0.02 * 2.3263 * sigma * Math.sqrt(10));
+    }
+
+    @Test
+    void testHedgedBookCarriesNoRisk() {
+        MonteCarloRisk.Book single = randomBook(1, 100, new double[]{1});
+        double[] returns = new double[200];
+        for (int d = 0; d < 100; d++) {
+            returns[2 * d] = single.returns()[d];
+            returns[2 * d + 1] = single.returns()[d];
+        }
+        MonteCarloRisk.Book hedged = new MonteCarloRisk.Book(2, 100, returns, new double[]{500_000, -500_000});
+
+        MonteCarloRisk.Horizon tenDay = MonteCarloRisk.simulate(hedged, MonteCarloRisk.Method.BOOTSTRAP, 5_000, HORIZONS, 0.95, 3).get(1);
+
+        assertEquals(0.0, tenDay.valueAtRisk(), 1e-6);
+        assertEquals(0.0, tenDay.expectedShortfall(), 1e-6);
+        // Each leg still carries risk of its own, which the other cancels
+        assertEquals(-tenDay.esContributions()[0], tenDay.esContributions()[1], 1e-6);
+    }
+
+    private static MonteCarloRisk.Book randomBook(int assets, int days, double[] exposures) {
+        Random random = new Random(42);
+        double[] returns = new double[assets * days];
+        for (int d = 0; d < days; d++) {
+            double market = random.nextGaussian() * 0.01;
+            for (int i = 0; i < assets; i++) {
+                returns[d * assets + i] = market + random.nextGaussian() * 0.015;
+            }
+        }
+        return new MonteCarloRisk.Book(assets, days, returns, exposures);
+    }
+}
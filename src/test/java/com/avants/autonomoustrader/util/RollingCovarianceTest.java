@@ -0,0 +1,85 @@
+package com.avants.autonomoustrader.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingCovarianceTest {
+
+    @Test
+    void testRollingUpdatesMatchADirectComputationOverTheWindow() {
+        int assets = 6;
+        int window = 20;
+        RollingCovariance rolling = new RollingCovariance(assets, window);
+        Random random = new Random(11);
+        double[][] bars = new double[75][assets]; // several windows, so bars are evicted across rebuilds
+
+        for (int t = 0; t < bars.length; t++) {
+            double market = random.nextGaussian() * 0.01;
+            for (int i = 0; i < assets; i++) {
+                bars[t][i] = 0.001 + market * (i + 1) * 0.3 + random.nextGaussian() * 0.005;
+            }
+            rolling.add(bars[t]);
+
+            int from = Math.max(0, t + 1 - window);
+            assertEquals(t + 1 - from, rolling.count());
+            if (t == 0) {
+                assertTrue(Double.isNaN(rolling.covariance(0, 0)));
+                continue;
+            }
+            for (int i = 0; i < assets; i++) {
+                for (int j = 0; j < assets; j++) {
+                    assertEquals(covariance(bars, from, t + 1, i, j), rolling.covariance(i, j), 1e-15);
+                }
+            }
+        }
+
+        double[] correlation = rolling.correlation();
+        for (int i = 0; i < assets; i++) {
+            assertEquals(1.0, correlation[i * assets + i], 1e-12);
+            for (int j = 0; j < assets; j++) {
+                double expected = covariance(bars, bars.length - window, bars.length, i, j)
+                        / Math.sqrt(covariance(bars, bars.length - window, bars.length, i, i)
+                        * covariance(bars, bars.length - window, bars.length, j, j));
+                assertEquals(expected, correlation[i * assets + j], 1e-9);
+                assertEquals(correlation[i * assets + j], rolling.correlation(i, j), 1e-12);
+            }
+        }
+        assertTrue(correlation[4 * assets + 5] > 0.5, "a shared market factor correlates the assets");
+    }
+
+    @Test
+    void testFlatSeriesHaveNoCorrelationAndNaNCountsAsNoChange() {
+        RollingCovariance rolling = new RollingCovariance(3, 5);
+        rolling.add(new double[]{0.01, 0.0, Double.NaN});
+        rolling.add(new double[]{-0.02, Double.NaN, 0.01});
+        rolling.add(new double[]{0.03, 0.0, -0.01});
+
+        assertEquals(0.0, rolling.covariance(1, 1));
+        assertTrue(Double.isNaN(rolling.correlation(0, 1)));
+        assertTrue(Double.isNaN(rolling.correlation()[1]));
+        assertEquals(covariance(new double[][]{{0.01, 0.0, 0.0}, {-0.02, 0.0, 0.01}, {0.03, 0.0, -0.01}}, 0, 3, 0, 2),
+                rolling.covariance(2, 0), 1e-15);
+        assertThrows(IllegalArgumentException.class, () -> rolling.add(new double[2]));
+        assertThrows(IllegalArgumentException.class, () -> new RollingCovariance(3, 1));
+    }
+
+    private static double covariance(double[][] bars, int from, int to, int i, int j) {
+        int n = to - from;
+        double mi = 0.0;
+        double mj = 0.0;
+        for (int t = from; t < to; t++) {
+            mi += bars[t][i];
+            mj += bars[t][j];
+        }
+        mi /= n;
+        mj /= n;
+        double sum = 0.0;
+        for (int t = from; t < to; t++) {
+            sum += (bars[t][i] - mi) * (bars[t][j] - mj);
+        }
+        return sum / (n - 1);
+    }
+}
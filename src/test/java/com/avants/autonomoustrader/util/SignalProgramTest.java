@@ -0,0 +1,266 @@
+package com.avants.autonomoustrader.util;
+
+import com.avants.autonomoustrader.model.CandleSeries;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignalProgramTest {
+
+    private static final long DAY = 86_400_000L;
+    private static final long OPEN = 1_717_991_100_000L; // 2024-06-10 09:15 IST
+
+    @Test
+    void testRsiAndAtrMatchWilderReference() {
+        CandleSeries series = zigzag(60);
+        SignalProgram.Builder builder = SignalProgram.builder();
+        int rsi = builder.rsi(builder.source(SignalProgram.Field.CLOSE), 14);
+        int atr = builder.atr(14);
+        SignalProgram program = builder.build(0, 0);
+        SignalProgram.Workspace workspace = program.newWorkspace();
+
+        program.evaluate(series, workspace);
+
+        assertEquals(referenceRsi(series, 14), workspace.value(rsi), 1e-9);
+        assertEquals(referenceAtr(series, 14), workspace.value(atr), 1e-9);
+        assertTrue(workspace.value(rsi) > 0 && workspace.value(rsi) < 100);
+
+        program.evaluate(series.slice(0, 14), workspace);
+        assertTrue(Double.isNaN(workspace.value(rsi))); // 13 changes are not enough
+    }
+
+    @Test
+    void testBollingerBandsUseRollingStandardDeviation() {
+        CandleSeries series = zigzag(30);
+        SignalProgram.Builder builder = SignalProgram.builder();
+        int close = builder.source(SignalProgram.Field.CLOSE);
+        int upper = builder.bollinger(close, 20, 2.0);
+        int middle = builder.bollinger(close, 20, 0.0);
+        int lower = builder.bollinger(close, 20, -2.0);
+        SignalProgram program = builder.build(0, 0);
+        SignalProgram.Workspace workspace = program.newWorkspace();
+
+        program.evaluate(series, workspace);
+
+        double mean = 0;
+        for (int i = 10; i < 30; i++) {
+            mean += series.close(i) / 20;
+        }
+        double variance = 0;
+        for (int i = 10; i < 30; i++) {
+            variance += (series.close(i) - mean) * (series.close(i) - mean) / 20;
+        }
+        assertEquals(mean, workspace.value(middle), 1e-9);
+        assertEquals(mean + 2 * Math.sqrt(variance), workspace.value(upper), 1e-9);
+        assertEquals(mean - 2 * Math.sqrt(variance), workspace.value(lower), 1e-9);
+    }
+
+    @Test
+    void testVwapRestartsEachSessionAndObvAccumulates() {
+        long[] timestamps = {OPEN, OPEN + 60_000, OPEN + DAY, OPEN + DAY + 60_000};
+        double[] close = {100, 102, 101, 99};
+        double[] high = {101, 103, 102, 100};
+        double[] low = {99, 101, 100, 98};
+        long[] volume = {10, 30, 20, 20};
+        CandleSeries series = new CandleSeries(timestamps, close.clone(), high, low, close, volume);
+        SignalProgram.Builder builder = SignalProgram.builder();
+        int vwap = builder.vwap();
+        int obv = builder.obv();
+        SignalProgram program = builder.build(0, 0);
+        SignalProgram.Workspace workspace = program.newWorkspace();
+
+        program.evaluate(series.slice(0, 2), workspace);
+        assertEquals((100.0 * 10 + 102.0 * 30) / 40, workspace.value(vwap), 1e-9);
+        assertEquals(30, workspace.value(obv));
+
+        program.evaluate(series, workspace);
+        // Only the second session's bars count towards VWAP
+        assertEquals((101.0 * 20 + 99.0 * 20) / 40, workspace.value(vwap), 1e-9);
+        assertEquals(30 - 20 - 20, workspace.value(obv));
+    }
+
+    @Test
+    void testColumnWindowsMatchStreamedWindows() {
+        CandleSeries series = zigzag(45);
+        for (WindowKernels kernels : new WindowKernels[]{WindowKernels.scalar(), WindowKernels.select(true)}) {
+            SignalProgram.Builder builder = SignalProgram.builder().kernels(kernels);
+            int high = builder.source(SignalProgram.Field.HIGH);
+            int volume = builder.source(SignalProgram.Field.VOLUME);
+            // Scaling by one turns a raw column into a computed node, which takes the streaming path
+            int one = builder.constant(1.0);
+            int[] fromColumns = {builder.highest(high, 20), builder.lowest(high, 7), builder.sma(volume, 20)};
+            int[] streamed = {builder.highest(builder.multiply(one, high), 20), builder.lowest(builder.multiply(one, high), 7),
+                    builder.sma(builder.multiply(one, volume), 20)};
+            SignalProgram program = builder.build(0, 0);
+            SignalProgram.Workspace workspace = program.newWorkspace();
+
+            for (int bars : new int[]{45, 6, 30}) {
+                program.evaluate(series.slice(45 - bars, 45), workspace);
+                for (int i = 0; i < fromColumns.length; i++) {
+                    assertEquals(workspace.value(streamed[i]), workspace.value(fromColumns[i]), 1e-9, kernels.name() + " " + bars);
+                }
+                assertEquals(bars < 20, Double.isNaN(workspace.value(fromColumns[0])));
+            }
+        }
+    }
+
+    @Test
+    void testCompositeIndicatorsShareNodes() {
+        SignalProgram.Builder builder = SignalProgram.builder();
+        int close = builder.source(SignalProgram.Field.CLOSE);
+        int ema12 = builder.ema(close, 12);
+        int signal = builder.macdSignal(close, 12, 26, 9);
+        int before = builder.build(0, 0).nodeCount();
+
+        assertEquals(signal, builder.macdSignal(close, 12, 26, 9));
+        assertEquals(builder.macdLine(close, 12, 26), builder.subtract(ema12, builder.ema(close, 26)));
+        assertEquals(builder.rsi(close, 14), builder.rsi(close, 14));
+        int nodes = builder.build(0, 0).nodeCount();
+        builder.rsi(close, 21); // shares the bar-to-bar gains and losses of RSI 14
+        assertEquals(before + 6, nodes);
+        assertEquals(nodes + 3, builder.build(0, 0).nodeCount());
+    }
+
+    @Test
+    void testPerBarSignalsMatchEvaluatingEachPrefix() {
+        CandleSeries series = zigzag(40);
+        SignalProgram.Builder builder = SignalProgram.builder();
+        int close = builder.source(SignalProgram.Field.CLOSE);
+        int fast = builder.ema(close, 3);
+        int slow = builder.sma(close, 8);
+        SignalProgram program = builder
+                .entry(SignalProgram.Comparison.CROSSES_ABOVE, fast, slow)
+                .exit(SignalProgram.Comparison.CROSSES_BELOW, fast, slow)
+                .exitOnStopLoss()
+                .build(0.1, 0);
+        SignalProgram.Workspace workspace = program.newWorkspace();
+        boolean[] entries = new boolean[series.size()];
+        boolean[] exits = new boolean[series.size()];
+
+        program.evaluateBars(series, workspace, entries, exits);
+
+        int signals = 0;
+        SignalProgram.Workspace prefix = program.newWorkspace();
+        for (int bar = 0; bar < series.size(); bar++) {
+            program.evaluate(series.slice(0, bar + 1), prefix);
+            assertEquals(program.entry(prefix), entries[bar], "entry on bar " + bar);
+            assertEquals(program.exit(prefix, Double.NaN), exits[bar], "exit on bar " + bar); // no stop without a position
+            signals += (entries[bar] ? 1 : 0) + (exits[bar] ? 1 : 0);
+        }
+        assertTrue(signals > 2);
+        assertThrows(IllegalArgumentException.class, () -> program.evaluateBars(series, workspace, new boolean[3], exits));
+    }
+
+    @Test
+    void testLookbackTailMatchesTheWholeSeries() {
+        CandleSeries series = zigzag(400);
+        SignalProgram.Builder builder = SignalProgram.builder();
+        int close = builder.source(SignalProgram.Field.CLOSE);
+        int fast = builder.ema(close, 3);
+        int slow = builder.sma(close, 8);
+        int rsi = builder.rsi(close, 14);
+        SignalProgram program = builder
+                .entry(SignalProgram.Comparison.CROSSES_ABOVE, fast, slow)
+                .exit(SignalProgram.Comparison.GT, rsi, builder.constant(70))
+                .build(0, 0);
+        // RSI: one change, 14 seed values and ceil(ln(1000) × 14) bars of Wilder decay, plus the previous bar
+        assertEquals(2 + 13 + 97 + 1, program.lookback());
+
+        SignalProgram.Workspace whole = program.newWorkspace();
+        SignalProgram.Workspace tail = program.newWorkspace();
+        for (int end = program.lookback(); end <= series.size(); end += 7) {
+            program.evaluate(series.slice(0, end), whole);
+            program.evaluate(series.slice(end - program.lookback(), end), tail);
+            for (int node : new int[]{fast, slow, rsi}) {
+                assertEquals(whole.value(node), tail.value(node), Math.abs(whole.value(node)) * 1e-3, "node " + node + " at bar " + end);
+            }
+        }
+
+        SignalProgram.Builder cumulative = SignalProgram.builder();
+        SignalProgram obv = cumulative.entry(SignalProgram.Comparison.GT, cumulative.obv(), cumulative.constant(0)).build(0, 0);
+        assertEquals(Integer.MAX_VALUE, obv.lookback());
+    }
+
+    @Test
+    void testMemoisedColumnsGiveTheSameSignals() {
+        CandleSeries series = zigzag(120);
+        SignalProgram.Memo memo = new SignalProgram.Memo(series);
+        for (int slowPeriod : new int[]{8, 13, 21}) {
+            SignalProgram.Builder builder = SignalProgram.builder();
+            int close = builder.source(SignalProgram.Field.CLOSE);
+            int fast = builder.ema(close, 3);
+            int slow = builder.sma(close, slowPeriod);
+            int rsi = builder.rsi(close, 14);
+            SignalProgram program = builder
+                    .entry(SignalProgram.Comparison.CROSSES_ABOVE, fast, slow)
+                    .exit(SignalProgram.Comparison.LT, rsi, builder.constant(40))
+                    .build(0, 0);
+            boolean[] entries = new boolean[series.size()];
+            boolean[] exits = new boolean[series.size()];
+            boolean[] memoEntries = new boolean[series.size()];
+            boolean[] memoExits = new boolean[series.size()];
+
+            program.evaluateBars(series, program.newWorkspace(), entries, exits);
+            SignalProgram.Workspace workspace = program.newWorkspace();
+            program.evaluateBars(series, workspace, memoEntries, memoExits, memo);
+
+            assertArrayEquals(entries, memoEntries, "entries with SMA " + slowPeriod);
+            assertArrayEquals(exits, memoExits, "exits with SMA " + slowPeriod);
+            assertEquals(referenceRsi(series, 14), workspace.value(rsi), 1e-9);
+        }
+        // ema(close,3), the three SMAs, and RSI with its two Wilder averages: shared ones stored once
+        assertEquals(1 + 3 + 3, memo.size());
+        assertThrows(IllegalArgumentException.class, () -> SignalProgram.builder().build(0, 0)
+                .evaluateBars(zigzag(5), null, new boolean[5], new boolean[5], memo));
+    }
+
+    /**
+     * Closes oscillating around a rising trend, with highs and lows that gap past the previous close.
+     */
+    private static CandleSeries zigzag(int n) {
+        long[] ts = new long[n];
+        double[] open = new double[n];
+        double[] high = new double[n];
+        double[] low = new double[n];
+        double[] close = new double[n];
+        long[] volume = new long[n];
+        for (int i = 0; i < n; i++) {
+            ts[i] = OPEN + i * DAY;
+            close[i] = 100 + i * 0.3 + (i % 3 == 0 ? 2.5 : -1.0) + (i % 7) * 0.4;
+            open[i] = close[i] - 0.5;
+            high[i] = close[i] + 1 + (i % 4) * 0.5;
+            low[i] = close[i] - 1 - (i % 5) * 0.3;
+            volume[i] = 1_000 + i;
+        }
+        return new CandleSeries(ts, open, high, low, close, volume);
+    }
+
+    private static double referenceRsi(CandleSeries series, int period) {
+        double gain = 0;
+        double loss = 0;
+        for (int i = 1; i <= period; i++) {
+            double change = series.close(i) - series.close(i - 1);
+            gain += Math.max(change, 0) / period;
+            loss += Math.max(-change, 0) / period;
+        }
+        for (int i = period + 1; i < series.size(); i++) {
+            double change = series.close(i) - series.close(i - 1);
+            gain = (gain * (period - 1) + Math.max(change, 0)) / period;
+            loss = (loss * (period - 1) + Math.max(-change, 0)) / period;
+        }
+        return 100 - 100 / (1 + gain / loss);
+    }
+
+    private static double referenceAtr(CandleSeries series, int period) {
+        double atr = 0;
+        for (int i = 0; i < series.size(); i++) {
+            double range = series.high(i) - series.low(i);
+            if (i > 0) {
+                double previousClose = series.close(i - 1);
+                range = Math.max(range, Math.max(Math.abs(series.high(i) - previousClose), Math.abs(series.low(i) - previousClose)));
+            }
+            atr = i < period ? atr + range / period : (atr * (period - 1) + range) / period;
+        }
+        return atr;
+    }
+}
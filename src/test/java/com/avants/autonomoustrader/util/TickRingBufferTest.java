@@ -0,0 +1,93 @@
+package com.avants.autonomoustrader.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickRingBufferTest {
+
+    @Test
+    void testPollDeliversPublishedTicksInOrder() {
+        TickRingBuffer ring = new TickRingBuffer(8);
+        assertEquals(-1, ring.cursor());
+
+        ring.publish(738561L, 2500.5, 10, 1_000, 1_000L);
+        ring.publish(408065L, 1450.0, 5, 2_000, 2_000L);
+
+        List<Long> tokens = new ArrayList<>();
+        List<Double> prices = new ArrayList<>();
+        long next = ring.poll(0, 100, (seq, token, price, qty, volume, ts) -> {
+            tokens.add(token);
+            prices.add(price);
+        });
+
+        assertEquals(2, next);
+        assertEquals(List.of(738561L, 408065L), tokens);
+        assertEquals(List.of(2500.5, 1450.0), prices);
+        assertEquals(2, ring.poll(next, 100, (seq, token, price, qty, volume, ts) -> fail("nothing new")));
+    }
+
+    @Test
+    void testLappedConsumerSkipsToOldestRetainedTick() {
+        TickRingBuffer ring = new TickRingBuffer(4);
+        for (int i = 0; i < 10; i++) {
+            ring.publish(1L, i, 1, i, i);
+        }
+
+        List<Long> sequences = new ArrayList<>();
+        long next = ring.poll(0, 100, (seq, token, price, qty, volume, ts) -> sequences.add(seq));
+
+        assertEquals(10, next);
+        assertEquals(List.of(6L, 7L, 8L, 9L), sequences);
+    }
+
+    @Test
+    void testConcurrentConsumersSeeConsistentTicks() throws Exception {
+        TickRingBuffer ring = new TickRingBuffer(1024);
+        int total = 200_000;
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+
+        List<Future<long[]>> consumers = new ArrayList<>();
+        for (int c = 0; c < 2; c++) {
+            consumers.add(pool.submit(() -> {
+                long[] seenAndTorn = new long[2];
+                long next = 0;
+                while (next < total) {
+                    next = ring.poll(next, 256, (seq, token, price, qty, volume, ts) -> {
+                        seenAndTorn[0]++;
+                        // every field of a tick is derived from the same value, so a torn read shows up here
+                        if (token != ts || price != ts * 0.5 || qty != ts || volume != ts) {
+                            seenAndTorn[1]++;
+                        }
+                    });
+                    Thread.onSpinWait();
+                }
+                return seenAndTorn;
+            }));
+        }
+        pool.submit(() -> {
+            for (long i = 0; i < total; i++) {
+                ring.publish(i, i * 0.5, i, i, i);
+            }
+        }).get(30, TimeUnit.SECONDS);
+
+        for (Future<long[]> consumer : consumers) {
+            long[] result = consumer.get(30, TimeUnit.SECONDS);
+            assertTrue(result[0] > 0);
+            assertEquals(0, result[1]);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    void testCapacityMustBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TickRingBuffer(1000));
+    }
+}
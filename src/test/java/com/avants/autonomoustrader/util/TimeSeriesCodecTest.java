@@ -0,0 +1,83 @@
+package com.avants.autonomoustrader.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesCodecTest {
+
+    @Test
+    void testRoundTripsIrregularTimestampsAndValues() {
+        int width = 3;
+        int n = 5_000;
+        Random random = new Random(5);
+        long[] timestamps = new long[n];
+        double[][] values = new double[n][width];
+        long ts = 1_760_000_000L;
+        for (int i = 0; i < n; i++) {
+            // Mostly a steady minute, with sampler jitter, pauses overnight and the odd huge gap
+            ts += switch (i % 500) {
+                case 0 -> 1 + random.nextInt(10_000_000);
+                case 1 -> 64_800;
+                default -> 60 + (i % 7 == 0 ? random.nextInt(5) - 2 : 0);
+            };
+            timestamps[i] = ts;
+            values[i][0] = i % 3 == 0 ? random.nextGaussian() * 1e6 : (i > 0 ? values[i - 1][0] : 0.0);
+            values[i][1] = i % 11 == 0 ? Double.NaN : -random.nextDouble();
+            values[i][2] = i % 100 == 0 ? Double.longBitsToDouble(random.nextLong()) : 12_345.5;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(n * TimeSeriesCodec.maxPointBytes(width));
+        TimeSeriesCodec.Encoder encoder = new TimeSeriesCodec.Encoder(width);
+        for (int i = 0; i < n; i++) {
+            encoder.append(buffer, 16, timestamps[i], values[i]);
+        }
+        assertEquals(n, encoder.count());
+
+        TimeSeriesCodec.Decoder decoder = new TimeSeriesCodec.Decoder(buffer, 16, width, encoder.count());
+        for (int i = 0; i < n; i++) {
+            assertTrue(decoder.next());
+            assertEquals(timestamps[i], decoder.timestamp(), "timestamp " + i);
+            for (int v = 0; v < width; v++) {
+                assertEquals(Double.doubleToRawLongBits(values[i][v]), Double.doubleToRawLongBits(decoder.value(v)),
+                        "value " + v + " of point " + i);
+            }
+        }
+        assertFalse(decoder.next());
+        assertThrows(IllegalArgumentException.class, () -> encoder.append(buffer, 16, timestamps[n - 1] - 1, new double[width]));
+    }
+
+    @Test
+    void testResumedEncoderContinuesTheSameStreamAndUnchangedPointsCostBits() {
+        ByteBuffer whole = ByteBuffer.allocate(1 << 16);
+        ByteBuffer resumed = ByteBuffer.allocate(1 << 16);
+        TimeSeriesCodec.Encoder first = new TimeSeriesCodec.Encoder(2);
+        TimeSeriesCodec.Encoder reference = new TimeSeriesCodec.Encoder(2);
+        long ts = 1_760_000_000L;
+        for (int i = 0; i < 100; i++) {
+            double[] point = {1_000.0 + i * 0.05, 250_000.0};
+            first.append(resumed, 0, ts + i * 60L, point);
+            reference.append(whole, 0, ts + i * 60L, point);
+        }
+
+        long[] bits = {first.previousBits(0), first.previousBits(1)};
+        int[] leading = {first.leading(0), first.leading(1)};
+        int[] trailing = {first.trailing(0), first.trailing(1)};
+        TimeSeriesCodec.Encoder second = new TimeSeriesCodec.Encoder(2, first.bitLength(), first.count(),
+                first.previousTimestamp(), first.previousDelta(), bits, leading, trailing);
+        long before = second.bitLength();
+        for (int i = 100; i < 1_100; i++) {
+            double[] point = {1_004.95, 250_000.0};
+            second.append(resumed, 0, ts + i * 60L, point);
+            reference.append(whole, 0, ts + i * 60L, point);
+        }
+
+        assertEquals(reference.bitLength(), second.bitLength());
+        assertEquals(whole, resumed);
+        // Same spacing, same values: one bit for the timestamp and one per value, after the first change
+        assertTrue(second.bitLength() - before <= 3_000 + 100, "unchanged minutes cost " + (second.bitLength() - before) + " bits");
+    }
+}
@@ -0,0 +1,62 @@
+package com.avants.autonomoustrader.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKCollectorTest {
+
+    @Test
+    void testKeepsTheBestItemsInOrder() {
+        TopKCollector<Integer> top = new TopKCollector<>(3, Comparator.naturalOrder());
+
+        for (int value : new int[]{9, 4, 7, 1, 8, 2}) {
+            top.offer(value);
+        }
+
+        assertEquals(List.of(1, 2, 4), top.sorted());
+        assertFalse(top.offer(5)); // not better than the worst item kept
+        assertTrue(top.offer(3));
+        assertEquals(List.of(1, 2, 3), top.sorted());
+    }
+
+    @Test
+    void testHoldsFewerItemsThanCapacity() {
+        TopKCollector<String> top = new TopKCollector<>(10, Comparator.reverseOrder());
+
+        top.offer("a");
+        top.offer("c");
+        top.offer("b");
+
+        assertEquals(3, top.size());
+        assertEquals(List.of("c", "b", "a"), top.sorted());
+        assertThrows(IllegalArgumentException.class, () -> new TopKCollector<String>(0, Comparator.naturalOrder()));
+    }
+
+    @Test
+    void testConcurrentOffersKeepTheGlobalTopK() throws InterruptedException {
+        List<Integer> values = new ArrayList<>(IntStream.range(0, 20_000).boxed().toList());
+        Collections.shuffle(values, new Random(1));
+        TopKCollector<Integer> top = new TopKCollector<>(50, Comparator.naturalOrder());
+
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        for (int p = 0; p < 4; p++) {
+            List<Integer> share = values.subList(p * 5_000, (p + 1) * 5_000);
+            producers.submit(() -> share.forEach(top::offer));
+        }
+        producers.shutdown();
+        assertTrue(producers.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(IntStream.range(0, 50).boxed().toList(), top.sorted());
+    }
+}
@@ -0,0 +1,103 @@
+package com.avants.autonomoustrader.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar vs Vector API {@link WindowKernels} over a year of 1-minute bars (~94k) and a year of days.
+ * Run the main method from the IDE, or after {@code mvn test-compile}:
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.avants.autonomoustrader.util.WindowKernelsBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class WindowKernelsBenchmark {
+
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    @Param({"250", "93750"})
+    public int bars;
+
+    private WindowKernels impl;
+    private double[] close;
+    private double[] ema;
+    private long[] volume;
+    private double[] volumes;
+    private double[] out;
+    private double[] scratch;
+    private boolean[] mask;
+
+    @Setup
+    public void setUp() {
+        impl = WindowKernels.select("vector".equals(kernels));
+        if (!kernels.equals(impl.name())) {
+            throw new IllegalStateException("Vector API not available — run with --add-modules jdk.incubator.vector");
+        }
+        Random random = new Random(7);
+        close = new double[bars];
+        ema = new double[bars];
+        volume = new long[bars];
+        volumes = new double[bars];
+        out = new double[bars];
+        scratch = new double[bars];
+        mask = new boolean[bars];
+        double price = 1_000;
+        for (int i = 0; i < bars; i++) {
+            price += random.nextGaussian();
+            close[i] = price;
+            ema[i] = price + random.nextGaussian();
+            volume[i] = 10_000 + random.nextInt(50_000);
+        }
+    }
+
+    @Benchmark
+    public double[] volumeAverage20() {
+        impl.toDouble(volume, bars, volumes);
+        impl.rollingMean(volumes, bars, 20, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] rollingSum20() {
+        impl.rollingSum(close, bars, 20, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] rollingMax20() {
+        impl.rollingMax(close, bars, 20, out, scratch);
+        return out;
+    }
+
+    @Benchmark
+    public boolean[] closeAboveEma() {
+        impl.greaterThan(close, ema, bars, mask);
+        return mask;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(WindowKernelsBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,92 @@
+package com.avants.autonomoustrader.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WindowKernelsTest {
+
+    // Lengths and periods on both sides of every vector width (2, 4 and 8 doubles)
+    private static final int[] LENGTHS = {0, 1, 7, 8, 9, 33, 250};
+    private static final int[] PERIODS = {1, 2, 3, 9, 20, 300};
+
+    private final WindowKernels scalar = WindowKernels.scalar();
+    private final WindowKernels selected = WindowKernels.select(true);
+
+    @Test
+    void testRollingWindowsMatchNaiveReference() {
+        Random random = new Random(42);
+        for (int n : LENGTHS) {
+            double[] in = new double[n];
+            for (int i = 0; i < n; i++) {
+                in[i] = 100 + random.nextGaussian() * 5;
+            }
+            for (int period : PERIODS) {
+                for (WindowKernels kernels : new WindowKernels[]{scalar, selected}) {
+                    double[] sum = new double[n];
+                    double[] mean = new double[n];
+                    double[] max = new double[n];
+                    double[] min = new double[n];
+                    kernels.rollingSum(in, n, period, sum);
+                    kernels.rollingMean(in, n, period, mean);
+                    kernels.rollingMax(in, n, period, max, new double[n]);
+                    kernels.rollingMin(in, n, period, min, new double[n]);
+
+                    for (int i = 0; i < n; i++) {
+                        String at = kernels.name() + " n=" + n + " period=" + period + " i=" + i;
+                        if (i < period - 1) {
+                            assertTrue(Double.isNaN(sum[i]) && Double.isNaN(mean[i]) && Double.isNaN(max[i]) && Double.isNaN(min[i]), at);
+                            continue;
+                        }
+                        double expectedSum = 0;
+                        double expectedMax = Double.NEGATIVE_INFINITY;
+                        double expectedMin = Double.POSITIVE_INFINITY;
+                        for (int k = i - period + 1; k <= i; k++) {
+                            expectedSum += in[k];
+                            expectedMax = Math.max(expectedMax, in[k]);
+                            expectedMin = Math.min(expectedMin, in[k]);
+                        }
+                        assertEquals(expectedSum, sum[i], 1e-9, at);
+                        assertEquals(expectedSum / period, mean[i], 1e-9, at);
+                        assertEquals(expectedMax, max[i], at);
+                        assertEquals(expectedMin, min[i], at);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testComparisonAndWidening() {
+        int n = 19;
+        double[] a = new double[n];
+        double[] b = new double[n];
+        long[] volumes = new long[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = i % 3;
+            b[i] = 1;
+            volumes[i] = 1_000_000_007L * i;
+        }
+        a[n - 1] = Double.NaN; // NaN never compares greater
+
+        for (WindowKernels kernels : new WindowKernels[]{scalar, selected}) {
+            boolean[] greater = new boolean[n];
+            double[] widened = new double[n];
+            kernels.greaterThan(a, b, n, greater);
+            kernels.toDouble(volumes, n, widened);
+            for (int i = 0; i < n; i++) {
+                assertEquals(a[i] > 1, greater[i], kernels.name() + " i=" + i);
+                assertEquals((double) volumes[i], widened[i]);
+            }
+        }
+    }
+
+    @Test
+    void testSelectFallsBackToScalarWhenVectorIsNotPreferred() {
+        assertSame(scalar, WindowKernels.select(false));
+        assertEquals("scalar", scalar.name());
+        assertThrows(IllegalArgumentException.class, () -> scalar.rollingSum(new double[1], 1, 0, new double[1]));
+    }
+}